@@ -6,6 +6,7 @@ plugins {
     id("org.springframework.boot") version "3.5.7"
     id("io.spring.dependency-management") version "1.1.7"
     id("org.openapi.generator") version "7.17.0"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "daviscyl"
@@ -39,18 +40,25 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.8.13")
     implementation("org.openapitools:jackson-databind-nullable:0.2.6")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     implementation("org.flywaydb:flyway-core")
     implementation("org.flywaydb:flyway-database-postgresql")
     compileOnly("org.projectlombok:lombok")
     developmentOnly("org.springframework.boot:spring-boot-devtools")
     developmentOnly("org.springframework.boot:spring-boot-docker-compose")
     runtimeOnly("org.postgresql:postgresql")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
     annotationProcessor("org.projectlombok:lombok")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.security:spring-security-test")
+    testImplementation("org.springframework.boot:spring-boot-testcontainers")
+    testImplementation("org.testcontainers:junit-jupiter")
+    testImplementation("org.testcontainers:postgresql")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
     testRuntimeOnly("com.h2database:h2")
+    jmhImplementation("org.springframework:spring-test")
+    jmhRuntimeOnly("com.h2database:h2")
 }
 
 openApiGenerate {
@@ -74,6 +82,26 @@ sourceSets {
     named("main") {
         java.srcDir(layout.buildDirectory.dir("generated/openapi/src/main/java"))
     }
+    // End-to-end load test; boots the application on the test profile, so it shares the test resources
+    create("loadTest") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+        resources.srcDir("src/test/resources")
+    }
+}
+
+configurations {
+    named("loadTestImplementation") {
+        extendsFrom(configurations.implementation.get())
+    }
+    named("loadTestRuntimeOnly") {
+        extendsFrom(configurations.runtimeOnly.get())
+    }
+}
+
+dependencies {
+    "loadTestImplementation"("org.hdrhistogram:HdrHistogram:2.2.2")
+    "loadTestRuntimeOnly"("com.h2database:h2")
 }
 
 tasks.named("compileJava") {
@@ -88,6 +116,29 @@ tasks.withType<Test> {
     useJUnitPlatform()
 }
 
+// Microbenchmarks: ./gradlew jmh [-PjmhIncludes=<regex>]; results are written as JSON for comparing commits
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    (findProperty("jmhIncludes") as String?)?.let { includes.set(listOf(it)) }
+}
+
+// Redirect load test: ./gradlew loadTest [-Ploadtest.clients=200 -Ploadtest.duration=PT1M ...]
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Boots the service on H2 and drives a Zipf-distributed redirect workload against it."
+    classpath = sourceSets["loadTest"].runtimeClasspath
+    mainClass.set("daviscyl.tinyurlsvcjava.loadtest.RedirectLoadTest")
+    systemProperty("loadtest.results-dir", layout.buildDirectory.dir("results/loadtest").get().asFile.absolutePath)
+    project.properties
+        .filterKeys { it.startsWith("loadtest.") }
+        .forEach { (key, value) -> systemProperty(key, value.toString()) }
+}
+
 tasks.named<BootRun>("bootRun") {
     systemProperty("spring.profiles.active", "dev")
 }
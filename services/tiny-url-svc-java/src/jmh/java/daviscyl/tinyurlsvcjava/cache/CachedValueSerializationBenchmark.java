@@ -0,0 +1,63 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis value serialization of cached destinations: the JSON serializer used for other caches against the
+ * binary {@code url-cache} format. The serialized sizes, which dominate Redis memory per entry next to the
+ * key, are compared in {@code ResolvedUrlRedisSerializerTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CachedValueSerializationBenchmark {
+
+    @Param({"json", "binary"})
+    private String format;
+
+    private RedisSerializer<Object> serializer;
+    private ResolvedUrl value;
+    private byte[] serialized;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        serializer = switch (format) {
+            // The previous url-cache format, with date support for the expiry
+            case "json" -> new GenericJackson2JsonRedisSerializer()
+                .configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+            case "binary" -> (RedisSerializer<Object>) (RedisSerializer<?>) new ResolvedUrlRedisSerializer();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        value = new ResolvedUrl(
+            42L,
+            "https://example.com/campaigns/spring/landing-page?utm_source=newsletter",
+            Instant.parse("2030-01-01T00:00:00Z")
+        );
+        serialized = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serialized);
+    }
+}
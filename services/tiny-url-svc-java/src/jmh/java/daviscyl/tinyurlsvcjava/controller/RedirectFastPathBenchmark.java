@@ -0,0 +1,105 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import daviscyl.tinyurlsvcjava.TinyUrlSvcJavaApplication;
+import daviscyl.tinyurlsvcjava.service.UrlService;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cached redirect served by {@link RedirectFastPathFilter} against the same redirect going through the
+ * Spring Security filter chain and the {@code DispatcherServlet} to {@link AliasApiController}, in a servlet
+ * context on the {@code jmh} profile. Both sides use mock requests and responses, so the difference is the
+ * per-request cost of the generic pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RedirectFastPathBenchmark {
+
+    private static final String KNOWN_ALIAS = "/benchKnown";
+    private static final String UNKNOWN_ALIAS = "/benchUnknown";
+
+    private static final FilterChain NOT_HANDLED = (request, response) -> {
+        throw new IllegalStateException("Fast path did not handle " + ((MockHttpServletRequest) request).getRequestURI());
+    };
+
+    private ConfigurableApplicationContext context;
+    private Filter fastPathFilter;
+    private Filter securityFilterChain;
+    private DispatcherServlet dispatcherServlet;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        // Tracking only buffers; the flush is pushed out of the run since H2 has no PostgreSQL upsert
+        context = new SpringApplicationBuilder(TinyUrlSvcJavaApplication.class)
+            .profiles("jmh")
+            .run("--server.port=0",
+                "--spring.mvc.servlet.load-on-startup=1",
+                "--tiny-url.redirect-tracking.flush-interval=PT1H",
+                "--tiny-url.redirect-tracking.max-pending-redirects=" + Long.MAX_VALUE);
+        fastPathFilter = context.getBean("redirectFastPathFilter", FilterRegistrationBean.class).getFilter();
+        securityFilterChain = context.getBean("springSecurityFilterChain", Filter.class);
+        dispatcherServlet = context.getBean(DispatcherServlet.class);
+
+        context.getBean(UrlService.class)
+            .createUrl("https://example.com/campaigns/spring/landing-page", KNOWN_ALIAS.substring(1), null, "bench-user");
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse fastPathRedirect() throws IOException, ServletException {
+        return fastPath(KNOWN_ALIAS);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse mvcRedirect() throws IOException, ServletException {
+        return mvc(KNOWN_ALIAS);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse fastPathNotFound() throws IOException, ServletException {
+        return fastPath(UNKNOWN_ALIAS);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse mvcNotFound() throws IOException, ServletException {
+        return mvc(UNKNOWN_ALIAS);
+    }
+
+    private MockHttpServletResponse fastPath(String path) throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fastPathFilter.doFilter(new MockHttpServletRequest("GET", path), response, NOT_HANDLED);
+        return response;
+    }
+
+    private MockHttpServletResponse mvc(String path) throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain(dispatcherServlet, securityFilterChain)
+            .doFilter(new MockHttpServletRequest("GET", path), response);
+        return response;
+    }
+}
@@ -0,0 +1,65 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import daviscyl.tinyurlsvcjava.model.UrlResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping entities to API resources, per row and for a full listing page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UrlResourceMappingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private UrlsApiController controller;
+    private UrlEntity entity;
+    private List<UrlEntity> page;
+
+    @Setup
+    public void setUp() {
+        // toUrlResource uses none of the collaborators
+        controller = new UrlsApiController(null, null, null, null, null, null);
+        OffsetDateTime now = OffsetDateTime.now();
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(UrlEntity.builder()
+                .id((long) i)
+                .alias("bench" + i)
+                .destinationUrl("https://example.com/campaigns/spring/landing-page?utm_source=newsletter&id=" + i)
+                .userId("user-123")
+                .createdAt(now)
+                .updatedAt(now)
+                .expiresAt(i % 2 == 0 ? now.plusDays(30) : null)
+                .build());
+        }
+        entity = page.get(0);
+    }
+
+    @Benchmark
+    public UrlResource singleRow() {
+        return controller.toUrlResource(entity);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void listingPage(Blackhole blackhole) {
+        for (UrlEntity url : page) {
+            blackhole.consume(controller.toUrlResource(url));
+        }
+    }
+}
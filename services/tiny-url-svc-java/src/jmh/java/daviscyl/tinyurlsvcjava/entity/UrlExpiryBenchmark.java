@@ -0,0 +1,40 @@
+package daviscyl.tinyurlsvcjava.entity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UrlEntity#isExpired()} for urls with and without an expiry; the former reads the clock per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UrlExpiryBenchmark {
+
+    private UrlEntity withoutExpiry;
+    private UrlEntity withExpiry;
+
+    @Setup
+    public void setUp() {
+        withoutExpiry = UrlEntity.builder().alias("noexpiry").build();
+        withExpiry = UrlEntity.builder().alias("expiring").expiresAt(OffsetDateTime.now().plusDays(30)).build();
+    }
+
+    @Benchmark
+    public boolean withoutExpiry() {
+        return withoutExpiry.isExpired();
+    }
+
+    @Benchmark
+    public boolean withExpiry() {
+        return withExpiry.isExpired();
+    }
+}
@@ -0,0 +1,56 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alias generation without the database: encoding an id from a reserved block, compared with the random
+ * alias that {@code UrlService.generateRandomAlias} used to build before each existence check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AliasGenerationBenchmark {
+
+    private static final String ALIAS_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final int ALIAS_LENGTH = 7;
+
+    private final AliasCodec scrambled = new AliasCodec(true, 7046029254386353131L);
+    private final AliasCodec plain = new AliasCodec(false, 0L);
+    private final AtomicLong nextId = new AtomicLong();
+    private final Random random = new Random();
+
+    @Benchmark
+    public String encodeScrambled() {
+        return scrambled.encode(nextId.getAndIncrement() % AliasCodec.capacity());
+    }
+
+    @Benchmark
+    public String encodePlain() {
+        return plain.encode(nextId.getAndIncrement() % AliasCodec.capacity());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String encodeScrambledContended() {
+        return scrambled.encode(nextId.getAndIncrement() % AliasCodec.capacity());
+    }
+
+    @Benchmark
+    public String legacyRandomAlias() {
+        StringBuilder sb = new StringBuilder(ALIAS_LENGTH);
+        for (int i = 0; i < ALIAS_LENGTH; i++) {
+            sb.append(ALIAS_CHARACTERS.charAt(random.nextInt(ALIAS_CHARACTERS.length())));
+        }
+        return sb.toString();
+    }
+}
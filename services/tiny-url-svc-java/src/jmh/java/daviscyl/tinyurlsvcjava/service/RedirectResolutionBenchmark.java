@@ -0,0 +1,71 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.TinyUrlSvcJavaApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full {@link RedirectService#resolveAlias} path in a Spring context backed by H2 and an in-memory cache
+ * (the {@code jmh} profile): cache hits, database loads after an eviction, and unknown aliases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RedirectResolutionBenchmark {
+
+    private static final String KNOWN_ALIAS = "benchKnown";
+    private static final String UNKNOWN_ALIAS = "benchUnknown";
+
+    private ConfigurableApplicationContext context;
+    private RedirectService redirectService;
+    private Cache urlCache;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(TinyUrlSvcJavaApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("jmh")
+            .run();
+        redirectService = context.getBean(RedirectService.class);
+        urlCache = context.getBean(CacheManager.class).getCache(RedirectService.URL_CACHE);
+
+        context.getBean(UrlService.class)
+            .createUrl("https://example.com/campaigns/spring/landing-page", KNOWN_ALIAS, null, "bench-user");
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<ResolvedUrl> cachedAlias() {
+        return redirectService.resolveAlias(KNOWN_ALIAS);
+    }
+
+    @Benchmark
+    public Optional<ResolvedUrl> uncachedAlias() {
+        urlCache.evict(KNOWN_ALIAS);
+        return redirectService.resolveAlias(KNOWN_ALIAS);
+    }
+
+    @Benchmark
+    public Optional<ResolvedUrl> unknownAlias() {
+        return redirectService.resolveAlias(UNKNOWN_ALIAS);
+    }
+}
@@ -0,0 +1,34 @@
+package daviscyl.tinyurlsvcjava.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Load test knobs, read from {@code loadtest.*} system properties ({@code -Ploadtest.*} on the Gradle task).
+ */
+record LoadTestSettings(
+    int urls,
+    double zipfExponent,
+    int clients,
+    Duration warmup,
+    Duration duration,
+    double createRatio,
+    double statsRatio,
+    double unknownRatio,
+    Path resultsDir
+) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+            Integer.getInteger("loadtest.urls", 10_000),
+            Double.parseDouble(System.getProperty("loadtest.zipf-exponent", "1.1")),
+            Integer.getInteger("loadtest.clients", 200),
+            Duration.parse(System.getProperty("loadtest.warmup", "PT10S")),
+            Duration.parse(System.getProperty("loadtest.duration", "PT30S")),
+            Double.parseDouble(System.getProperty("loadtest.create-ratio", "0.02")),
+            Double.parseDouble(System.getProperty("loadtest.stats-ratio", "0.01")),
+            Double.parseDouble(System.getProperty("loadtest.unknown-ratio", "0.05")),
+            Path.of(System.getProperty("loadtest.results-dir", "build/results/loadtest"))
+        );
+    }
+}
@@ -0,0 +1,216 @@
+package daviscyl.tinyurlsvcjava.loadtest;
+
+import daviscyl.tinyurlsvcjava.TinyUrlSvcJavaApplication;
+import daviscyl.tinyurlsvcjava.service.UrlService;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Boots the service on the {@code test} profile (H2) with an in-memory cache, seeds urls and drives a mixed
+ * workload from virtual-thread clients: Zipf-distributed redirects, unknown aliases, url creation and stats
+ * reads. Latencies are recorded per request kind in HDR histograms, printed as a summary and written as
+ * {@code .hgrm} percentile distributions to the results directory.
+ * <p>
+ * Clients run closed-loop (each sends its next request when the previous one returned), so under saturation
+ * the histograms understate queueing delay; compare runs with the same client count.
+ */
+public final class RedirectLoadTest {
+
+    private static final String OWNER = "user-123";
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * Redirect hits and misses cannot be told apart from the response; the first request for an alias in a
+     * run necessarily misses the cache and is counted as a miss, later ones as hits.
+     */
+    enum RequestKind { REDIRECT_HIT, REDIRECT_MISS, REDIRECT_NOT_FOUND, CREATE_URL, GET_STATS }
+
+    private final LoadTestSettings settings;
+    private final Map<RequestKind, Histogram> histograms = new EnumMap<>(RequestKind.class);
+    private final Set<Integer> resolvedOnce = ConcurrentHashMap.newKeySet();
+    private final LongAdder errors = new LongAdder();
+    private final ZipfDistribution popularity;
+    private final HttpClient httpClient;
+    private URI baseUri;
+    private volatile boolean recording;
+
+    private RedirectLoadTest(LoadTestSettings settings) {
+        this.settings = settings;
+        this.popularity = new ZipfDistribution(settings.urls(), settings.zipfExponent());
+        for (RequestKind kind : RequestKind.values()) {
+            histograms.put(kind, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+        }
+        this.httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        // Passed as arguments so they take precedence over the test profile. H2 has no PostgreSQL upsert, so
+        // the redirect counter flush is pushed out of the measured window.
+        String[] overrides = {
+            "--server.port=0",
+            "--spring.cache.type=simple",
+            "--spring.threads.virtual.enabled=true",
+            "--tiny-url.redirect-tracking.flush-interval=PT1H",
+            "--tiny-url.redirect-tracking.max-pending-redirects=" + Long.MAX_VALUE,
+            // Every client shares one address and would exhaust its redirect budget within a second
+            "--tiny-url.rate-limit.enabled=false",
+            "--logging.level.root=WARN"
+        };
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TinyUrlSvcJavaApplication.class)
+            .profiles("test")
+            .run(overrides)) {
+            RedirectLoadTest loadTest = new RedirectLoadTest(settings);
+            loadTest.baseUri = URI.create("http://localhost:"
+                + ((WebServerApplicationContext) context).getWebServer().getPort());
+            loadTest.seed(context.getBean(UrlService.class));
+            loadTest.run();
+        }
+    }
+
+    private void seed(UrlService urlService) {
+        long start = System.nanoTime();
+        for (int rank = 0; rank < settings.urls(); rank++) {
+            urlService.createUrl("https://example.com/landing/" + rank, alias(rank), null, OWNER);
+        }
+        System.out.printf(Locale.ROOT, "Seeded %d urls in %d ms%n",
+            settings.urls(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void run() throws InterruptedException, IOException {
+        long warmupEnd = System.nanoTime() + settings.warmup().toNanos();
+        long end = warmupEnd + settings.duration().toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < settings.clients(); i++) {
+                clients.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        sendOne();
+                    }
+                });
+            }
+
+            // Nothing is recorded during warm-up, while JIT and caches settle
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, warmupEnd - System.nanoTime()));
+            recording = true;
+        }
+
+        report();
+    }
+
+    private void sendOne() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double roll = random.nextDouble();
+
+        RequestKind kind;
+        HttpRequest request;
+        int expectedStatus;
+        if (roll < settings.createRatio()) {
+            kind = RequestKind.CREATE_URL;
+            request = HttpRequest.newBuilder(baseUri.resolve("/urls"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                    "{\"longUrl\":\"https://example.com/new/" + random.nextLong(Long.MAX_VALUE) + "\"}"))
+                .build();
+            expectedStatus = 201;
+        } else if (roll < settings.createRatio() + settings.statsRatio()) {
+            kind = RequestKind.GET_STATS;
+            request = HttpRequest.newBuilder(baseUri.resolve("/urls/" + alias(popularity.sample()) + "/stats")).build();
+            expectedStatus = 200;
+        } else if (roll < settings.createRatio() + settings.statsRatio() + settings.unknownRatio()) {
+            kind = RequestKind.REDIRECT_NOT_FOUND;
+            request = HttpRequest.newBuilder(baseUri.resolve("/missing" + random.nextInt(1_000_000))).build();
+            expectedStatus = 404;
+        } else {
+            int rank = popularity.sample();
+            kind = resolvedOnce.add(rank) ? RequestKind.REDIRECT_MISS : RequestKind.REDIRECT_HIT;
+            request = HttpRequest.newBuilder(baseUri.resolve("/" + alias(rank))).build();
+            expectedStatus = 302;
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            if (!recording) {
+                return;
+            }
+            if (response.statusCode() != expectedStatus) {
+                errors.increment();
+                return;
+            }
+            histograms.get(kind).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        } catch (IOException e) {
+            if (recording) {
+                errors.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report() throws IOException {
+        Files.createDirectories(settings.resultsDir());
+        double seconds = settings.duration().toMillis() / 1000.0;
+        long total = 0;
+
+        System.out.printf(Locale.ROOT, "%n%d clients, %s measured after %s warm-up, %d urls (zipf s=%.2f)%n",
+            settings.clients(), settings.duration(), settings.warmup(), settings.urls(), settings.zipfExponent());
+        System.out.printf(Locale.ROOT, "%-20s %10s %10s %9s %9s %9s %9s%n",
+            "kind", "count", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        for (Map.Entry<RequestKind, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            String name = entry.getKey().name().toLowerCase(Locale.ROOT).replace('_', '-');
+            total += histogram.getTotalCount();
+
+            System.out.printf(Locale.ROOT, "%-20s %10d %10.1f %9.3f %9.3f %9.3f %9.3f%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+
+            try (PrintStream out = new PrintStream(Files.newOutputStream(settings.resultsDir().resolve(name + ".hgrm")))) {
+                // Values are recorded in microseconds; the distribution is written in milliseconds
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%-20s %10d %10.1f%n", "total", total, total / seconds);
+        System.out.printf(Locale.ROOT, "%-20s %10d%n", "errors", errors.sum());
+        System.out.println("Histograms written to " + settings.resultsDir().toAbsolutePath());
+    }
+
+    private static String alias(int rank) {
+        return String.format(Locale.ROOT, "load%06d", rank);
+    }
+}
@@ -0,0 +1,257 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import daviscyl.tinyurlsvcjava.config.AliasShieldProperties;
+import daviscyl.tinyurlsvcjava.datasource.AfterCommit;
+import daviscyl.tinyurlsvcjava.repository.AliasRow;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Answers "is this alias definitely unknown?" without touching Redis or PostgreSQL.
+ * <p>
+ * A Bloom filter of every alias in {@code urls} rejects aliases that were never created; a short-lived
+ * negative cache covers aliases that exist but are inactive or expired. Until the first build of the
+ * filter has finished, only the negative cache is consulted.
+ * <p>
+ * New aliases reach the filters of other nodes through a broadcast, which is best effort. A frequent delta
+ * sync therefore also adds every row inserted since a watermark that trails the newest seen id by the
+ * configured overlap, so an alias whose broadcast was lost is rejected for at most a sync interval, and rows
+ * that commit after rows with higher ids are still picked up.
+ */
+@Component
+@Slf4j
+public class AliasShield {
+
+    /**
+     * Pseudo cache name under which alias creations are broadcast on the {@link CacheInvalidationBus}.
+     */
+    public static final String CACHE_NAME = "alias-shield";
+
+    private static final String URL_CACHE_NAME = "url-cache";
+    private static final int DELTA_SYNC_PAGE_SIZE = 1000;
+
+    private final AliasShieldProperties properties;
+    private final UrlRepository urlRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectProvider<CacheInvalidationBus> invalidationBus;
+    private final Cache<String, Boolean> negativeCache;
+
+    private final LongAdder filterRejections = new LongAdder();
+    private final LongAdder negativeCacheHits = new LongAdder();
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+
+    // Highest id seen by earlier syncs, oldest first; guarded by this
+    private final List<SyncPoint> syncPoints = new ArrayList<>();
+
+    public AliasShield(AliasShieldProperties properties,
+                       UrlRepository urlRepository,
+                       PlatformTransactionManager transactionManager,
+                       ObjectProvider<CacheInvalidationBus> invalidationBus) {
+        this.properties = properties;
+        this.urlRepository = urlRepository;
+        this.invalidationBus = invalidationBus;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.negativeCache = Caffeine.newBuilder()
+            .maximumSize(properties.negativeCacheMaximumSize())
+            .expireAfterWrite(properties.negativeCacheTimeToLive())
+            .build();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        invalidationBus.ifAvailable(bus -> bus.subscribe(this::onInvalidation));
+    }
+
+    public boolean isKnownMissing(String alias) {
+        if (!properties.enabled()) {
+            return false;
+        }
+
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(alias)) {
+            filterRejections.increment();
+            return true;
+        }
+
+        if (negativeCache.getIfPresent(alias) != null) {
+            negativeCacheHits.increment();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Remembers an alias that exists in the filter but did not resolve (inactive, expired or a false positive).
+     */
+    public void recordMissing(String alias) {
+        if (properties.enabled()) {
+            negativeCache.put(alias, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Adds a newly created alias on this node and, after commit, on all other nodes.
+     */
+    public void aliasCreated(String alias) {
+        AfterCommit.run(() -> {
+            addLocally(alias);
+            invalidationBus.ifAvailable(bus -> bus.publish(CacheInvalidation.evict(CACHE_NAME, alias)));
+        });
+    }
+
+    /**
+     * Forgets a negative entry for an alias whose destination or expiry changed. Other nodes learn about the
+     * change through the {@code url-cache} eviction.
+     */
+    public void aliasChanged(String alias) {
+        AfterCommit.run(() -> negativeCache.invalidate(alias));
+    }
+
+    /**
+     * Rebuilds the Bloom filter from the {@code urls} table. Runs at startup and then periodically so that
+     * deleted aliases drop out and missed broadcasts are repaired.
+     */
+    @Scheduled(fixedDelayString = "${tiny-url.alias-shield.rebuild-interval:PT6H}")
+    public void rebuild() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        long expected = Math.max(properties.expectedInsertions(), urlRepository.count() * 2);
+        BloomFilter next = BloomFilter.create(expected, properties.falsePositiveProbability());
+
+        // Aliases created while the table is streamed are added to both filters, see addLocally
+        rebuilding = next;
+        recordSyncPoint(started, readOnlyTransaction.execute(status -> urlRepository.findMaxId().orElse(0L)));
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> aliases = urlRepository.streamAllAliases()) {
+                    aliases.forEach(next::put);
+                }
+            });
+            filter = next;
+        } finally {
+            rebuilding = null;
+        }
+
+        log.info("Alias Bloom filter rebuilt in {} ms: {} bits, {} hash functions, {} KiB",
+            Duration.ofNanos(System.nanoTime() - started).toMillis(),
+            next.bitSize(), next.hashFunctions(), next.memoryBytes() / 1024);
+    }
+
+    /**
+     * Adds the aliases of rows inserted since the last syncs, whether or not their creation was broadcast.
+     * Rescans the rows of the last {@code deltaSyncOverlap}, so a row whose id was assigned before that of an
+     * already synced row but committed later is still found.
+     */
+    @Scheduled(fixedDelayString = "${tiny-url.alias-shield.delta-sync-interval:PT5S}")
+    public synchronized void syncRecentAliases() {
+        if (!properties.enabled() || syncPoints.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long overlapNanos = properties.deltaSyncOverlap().toNanos();
+        while (syncPoints.size() > 1 && now - syncPoints.get(1).nanoTime() >= overlapNanos) {
+            syncPoints.removeFirst();
+        }
+
+        long maxId = syncPoints.getFirst().maxId();
+        List<AliasRow> page;
+        do {
+            long pageAfter = maxId;
+            page = readOnlyTransaction.execute(status ->
+                urlRepository.findAliasesAfter(pageAfter, Limit.of(DELTA_SYNC_PAGE_SIZE)));
+            for (AliasRow row : page) {
+                addLocally(row.alias());
+                maxId = row.id();
+            }
+        } while (page.size() == DELTA_SYNC_PAGE_SIZE);
+
+        recordSyncPoint(now, maxId);
+    }
+
+    public ShieldStats stats() {
+        BloomFilter current = filter;
+        return new ShieldStats(
+            properties.enabled(),
+            current != null,
+            current != null ? current.bitSize() : 0,
+            current != null ? current.memoryBytes() : 0,
+            current != null ? current.hashFunctions() : 0,
+            properties.falsePositiveProbability(),
+            current != null ? current.currentFalsePositiveProbability() : 0.0,
+            current != null ? current.approximateElementCount() : 0,
+            negativeCache.estimatedSize(),
+            filterRejections.sum(),
+            negativeCacheHits.sum()
+        );
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (invalidation.isClear()) {
+            return;
+        }
+        if (CACHE_NAME.equals(invalidation.cacheName())) {
+            addLocally(invalidation.key());
+        } else if (URL_CACHE_NAME.equals(invalidation.cacheName())) {
+            negativeCache.invalidate(invalidation.key());
+        }
+    }
+
+    private void addLocally(String alias) {
+        // Read the rebuilding filter before the live one: either the rebuild started after the row was
+        // committed and streams it, or the alias is put into the filter that is about to replace the live one
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(alias);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(alias);
+        }
+        negativeCache.invalidate(alias);
+    }
+
+    private synchronized void recordSyncPoint(long nanoTime, long maxId) {
+        if (syncPoints.isEmpty() || maxId > syncPoints.getLast().maxId()) {
+            syncPoints.addLast(new SyncPoint(nanoTime, maxId));
+        }
+    }
+
+    private record SyncPoint(long nanoTime, long maxId) {}
+
+    public record ShieldStats(
+        boolean enabled,
+        boolean filterReady,
+        long filterBits,
+        long filterMemoryBytes,
+        int filterHashFunctions,
+        double configuredFalsePositiveProbability,
+        double currentFalsePositiveProbability,
+        long approximateAliases,
+        long negativeCacheSize,
+        long filterRejections,
+        long negativeCacheHits
+    ) {}
+}
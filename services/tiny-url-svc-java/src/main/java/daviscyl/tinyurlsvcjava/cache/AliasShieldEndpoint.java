@@ -0,0 +1,22 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint reporting the size, fill level and effectiveness of the {@link AliasShield}.
+ */
+@Component
+@Endpoint(id = "aliasshield")
+@RequiredArgsConstructor
+public class AliasShieldEndpoint {
+
+    private final AliasShield aliasShield;
+
+    @ReadOperation
+    public AliasShield.ShieldStats aliasShield() {
+        return aliasShield.stats();
+    }
+}
@@ -0,0 +1,108 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.util.Hashing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ * <p>
+ * Bits live in an {@link AtomicLongArray}, so concurrent {@link #put} calls never lose each other's bits and
+ * {@link #mightContain} needs no locking. Index positions use double hashing of one 64-bit hash.
+ */
+public final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctions;
+
+    private BloomFilter(long bitSize, int hashFunctions) {
+        int wordCount = Math.toIntExact((bitSize + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = (long) wordCount << 6;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * Sizes a filter for the expected number of elements at the given false-positive probability.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False-positive probability must be in (0, 1): " + falsePositiveProbability);
+        }
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (LN2 * LN2));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * LN2));
+        return new BloomFilter(Math.max(64, bits), hashes);
+    }
+
+    public void put(CharSequence value) {
+        long hash = Hashing.hash64(value);
+        long h1 = hash;
+        long h2 = Long.rotateLeft(hash, 32) * 0x9E3779B97F4A7C15L | 1L;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, m) -> current | m);
+            }
+        }
+    }
+
+    /**
+     * Returns {@code false} only if the value was definitely never added.
+     */
+    public boolean mightContain(CharSequence value) {
+        long hash = Hashing.hash64(value);
+        long h1 = hash;
+        long h2 = Long.rotateLeft(hash, 32) * 0x9E3779B97F4A7C15L | 1L;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    public long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /**
+     * Estimates the number of distinct elements from the fraction of set bits. Scans the whole filter.
+     */
+    public long approximateElementCount() {
+        long setBits = bitCount();
+        if (setBits >= bitSize) {
+            return Long.MAX_VALUE;
+        }
+        return Math.round(-((double) bitSize / hashFunctions) * Math.log1p(-(double) setBits / bitSize));
+    }
+
+    /**
+     * False-positive probability at the current fill level. Scans the whole filter.
+     */
+    public double currentFalsePositiveProbability() {
+        return Math.pow((double) bitCount() / bitSize, hashFunctions);
+    }
+
+    private long bitCount() {
+        long count = 0;
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,22 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+/**
+ * Notification that a cache entry changed on another node. A {@code null} key clears the whole cache.
+ */
+public record CacheInvalidation(
+    String cacheName,
+    String key
+) {
+
+    public static CacheInvalidation evict(String cacheName, Object key) {
+        return new CacheInvalidation(cacheName, String.valueOf(key));
+    }
+
+    public static CacheInvalidation clear(String cacheName) {
+        return new CacheInvalidation(cacheName, null);
+    }
+
+    public boolean isClear() {
+        return key == null;
+    }
+}
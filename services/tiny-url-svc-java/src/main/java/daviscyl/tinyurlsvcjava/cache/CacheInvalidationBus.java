@@ -0,0 +1,14 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations between nodes so that in-process caches do not serve stale entries.
+ * Implementations do not deliver a node's own invalidations back to it.
+ */
+public interface CacheInvalidationBus {
+
+    void publish(CacheInvalidation invalidation);
+
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
@@ -0,0 +1,51 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Publishes the per-tier counters of every {@link TwoTierCache} as meters tagged with cache name and tier.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheTierMetrics implements MeterBinder {
+
+    private final ObjectProvider<TwoTierCacheManager> cacheManager;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cacheManager.ifAvailable(manager -> manager.onCacheCreated(cache -> {
+            bindTier(registry, cache, "local", TwoTierCache::localStats);
+            bindTier(registry, cache, "shared", TwoTierCache::sharedStats);
+            Gauge.builder("cache.tier.size", cache, c -> c.localStats().size())
+                .description("Entries held in the local tier")
+                .tags(Tags.of("cache", cache.getName(), "tier", "local"))
+                .register(registry);
+        }));
+    }
+
+    private static void bindTier(MeterRegistry registry, TwoTierCache cache, String tier,
+                                 Function<TwoTierCache, TwoTierCache.TierStats> stats) {
+        Tags tags = Tags.of("cache", cache.getName(), "tier", tier);
+        FunctionCounter.builder("cache.tier.gets", cache, c -> stats.apply(c).hits())
+            .description("Lookups per tier, by result")
+            .tags(tags.and("result", "hit"))
+            .register(registry);
+        FunctionCounter.builder("cache.tier.gets", cache, c -> stats.apply(c).misses())
+            .description("Lookups per tier, by result")
+            .tags(tags.and("result", "miss"))
+            .register(registry);
+        Gauge.builder("cache.tier.hit.ratio", cache, c -> stats.apply(c).hitRatio())
+            .description("Share of lookups answered by the tier")
+            .tags(tags)
+            .register(registry);
+    }
+}
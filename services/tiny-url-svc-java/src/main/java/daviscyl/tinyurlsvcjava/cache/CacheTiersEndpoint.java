@@ -0,0 +1,34 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Actuator endpoint exposing hit and miss counters of each cache tier.
+ */
+@Component
+@Endpoint(id = "cachetiers")
+@RequiredArgsConstructor
+public class CacheTiersEndpoint {
+
+    private final ObjectProvider<TwoTierCacheManager> cacheManager;
+
+    @ReadOperation
+    public Map<String, CacheTiers> cacheTiers() {
+        Map<String, CacheTiers> tiers = new TreeMap<>();
+        cacheManager.ifAvailable(manager -> manager.getTwoTierCaches().forEach((name, cache) ->
+            tiers.put(name, new CacheTiers(cache.localStats(), cache.sharedStats()))));
+        return tiers;
+    }
+
+    public record CacheTiers(
+        TwoTierCache.TierStats local,
+        TwoTierCache.TierStats shared
+    ) {}
+}
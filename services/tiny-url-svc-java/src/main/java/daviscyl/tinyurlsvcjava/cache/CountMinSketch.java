@@ -0,0 +1,74 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.util.Hashing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Count-Min sketch over strings.
+ * <p>
+ * Estimates never undercount; with width {@code w} they overcount by at most {@code e / w} of the total with
+ * probability {@code 1 - e^-depth}. Counters live in one {@link AtomicLongArray}, one row per hash function,
+ * and row positions use double hashing of one 64-bit hash like {@link BloomFilter}.
+ */
+public final class CountMinSketch {
+
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int widthMask;
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     * @param depth number of rows (hash functions)
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Width and depth must be positive: " + width + "x" + depth);
+        }
+        int roundedWidth = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.counters = new AtomicLongArray(Math.multiplyExact(roundedWidth, depth));
+        this.depth = depth;
+        this.widthMask = roundedWidth - 1;
+    }
+
+    /**
+     * Counts one occurrence and returns the new estimate of the value's count.
+     */
+    public long add(CharSequence value) {
+        long hash = Hashing.hash64(value);
+        long h1 = hash;
+        long h2 = Long.rotateLeft(hash, 32) * 0x9E3779B97F4A7C15L | 1L;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, h1 + row * h2)));
+        }
+        return estimate;
+    }
+
+    public long estimate(CharSequence value) {
+        long hash = Hashing.hash64(value);
+        long h1 = hash;
+        long h2 = Long.rotateLeft(hash, 32) * 0x9E3779B97F4A7C15L | 1L;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, h1 + row * h2)));
+        }
+        return estimate;
+    }
+
+    public int width() {
+        return widthMask + 1;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long memoryBytes() {
+        return (long) counters.length() * Long.BYTES;
+    }
+
+    private int index(int row, long hash) {
+        return row * (widthMask + 1) + (int) (hash & widthMask);
+    }
+}
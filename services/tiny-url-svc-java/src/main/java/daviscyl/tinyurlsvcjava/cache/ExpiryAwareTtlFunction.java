@@ -0,0 +1,36 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Redis TTL of a cached url: the configured maximum, shortened to the time left until the url expires so
+ * that the entry disappears together with the link.
+ */
+public class ExpiryAwareTtlFunction implements RedisCacheWriter.TtlFunction {
+
+    // A zero TTL would make the entry persistent; expired urls are never cached, so this only covers races
+    private static final Duration MINIMUM = Duration.ofMillis(1);
+
+    private final Duration maximum;
+
+    public ExpiryAwareTtlFunction(Duration maximum) {
+        this.maximum = maximum;
+    }
+
+    @Override
+    public Duration getTimeToLive(Object key, Object value) {
+        if (!(value instanceof ResolvedUrl url) || url.expiresAt() == null) {
+            return maximum;
+        }
+
+        Duration remaining = Duration.between(Instant.now(), url.expiresAt());
+        if (remaining.compareTo(maximum) >= 0) {
+            return maximum;
+        }
+        return remaining.compareTo(MINIMUM) < 0 ? MINIMUM : remaining;
+    }
+}
@@ -0,0 +1,370 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.config.HotAliasProperties;
+import daviscyl.tinyurlsvcjava.config.TwoTierCacheProperties;
+import daviscyl.tinyurlsvcjava.datasource.AfterCommit;
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the hottest aliases of the redirect path and pins them in a local replica that is consulted before
+ * the shield and both cache tiers, so a viral alias stops hammering one Redis key.
+ * <p>
+ * Redirects are counted per window in a {@link CountMinSketch}; aliases whose estimate beats the smallest
+ * tracked one enter a small top-K list. At the end of each window the list is ranked and aliases above the
+ * configured rate are pinned until a later window finds them cold. An update or delete drops the pin on
+ * every node, and the next window pins the reloaded url again.
+ * <p>
+ * Hits served from a pin offer no url, so a pin is only ever refreshed from a resolve through the cache tiers.
+ * Pins are dropped once they are older than the in-process cache TTL, which bounds their staleness like that
+ * tier's when an invalidation is missed; the rest of the window then resolves through the cache and the next
+ * rotation pins the url it returned. Each url is offered with the invalidation generation read before its
+ * resolve, and a rotation only pins offers whose generation is still current, so a resolve racing with an
+ * unpin cannot pin the url from before the change.
+ */
+@Component
+@Slf4j
+public class HotAliasTracker {
+
+    private static final String URL_CACHE_NAME = "url-cache";
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final HotAliasProperties properties;
+    private final long maxPinAgeNanos;
+    private final ObjectProvider<CacheInvalidationBus> invalidationBus;
+    private final Map<String, Pin> pins = new ConcurrentHashMap<>();
+    // Bumped by every unpin of an alias of the stripe; aliases sharing a stripe only cost each other a window
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private volatile Window window;
+    private volatile List<HotAlias> lastRanking = List.of();
+
+    public HotAliasTracker(
+        HotAliasProperties properties,
+        TwoTierCacheProperties cacheProperties,
+        ObjectProvider<CacheInvalidationBus> invalidationBus
+    ) {
+        this.properties = properties;
+        this.maxPinAgeNanos = cacheProperties.localTimeToLive().toNanos();
+        this.invalidationBus = invalidationBus;
+        this.window = newWindow();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        invalidationBus.ifAvailable(bus -> bus.subscribe(this::onInvalidation));
+    }
+
+    /**
+     * Returns the pinned url of a hot alias, or {@code null} when the alias is not pinned, its pin was
+     * invalidated or outlived the in-process cache TTL, or the url has expired since it was pinned.
+     */
+    public ResolvedUrl pinned(String alias) {
+        if (pins.isEmpty()) {
+            return null;
+        }
+        Pin pin = pins.get(alias);
+        if (pin == null) {
+            return null;
+        }
+        Offer offer = pin.offer;
+        if (offer.url.isExpired() || System.nanoTime() - offer.resolvedAtNanos > maxPinAgeNanos) {
+            pins.remove(alias, pin);
+            return null;
+        }
+        pin.hits.increment();
+        return offer.url;
+    }
+
+    /**
+     * Invalidation generation of the alias, to be read before resolving it through the cache and passed to
+     * {@link #recordHit}.
+     */
+    public long generation(String alias) {
+        return generations.get(stripe(alias));
+    }
+
+    /**
+     * Counts a resolution of the alias through the cache tiers and offers its url for pinning. Lock-free unless
+     * the alias newly enters the top-K list.
+     *
+     * @param generation the {@link #generation} of the alias before it was resolved
+     */
+    public void recordHit(String alias, ResolvedUrl url, long generation) {
+        if (properties.enabled()) {
+            count(alias, url, generation);
+        }
+    }
+
+    /**
+     * Counts a redirect served from the pin of the alias, which keeps it pinned but offers no newer url.
+     */
+    public void recordPinnedHit(String alias) {
+        if (properties.enabled()) {
+            count(alias, null, 0L);
+        }
+    }
+
+    private void count(String alias, ResolvedUrl url, long generation) {
+        Window current = window;
+        long estimate = current.sketch.add(alias);
+        Candidate candidate = current.candidates.get(alias);
+        if (candidate != null) {
+            candidate.estimate = Math.max(candidate.estimate, estimate);
+            if (url != null) {
+                candidate.offer(url, generation);
+            }
+        } else if (estimate > current.admissionThreshold) {
+            current.admit(alias, estimate, url != null ? new Offer(url, generation, System.nanoTime()) : null);
+        }
+    }
+
+    /**
+     * Drops the pin of an alias whose destination, expiry or status changed, on this node after commit and
+     * on other nodes through the {@code url-cache} eviction.
+     */
+    public void aliasChanged(String alias) {
+        AfterCommit.run(() -> unpin(alias));
+    }
+
+    /**
+     * Closes the current window: ranks its top-K list, pins the aliases above the configured rate and unpins
+     * the ones that cooled down. Synchronized with {@link #unpin}, so an offer checked against the current
+     * generation here cannot have been made before an unpin still in progress.
+     */
+    @Scheduled(fixedRateString = "${tiny-url.hot-aliases.window:PT10S}")
+    public synchronized void rotate() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        Window finished = window;
+        window = newWindow();
+        double seconds = Math.max(System.nanoTime() - finished.startedNanos, 1_000_000L) / 1e9;
+
+        List<Candidate> ranked;
+        synchronized (finished) {
+            ranked = new ArrayList<>(finished.candidates.values());
+        }
+        ranked.sort(Comparator.comparingLong((Candidate candidate) -> candidate.estimate).reversed());
+
+        Set<String> hot = new HashSet<>();
+        long now = System.nanoTime();
+        for (Candidate candidate : ranked) {
+            if (hot.size() >= properties.maxPinned() || candidate.estimate / seconds < properties.pinRate()) {
+                break;
+            }
+            Offer offer = candidate.offer;
+            if (offer != null && offer.generation == generation(candidate.alias) && !offer.url.isExpired()
+                && now - offer.resolvedAtNanos <= maxPinAgeNanos) {
+                hot.add(candidate.alias);
+                // Keeps the hit counter of aliases that stay pinned
+                pins.compute(candidate.alias, (alias, pin) -> pin != null ? pin.refresh(offer) : new Pin(offer));
+                continue;
+            }
+            // Only served from its pin this window; kept while the pin is young enough
+            Pin pin = pins.get(candidate.alias);
+            if (pin != null && now - pin.offer.resolvedAtNanos <= maxPinAgeNanos) {
+                hot.add(candidate.alias);
+            }
+        }
+        pins.keySet().retainAll(hot);
+
+        List<HotAlias> ranking = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            Pin pin = pins.get(candidate.alias);
+            ranking.add(new HotAlias(
+                candidate.alias,
+                candidate.estimate / seconds,
+                pin != null,
+                pin != null ? pin.hits.sum() : 0));
+        }
+        lastRanking = List.copyOf(ranking);
+
+        if (!hot.isEmpty()) {
+            log.debug("Pinned {} hot aliases: {}", hot.size(), hot);
+        }
+    }
+
+    public HotAliasReport report() {
+        Window current = window;
+        long pinnedHits = 0;
+        for (Pin pin : pins.values()) {
+            pinnedHits += pin.hits.sum();
+        }
+        return new HotAliasReport(
+            properties.enabled(),
+            properties.window().toMillis(),
+            properties.pinRate(),
+            pins.size(),
+            pinnedHits,
+            current.sketch.width(),
+            current.sketch.depth(),
+            current.sketch.memoryBytes(),
+            lastRanking
+        );
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (!URL_CACHE_NAME.equals(invalidation.cacheName())) {
+            return;
+        }
+        if (invalidation.isClear()) {
+            unpinAll();
+        } else {
+            unpin(invalidation.key());
+        }
+    }
+
+    private synchronized void unpin(String alias) {
+        generations.incrementAndGet(stripe(alias));
+        pins.remove(alias);
+        // The candidate still holds the url of the last resolve, which may predate the change
+        Candidate candidate = window.candidates.get(alias);
+        if (candidate != null) {
+            candidate.offer = null;
+        }
+    }
+
+    private synchronized void unpinAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        pins.clear();
+        for (Candidate candidate : window.candidates.values()) {
+            candidate.offer = null;
+        }
+    }
+
+    private static int stripe(String alias) {
+        return alias.hashCode() & (GENERATION_STRIPES - 1);
+    }
+
+    private Window newWindow() {
+        return new Window(
+            new CountMinSketch(properties.sketchWidth(), properties.sketchDepth()),
+            properties.trackedCandidates());
+    }
+
+    /**
+     * Counts of one window. The top-K list is a plain map scanned for its minimum on admission: it holds a
+     * few dozen entries and estimates grow in place, which a heap would have to re-sift on every hit.
+     */
+    private static final class Window {
+
+        private final CountMinSketch sketch;
+        private final int capacity;
+        private final Map<String, Candidate> candidates = new ConcurrentHashMap<>();
+        private final long startedNanos = System.nanoTime();
+
+        // Smallest tracked estimate once the list is full; aliases at or below it skip the lock
+        private volatile long admissionThreshold;
+
+        private Window(CountMinSketch sketch, int capacity) {
+            this.sketch = sketch;
+            this.capacity = capacity;
+        }
+
+        private synchronized void admit(String alias, long estimate, Offer offer) {
+            if (candidates.containsKey(alias) || estimate <= admissionThreshold) {
+                return;
+            }
+            if (candidates.size() >= capacity) {
+                Candidate coldest = null;
+                for (Candidate candidate : candidates.values()) {
+                    if (coldest == null || candidate.estimate < coldest.estimate) {
+                        coldest = candidate;
+                    }
+                }
+                candidates.remove(coldest.alias);
+            }
+            candidates.put(alias, new Candidate(alias, estimate, offer));
+
+            if (candidates.size() >= capacity) {
+                long minimum = Long.MAX_VALUE;
+                for (Candidate candidate : candidates.values()) {
+                    minimum = Math.min(minimum, candidate.estimate);
+                }
+                admissionThreshold = minimum;
+            }
+        }
+    }
+
+    private static final class Candidate {
+
+        private final String alias;
+        private volatile long estimate;
+        private volatile Offer offer;
+
+        private Candidate(String alias, long estimate, Offer offer) {
+            this.alias = alias;
+            this.estimate = estimate;
+            this.offer = offer;
+        }
+
+        /**
+         * Replaces the offer unless it already holds the same cached instance, so cache hits do not allocate
+         * and the pin age counts from the first resolve that returned it.
+         */
+        private void offer(ResolvedUrl url, long generation) {
+            Offer current = offer;
+            if (current == null || current.url != url || current.generation != generation) {
+                offer = new Offer(url, generation, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * A url returned by a resolve through the cache tiers, with the generation read before that resolve.
+     */
+    private record Offer(ResolvedUrl url, long generation, long resolvedAtNanos) {}
+
+    private static final class Pin {
+
+        private final LongAdder hits = new LongAdder();
+        private volatile Offer offer;
+
+        private Pin(Offer offer) {
+            this.offer = offer;
+        }
+
+        private Pin refresh(Offer offer) {
+            this.offer = offer;
+            return this;
+        }
+    }
+
+    /**
+     * One entry of the last window's top-K list.
+     *
+     * @param redirectsPerSecond estimated rate over the window; may overcount, never undercounts
+     * @param pinnedHits         redirects served from the pin since the alias was pinned
+     */
+    public record HotAlias(String alias, double redirectsPerSecond, boolean pinned, long pinnedHits) {}
+
+    public record HotAliasReport(
+        boolean enabled,
+        long windowMillis,
+        double pinRate,
+        int pinnedAliases,
+        long pinnedHits,
+        int sketchWidth,
+        int sketchDepth,
+        long sketchMemoryBytes,
+        List<HotAlias> topAliases
+    ) {}
+}
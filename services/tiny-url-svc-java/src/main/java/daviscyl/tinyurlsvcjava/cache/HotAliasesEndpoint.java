@@ -0,0 +1,23 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint listing the last window's top aliases of this node, which of them are pinned, and how
+ * many redirects the pins served.
+ */
+@Component
+@Endpoint(id = "hotaliases")
+@RequiredArgsConstructor
+public class HotAliasesEndpoint {
+
+    private final HotAliasTracker hotAliasTracker;
+
+    @ReadOperation
+    public HotAliasTracker.HotAliasReport hotAliases() {
+        return hotAliasTracker.report();
+    }
+}
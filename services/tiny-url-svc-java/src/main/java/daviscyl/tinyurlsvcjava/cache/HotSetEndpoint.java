@@ -0,0 +1,72 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.config.CacheWarmUpProperties;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import daviscyl.tinyurlsvcjava.repository.WarmUpRow;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Actuator endpoint exporting this node's hot set, so a node that is about to start can preload the same
+ * aliases. The ranking comes from the L1 of the alias cache, which reflects recent traffic; a node without
+ * L1 entries falls back to the redirect-count ranking the warm-up would use itself.
+ */
+@Component
+@Endpoint(id = "hotset")
+public class HotSetEndpoint {
+
+    private static final String URL_CACHE_NAME = "url-cache";
+
+    private final ObjectProvider<TwoTierCacheManager> cacheManager;
+    private final UrlRepository urlRepository;
+    private final CacheWarmUpProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public HotSetEndpoint(ObjectProvider<TwoTierCacheManager> cacheManager,
+                          UrlRepository urlRepository,
+                          CacheWarmUpProperties properties,
+                          PlatformTransactionManager transactionManager) {
+        this.cacheManager = cacheManager;
+        this.urlRepository = urlRepository;
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @ReadOperation
+    public HotSet hotSet(@Nullable Integer limit) {
+        int size = Math.clamp(limit != null ? limit : properties.maxEntries(), 1, Math.max(1, properties.maxEntries()));
+
+        TwoTierCacheManager manager = cacheManager.getIfAvailable();
+        TwoTierCache cache = manager != null ? manager.getTwoTierCaches().get(URL_CACHE_NAME) : null;
+        if (cache != null) {
+            List<String> aliases = cache.hottestLocalKeys(size).stream().map(String::valueOf).toList();
+            if (!aliases.isEmpty()) {
+                return new HotSet(Source.LOCAL_CACHE, aliases);
+            }
+        }
+
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<WarmUpRow> rows = urlRepository.streamHottest(OffsetDateTime.now(), Limit.of(size))) {
+                return new HotSet(Source.DATABASE, rows.map(WarmUpRow::alias).toList());
+            }
+        });
+    }
+
+    public enum Source { LOCAL_CACHE, DATABASE }
+
+    /**
+     * Aliases, hottest first.
+     */
+    public record HotSet(Source source, List<String> aliases) {}
+}
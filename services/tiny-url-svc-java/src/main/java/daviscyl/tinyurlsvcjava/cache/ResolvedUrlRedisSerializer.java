@@ -0,0 +1,91 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary Redis value format for {@code url-cache} entries, replacing JSON with type metadata:
+ * <pre>
+ * version (1 byte) | id (varint) | expiresAt epoch millis + 1, 0 = never (varint) | destination (UTF-8, rest)
+ * </pre>
+ * Values in an unknown format, such as JSON entries written before this format existed, read as a cache
+ * miss and are overwritten by the next load.
+ */
+public class ResolvedUrlRedisSerializer implements RedisSerializer<ResolvedUrl> {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    @Override
+    public byte[] serialize(ResolvedUrl value) {
+        if (value == null) {
+            return null;
+        }
+
+        long id = value.id();
+        long expiry = value.expiresAt() != null ? value.expiresAt().toEpochMilli() + 1 : 0;
+        byte[] destination = value.destinationUrl().getBytes(StandardCharsets.UTF_8);
+
+        byte[] bytes = new byte[1 + varintSize(id) + varintSize(expiry) + destination.length];
+        bytes[0] = FORMAT_VERSION;
+        int position = writeVarint(bytes, 1, id);
+        position = writeVarint(bytes, position, expiry);
+        System.arraycopy(destination, 0, bytes, position, destination.length);
+        return bytes;
+    }
+
+    @Override
+    public ResolvedUrl deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != FORMAT_VERSION) {
+            return null;
+        }
+
+        try {
+            int[] position = {1};
+            long id = readVarint(bytes, position);
+            long expiry = readVarint(bytes, position);
+            String destination = new String(bytes, position[0], bytes.length - position[0], StandardCharsets.UTF_8);
+            return new ResolvedUrl(id, destination, expiry == 0 ? null : Instant.ofEpochMilli(expiry - 1));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated url-cache value", e);
+        }
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return ResolvedUrl.class;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarint(byte[] bytes, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint in url-cache value");
+    }
+}
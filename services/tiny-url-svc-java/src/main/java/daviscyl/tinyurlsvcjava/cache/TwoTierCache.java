@@ -0,0 +1,242 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.concurrency.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache with a bounded in-process L1 in front of a shared L2 (Redis).
+ * <p>
+ * Reads try L1 first and populate it from L2. Evictions and clears are applied to both tiers and broadcast
+ * through the {@link CacheInvalidationBus} so other nodes drop their L1 copies as well.
+ * <p>
+ * {@link #get(Object, Callable)} runs at most one value loader per key at a time on this node: callers that
+ * miss while a load is in flight wait up to the load timeout for its result, or fail with its exception.
+ * With a refresh-ahead window, an L1 hit on an entry that expires within the window reloads it in the
+ * background, so entries that keep being read are replaced before they expire.
+ */
+@Slf4j
+public class TwoTierCache extends AbstractValueAdaptingCache {
+
+    private static final Executor REFRESH_EXECUTOR = task -> Thread.ofVirtual().name("cache-refresh").start(task);
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache shared;
+    private final CacheInvalidationBus invalidationBus;
+    private final Duration loadTimeout;
+    private final Duration refreshAhead;
+    private final SingleFlight<Object> loads = new SingleFlight<>();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localMisses = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder sharedMisses = new LongAdder();
+
+    public TwoTierCache(String name,
+                        com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                        Cache shared,
+                        CacheInvalidationBus invalidationBus,
+                        boolean allowNullValues,
+                        Duration loadTimeout,
+                        Duration refreshAhead) {
+        super(allowNullValues);
+        this.name = name;
+        this.local = local;
+        this.shared = shared;
+        this.invalidationBus = invalidationBus;
+        this.loadTimeout = loadTimeout;
+        this.refreshAhead = refreshAhead;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object localValue = lookupLocal(key);
+        return localValue != null ? localValue : lookupShared(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object localValue = lookupLocal(key);
+        if (localValue != null) {
+            if (isDueForRefresh(key)) {
+                refresh(key, valueLoader);
+            }
+            return (T) fromStoreValue(localValue);
+        }
+        Object sharedValue = lookupShared(key);
+        if (sharedValue != null) {
+            return (T) fromStoreValue(sharedValue);
+        }
+
+        try {
+            return loads.load(key, () -> load(key, valueLoader), loadTimeout);
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        shared.put(key, value);
+        local.put(key, toStoreValue(value));
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictLocal(key);
+        shared.evict(key);
+        invalidationBus.publish(CacheInvalidation.evict(name, key));
+    }
+
+    @Override
+    public void clear() {
+        clearLocal();
+        shared.clear();
+        invalidationBus.publish(CacheInvalidation.clear(name));
+    }
+
+    /**
+     * Drops an entry from L1 only; used when another node announces an invalidation.
+     */
+    public void evictLocal(Object key) {
+        local.invalidate(key);
+    }
+
+    public void clearLocal() {
+        local.invalidateAll();
+    }
+
+    /**
+     * Keys of up to {@code limit} L1 entries, most frequently used first as ranked by the Caffeine eviction
+     * policy. Cached misses are left out.
+     */
+    public List<Object> hottestLocalKeys(int limit) {
+        return local.policy().eviction()
+            .map(eviction -> {
+                Map<Object, Object> hottest = eviction.hottest(limit);
+                List<Object> keys = new ArrayList<>(hottest.size());
+                hottest.forEach((key, value) -> {
+                    if (value != NullValue.INSTANCE) {
+                        keys.add(key);
+                    }
+                });
+                return keys;
+            })
+            .orElse(List.of());
+    }
+
+    /**
+     * Loads currently in flight, including background refreshes.
+     */
+    public int loadsInFlight() {
+        return loads.inFlight();
+    }
+
+    public TierStats localStats() {
+        return TierStats.of(localHits.sum(), localMisses.sum(), local.estimatedSize());
+    }
+
+    public TierStats sharedStats() {
+        return TierStats.of(sharedHits.sum(), sharedMisses.sum(), -1);
+    }
+
+    private Object lookupLocal(Object key) {
+        Object localValue = local.getIfPresent(key);
+        if (localValue != null) {
+            localHits.increment();
+        } else {
+            localMisses.increment();
+        }
+        return localValue;
+    }
+
+    private Object lookupShared(Object key) {
+        ValueWrapper sharedValue = shared.get(key);
+        if (sharedValue == null) {
+            sharedMisses.increment();
+            return null;
+        }
+        sharedHits.increment();
+
+        Object storeValue = toStoreValue(sharedValue.get());
+        local.put(key, storeValue);
+        return storeValue;
+    }
+
+    private <T> T load(Object key, Callable<T> valueLoader) throws Exception {
+        // A load that completed between our lookup and taking the flight has already filled L1
+        Object localValue = local.getIfPresent(key);
+        if (localValue != null) {
+            @SuppressWarnings("unchecked")
+            T cached = (T) fromStoreValue(localValue);
+            return cached;
+        }
+
+        T value = valueLoader.call();
+        if (value != null || isAllowNullValues()) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    private boolean isDueForRefresh(Object key) {
+        if (refreshAhead.isZero()) {
+            return false;
+        }
+        return local.policy().expireAfterWrite()
+            .flatMap(expiry -> expiry.ageOf(key)
+                .map(age -> age.plus(refreshAhead).compareTo(expiry.getExpiresAfter()) >= 0))
+            .orElse(false);
+    }
+
+    private void refresh(Object key, Callable<?> valueLoader) {
+        loads.loadAsync(key, () -> {
+            try {
+                Object value = valueLoader.call();
+                if (value != null || isAllowNullValues()) {
+                    put(key, value);
+                } else {
+                    // Gone since it was cached; drop it everywhere rather than serve it until it expires
+                    evict(key);
+                }
+                return value;
+            } catch (Exception e) {
+                log.warn("Refreshing {} in cache {} failed, the cached value is kept", key, name, e);
+                throw e;
+            }
+        }, REFRESH_EXECUTOR);
+    }
+
+    /**
+     * Hit and miss counters of one tier. {@code size} is -1 when the tier cannot report it cheaply.
+     */
+    public record TierStats(long hits, long misses, double hitRatio, long size) {
+
+        static TierStats of(long hits, long misses, long size) {
+            long requests = hits + misses;
+            return new TierStats(hits, misses, requests == 0 ? 0.0 : (double) hits / requests, size);
+        }
+    }
+}
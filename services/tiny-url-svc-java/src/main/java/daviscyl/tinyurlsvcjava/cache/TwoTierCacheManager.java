@@ -0,0 +1,111 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Builds a {@link TwoTierCache} for every cache of the shared {@link CacheManager}.
+ * <p>
+ * Caches do not store {@code null}; missing entries are remembered by the {@link AliasShield} with a much
+ * shorter lifetime instead.
+ * <p>
+ * Caches are transaction aware: an eviction issued inside a transaction is applied after commit, so a
+ * concurrent reader cannot re-populate the cache with the row state from before the update.
+ */
+public class TwoTierCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private final CacheManager sharedCacheManager;
+    private final CacheInvalidationBus invalidationBus;
+    private final long localMaximumSize;
+    private final Duration localTimeToLive;
+    private final Duration loadTimeout;
+    private final Duration refreshAhead;
+    private final Map<String, TwoTierCache> twoTierCaches = new ConcurrentHashMap<>();
+    private final List<Consumer<TwoTierCache>> creationListeners = new CopyOnWriteArrayList<>();
+
+    public TwoTierCacheManager(CacheManager sharedCacheManager,
+                               CacheInvalidationBus invalidationBus,
+                               long localMaximumSize,
+                               Duration localTimeToLive,
+                               Duration loadTimeout,
+                               Duration refreshAhead) {
+        this.sharedCacheManager = sharedCacheManager;
+        this.invalidationBus = invalidationBus;
+        this.localMaximumSize = localMaximumSize;
+        this.localTimeToLive = localTimeToLive;
+        this.loadTimeout = loadTimeout;
+        this.refreshAhead = refreshAhead;
+        setTransactionAware(true);
+        invalidationBus.subscribe(this::onRemoteInvalidation);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return List.of();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        Cache shared = sharedCacheManager.getCache(name);
+        if (shared == null) {
+            return null;
+        }
+        boolean[] created = {false};
+        TwoTierCache cache = twoTierCaches.computeIfAbsent(name, n -> {
+            created[0] = true;
+            return new TwoTierCache(
+                n,
+                Caffeine.newBuilder()
+                    .maximumSize(localMaximumSize)
+                    .expireAfterWrite(localTimeToLive)
+                    .build(),
+                shared,
+                invalidationBus,
+                false,
+                loadTimeout,
+                refreshAhead
+            );
+        });
+        if (created[0]) {
+            creationListeners.forEach(listener -> listener.accept(cache));
+        }
+        return cache;
+    }
+
+    /**
+     * Calls the listener for every two-tier cache, both existing ones and those created later.
+     */
+    public void onCacheCreated(Consumer<TwoTierCache> listener) {
+        creationListeners.add(listener);
+        twoTierCaches.values().forEach(listener);
+    }
+
+    /**
+     * The two-tier caches created so far, without transaction decorators.
+     */
+    public Map<String, TwoTierCache> getTwoTierCaches() {
+        return Map.copyOf(twoTierCaches);
+    }
+
+    private void onRemoteInvalidation(CacheInvalidation invalidation) {
+        TwoTierCache cache = twoTierCaches.get(invalidation.cacheName());
+        if (cache == null) {
+            return;
+        }
+        if (invalidation.isClear()) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(invalidation.key());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package daviscyl.tinyurlsvcjava.clicklog;
+
+import daviscyl.tinyurlsvcjava.config.ClickLogProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Durable, append-only log of clicks on local disk, made of memory-mapped {@link ClickLogSegment} files
+ * named after their sequence number.
+ * <p>
+ * Appending does not lock or touch the database: a click takes a slot of the active segment with one atomic
+ * increment. Only the writer that finds the segment full takes a lock, to map the next one. Segments left by
+ * an earlier run are picked up at startup, and a new run never writes into them. The log is only read by
+ * the compactor, which folds clicks into {@code url_stats} and deletes segments past their retention.
+ */
+@Component
+@Slf4j
+public class ClickLog {
+
+    private static final String PREFIX = "clicks-";
+    private static final String SUFFIX = ".log";
+
+    private final ClickLogProperties properties;
+    private final ConcurrentSkipListMap<Long, ClickLogSegment> segments = new ConcurrentSkipListMap<>();
+    private final int slotsPerSegment;
+
+    private volatile ClickLogSegment active;
+
+    public ClickLog(ClickLogProperties properties) {
+        this.properties = properties;
+        this.slotsPerSegment = (int) Math.max(1,
+            Math.min(properties.segmentSize().toBytes(), Integer.MAX_VALUE) / ClickLogSegment.RECORD_SIZE);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        Files.createDirectories(properties.directory());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(properties.directory(), PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                Long sequence = sequenceOf(file.getFileName().toString());
+                if (sequence != null) {
+                    segments.put(sequence, ClickLogSegment.open(file, sequence));
+                }
+            }
+        }
+        active = newSegment();
+        log.info("Click log in {} with {} segments from earlier runs, {} records per segment, fsync {}",
+            properties.directory(), segments.size() - 1, slotsPerSegment, properties.fsync());
+    }
+
+    public boolean isEnabled() {
+        return active != null;
+    }
+
+    /**
+     * Appends a click.
+     *
+     * @return {@code false} when the log is disabled or no segment could be mapped; the click is then not logged
+     */
+    public boolean append(ClickRecord record) {
+        ClickLogSegment segment = active;
+        while (segment != null) {
+            if (segment.append(record)) {
+                return true;
+            }
+            segment = roll(segment);
+        }
+        return false;
+    }
+
+    /**
+     * All segments in write order, the active one last.
+     */
+    public List<ClickLogSegment> segments() {
+        return new ArrayList<>(segments.values());
+    }
+
+    /**
+     * Deletes a segment that has been compacted; the active segment is never deleted.
+     */
+    public void delete(ClickLogSegment segment) {
+        if (segment == active || !segments.remove(segment.sequence(), segment)) {
+            return;
+        }
+        try {
+            // The mapping itself is released once the segment is garbage collected
+            Files.deleteIfExists(segment.path());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces completed segments to disk, and with {@link ClickLogProperties.Fsync#INTERVAL} the active one too.
+     */
+    @Scheduled(fixedDelayString = "${tiny-url.click-log.fsync-interval:PT1S}")
+    public void sync() {
+        if (active == null || properties.fsync() == ClickLogProperties.Fsync.NONE) {
+            return;
+        }
+        for (ClickLogSegment segment : segments.values()) {
+            segment.forceIfComplete();
+        }
+        ClickLogSegment current = active;
+        if (properties.fsync() == ClickLogProperties.Fsync.INTERVAL && current != null) {
+            current.force();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        ClickLogSegment current = active;
+        active = null;
+        if (current != null) {
+            current.seal();
+            current.force();
+        }
+    }
+
+    /**
+     * Makes a new segment active unless another writer already replaced the full one.
+     *
+     * @return the segment to append to next, or {@code null} when the log is closed or mapping failed
+     */
+    private synchronized ClickLogSegment roll(ClickLogSegment full) {
+        if (active != full) {
+            return active;
+        }
+        try {
+            ClickLogSegment next = newSegment();
+            full.seal();
+            active = next;
+            return next;
+        } catch (IOException e) {
+            log.error("Cannot create a click log segment in {}", properties.directory(), e);
+            return null;
+        }
+    }
+
+    private ClickLogSegment newSegment() throws IOException {
+        // Sequences follow the clock so that a wiped directory never reuses a sequence already checkpointed
+        long sequence = Math.max(System.currentTimeMillis(), segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        Path path = properties.directory().resolve(PREFIX + String.format("%019d", sequence) + SUFFIX);
+        ClickLogSegment segment = ClickLogSegment.create(path, sequence, slotsPerSegment);
+        segments.put(sequence, segment);
+        return segment;
+    }
+
+    private static Long sequenceOf(String fileName) {
+        String digits = fileName.substring(PREFIX.length(), fileName.length() - SUFFIX.length());
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
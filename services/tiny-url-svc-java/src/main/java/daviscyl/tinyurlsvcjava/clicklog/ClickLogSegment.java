@@ -0,0 +1,194 @@
+package daviscyl.tinyurlsvcjava.clicklog;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A memory-mapped file of fixed-size click records, written by many threads without locking.
+ * <p>
+ * Writers reserve a slot with one atomic increment, fill it, and publish it by storing its marker last with
+ * release semantics; readers load the marker with acquire semantics before the record. A slot whose writer
+ * failed is marked as skipped. Record layout, little-endian:
+ * <pre>
+ *  0  int   marker
+ *  4  byte  user-agent class
+ *  5  byte  referrer length
+ *  8  long  timestamp (epoch millis)
+ * 16  long  url id
+ * 24  long  visitor hash
+ * 32  32 bytes referrer host, ASCII
+ * </pre>
+ */
+public final class ClickLogSegment {
+
+    public static final int RECORD_SIZE = 64;
+
+    private static final int COMMITTED = 0x314B4C43; // "CLK1"
+    private static final int SKIPPED = 0x584B4C43;   // "CLKX"
+
+    private static final VarHandle MARKER = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final long sequence;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+
+    // Only used for segments written by this process; recovered segments are complete from the start
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicBoolean sealed;
+    private final AtomicBoolean forced = new AtomicBoolean();
+
+    private ClickLogSegment(long sequence, Path path, MappedByteBuffer buffer, boolean sealed) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.slots = buffer.capacity() / RECORD_SIZE;
+        this.sealed = new AtomicBoolean(sealed);
+        if (sealed) {
+            reserved.set(slots);
+            written.set(slots);
+        }
+    }
+
+    /**
+     * Creates and maps a new segment file of {@code slots} records.
+     */
+    static ClickLogSegment create(Path path, long sequence, int slots) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new ClickLogSegment(sequence, path,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slots * RECORD_SIZE), false);
+        }
+    }
+
+    /**
+     * Maps a segment left by an earlier run. Nobody writes to it anymore, so it counts as complete; slots
+     * that were never published are skipped when read.
+     */
+    static ClickLogSegment open(Path path, long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size() - channel.size() % RECORD_SIZE;
+            return new ClickLogSegment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), true);
+        }
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int slots() {
+        return slots;
+    }
+
+    /**
+     * Whether every slot of this segment has been published or skipped, so that reading it to the end is final.
+     */
+    public boolean isComplete() {
+        return sealed.get() && written.get() >= slots;
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @return {@code false} when the segment is full and the caller has to move on to the next one
+     */
+    boolean append(ClickRecord record) {
+        int slot = reserved.getAndIncrement();
+        if (slot >= slots || slot < 0) {
+            // Keeps the counter from wrapping while writers keep hitting a full segment
+            reserved.set(slots);
+            return false;
+        }
+
+        int base = slot * RECORD_SIZE;
+        boolean published = false;
+        try {
+            byte[] referrer = record.referrerBytes();
+            buffer.put(base + 4, (byte) record.agent().ordinal());
+            buffer.put(base + 5, (byte) referrer.length);
+            buffer.putLong(base + 8, record.timestampMillis());
+            buffer.putLong(base + 16, record.urlId());
+            buffer.putLong(base + 24, record.visitorHash());
+            buffer.put(base + 32, referrer);
+            MARKER.setRelease(buffer, base, COMMITTED);
+            published = true;
+        } finally {
+            if (!published) {
+                MARKER.setRelease(buffer, base, SKIPPED);
+            }
+            written.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Marks the segment as full; writers that still hold a slot finish it.
+     */
+    void seal() {
+        sealed.set(true);
+    }
+
+    /**
+     * Reads up to {@code maxRecords} published records starting at slot {@code from}. On an incomplete
+     * segment reading stops at the first unpublished slot, so that the returned position never skips a
+     * record that is still being written.
+     *
+     * @return the slot after the last one read or skipped
+     */
+    public int read(int from, int maxRecords, Consumer<ClickRecord> consumer) {
+        boolean complete = isComplete();
+        int slot = from;
+        int read = 0;
+        byte[] referrer = new byte[ClickRecord.MAX_REFERRER_LENGTH];
+        while (slot < slots && read < maxRecords) {
+            int base = slot * RECORD_SIZE;
+            int marker = (int) MARKER.getAcquire(buffer, base);
+            if (marker == COMMITTED) {
+                int length = Math.min(buffer.get(base + 5) & 0xFF, ClickRecord.MAX_REFERRER_LENGTH);
+                buffer.get(base + 32, referrer, 0, length);
+                consumer.accept(new ClickRecord(
+                    buffer.getLong(base + 8),
+                    buffer.getLong(base + 16),
+                    buffer.getLong(base + 24),
+                    UserAgentClass.ofOrdinal(buffer.get(base + 4)),
+                    new String(referrer, 0, length, StandardCharsets.US_ASCII)));
+                read++;
+            } else if (marker != SKIPPED && !complete) {
+                break;
+            }
+            slot++;
+        }
+        return slot;
+    }
+
+    /**
+     * Forces the segment to disk once it is complete; later calls do nothing.
+     */
+    boolean forceIfComplete() {
+        if (isComplete() && forced.compareAndSet(false, true)) {
+            buffer.force();
+            return true;
+        }
+        return false;
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
@@ -0,0 +1,65 @@
+package daviscyl.tinyurlsvcjava.clicklog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One click as stored in the click log.
+ *
+ * @param referrerHost host of the Referer header without a leading {@code www.}, empty for direct visits;
+ *                     at most {@link #MAX_REFERRER_LENGTH} ASCII characters
+ */
+public record ClickRecord(
+    long timestampMillis,
+    long urlId,
+    long visitorHash,
+    UserAgentClass agent,
+    String referrerHost
+) {
+
+    public static final int MAX_REFERRER_LENGTH = 32;
+
+    /**
+     * Extracts the host of a Referer header value without parsing it as a URI. Hosts that are not plain
+     * ASCII are recorded as {@code "other"}, longer ones are cut.
+     */
+    public static String referrerHost(String referer) {
+        if (referer == null) {
+            return "";
+        }
+        int start = referer.indexOf("://");
+        if (start < 0) {
+            return "";
+        }
+        start += 3;
+        int end = start;
+        while (end < referer.length() && "/?#:".indexOf(referer.charAt(end)) < 0) {
+            end++;
+        }
+        int at = referer.lastIndexOf('@', end - 1);
+        if (at >= start) {
+            start = at + 1;
+        }
+        if (referer.startsWith("www.", start)) {
+            start += 4;
+        }
+        if (start >= end) {
+            return "";
+        }
+
+        StringBuilder host = new StringBuilder(Math.min(end - start, MAX_REFERRER_LENGTH));
+        for (int i = start; i < end && host.length() < MAX_REFERRER_LENGTH; i++) {
+            char c = referer.charAt(i);
+            if (c >= 0x80 || Character.isISOControl(c)) {
+                return "other";
+            }
+            host.append(Character.toLowerCase(c));
+        }
+        return host.toString();
+    }
+
+    byte[] referrerBytes() {
+        byte[] bytes = referrerHost != null ? referrerHost.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        return bytes.length <= MAX_REFERRER_LENGTH ? bytes : Arrays.copyOf(bytes, MAX_REFERRER_LENGTH);
+    }
+}
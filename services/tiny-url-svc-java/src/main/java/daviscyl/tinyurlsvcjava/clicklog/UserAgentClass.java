@@ -0,0 +1,45 @@
+package daviscyl.tinyurlsvcjava.clicklog;
+
+import java.util.Locale;
+
+/**
+ * Coarse client class derived from the User-Agent header, kept per click instead of the header itself.
+ */
+public enum UserAgentClass {
+    OTHER,
+    BROWSER,
+    MOBILE,
+    BOT;
+
+    private static final UserAgentClass[] VALUES = values();
+
+    private static final String[] BOT_MARKERS = {"bot", "crawl", "spider", "slurp", "curl", "wget", "python", "java/", "go-http"};
+    private static final String[] MOBILE_MARKERS = {"mobi", "android", "iphone", "ipad"};
+
+    public static UserAgentClass of(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return OTHER;
+        }
+        String lower = userAgent.toLowerCase(Locale.ROOT);
+        if (containsAny(lower, BOT_MARKERS)) {
+            return BOT;
+        }
+        if (containsAny(lower, MOBILE_MARKERS)) {
+            return MOBILE;
+        }
+        return lower.startsWith("mozilla/") || lower.startsWith("opera/") ? BROWSER : OTHER;
+    }
+
+    static UserAgentClass ofOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : OTHER;
+    }
+
+    private static boolean containsAny(String value, String[] markers) {
+        for (String marker : markers) {
+            if (value.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
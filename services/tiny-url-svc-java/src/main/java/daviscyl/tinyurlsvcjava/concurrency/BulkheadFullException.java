@@ -0,0 +1,20 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a bulkhead has no free permit within its acquire timeout.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public BulkheadFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
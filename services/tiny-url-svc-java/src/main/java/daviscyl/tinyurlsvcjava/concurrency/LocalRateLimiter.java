@@ -0,0 +1,63 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * {@link RateLimiter} with one {@link TokenBucket} per client in this process.
+ * <p>
+ * Buckets live in a Caffeine cache bounded to {@code maxClients} and expire once they have been idle for as
+ * long as an empty bucket takes to refill; an expired bucket would be full again, so dropping it loses nothing.
+ * Only when more clients than {@code maxClients} are active at once does eviction hand an evicted client a
+ * fresh bucket.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private final int capacity;
+    private final Ticker ticker;
+    private final Cache<String, TokenBucket> buckets;
+    // Held in a field so a lookup does not allocate a capturing lambda
+    private final Function<String, TokenBucket> newBucket;
+
+    /**
+     * @param refillPerSecond tokens added to every bucket per second
+     */
+    public LocalRateLimiter(int capacity, double refillPerSecond, long maxClients, Ticker ticker) {
+        if (!(refillPerSecond > 0)) {
+            throw new IllegalArgumentException("Refill rate must be positive: " + refillPerSecond);
+        }
+        long intervalNanos = Math.max(1, Math.round(1e9 / refillPerSecond));
+        TokenBucket prototype = new TokenBucket(capacity, intervalNanos, 0);
+
+        this.capacity = capacity;
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(maxClients)
+            .expireAfterAccess(Duration.ofNanos(prototype.burstNanos()))
+            .ticker(ticker)
+            .build();
+        this.newBucket = client -> new TokenBucket(capacity, intervalNanos, ticker.read());
+    }
+
+    @Override
+    public long tryAcquire(String client) {
+        return buckets.get(client, newBucket).tryAcquire(ticker.read());
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Clients with a bucket, after dropping the expired ones; meant for gauges, not the request path.
+     */
+    public long estimatedClients() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
@@ -0,0 +1,21 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+/**
+ * Per-client request budget of one kind of request.
+ */
+public interface RateLimiter {
+
+    /**
+     * Takes one request from the budget of {@code client}. The outcome is encoded in one {@code long} so the
+     * check allocates nothing.
+     *
+     * @return the requests left in the budget ({@code >= 0}) when this one is allowed, or minus the nanoseconds
+     * until the client may retry ({@code < 0}) when it is not
+     */
+    long tryAcquire(String client);
+
+    /**
+     * Requests a client may send in a burst, before the refill rate limits it.
+     */
+    int capacity();
+}
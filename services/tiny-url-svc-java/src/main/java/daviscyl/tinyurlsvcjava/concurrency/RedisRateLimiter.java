@@ -0,0 +1,95 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@link RateLimiter} whose budgets are shared by all nodes through Redis.
+ * <p>
+ * Runs the same cell rate algorithm as {@link TokenBucket} in a Lua script, one key per client holding the
+ * time its bucket is full again, taken from the Redis clock so node clocks need not agree. Keys expire when
+ * their bucket is full. When Redis fails, the node limits with its local buckets for {@code retryInterval}
+ * before trying Redis again; meanwhile every node grants its own full budget.
+ */
+@Slf4j
+public class RedisRateLimiter implements RateLimiter {
+
+    // KEYS[1] = bucket, ARGV[1] = refill interval, ARGV[2] = burst (capacity * interval), both in microseconds
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+        local time = redis.call('TIME')
+        local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+        local interval = tonumber(ARGV[1])
+        local burst = tonumber(ARGV[2])
+        local full_at = tonumber(redis.call('GET', KEYS[1]) or now)
+        local new_full_at = math.max(full_at, now) + interval
+        local backlog = new_full_at - now
+        if backlog > burst then
+          return -(backlog - burst)
+        end
+        redis.call('SET', KEYS[1], new_full_at, 'PX', math.ceil(backlog / 1000))
+        return math.floor((burst - backlog) / interval)
+        """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final LocalRateLimiter fallback;
+    private final String intervalMicros;
+    private final String burstMicros;
+    private final long retryIntervalNanos;
+
+    private volatile boolean degraded;
+    private volatile long degradedSince;
+
+    /**
+     * @param keyPrefix prefix of the client keys, distinct per kind of request
+     * @param fallback  local buckets with the same capacity and refill rate
+     */
+    public RedisRateLimiter(StringRedisTemplate redisTemplate,
+                            String keyPrefix,
+                            double refillPerSecond,
+                            LocalRateLimiter fallback,
+                            Duration retryInterval) {
+        long interval = Math.max(1, Math.round(1e6 / refillPerSecond));
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.fallback = fallback;
+        this.intervalMicros = Long.toString(interval);
+        this.burstMicros = Long.toString(Math.multiplyExact(fallback.capacity(), interval));
+        this.retryIntervalNanos = retryInterval.toNanos();
+    }
+
+    @Override
+    public long tryAcquire(String client) {
+        if (degraded && System.nanoTime() - degradedSince < retryIntervalNanos) {
+            return fallback.tryAcquire(client);
+        }
+        try {
+            Long result = redisTemplate.execute(ACQUIRE, List.of(keyPrefix + client), intervalMicros, burstMicros);
+            if (result == null) {
+                throw new IllegalStateException("Rate limit script returned no result");
+            }
+            if (degraded) {
+                degraded = false;
+                log.info("Rate limit budgets are shared through Redis again");
+            }
+            return result >= 0 ? result : result * 1000;
+        } catch (RuntimeException e) {
+            if (!degraded) {
+                log.warn("Rate limiting locally for {}: Redis is unavailable", Duration.ofNanos(retryIntervalNanos), e);
+            }
+            degradedSince = System.nanoTime();
+            degraded = true;
+            return fallback.tryAcquire(client);
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return fallback.capacity();
+    }
+}
@@ -0,0 +1,118 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces concurrent loads of the same key into one.
+ * <p>
+ * The first caller for a key runs the loader on its own thread; callers arriving while that load is in
+ * flight wait for its result instead of running their own. Waiters give up after a timeout, and a failed
+ * load fails every waiter with the same exception. Once a load completes the key is free again, so results
+ * are never cached here.
+ *
+ * @param <K> the key type
+ */
+public class SingleFlight<K> {
+
+    private final ConcurrentHashMap<K, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the loader, or waits up to {@code timeout} for the load of {@code key} already in flight.
+     *
+     * @throws java.util.concurrent.TimeoutException when the load in flight did not complete in time
+     * @throws Exception                             whatever the loader threw, to the caller that ran it and
+     *                                               to every waiter
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V load(K key, Callable<V> loader, Duration timeout) throws Exception {
+        Flight flight = new Flight();
+        Flight inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight == null) {
+            return (V) run(key, flight, loader);
+        }
+        return (V) inFlight.await(timeout);
+    }
+
+    /**
+     * Starts the loader on the executor unless a load of {@code key} is already in flight. Callers of
+     * {@link #load} arriving meanwhile wait for it.
+     *
+     * @return {@code false} when a load was already in flight
+     */
+    public boolean loadAsync(K key, Callable<?> loader, Executor executor) {
+        Flight flight = new Flight();
+        if (flights.putIfAbsent(key, flight) != null) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    run(key, flight, loader);
+                } catch (Exception e) {
+                    // Already handed to the waiters
+                }
+            });
+        } catch (RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            flights.remove(key, flight);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Callers currently waiting for the load of {@code key}, not counting the one running it.
+     */
+    public int waiters(K key) {
+        Flight flight = flights.get(key);
+        return flight == null ? 0 : flight.waiters.get();
+    }
+
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private Object run(K key, Flight flight, Callable<?> loader) throws Exception {
+        try {
+            Object value = loader.call();
+            flight.result.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private static final class Flight {
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        private Object await(Duration timeout) throws Exception {
+            waiters.incrementAndGet();
+            try {
+                return result.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception exception) {
+                    throw exception;
+                }
+                throw (Error) cause;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Lock-free token bucket of {@code capacity} tokens refilled one every {@code intervalNanos}.
+ * <p>
+ * Implemented as a generic cell rate algorithm: instead of a token count and a refill time, the bucket keeps
+ * one {@code long}, the theoretical arrival time at which it would be full again. Taking a token pushes that
+ * time one interval further, so a check is a single compare-and-set without background refills, and a bucket
+ * whose time has passed is simply full.
+ */
+public final class TokenBucket {
+
+    private static final VarHandle FULL_AT;
+
+    static {
+        try {
+            FULL_AT = MethodHandles.lookup().findVarHandle(TokenBucket.class, "fullAt", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    @SuppressWarnings("unused") // Accessed through FULL_AT
+    private volatile long fullAt;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}, or the tick of whatever clock later calls pass
+     */
+    public TokenBucket(int capacity, long intervalNanos, long nowNanos) {
+        if (capacity < 1 || intervalNanos < 1) {
+            throw new IllegalArgumentException("Capacity and refill interval must be positive");
+        }
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = Math.multiplyExact(capacity, intervalNanos);
+        this.fullAt = nowNanos;
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @return the tokens left when one was taken, or minus the nanoseconds until the next token when the bucket
+     * is empty; see {@link RateLimiter#tryAcquire}
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = (long) FULL_AT.getVolatile(this);
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long backlog = next - nowNanos;
+            if (backlog > burstNanos) {
+                return -(backlog - burstNanos);
+            }
+            if (FULL_AT.compareAndSet(this, current, next)) {
+                return (burstNanos - backlog) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Nanoseconds an untouched bucket needs to refill completely from empty.
+     */
+    public long burstNanos() {
+        return burstNanos;
+    }
+}
@@ -0,0 +1,90 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Logs virtual threads that block while pinned to their carrier thread, using the JFR
+ * {@code jdk.VirtualThreadPinned} event.
+ * <p>
+ * A pinned virtual thread holds on to a carrier, so a pinned blocking call in a hot path caps throughput at
+ * the number of carriers. Since JDK 24 {@code synchronized} no longer pins; native frames and class
+ * initializers still do. Each event is logged with the top of its stack trace.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tiny-url.virtual-threads.pinning-monitor", name = "enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "daviscyl.tinyurlsvcjava.";
+    private static final int MAX_LOGGED_FRAMES = 12;
+
+    private final Duration threshold;
+    private final LongAdder pinnedEvents = new LongAdder();
+    private volatile RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(
+        @Value("${tiny-url.virtual-threads.pinning-monitor.threshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+        log.info("Watching for virtual threads pinned longer than {}", threshold);
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    public long pinnedEventCount() {
+        return pinnedEvents.sum();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        if (event.getStackTrace() == null) {
+            log.warn("Virtual thread pinned for {}", event.getDuration());
+            return;
+        }
+
+        String frames = event.getStackTrace().getFrames().stream()
+            .limit(MAX_LOGGED_FRAMES)
+            .map(VirtualThreadPinningMonitor::describe)
+            .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+        boolean inApplicationCode = event.getStackTrace().getFrames().stream()
+            .anyMatch(frame -> frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE));
+        log.warn("Virtual thread pinned for {}{}{}", event.getDuration(),
+            inApplicationCode ? " in application code" : "", frames);
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
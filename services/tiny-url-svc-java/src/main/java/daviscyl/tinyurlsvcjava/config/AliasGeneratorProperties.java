@@ -0,0 +1,30 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the block-based alias generator.
+ * <p>
+ * Neither the block size nor the scramble key may change once aliases have been issued: both determine
+ * which alias an id maps to, and changing them can hand out aliases that are already taken.
+ *
+ * @param blockSize   ids reserved from the database sequence per round trip
+ * @param scramble    whether ids are permuted before encoding so aliases are not enumerable
+ * @param scrambleKey secret key of the permutation, required with {@code scramble}; anyone who knows it can
+ *                    invert the permutation and walk consecutive aliases
+ */
+@ConfigurationProperties(prefix = "tiny-url.alias-generator")
+public record AliasGeneratorProperties(
+    @DefaultValue("1000") int blockSize,
+    @DefaultValue("true") boolean scramble,
+    Long scrambleKey
+) {
+
+    public AliasGeneratorProperties {
+        if (scramble && scrambleKey == null) {
+            throw new IllegalStateException(
+                "Set tiny-url.alias-generator.scramble-key (ALIAS_SCRAMBLE_KEY) to a secret random long, or disable scramble");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the negative-lookup shield in front of the alias cache and database.
+ *
+ * @param enabled                  whether unknown aliases are filtered at all
+ * @param expectedInsertions       aliases the Bloom filter is sized for; raised to twice the table size at build time
+ * @param falsePositiveProbability target false-positive rate, which together with the size determines memory use
+ * @param negativeCacheTimeToLive  how long an inactive, expired or unknown alias is remembered as missing
+ * @param negativeCacheMaximumSize bound on remembered missing aliases
+ * @param deltaSyncOverlap         how far back each delta sync rescans inserted rows; must exceed the longest
+ *                                 transaction that inserts urls
+ */
+@ConfigurationProperties(prefix = "tiny-url.alias-shield")
+public record AliasShieldProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("1000000") long expectedInsertions,
+    @DefaultValue("0.01") double falsePositiveProbability,
+    @DefaultValue("30s") Duration negativeCacheTimeToLive,
+    @DefaultValue("100000") long negativeCacheMaximumSize,
+    @DefaultValue("30s") Duration deltaSyncOverlap
+) {}
@@ -0,0 +1,16 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits of the bulk URL creation endpoint.
+ *
+ * @param maxItems  largest number of URLs accepted in one request; the API contract caps requests at 1000
+ * @param chunkSize URLs inserted per transaction; each chunk is sent as one JDBC batch
+ */
+@ConfigurationProperties(prefix = "tiny-url.batch-create")
+public record BatchCreateProperties(
+    @DefaultValue("1000") int maxItems,
+    @DefaultValue("500") int chunkSize
+) {}
@@ -1,5 +1,10 @@
 package daviscyl.tinyurlsvcjava.config;
 
+import daviscyl.tinyurlsvcjava.cache.ExpiryAwareTtlFunction;
+import daviscyl.tinyurlsvcjava.cache.RedisCacheInvalidationBus;
+import daviscyl.tinyurlsvcjava.cache.ResolvedUrlRedisSerializer;
+import daviscyl.tinyurlsvcjava.cache.TwoTierCacheManager;
+import daviscyl.tinyurlsvcjava.service.RedirectService;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -7,21 +12,28 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
-import java.time.Duration;
-
+/**
+ * Caching is always enabled; without {@code spring.cache.type=redis} Spring Boot falls back to the
+ * cache type configured for the profile (a no-op cache in tests).
+ */
 @Configuration
 @EnableCaching
-@ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
 public class CacheConfig {
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                            RedisCacheInvalidationBus cacheInvalidationBus,
+                                            TwoTierCacheProperties properties) {
         RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
-            .entryTtl(Duration.ofHours(1))
+            .entryTtl(properties.sharedTimeToLive())
+            .disableCachingNullValues()
             .serializeKeysWith(
                 RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer())
             )
@@ -29,8 +41,46 @@ public class CacheConfig {
                 RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer())
             );
 
-        return RedisCacheManager.builder(connectionFactory)
+        // Resolved urls use a compact binary value and expire no later than the url itself
+        RedisCacheConfiguration urlCacheConfig = cacheConfig
+            .entryTtl(new ExpiryAwareTtlFunction(properties.sharedTimeToLive()))
+            .serializeValuesWith(
+                RedisSerializationContext.SerializationPair.fromSerializer(new ResolvedUrlRedisSerializer())
+            );
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
             .cacheDefaults(cacheConfig)
+            .withCacheConfiguration(RedirectService.URL_CACHE, urlCacheConfig)
             .build();
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoTierCacheManager(
+            redisCacheManager,
+            cacheInvalidationBus,
+            properties.localMaximumSize(),
+            properties.localTimeToLive(),
+            properties.loadTimeout(),
+            properties.refreshAhead()
+        );
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+    public RedisCacheInvalidationBus cacheInvalidationBus(StringRedisTemplate redisTemplate,
+                                                          RedisMessageListenerContainer cacheInvalidationListenerContainer,
+                                                          TwoTierCacheProperties properties) {
+        return new RedisCacheInvalidationBus(
+            redisTemplate,
+            cacheInvalidationListenerContainer,
+            properties.invalidationChannel()
+        );
     }
 }
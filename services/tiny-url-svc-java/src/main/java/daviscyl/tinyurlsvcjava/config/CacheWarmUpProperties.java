@@ -0,0 +1,28 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the alias cache warm-up that runs before the node reports ready.
+ *
+ * @param enabled      whether the alias cache is preloaded at startup
+ * @param maxEntries   bound on preloaded aliases, also the largest hot set the endpoint exports
+ * @param maxDuration  time budget; the node reports ready once it is spent, however far warm-up got
+ * @param memoryBudget budget for the estimated heap size of preloaded entries
+ * @param peerUrl      hot set endpoint of a running node ({@code /actuator/hotset}) whose ranking is preloaded;
+ *                     without one, or when it cannot be reached, urls are ranked by their redirect counts
+ * @param peerTimeout  connect and read timeout of the peer request
+ */
+@ConfigurationProperties(prefix = "tiny-url.warm-up")
+public record CacheWarmUpProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("10000") int maxEntries,
+    @DefaultValue("30s") Duration maxDuration,
+    @DefaultValue("16MB") DataSize memoryBudget,
+    String peerUrl,
+    @DefaultValue("2s") Duration peerTimeout
+) {}
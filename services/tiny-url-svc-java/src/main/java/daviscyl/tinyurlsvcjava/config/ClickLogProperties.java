@@ -0,0 +1,46 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the local click log that replaces the in-memory counter buffer when enabled.
+ *
+ * @param enabled          whether redirects are appended to the click log instead of the counter buffer
+ * @param directory        where segment files live; must survive restarts for clicks to survive them
+ * @param nodeId           identifies this node's checkpoint; unset means the host name, so the directory and
+ *                         the id have to move together
+ * @param segmentSize      size of a segment file, preallocated; records are 64 bytes
+ * @param fsync            when appended records are forced to disk
+ * @param fsyncInterval    delay between two forces with {@link Fsync#INTERVAL}, and between checks for completed
+ *                         segments with {@link Fsync#SEGMENT}
+ * @param compactInterval  delay between two compaction runs
+ * @param maxBatchRecords  records folded into one transaction
+ * @param retention        how long segments are kept after their creation once fully compacted
+ */
+@ConfigurationProperties(prefix = "tiny-url.click-log")
+public record ClickLogProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("data/click-log") Path directory,
+    String nodeId,
+    @DefaultValue("64MB") DataSize segmentSize,
+    @DefaultValue("INTERVAL") Fsync fsync,
+    @DefaultValue("1s") Duration fsyncInterval,
+    @DefaultValue("5s") Duration compactInterval,
+    @DefaultValue("50000") int maxBatchRecords,
+    @DefaultValue("24h") Duration retention
+) {
+
+    public enum Fsync {
+        // Records reach the page cache only; they survive a process crash but not a host crash
+        NONE,
+        // A segment is forced once all of its records are written
+        SEGMENT,
+        // The active segment is also forced every fsync interval
+        INTERVAL
+    }
+}
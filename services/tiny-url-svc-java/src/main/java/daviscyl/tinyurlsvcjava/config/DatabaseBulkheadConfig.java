@@ -0,0 +1,64 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import daviscyl.tinyurlsvcjava.concurrency.BulkheadDataSource;
+import daviscyl.tinyurlsvcjava.datasource.ReplicaRoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts the application datasource behind a {@link BulkheadDataSource} sized to the Hikari pool. With read
+ * replicas, the primary and every replica pool get their own bulkhead.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tiny-url.database-bulkhead", name = "enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class DatabaseBulkheadConfig {
+
+    // Static so the post-processor does not force early initialization of this configuration
+    @Bean
+    static BeanPostProcessor databaseBulkheadPostProcessor(ObjectProvider<DatabaseBulkheadProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BulkheadDataSource || isRouting(bean)) {
+                    return bean;
+                }
+                return withBulkhead(dataSource, beanName, properties.getObject());
+            }
+        };
+    }
+
+    /**
+     * Wraps a connection pool in a bulkhead sized to the pool unless a limit is configured.
+     */
+    static DataSource withBulkhead(DataSource dataSource, String name, DatabaseBulkheadProperties settings) {
+        int maxConcurrentCalls = settings.maxConcurrentCalls() != null
+            ? settings.maxConcurrentCalls()
+            : poolSize(dataSource);
+        log.info("Database bulkhead for '{}': {} concurrent connections, {} acquire timeout",
+            name, maxConcurrentCalls, settings.acquireTimeout());
+        return new BulkheadDataSource(dataSource, maxConcurrentCalls, settings.acquireTimeout(), settings.retryAfter());
+    }
+
+    // Routing datasources hand out connections of pools that have bulkheads of their own
+    private static boolean isRouting(Object bean) {
+        return bean instanceof ReplicaRoutingDataSource
+            || bean instanceof LazyConnectionDataSourceProxy lazy
+            && lazy.getTargetDataSource() instanceof ReplicaRoutingDataSource;
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari.getMaximumPoolSize();
+        }
+        throw new IllegalStateException("Set tiny-url.database-bulkhead.max-concurrent-calls for a non-Hikari datasource");
+    }
+}
@@ -0,0 +1,26 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the bulkhead in front of the connection pool.
+ * <p>
+ * With virtual threads the number of concurrent requests is no longer bounded by a thread pool, so without
+ * a bulkhead every request beyond the pool size would queue on connection acquisition until the pool
+ * timeout. The bulkhead fails those requests fast instead.
+ *
+ * @param enabled            whether datasource access goes through the bulkhead
+ * @param maxConcurrentCalls connections handed out at once; unset means the Hikari maximum pool size
+ * @param acquireTimeout     how long a caller waits for a permit before the call is rejected
+ * @param retryAfter         Retry-After hint sent with rejected requests
+ */
+@ConfigurationProperties(prefix = "tiny-url.database-bulkhead")
+public record DatabaseBulkheadProperties(
+    @DefaultValue("true") boolean enabled,
+    Integer maxConcurrentCalls,
+    @DefaultValue("250ms") Duration acquireTimeout,
+    @DefaultValue("1s") Duration retryAfter
+) {}
@@ -0,0 +1,28 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the heavy-hitter tracker that pins the hottest aliases in a local replica.
+ *
+ * @param enabled           whether redirects are counted and hot aliases pinned at all
+ * @param window            length of a counting window; pins are recomputed at the end of each window
+ * @param pinRate           redirects per second over a window above which an alias is pinned
+ * @param maxPinned         bound on pinned aliases per node, the hottest win
+ * @param trackedCandidates size of the top-K list kept per window and reported by the actuator endpoint
+ * @param sketchWidth       counters per Count-Min row; overcounts stay below {@code e / width} of the window's redirects
+ * @param sketchDepth       Count-Min rows; the bound is exceeded with probability {@code e^-depth}
+ */
+@ConfigurationProperties(prefix = "tiny-url.hot-aliases")
+public record HotAliasProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("10s") Duration window,
+    @DefaultValue("50") double pinRate,
+    @DefaultValue("16") int maxPinned,
+    @DefaultValue("64") int trackedCandidates,
+    @DefaultValue("2048") int sketchWidth,
+    @DefaultValue("4") int sketchDepth
+) {}
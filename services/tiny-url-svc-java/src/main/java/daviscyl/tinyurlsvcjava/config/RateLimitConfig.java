@@ -0,0 +1,88 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import daviscyl.tinyurlsvcjava.concurrency.LocalRateLimiter;
+import daviscyl.tinyurlsvcjava.concurrency.RateLimiter;
+import daviscyl.tinyurlsvcjava.concurrency.RedisRateLimiter;
+import daviscyl.tinyurlsvcjava.controller.ClientAddressResolver;
+import daviscyl.tinyurlsvcjava.controller.RateLimitFilter;
+import daviscyl.tinyurlsvcjava.controller.RateLimitFilter.Category;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registers the {@link RateLimitFilter} twice: for redirects ahead of the {@code RedirectFastPathFilter}, and
+ * for writes and stats reads right after the Spring Security filter chain, where the user is known.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tiny-url.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> redirectRateLimitFilter(RateLimitProperties properties,
+                                                                           MeterRegistry meterRegistry) {
+        Map<Category, RateLimiter> limiters = Map.of(Category.REDIRECT, localLimiter(Category.REDIRECT,
+            properties.redirectCapacity(), properties.redirectsPerSecond(), properties, meterRegistry));
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+            new RateLimitFilter(limiters, new ClientAddressResolver(properties.trustedProxies()), meterRegistry));
+        registration.setName("redirectRateLimitFilter");
+        registration.addUrlPatterns("/*");
+        // Just before the redirect fast path (DEFAULT_FILTER_ORDER - 10)
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 20);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> apiRateLimitFilter(RateLimitProperties properties,
+                                                                      ObjectProvider<StringRedisTemplate> redisTemplate,
+                                                                      MeterRegistry meterRegistry) {
+        Map<Category, RateLimiter> limiters = new EnumMap<>(Category.class);
+        limiters.put(Category.WRITE, limiter(Category.WRITE,
+            properties.writeCapacity(), properties.writesPerSecond(), properties, redisTemplate, meterRegistry));
+        limiters.put(Category.STATS, limiter(Category.STATS,
+            properties.statsCapacity(), properties.statsPerSecond(), properties, redisTemplate, meterRegistry));
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+            new RateLimitFilter(limiters, new ClientAddressResolver(properties.trustedProxies()), meterRegistry));
+        registration.setName("apiRateLimitFilter");
+        registration.addUrlPatterns("/*");
+        // After security (DEFAULT_FILTER_ORDER = -100) has authenticated the request
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 10);
+        return registration;
+    }
+
+    private static RateLimiter limiter(Category category, int capacity, double perSecond,
+                                       RateLimitProperties properties,
+                                       ObjectProvider<StringRedisTemplate> redisTemplate,
+                                       MeterRegistry meterRegistry) {
+        LocalRateLimiter local = localLimiter(category, capacity, perSecond, properties, meterRegistry);
+        StringRedisTemplate template = properties.distributed() ? redisTemplate.getIfAvailable() : null;
+        if (template == null) {
+            return local;
+        }
+        return new RedisRateLimiter(template,
+            properties.redisKeyPrefix() + category.name().toLowerCase(Locale.ROOT) + ":",
+            perSecond, local, properties.redisRetryInterval());
+    }
+
+    private static LocalRateLimiter localLimiter(Category category, int capacity, double perSecond,
+                                                 RateLimitProperties properties, MeterRegistry meterRegistry) {
+        LocalRateLimiter limiter = new LocalRateLimiter(capacity, perSecond, properties.maxClients(),
+            Ticker.systemTicker());
+        Gauge.builder("tinyurl.rate-limit.clients", limiter, LocalRateLimiter::estimatedClients)
+            .description("Clients with a rate limit bucket on this node")
+            .tag("category", category.name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry);
+        return limiter;
+    }
+}
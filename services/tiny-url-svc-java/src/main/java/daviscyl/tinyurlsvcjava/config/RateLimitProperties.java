@@ -0,0 +1,43 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Per-client rate limits. Each kind of request has a bucket of {@code capacity} requests a client may send in a
+ * burst, refilled at {@code perSecond}.
+ *
+ * @param enabled            whether requests are limited at all
+ * @param redirectCapacity   burst of redirects per client address
+ * @param redirectsPerSecond sustained redirects per client address
+ * @param writeCapacity      burst of creates, batch creates, updates and deletes per user
+ * @param writesPerSecond    sustained writes per user
+ * @param statsCapacity      burst of stats reads per user
+ * @param statsPerSecond     sustained stats reads per user
+ * @param maxClients         clients tracked per kind of request on one node; idle clients are dropped first
+ * @param trustedProxies     addresses or CIDR ranges of the load balancers and proxies in front of the service,
+ *                           whose {@code X-Forwarded-For} entries name the client; without them every client
+ *                           behind a proxy shares the proxy's redirect budget
+ * @param distributed        whether write and stats budgets are shared by all nodes through Redis; redirect
+ *                           budgets always stay local so a redirect never waits for Redis
+ * @param redisKeyPrefix     prefix of the Redis keys of shared budgets
+ * @param redisRetryInterval how long a node limits locally after Redis failed before trying it again
+ */
+@ConfigurationProperties(prefix = "tiny-url.rate-limit")
+public record RateLimitProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("200") int redirectCapacity,
+    @DefaultValue("100") double redirectsPerSecond,
+    @DefaultValue("50") int writeCapacity,
+    @DefaultValue("5") double writesPerSecond,
+    @DefaultValue("60") int statsCapacity,
+    @DefaultValue("10") double statsPerSecond,
+    @DefaultValue("100000") long maxClients,
+    @DefaultValue List<String> trustedProxies,
+    @DefaultValue("false") boolean distributed,
+    @DefaultValue("tiny-url:rate-limit:") String redisKeyPrefix,
+    @DefaultValue("10s") Duration redisRetryInterval
+) {}
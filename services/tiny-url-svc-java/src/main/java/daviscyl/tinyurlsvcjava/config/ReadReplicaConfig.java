@@ -0,0 +1,100 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import daviscyl.tinyurlsvcjava.datasource.ReadYourWrites;
+import daviscyl.tinyurlsvcjava.datasource.ReplicaRoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured datasource with one that routes read-only transactions to the replicas.
+ * <p>
+ * The primary pool is still built from {@code spring.datasource} and gets its bulkhead from
+ * {@link DatabaseBulkheadConfig} like before; each replica pool gets a bulkhead of its own here, so a slow
+ * replica cannot take the primary's permits.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tiny-url.read-replicas", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // Its inferred close method closes the replica pools on shutdown
+    @Bean
+    ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                      ReadReplicaProperties properties,
+                                                      DataSourceProperties dataSourceProperties,
+                                                      ObjectProvider<DatabaseBulkheadProperties> bulkheadProperties) {
+        checkReadYourWritesWindow(properties);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (ReadReplicaProperties.Replica replica : properties.replicas()) {
+            String name = replica.name() != null ? replica.name() : "replica-" + (replicas.size() + 1);
+            DataSource pool = replicaPool(name, replica, dataSourceProperties);
+            DatabaseBulkheadProperties bulkhead = bulkheadProperties.getIfAvailable();
+            if (bulkhead != null && bulkhead.enabled()) {
+                pool = DatabaseBulkheadConfig.withBulkhead(pool, name, bulkhead);
+            }
+            replicas.put(name, pool);
+        }
+        log.info("Routing read-only transactions to {} replicas {}, {}, max lag {}",
+            replicas.size(), replicas.keySet(), properties.selection(), properties.maxLag());
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, properties.selection(),
+            properties.maxLag(), properties.lagQuery(), ReadYourWrites::isPrimaryRequired);
+    }
+
+    /**
+     * The datasource of JPA, JDBC templates and Flyway.
+     */
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Fails startup when the read-your-writes window can end before the replicas are guaranteed to have replayed
+     * the write: a replica is only dropped once a probe sees it over the max lag, so it may serve reads up to
+     * {@code maxLag + healthCheckInterval} behind. A shorter window would let a replica read repopulate the
+     * shared caches with the value before the write.
+     */
+    static void checkReadYourWritesWindow(ReadReplicaProperties properties) {
+        Duration staleness = properties.maxLag().plus(properties.healthCheckInterval());
+        if (properties.readYourWritesWindow().compareTo(staleness) < 0) {
+            throw new IllegalStateException(
+                "tiny-url.read-replicas.read-your-writes-window (%s) must be at least max-lag + health-check-interval (%s)"
+                    .formatted(properties.readYourWritesWindow(), staleness));
+        }
+    }
+
+    private static HikariDataSource replicaPool(String name,
+                                                ReadReplicaProperties.Replica replica,
+                                                DataSourceProperties dataSourceProperties) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(replica.url());
+        pool.setUsername(replica.username() != null ? replica.username() : dataSourceProperties.determineUsername());
+        pool.setPassword(replica.password() != null ? replica.password() : dataSourceProperties.determinePassword());
+        pool.setMaximumPoolSize(replica.maximumPoolSize());
+        pool.setReadOnly(true);
+        return pool;
+    }
+}
@@ -0,0 +1,50 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import daviscyl.tinyurlsvcjava.datasource.ReplicaRoutingDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings of the routing of read-only transactions to PostgreSQL streaming replicas.
+ *
+ * @param enabled               whether read-only transactions may go to the replicas
+ * @param replicas              replica connections; the primary stays configured under {@code spring.datasource}
+ * @param selection             how a replica is picked among the available ones
+ * @param maxLag                replay lag beyond which a replica gets no reads until it has caught up
+ * @param lagQuery              query returning a replica's replay lag in seconds; blank only checks liveness
+ * @param healthCheckInterval   how often replicas are probed for liveness and lag
+ * @param readYourWritesWindow  how long reads of a user, and of an alias, go to the primary after a write; at least
+ *                              {@code maxLag + healthCheckInterval}, since a replica passing one probe just under the
+ *                              max lag may fall that far behind before the next
+ */
+@ConfigurationProperties(prefix = "tiny-url.read-replicas")
+public record ReadReplicaProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue List<Replica> replicas,
+    @DefaultValue("ROUND_ROBIN") ReplicaRoutingDataSource.Selection selection,
+    @DefaultValue("5s") Duration maxLag,
+    @DefaultValue(DEFAULT_LAG_QUERY) String lagQuery,
+    @DefaultValue("5s") Duration healthCheckInterval,
+    @DefaultValue("15s") Duration readYourWritesWindow
+) {
+
+    // A replica that replayed everything it received is not behind, however old its last replayed commit is
+    public static final String DEFAULT_LAG_QUERY =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+        "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    /**
+     * @param name            pool name, used in logs
+     * @param maximumPoolSize connections of the replica's own Hikari pool
+     */
+    public record Replica(
+        String name,
+        String url,
+        String username,
+        String password,
+        @DefaultValue("10") int maximumPoolSize
+    ) {}
+}
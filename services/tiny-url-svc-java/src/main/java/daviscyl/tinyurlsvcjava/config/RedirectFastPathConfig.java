@@ -0,0 +1,63 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import daviscyl.tinyurlsvcjava.controller.RedirectFastPathFilter;
+import daviscyl.tinyurlsvcjava.controller.VisitorKeyResolver;
+import daviscyl.tinyurlsvcjava.service.RedirectMetrics;
+import daviscyl.tinyurlsvcjava.service.RedirectService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.handler.AbstractUrlHandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registers the {@link RedirectFastPathFilter} ahead of the Spring Security filter chain, so public redirects
+ * skip both security and the MVC dispatch, and checks once all beans exist that it shadows none of the
+ * controller, actuator or resource handler mappings.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tiny-url.redirect.fast-path", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RedirectFastPathConfig {
+
+    @Bean
+    public FilterRegistrationBean<RedirectFastPathFilter> redirectFastPathFilter(RedirectService redirectService,
+                                                                                VisitorKeyResolver visitorKeyResolver,
+                                                                                RedirectMetrics redirectMetrics,
+                                                                                ObjectMapper objectMapper) {
+        FilterRegistrationBean<RedirectFastPathFilter> registration = new FilterRegistrationBean<>(
+            new RedirectFastPathFilter(redirectService, visitorKeyResolver, redirectMetrics, objectMapper));
+        registration.addUrlPatterns("/*");
+        // After the observation and character-encoding filters, before security (DEFAULT_FILTER_ORDER = -100)
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+        return registration;
+    }
+
+    @Bean
+    SmartInitializingSingleton redirectFastPathMappingCheck(ObjectProvider<RequestMappingInfoHandlerMapping> methodMappings,
+                                                            ObjectProvider<AbstractUrlHandlerMapping> urlMappings) {
+        return () -> {
+            List<String> patterns = new ArrayList<>();
+            methodMappings.orderedStream().forEach(mapping -> {
+                for (RequestMappingInfo info : mapping.getHandlerMethods().keySet()) {
+                    Set<RequestMethod> methods = info.getMethodsCondition().getMethods();
+                    if (methods.isEmpty() || methods.contains(RequestMethod.GET) || methods.contains(RequestMethod.HEAD)) {
+                        patterns.addAll(info.getPatternValues());
+                    }
+                }
+            });
+            urlMappings.orderedStream().forEach(mapping -> patterns.addAll(mapping.getHandlerMap().keySet()));
+            RedirectFastPathFilter.checkMappings(patterns);
+        };
+    }
+}
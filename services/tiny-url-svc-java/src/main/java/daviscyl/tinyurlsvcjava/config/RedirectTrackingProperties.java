@@ -0,0 +1,21 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Write-behind settings for redirect counters.
+ *
+ * @param flushInterval       delay between two background flushes of the in-memory counters
+ * @param maxPendingRedirects redirects buffered before an early flush is forced; together with the
+ *                            flush interval this bounds how many counts a crash can lose
+ * @param batchSize           rows per JDBC batch when applying counters
+ */
+@ConfigurationProperties(prefix = "tiny-url.redirect-tracking")
+public record RedirectTrackingProperties(
+    @DefaultValue("1s") Duration flushInterval,
+    @DefaultValue("10000") long maxPendingRedirects,
+    @DefaultValue("500") int batchSize
+) {}
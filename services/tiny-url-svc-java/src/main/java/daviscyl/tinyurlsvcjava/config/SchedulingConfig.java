@@ -0,0 +1,20 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * Calendar of the jobs that act on dates, so tests can run them at any point in time.
+     */
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
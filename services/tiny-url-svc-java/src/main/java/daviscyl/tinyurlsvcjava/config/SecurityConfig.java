@@ -21,6 +21,7 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
                     .requestMatchers("/urls").authenticated()
+                    .requestMatchers("/exports/**").authenticated()
                     // Actuator endpoints
                     .requestMatchers("/actuator/**").permitAll()
                     // Swagger UI and API docs
@@ -0,0 +1,18 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * In-process cache of stats responses served to polling dashboards.
+ *
+ * @param maximumSize entries kept before size-based eviction; 0 disables the cache
+ * @param timeToLive  lifetime of an entry; entries are keyed by stats version, so this only bounds memory
+ */
+@ConfigurationProperties(prefix = "tiny-url.stats-cache")
+public record StatsCacheProperties(
+    @DefaultValue("10000") long maximumSize,
+    @DefaultValue("10s") Duration timeToLive
+) {}
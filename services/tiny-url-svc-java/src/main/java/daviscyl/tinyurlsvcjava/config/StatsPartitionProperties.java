@@ -0,0 +1,28 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the maintenance of the monthly {@code url_stats} partitions (PostgreSQL only).
+ *
+ * @param enabled          whether partitions are maintained; off where {@code url_stats} is a plain table
+ * @param monthsAhead      future months that always have a partition, so flushes never land in the default one
+ * @param retentionMonths  whole months of daily rows kept before the current one; {@code 0} keeps them all.
+ *                         Older ranges are still answered to the week or month from the rollups.
+ * @param retentionAction  whether retired partitions are detached, keeping their table, or dropped
+ * @param interval         delay between two maintenance runs; the first runs at startup
+ */
+@ConfigurationProperties(prefix = "tiny-url.stats-partitions")
+public record StatsPartitionProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("3") int monthsAhead,
+    @DefaultValue("0") int retentionMonths,
+    @DefaultValue("DETACH") RetentionAction retentionAction,
+    @DefaultValue("PT12H") Duration interval
+) {
+
+    public enum RetentionAction { DETACH, DROP }
+}
@@ -0,0 +1,31 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the pre-aggregated stats tiers. The counter flush writes the daily rows, and the hourly rows
+ * when enabled; weekly and monthly rollups are rebuilt from the daily rows by a scheduled job.
+ *
+ * @param hourlyEnabled   also maintain hourly rows, so that stats ranges starting or ending within a recent
+ *                        day are answered to the hour instead of being widened to whole days
+ * @param hourlyRetention how long hourly rows are kept; older partial days are widened to whole days
+ * @param purgeInterval   delay between two purges of expired hourly rows
+ * @param rollupEnabled   whether this node rebuilds weekly and monthly rows (PostgreSQL only); off only where
+ *                        nothing flushes counters, as in tests on H2
+ * @param rollupInterval  delay between two rebuilds of the weeks and months of days the flush queued; must
+ *                        stay well under a day, since stats reads use weekly and monthly rows once a whole
+ *                        day has passed since their bucket ended
+ * @param rollupBatchSize queued days taken per rebuild transaction
+ */
+@ConfigurationProperties(prefix = "tiny-url.stats-rollups")
+public record StatsRollupProperties(
+    @DefaultValue("false") boolean hourlyEnabled,
+    @DefaultValue("P7D") Duration hourlyRetention,
+    @DefaultValue("PT1H") Duration purgeInterval,
+    @DefaultValue("true") boolean rollupEnabled,
+    @DefaultValue("PT5M") Duration rollupInterval,
+    @DefaultValue("500") int rollupBatchSize
+) {}
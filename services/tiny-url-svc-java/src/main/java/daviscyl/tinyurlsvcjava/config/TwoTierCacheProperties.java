@@ -0,0 +1,27 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the in-process cache tier that sits in front of Redis.
+ *
+ * @param localMaximumSize     entries kept per cache before size-based eviction kicks in
+ * @param localTimeToLive      TTL of in-process entries; bounds staleness when an invalidation message is missed
+ * @param invalidationChannel  Redis pub/sub channel used to broadcast evictions to other nodes
+ * @param sharedTimeToLive     maximum TTL of Redis entries; cached urls expire earlier when the url does
+ * @param loadTimeout          how long a miss waits for a load of the same key already in flight on this node
+ * @param refreshAhead         window before L1 expiry in which a hit reloads the entry in the background;
+ *                             zero turns refresh-ahead off
+ */
+@ConfigurationProperties(prefix = "tiny-url.cache")
+public record TwoTierCacheProperties(
+    @DefaultValue("10000") long localMaximumSize,
+    @DefaultValue("60s") Duration localTimeToLive,
+    @DefaultValue("tiny-url:cache-invalidation") String invalidationChannel,
+    @DefaultValue("1h") Duration sharedTimeToLive,
+    @DefaultValue("2s") Duration loadTimeout,
+    @DefaultValue("0s") Duration refreshAhead
+) {}
@@ -0,0 +1,26 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of unique-visitor counting.
+ * <p>
+ * Each url and day gets a HyperLogLog sketch of {@code 2^precision} registers. Memory per sketch and the
+ * standard error follow from the precision: 10 gives 1 KiB and 3.3%, 12 gives 4 KiB and 1.6%, 14 gives
+ * 16 KiB and 0.8%. Persisted sketches are smaller while few visitors have been seen.
+ *
+ * @param precision           HyperLogLog precision, between 4 and 16
+ * @param cookieName          cookie that identifies a visitor; when absent, visitors are keyed by client IP and
+ *                            User-Agent
+ * @param sketchFlushInterval how long sketches are merged in memory before they are written; counts are still
+ *                            flushed at the redirect tracking interval
+ */
+@ConfigurationProperties(prefix = "tiny-url.unique-visitors")
+public record UniqueVisitorProperties(
+    @DefaultValue("12") int precision,
+    String cookieName,
+    @DefaultValue("60s") Duration sketchFlushInterval
+) {}
@@ -0,0 +1,21 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the streaming url export.
+ *
+ * @param maxConcurrentExports exports one node runs at once; each holds a database connection until its
+ *                             client has received the last row
+ * @param flushEveryRows       rows written between explicit flushes to the client
+ * @param retryAfter           {@code Retry-After} sent when all export slots are taken
+ */
+@ConfigurationProperties(prefix = "tiny-url.export")
+public record UrlExportProperties(
+    @DefaultValue("4") int maxConcurrentExports,
+    @DefaultValue("1000") int flushEveryRows,
+    @DefaultValue("30s") Duration retryAfter
+) {}
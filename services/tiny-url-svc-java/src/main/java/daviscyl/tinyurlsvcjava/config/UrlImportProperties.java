@@ -0,0 +1,33 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import daviscyl.tinyurlsvcjava.service.UrlImportReader;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the bulk url import, which runs at startup when a file is given.
+ *
+ * @param file             NDJSON or CSV file to import; no import runs without one
+ * @param format           format of the file; by default CSV for {@code .csv} files and NDJSON otherwise
+ * @param jobId            name under which progress is stored; running a job again resumes it. Defaults to
+ *                         the file name
+ * @param userId           owner of records without a {@code userId} field
+ * @param batchSize        input lines per batch; each batch is one JDBC batch in one transaction
+ * @param queueCapacity    parsed batches waiting for the writer before parsing blocks
+ * @param progressInterval how often progress and throughput are logged
+ * @param exitWhenDone     whether the application exits once the import ended, with status 1 on failure
+ */
+@ConfigurationProperties(prefix = "tiny-url.import")
+public record UrlImportProperties(
+    Path file,
+    UrlImportReader.Format format,
+    String jobId,
+    String userId,
+    @DefaultValue("1000") int batchSize,
+    @DefaultValue("4") int queueCapacity,
+    @DefaultValue("10s") Duration progressInterval,
+    @DefaultValue("true") boolean exitWhenDone
+) {}
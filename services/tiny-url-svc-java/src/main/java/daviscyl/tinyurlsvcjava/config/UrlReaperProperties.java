@@ -0,0 +1,35 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the background reaper that removes expired and long-inactive urls.
+ *
+ * @param enabled             whether the reaper runs at all
+ * @param mode                whether reaped urls are moved to {@code urls_archive} or deleted outright
+ * @param expiredGracePeriod  how long after expiry a url is kept, e.g. to be extended by its owner
+ * @param inactiveGracePeriod how long after deactivation a url is kept
+ * @param interval            delay between two runs, and before the first one after startup
+ * @param batchSize           rows removed per transaction
+ * @param maxBatchesPerRun    bound on batches per run; the rest is left to the next run
+ * @param pauseBetweenBatches pause after each batch, leaving the pool and the index to redirect traffic
+ * @param lockTimeout         how long a batch waits for a lock before the run is abandoned
+ */
+@ConfigurationProperties(prefix = "tiny-url.reaper")
+public record UrlReaperProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("ARCHIVE") Mode mode,
+    @DefaultValue("P30D") Duration expiredGracePeriod,
+    @DefaultValue("P30D") Duration inactiveGracePeriod,
+    @DefaultValue("PT15M") Duration interval,
+    @DefaultValue("500") int batchSize,
+    @DefaultValue("100") int maxBatchesPerRun,
+    @DefaultValue("200ms") Duration pauseBetweenBatches,
+    @DefaultValue("100ms") Duration lockTimeout
+) {
+
+    public enum Mode { ARCHIVE, DELETE }
+}
@@ -1,9 +1,12 @@
 package daviscyl.tinyurlsvcjava.controller;
 
 import daviscyl.tinyurlsvcjava.api.AliasApi;
+import daviscyl.tinyurlsvcjava.service.RedirectMetrics;
 import daviscyl.tinyurlsvcjava.service.RedirectService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
@@ -16,21 +19,29 @@ import java.net.URI;
 public class AliasApiController implements AliasApi {
 
     private final RedirectService redirectService;
+    private final VisitorKeyResolver visitorKeyResolver;
+    private final RedirectMetrics redirectMetrics;
+    private final HttpServletRequest request;
 
     @Override
     public ResponseEntity<Void> resolveAlias(String alias) {
         return redirectService.resolveAlias(alias)
-            .map(destinationUrl -> {
-                // Track the redirect asynchronously (in a real app, use @Async)
+            .map(resolved -> {
+                // Only buffers or logs the hit; counters reach the database in the background
                 try {
-                    redirectService.trackRedirect(alias);
+                    redirectService.trackRedirect(resolved, visitorKeyResolver.visitorHash(request),
+                        request.getHeader(HttpHeaders.REFERER), request.getHeader(HttpHeaders.USER_AGENT));
                 } catch (Exception e) {
                     log.error("Failed to track redirect for alias: {}", alias, e);
                 }
 
                 // Return 302 redirect
-                return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(destinationUrl)).<Void>build();
+                redirectMetrics.redirectFound();
+                return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(resolved.destinationUrl())).<Void>build();
             })
-            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+            .orElseGet(() -> {
+                redirectMetrics.redirectNotFound();
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            });
     }
 }
@@ -0,0 +1,40 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import daviscyl.tinyurlsvcjava.concurrency.BulkheadFullException;
+import daviscyl.tinyurlsvcjava.model.ErrorResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps overload conditions to the API's {@code TooManyRequests} response.
+ */
+@RestControllerAdvice
+@Slf4j
+public class ApiExceptionHandler {
+
+    // Also matches when the exception is the cause of a transaction or data access exception
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<ErrorResponse> handleBulkheadFull(BulkheadFullException e) {
+        log.debug("Rejecting request: {}", e.getMessage());
+        return bulkheadFull(e);
+    }
+
+    /**
+     * The response to a full bulkhead, also written by filters that run outside of MVC.
+     */
+    static ResponseEntity<ErrorResponse> bulkheadFull(BulkheadFullException e) {
+        return tooManyRequests(e.getRetryAfter().toSeconds(), "Service is at capacity. Try again later.");
+    }
+
+    static ResponseEntity<ErrorResponse> tooManyRequests(long retryAfterSeconds, String message) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfterSeconds)))
+            .body(new ErrorResponse()
+                .code("TOO_MANY_REQUESTS")
+                .message(message));
+    }
+}
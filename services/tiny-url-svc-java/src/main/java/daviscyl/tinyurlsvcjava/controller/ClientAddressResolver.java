@@ -0,0 +1,146 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Finds the address of the client behind a request.
+ * <p>
+ * Behind a load balancer the connection comes from the balancer, so when its address belongs to a trusted
+ * proxy the {@code X-Forwarded-For} chain is walked from the right, skipping trusted proxies, and the first
+ * other address is the client's. Entries left of it were written by the client itself and are never used.
+ * Addresses are only parsed as literals, never looked up.
+ */
+public class ClientAddressResolver {
+
+    public static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final List<Range> trustedProxies = new ArrayList<>();
+
+    /**
+     * @param trustedProxies addresses or CIDR ranges, e.g. {@code 10.0.0.0/8}, of the proxies in front of the
+     *                       service; empty to always use the address of the connection
+     * @throws IllegalArgumentException when an entry is not an IP address or range
+     */
+    public ClientAddressResolver(List<String> trustedProxies) {
+        for (String proxy : trustedProxies) {
+            this.trustedProxies.add(Range.parse(proxy.strip()));
+        }
+    }
+
+    public String clientAddress(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        if (trustedProxies.isEmpty() || !isTrusted(literal(remoteAddress))) {
+            return remoteAddress;
+        }
+
+        String client = remoteAddress;
+        List<String> hops = forwardedFor(request);
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            InetAddress hop = literal(withoutPort(hops.get(i)));
+            if (hop == null) {
+                // Not written by a trusted proxy, so the last trusted hop is as close to the client as it gets
+                break;
+            }
+            client = hop.getHostAddress();
+            if (!isTrusted(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrusted(InetAddress address) {
+        if (address == null) {
+            return false;
+        }
+        for (Range range : trustedProxies) {
+            if (range.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Repeated headers are one list in the order they arrived
+    private static List<String> forwardedFor(HttpServletRequest request) {
+        List<String> hops = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders(FORWARDED_FOR_HEADER);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.strip());
+                }
+            }
+        }
+        return hops;
+    }
+
+    // Some proxies add the client's port, as 192.0.2.1:4711 or [2001:db8::1]:4711
+    private static String withoutPort(String hop) {
+        if (hop.startsWith("[")) {
+            int end = hop.indexOf(']');
+            return end > 0 ? hop.substring(1, end) : hop;
+        }
+        int colon = hop.indexOf(':');
+        return colon > 0 && colon == hop.lastIndexOf(':') ? hop.substring(0, colon) : hop;
+    }
+
+    private static InetAddress literal(String address) {
+        if (address == null || address.isEmpty()) {
+            return null;
+        }
+        try {
+            return InetAddress.ofLiteral(address);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private record Range(byte[] network, int prefixLength) {
+
+        static Range parse(String range) {
+            int slash = range.indexOf('/');
+            InetAddress address = literal(slash < 0 ? range : range.substring(0, slash));
+            if (address == null) {
+                throw new IllegalArgumentException("Not an IP address or CIDR range: " + range);
+            }
+            int bits = address.getAddress().length * 8;
+            int prefixLength = bits;
+            if (slash >= 0) {
+                try {
+                    prefixLength = Integer.parseInt(range.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Not an IP address or CIDR range: " + range, e);
+                }
+                if (prefixLength < 0 || prefixLength > bits) {
+                    throw new IllegalArgumentException("Not an IP address or CIDR range: " + range);
+                }
+            }
+            return new Range(address.getAddress(), prefixLength);
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits);
+            return (bytes[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
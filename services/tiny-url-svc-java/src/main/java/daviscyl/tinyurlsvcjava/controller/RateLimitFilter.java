@@ -0,0 +1,132 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import daviscyl.tinyurlsvcjava.concurrency.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies per-client {@link RateLimiter} budgets ahead of the controllers, answering requests over budget
+ * with the API's {@code TooManyRequests} response.
+ * <p>
+ * Redirects, writes and stats reads each have their own budget. Redirects are keyed by client address, as
+ * found by the {@link ClientAddressResolver} behind trusted proxies, the others by the authenticated user when
+ * there is one, which requires this filter to run after Spring Security; requests of other kinds pass through.
+ * Allowed requests carry {@code RateLimit-Limit} and {@code RateLimit-Remaining}, rejected ones also
+ * {@code Retry-After} and {@code RateLimit-Reset}.
+ */
+public class RateLimitFilter extends HttpFilter {
+
+    public static final String LIMIT_HEADER = "RateLimit-Limit";
+    public static final String REMAINING_HEADER = "RateLimit-Remaining";
+    public static final String RESET_HEADER = "RateLimit-Reset";
+
+    private static final String URLS_PATH = "/urls";
+    private static final String STATS_SUFFIX = "/stats";
+    private static final byte[] TOO_MANY_REQUESTS_BODY =
+        "{\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"Rate limit exceeded. Try again later.\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    public enum Category { REDIRECT, WRITE, STATS }
+
+    private final Map<Category, RateLimiter> limiters;
+    private final ClientAddressResolver clientAddressResolver;
+    private final Map<Category, Counter> rejected = new EnumMap<>(Category.class);
+
+    /**
+     * @param limiters budgets of the categories this filter enforces
+     */
+    public RateLimitFilter(Map<Category, RateLimiter> limiters,
+                           ClientAddressResolver clientAddressResolver,
+                           MeterRegistry meterRegistry) {
+        this.limiters = new EnumMap<>(limiters);
+        this.clientAddressResolver = clientAddressResolver;
+        for (Category category : this.limiters.keySet()) {
+            rejected.put(category, Counter.builder("tinyurl.rate-limit.rejected")
+                .description("Requests rejected for exceeding the client's rate limit")
+                .tag("category", category.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        Category category = categoryOf(request);
+        RateLimiter limiter = category != null ? limiters.get(category) : null;
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long result = limiter.tryAcquire(clientOf(request, category));
+        response.setHeader(LIMIT_HEADER, Integer.toString(limiter.capacity()));
+        if (result >= 0) {
+            response.setHeader(REMAINING_HEADER, Long.toString(result));
+            chain.doFilter(request, response);
+            return;
+        }
+
+        rejected.get(category).increment();
+        String retryAfter = Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(-result + 999_999_999)));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(REMAINING_HEADER, "0");
+        response.setHeader(RESET_HEADER, retryAfter);
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(TOO_MANY_REQUESTS_BODY.length);
+        response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+    }
+
+    /**
+     * Redirects are the requests {@link RedirectFastPathFilter} would serve; writes are any {@code POST},
+     * {@code PUT}, {@code PATCH} or {@code DELETE} under {@code /urls}, and stats reads a {@code GET} of
+     * {@code /urls/{alias}/stats}.
+     *
+     * @return the category, or {@code null} for requests that are not limited
+     */
+    static Category categoryOf(HttpServletRequest request) {
+        if (RedirectFastPathFilter.aliasOf(request) != null) {
+            return Category.REDIRECT;
+        }
+
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length();
+        if (!uri.startsWith(URLS_PATH, start)
+            || (uri.length() > start + URLS_PATH.length() && uri.charAt(start + URLS_PATH.length()) != '/')) {
+            return null;
+        }
+        return switch (request.getMethod()) {
+            case "POST", "PUT", "PATCH", "DELETE" -> Category.WRITE;
+            case "GET", "HEAD" -> uri.endsWith(STATS_SUFFIX) ? Category.STATS : null;
+            default -> null;
+        };
+    }
+
+    private String clientOf(HttpServletRequest request, Category category) {
+        // Redirects are public and served before security, so they never have a user
+        if (category != Category.REDIRECT) {
+            Principal principal = request.getUserPrincipal();
+            if (principal != null) {
+                return "user:" + principal.getName();
+            }
+        }
+        return clientAddressResolver.clientAddress(request);
+    }
+}
@@ -0,0 +1,188 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import daviscyl.tinyurlsvcjava.concurrency.BulkheadFullException;
+import daviscyl.tinyurlsvcjava.model.ErrorResponse;
+import daviscyl.tinyurlsvcjava.service.RedirectMetrics;
+import daviscyl.tinyurlsvcjava.service.RedirectService;
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serves {@code GET /{alias}} straight from the servlet filter chain, ahead of Spring Security and the
+ * {@code DispatcherServlet}: no handler mapping, argument resolution, {@code ResponseEntity} or URI parsing
+ * per request. Requests that are not a single alias-shaped path segment fall through unchanged, and
+ * {@link AliasApiController} stays mapped as the fallback when the fast path is disabled.
+ * <p>
+ * Running outside of MVC, the filter answers a full database bulkhead itself, with the same
+ * {@code TooManyRequests} response as {@link ApiExceptionHandler}.
+ * <p>
+ * Paths of other handlers are told apart by their first segment; {@link #checkMappings} fails startup when a
+ * handler mapping could be shadowed because its first segment is missing from the reserved ones.
+ */
+@Slf4j
+public class RedirectFastPathFilter extends HttpFilter {
+
+    private static final int MIN_ALIAS_LENGTH = 4;
+    private static final int MAX_ALIAS_LENGTH = 64;
+
+    // Single-segment paths served by MVC, actuator or resource handlers that would otherwise look like aliases
+    private static final Set<String> RESERVED_PATHS = Set.of("urls", "actuator", "error", "swagger-ui", "webjars");
+
+    private final RedirectService redirectService;
+    private final VisitorKeyResolver visitorKeyResolver;
+    private final RedirectMetrics redirectMetrics;
+    private final ObjectMapper objectMapper;
+
+    public RedirectFastPathFilter(RedirectService redirectService,
+                                  VisitorKeyResolver visitorKeyResolver,
+                                  RedirectMetrics redirectMetrics,
+                                  ObjectMapper objectMapper) {
+        this.redirectService = redirectService;
+        this.visitorKeyResolver = visitorKeyResolver;
+        this.redirectMetrics = redirectMetrics;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        String alias = aliasOf(request);
+        if (alias == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ResolvedUrl resolved;
+        try {
+            resolved = redirectService.resolve(alias);
+        } catch (RuntimeException e) {
+            // Arrives as is, or as the cause of a transaction, data access or cache loading exception
+            BulkheadFullException bulkheadFull = bulkheadFullCause(e);
+            if (bulkheadFull == null) {
+                throw e;
+            }
+            log.debug("Rejecting redirect of {}: {}", alias, bulkheadFull.getMessage());
+            write(response, ApiExceptionHandler.bulkheadFull(bulkheadFull));
+            return;
+        }
+        if (resolved == null) {
+            redirectMetrics.redirectNotFound();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Only buffers or logs the hit; counters reach the database in the background
+        try {
+            redirectService.trackRedirect(resolved, visitorKeyResolver.visitorHash(request),
+                request.getHeader(HttpHeaders.REFERER), request.getHeader(HttpHeaders.USER_AGENT));
+        } catch (Exception e) {
+            log.error("Failed to track redirect for alias: {}", alias, e);
+        }
+
+        redirectMetrics.redirectFound();
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        // Validated and encoded when the alias was loaded into the cache
+        response.setHeader(HttpHeaders.LOCATION, resolved.destinationUrl());
+        // Every click has to reach the service to be counted
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+    }
+
+    private void write(HttpServletResponse response, ResponseEntity<ErrorResponse> entity) throws IOException {
+        response.setStatus(entity.getStatusCode().value());
+        entity.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), entity.getBody());
+    }
+
+    private static BulkheadFullException bulkheadFullCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkheadFullException bulkheadFull) {
+                return bulkheadFull;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the alias when the request is a {@code GET} or {@code HEAD} of a single path segment matching
+     * {@code ^[a-zA-Z0-9_-]{4,64}$}, checked on the raw request URI without regex or decoding; percent-encoded
+     * or otherwise unusual paths are left to MVC.
+     */
+    static String aliasOf(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return null;
+        }
+
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + 1;
+        int length = uri.length() - start;
+        if (length < MIN_ALIAS_LENGTH || length > MAX_ALIAS_LENGTH || uri.charAt(start - 1) != '/') {
+            return null;
+        }
+        for (int i = start; i < uri.length(); i++) {
+            if (!isAliasChar(uri.charAt(i))) {
+                return null;
+            }
+        }
+
+        String alias = uri.substring(start);
+        return RESERVED_PATHS.contains(alias) ? null : alias;
+    }
+
+    /**
+     * Checks that no handler mapping can match a path this filter would claim as an alias.
+     *
+     * @param patterns path patterns of the handler mappings that answer {@code GET}
+     * @throws IllegalStateException naming the colliding patterns
+     */
+    public static void checkMappings(Collection<String> patterns) {
+        List<String> colliding = new ArrayList<>();
+        for (String pattern : patterns) {
+            String path = pattern.startsWith("/") ? pattern.substring(1) : pattern;
+            int end = path.indexOf('/');
+            String segment = end < 0 ? path : path.substring(0, end);
+            if (isAliasShaped(segment) && !RESERVED_PATHS.contains(segment)
+                && PathPatternParser.defaultInstance.parse("/" + path).matches(PathContainer.parsePath("/" + segment))) {
+                colliding.add(pattern);
+            }
+        }
+        if (!colliding.isEmpty()) {
+            throw new IllegalStateException("Handler mappings " + colliding + " would be served as redirects; "
+                + "reserve their first path segment in RedirectFastPathFilter");
+        }
+    }
+
+    private static boolean isAliasShaped(String segment) {
+        if (segment.length() < MIN_ALIAS_LENGTH || segment.length() > MAX_ALIAS_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!isAliasChar(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAliasChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+    }
+}
@@ -0,0 +1,43 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import daviscyl.tinyurlsvcjava.config.StatsCacheProperties;
+import daviscyl.tinyurlsvcjava.model.UrlStats;
+import daviscyl.tinyurlsvcjava.service.StatsService.StatsVersion;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of built stats responses, keyed by alias stats version and requested range.
+ * <p>
+ * Ranges are keyed by instant, like the stats ETag, so the same range given in another offset shares the entry.
+ * <p>
+ * A flush that adds redirects bumps the stats version, so later lookups miss and older entries simply age
+ * out; nothing has to be evicted across nodes. Cached responses are shared and must not be modified.
+ */
+@Component
+public class StatsResponseCache {
+
+    private final Cache<Key, UrlStats> responses;
+
+    public StatsResponseCache(StatsCacheProperties properties) {
+        this.responses = Caffeine.newBuilder()
+            .maximumSize(properties.maximumSize())
+            .expireAfterWrite(properties.timeToLive())
+            .build();
+    }
+
+    public UrlStats get(StatsVersion version, OffsetDateTime rangeStart, OffsetDateTime rangeEnd, Supplier<UrlStats> loader) {
+        return responses.get(new Key(version, instantOf(rangeStart), instantOf(rangeEnd)), key -> loader.get());
+    }
+
+    private static Instant instantOf(OffsetDateTime bound) {
+        return bound != null ? bound.toInstant() : null;
+    }
+
+    private record Key(StatsVersion version, Instant rangeStart, Instant rangeEnd) {}
+}
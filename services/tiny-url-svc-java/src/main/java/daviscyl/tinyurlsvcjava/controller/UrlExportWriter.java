@@ -0,0 +1,174 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import daviscyl.tinyurlsvcjava.repository.UrlExportRow;
+import daviscyl.tinyurlsvcjava.service.UrlExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes exported urls straight to the servlet response as NDJSON or CSV (RFC 4180), with the same field names
+ * as the {@code UrlResource} of the API. Headers are only set once the export has been admitted, so a
+ * rejected export still gets a regular error response.
+ */
+final class UrlExportWriter implements UrlExportService.RowWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactoryBuilder()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        // Rows are separated by the newline written after each of them instead
+        .rootValueSeparator("")
+        .build();
+
+    private static final String[] COLUMNS = {
+        "id", "alias", "longUrl", "shortUrl", "active", "createdAt", "updatedAt", "expiresAt",
+        "redirectCount", "lastRedirectAt"};
+    private static final String[] STATS_COLUMNS = {"activeDays", "peakDailyRedirects", "firstRedirectDate"};
+
+    private final HttpServletResponse response;
+    private final Format format;
+
+    private boolean includeStats;
+    private Writer writer;
+    private JsonGenerator json;
+
+    UrlExportWriter(HttpServletResponse response, Format format) {
+        this.response = response;
+        this.format = format;
+    }
+
+    @Override
+    public void begin(boolean includeStats) throws IOException {
+        this.includeStats = includeStats;
+        response.setContentType(format.contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename("urls." + format.extension).build().toString());
+        writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+
+        if (format == Format.NDJSON) {
+            json = JSON_FACTORY.createGenerator(writer);
+        } else {
+            writer.write(String.join(",", COLUMNS));
+            if (includeStats) {
+                writer.write(',');
+                writer.write(String.join(",", STATS_COLUMNS));
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    @Override
+    public void write(UrlExportRow row) throws IOException {
+        Object[] values = {
+            UrlsApiController.resourceId(row.id()), row.alias(), row.destinationUrl(),
+            UrlsApiController.shortUrl(row.alias()), row.active(), row.createdAt(), row.updatedAt(),
+            row.expiresAt(), row.redirectCount(), row.lastRedirectAt()};
+        Object[] stats = {row.activeDays(), row.peakDailyRedirects(), row.firstRedirectDate()};
+        if (format == Format.NDJSON) {
+            writeJson(values, stats);
+        } else {
+            writeCsv(values, stats);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (json != null) {
+            // Flushes the writer and the response stream too
+            json.flush();
+        } else {
+            writer.flush();
+        }
+    }
+
+    private void writeJson(Object[] values, Object[] stats) throws IOException {
+        json.writeStartObject();
+        writeJsonFields(COLUMNS, values);
+        if (includeStats) {
+            writeJsonFields(STATS_COLUMNS, stats);
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private void writeJsonFields(String[] names, Object[] values) throws IOException {
+        for (int i = 0; i < names.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            json.writeFieldName(names[i]);
+            if (value instanceof Long number) {
+                json.writeNumber(number);
+            } else if (value instanceof Boolean bool) {
+                json.writeBoolean(bool);
+            } else {
+                json.writeString(value.toString());
+            }
+        }
+    }
+
+    private void writeCsv(Object[] values, Object[] stats) throws IOException {
+        writeCsvFields(values, true);
+        if (includeStats) {
+            writeCsvFields(stats, false);
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCsvFields(Object[] values, boolean first) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0 || !first) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+            } else {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+    }
+
+    enum Format {
+
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /**
+         * @return the format named {@code name}, ignoring case, or {@code null} when there is none
+         */
+        static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equals(name.toUpperCase(Locale.ROOT))) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+}
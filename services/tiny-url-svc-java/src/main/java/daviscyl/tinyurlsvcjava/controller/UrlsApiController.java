@@ -4,19 +4,29 @@ import daviscyl.tinyurlsvcjava.api.UrlsApi;
 import daviscyl.tinyurlsvcjava.entity.UrlEntity;
 import daviscyl.tinyurlsvcjava.model.*;
 import daviscyl.tinyurlsvcjava.service.StatsService;
+import daviscyl.tinyurlsvcjava.service.UrlBatchService;
+import daviscyl.tinyurlsvcjava.service.UrlExportService;
 import daviscyl.tinyurlsvcjava.service.UrlService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.openapitools.jackson.nullable.JsonNullable;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -27,6 +37,10 @@ public class UrlsApiController implements UrlsApi {
 
     private final UrlService urlService;
     private final StatsService statsService;
+    private final UrlBatchService urlBatchService;
+    private final UrlExportService urlExportService;
+    private final StatsResponseCache statsResponseCache;
+    private final HttpServletRequest request;
 
     @Override
     public ResponseEntity<UrlResource> createUrl(CreateUrlRequest createUrlRequest) {
@@ -43,6 +57,40 @@ public class UrlsApiController implements UrlsApi {
             .body(toUrlResource(entity));
     }
 
+    @Override
+    public ResponseEntity<BatchCreateUrlsResponse> createUrlsBatch(BatchCreateUrlsRequest batchCreateUrlsRequest) {
+        String userId = getCurrentUserId();
+
+        List<UrlBatchService.NewUrl> requests = batchCreateUrlsRequest.getItems().stream()
+            .map(item -> new UrlBatchService.NewUrl(
+                item.getLongUrl().toString(),
+                item.getCustomAlias(),
+                item.getExpiresAt()))
+            .toList();
+
+        List<UrlBatchService.BatchCreateResult> results = urlBatchService.createUrls(requests, userId);
+
+        List<BatchCreateUrlResult> items = results.stream()
+            .map(result -> result.created()
+                ? new BatchCreateUrlResult()
+                    .index(result.index())
+                    .status(BatchCreateUrlResult.StatusEnum.CREATED)
+                    .url(toUrlResource(result.url()))
+                : new BatchCreateUrlResult()
+                    .index(result.index())
+                    .status(BatchCreateUrlResult.StatusEnum.CONFLICT)
+                    .error(new ErrorResponse()
+                        .code("ALIAS_CONFLICT")
+                        .message("Alias requested is not available.")))
+            .collect(Collectors.toList());
+
+        int created = (int) results.stream().filter(UrlBatchService.BatchCreateResult::created).count();
+        return ResponseEntity.ok(new BatchCreateUrlsResponse()
+            .created(created)
+            .conflicts(results.size() - created)
+            .results(items));
+    }
+
     @Override
     public ResponseEntity<Void> deleteUrl(String alias) {
         String userId = getCurrentUserId();
@@ -61,64 +109,92 @@ public class UrlsApiController implements UrlsApi {
             throw new SecurityException("User does not own this URL");
         }
 
-        return ResponseEntity.ok(toUrlResource(entity));
+        String eTag = urlETag(entity);
+        if (isNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toUrlResource(entity));
     }
 
     @Override
     public ResponseEntity<UrlStats> getUrlStats(String alias, OffsetDateTime rangeStart, OffsetDateTime rangeEnd) {
         String userId = getCurrentUserId();
 
-        StatsService.StatsResult stats = statsService.getUrlStats(alias, userId, rangeStart, rangeEnd);
+        // Checking the version costs one lookup by alias; the stats queries only run for changed stats
+        StatsService.StatsVersion version = statsService.getStatsVersion(alias, userId);
+        String eTag = statsETag(version, rangeStart, rangeEnd);
+        if (isNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        UrlStats urlStats = statsResponseCache.get(version, rangeStart, rangeEnd,
+            () -> toUrlStats(alias, statsService.getUrlStats(alias, userId, rangeStart, rangeEnd)));
+        return ResponseEntity.ok().eTag(eTag).body(urlStats);
+    }
 
-        List<DailyRedirectMetrics> dailyMetrics = stats.dailyStats().stream()
-            .map(s -> new DailyRedirectMetrics()
-                .date(s.getStatDate())
-                .redirectCount(s.getRedirectCount().intValue())
-                .uniqueVisitors(s.getUniqueVisitors().intValue()))
+    private UrlStats toUrlStats(String alias, StatsService.StatsResult stats) {
+        List<DailyRedirectMetrics> dailyMetrics = stats.timeSeries().stream()
+            .map(bucket -> new DailyRedirectMetrics()
+                .date(LocalDate.ofInstant(bucket.start(), ZoneOffset.UTC))
+                .start(bucket.start().atOffset(ZoneOffset.UTC))
+                .granularity(DailyRedirectMetrics.GranularityEnum.valueOf(bucket.granularity().name()))
+                // Monthly buckets of busy links can exceed the int32 of the contract
+                .redirectCount((int) Math.min(bucket.redirectCount(), Integer.MAX_VALUE))
+                .uniqueVisitors((int) Math.min(bucket.uniqueVisitors(), Integer.MAX_VALUE)))
             .collect(Collectors.toList());
 
         UrlStats urlStats = new UrlStats()
             .alias(alias)
             .totalRedirects(stats.totalRedirectCount().intValue())
-            .uniqueVisitors(0)
+            .uniqueVisitors(stats.periodUniqueVisitors().intValue())
             .timeSeries(dailyMetrics);
 
         if (stats.lastRedirectAt() != null) {
             urlStats.setLastRedirectAt(JsonNullable.of(stats.lastRedirectAt()));
         }
 
-        return ResponseEntity.ok(urlStats);
+        return urlStats;
     }
 
     @Override
-    public ResponseEntity<ListUrlsResponse> listUrls(Integer page, Integer pageSize, String search) {
+    public ResponseEntity<ListUrlsResponse> listUrls(Integer page, Integer pageSize, String search,
+                                                     String cursor, Boolean includeTotal) {
         String userId = getCurrentUserId();
 
         int pageNum = page != null ? page : 0;
         int size = pageSize != null ? pageSize : 20;
+        // Counting is opt-in for cursor requests, which exist to avoid work that grows with the listing
+        boolean countTotal = includeTotal != null ? includeTotal : cursor == null;
 
-        Pageable pageable = PageRequest.of(pageNum, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<UrlEntity> urlPage = urlService.listUrls(userId, search, pageable);
+        UrlService.UrlPage urlPage = urlService.listUrls(userId, search, pageNum, size, cursor, countTotal);
 
-        List<UrlResource> urls = urlPage.getContent().stream()
+        List<UrlResource> urls = urlPage.content().stream()
             .map(this::toUrlResource)
             .collect(Collectors.toList());
 
-        int totalPages = urlPage.getTotalPages();
         ListUrlsResponse response = new ListUrlsResponse()
             .data(urls)
-            .page(pageNum)
-            .pageSize(size)
-            .totalItems((int) urlPage.getTotalElements())
-            .totalPages(totalPages);
+            .page(cursor == null ? pageNum : 0)
+            .pageSize(size);
+
+        if (urlPage.totalItems() != null) {
+            response.setTotalItems(urlPage.totalItems().intValue());
+            response.setTotalPages((int) ((urlPage.totalItems() + size - 1) / size));
+        }
 
-        if (urlPage.hasNext()) {
-            response.setNextPage(JsonNullable.of(pageNum + 1));
+        if (urlPage.nextPage() != null) {
+            response.setNextPage(JsonNullable.of(urlPage.nextPage()));
         }
 
-        return ResponseEntity.ok()
-            .header("X-Total-Count", String.valueOf(urlPage.getTotalElements()))
-            .body(response);
+        if (urlPage.nextCursor() != null) {
+            response.setNextCursor(JsonNullable.of(urlPage.nextCursor()));
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (urlPage.totalItems() != null) {
+            builder.header("X-Total-Count", String.valueOf(urlPage.totalItems()));
+        }
+        return builder.body(response);
     }
 
     @Override
@@ -143,12 +219,29 @@ public class UrlsApiController implements UrlsApi {
         return ResponseEntity.ok(toUrlResource(entity));
     }
 
-    private UrlResource toUrlResource(UrlEntity entity) {
+    /**
+     * Streams all of the caller's urls, newest first, as NDJSON or CSV. Not part of the OpenAPI contract: the
+     * generated interfaces cannot hand the response stream to the handler.
+     */
+    @GetMapping("/exports/urls")
+    public void exportUrls(@RequestParam(defaultValue = "ndjson") String format,
+                           @RequestParam(defaultValue = "false") boolean includeStats,
+                           HttpServletResponse response) throws IOException {
+        String userId = getCurrentUserId();
+
+        UrlExportWriter.Format exportFormat = UrlExportWriter.Format.of(format);
+        if (exportFormat == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+        }
+        urlExportService.export(userId, includeStats, new UrlExportWriter(response, exportFormat));
+    }
+
+    UrlResource toUrlResource(UrlEntity entity) {
         UrlResource resource = new UrlResource()
-            .id(UUID.randomUUID())
+            .id(resourceId(entity))
             .alias(entity.getAlias())
             .longUrl(URI.create(entity.getDestinationUrl()))
-            .shortUrl(URI.create("https://tiny.url/" + entity.getAlias()))
+            .shortUrl(shortUrl(entity.getAlias()))
             .createdAt(entity.getCreatedAt())
             .active(entity.getIsActive());
 
@@ -163,6 +256,44 @@ public class UrlsApiController implements UrlsApi {
         return resource;
     }
 
+    /**
+     * Stable resource id derived from the database id (a name-based UUID, so it does not expose the sequence
+     * directly).
+     */
+    static UUID resourceId(UrlEntity entity) {
+        return resourceId(entity.getId());
+    }
+
+    static UUID resourceId(Long id) {
+        return UUID.nameUUIDFromBytes(("url:" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static URI shortUrl(String alias) {
+        return URI.create("https://tiny.url/" + alias);
+    }
+
+    /**
+     * Strong validator for a url resource: every change to the row moves {@code updated_at}.
+     */
+    private static String urlETag(UrlEntity entity) {
+        long updatedAtMicros = ChronoUnit.MICROS.between(Instant.EPOCH, entity.getUpdatedAt().toInstant());
+        return "\"url-" + entity.getId() + "-" + updatedAtMicros + "\"";
+    }
+
+    private static String statsETag(StatsService.StatsVersion version, OffsetDateTime rangeStart, OffsetDateTime rangeEnd) {
+        // Each range is its own representation; the range goes into the tag as UTC instants, so it never
+        // collides with another range and equal ranges in other offsets match
+        return "\"" + version.tag() + "/" + rangeTag(rangeStart) + "/" + rangeTag(rangeEnd) + "\"";
+    }
+
+    private static String rangeTag(OffsetDateTime bound) {
+        return bound != null ? bound.toInstant().toString() : "-";
+    }
+
+    private boolean isNotModified(String eTag) {
+        return new ServletWebRequest(request).checkNotModified(eTag);
+    }
+
     private String getCurrentUserId() {
         // TODO: Extract from Spring Security Authentication
         // For now, return a placeholder
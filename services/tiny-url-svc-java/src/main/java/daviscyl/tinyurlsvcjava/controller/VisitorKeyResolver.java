@@ -0,0 +1,36 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import daviscyl.tinyurlsvcjava.config.UniqueVisitorProperties;
+import daviscyl.tinyurlsvcjava.util.Hashing;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+/**
+ * Derives the 64-bit visitor hash fed into the unique-visitor sketches. Only the hash is kept, never the
+ * cookie value, address or User-Agent itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class VisitorKeyResolver {
+
+    private final UniqueVisitorProperties properties;
+
+    public long visitorHash(HttpServletRequest request) {
+        String cookieName = properties.cookieName();
+        if (cookieName != null && !cookieName.isBlank() && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (cookieName.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                    return Hashing.hash64(cookie.getValue());
+                }
+            }
+        }
+
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        long addressHash = Hashing.hash64(request.getRemoteAddr());
+        long userAgentHash = Hashing.hash64(userAgent != null ? userAgent : "");
+        return Hashing.fmix64(addressHash * 31 + userAgentHash);
+    }
+}
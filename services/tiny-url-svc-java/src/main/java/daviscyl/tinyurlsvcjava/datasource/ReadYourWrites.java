@@ -0,0 +1,115 @@
+package daviscyl.tinyurlsvcjava.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import daviscyl.tinyurlsvcjava.cache.CacheInvalidation;
+import daviscyl.tinyurlsvcjava.cache.CacheInvalidationBus;
+import daviscyl.tinyurlsvcjava.config.ReadReplicaProperties;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps reads on the primary for a short window after a write, so that a user sees their own change
+ * while the replicas are still replaying it.
+ * <p>
+ * Writes are remembered per user and per alias, on this node after commit and on all other nodes through
+ * the {@link CacheInvalidationBus}. Readers open a scope for the user or alias they read; while a scope of
+ * a recently written key is open, {@link ReplicaRoutingDataSource} hands the thread primary connections.
+ * Scopes must be opened before the first statement of the transaction.
+ */
+@Component
+public class ReadYourWrites {
+
+    /**
+     * Pseudo cache name under which writes are broadcast on the {@link CacheInvalidationBus}.
+     */
+    public static final String CACHE_NAME = "read-your-writes";
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+    private static final Scope NO_SCOPE = () -> {
+    };
+
+    private final ReadReplicaProperties properties;
+    private final ObjectProvider<CacheInvalidationBus> invalidationBus;
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWrites(ReadReplicaProperties properties, ObjectProvider<CacheInvalidationBus> invalidationBus) {
+        this.properties = properties;
+        this.invalidationBus = invalidationBus;
+        this.recentWrites = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(properties.readYourWritesWindow())
+            .build();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        if (properties.enabled()) {
+            invalidationBus.ifAvailable(bus -> bus.subscribe(this::onInvalidation));
+        }
+    }
+
+    /**
+     * Whether the current thread is inside a scope of a recently written user or alias.
+     */
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    public void userWrote(String userId) {
+        recordWrite("user:" + userId);
+    }
+
+    public void aliasWritten(String alias) {
+        recordWrite("alias:" + alias);
+    }
+
+    /**
+     * Opens a scope for reads on behalf of the user, to be closed with try-with-resources.
+     */
+    public Scope forUser(String userId) {
+        return open("user:" + userId);
+    }
+
+    /**
+     * Opens a scope for reads of the alias, to be closed with try-with-resources.
+     */
+    public Scope forAlias(String alias) {
+        return open("alias:" + alias);
+    }
+
+    private void recordWrite(String key) {
+        if (!properties.enabled()) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            recentWrites.put(key, Boolean.TRUE);
+            invalidationBus.ifAvailable(bus -> bus.publish(CacheInvalidation.evict(CACHE_NAME, key)));
+        });
+    }
+
+    private Scope open(String key) {
+        if (!properties.enabled() || isPrimaryRequired() || recentWrites.getIfPresent(key) == null) {
+            return NO_SCOPE;
+        }
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        return PRIMARY_REQUIRED::remove;
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (CACHE_NAME.equals(invalidation.cacheName()) && !invalidation.isClear()) {
+            recentWrites.put(invalidation.key(), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * A read scope; closing it does not throw.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
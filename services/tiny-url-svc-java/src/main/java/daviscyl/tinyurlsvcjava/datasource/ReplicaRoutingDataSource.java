@@ -0,0 +1,264 @@
+package daviscyl.tinyurlsvcjava.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Sends connections of read-only transactions to a replica and everything else to the primary.
+ * <p>
+ * Must sit behind a {@link LazyConnectionDataSourceProxy}: transaction managers fetch the connection when
+ * the transaction begins, before its read-only flag is exposed, and the proxy defers the fetch to the first
+ * statement. Replicas are probed by {@link #checkReplicas()}; one that is unreachable or lags more than the
+ * threshold gets no reads until a later probe finds it healthy, and a replica whose connection attempt
+ * fails is taken out at once. Without an available replica, and while {@code primaryRequired} holds for the
+ * current thread, reads go to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    public enum Selection {
+        ROUND_ROBIN,
+        // Fewest connections checked out through this datasource; ties go round-robin
+        LEAST_CONNECTIONS
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Selection selection;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final BooleanSupplier primaryRequired;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param replicas        replica datasources by name; all start unavailable until the first probe
+     * @param lagQuery        query returning the replay lag in seconds, or blank to only check liveness
+     * @param primaryRequired whether the current thread must read from the primary, e.g. after its own write
+     */
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicas,
+                                    Selection selection,
+                                    Duration maxLag,
+                                    String lagQuery,
+                                    BooleanSupplier primaryRequired) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas.size());
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.selection = selection;
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        this.primaryRequired = primaryRequired;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = route();
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.connect();
+        } catch (SQLException e) {
+            if (replica.available.compareAndSet(true, false)) {
+                log.warn("Replica '{}' unreachable, reading from the primary until it recovers: {}",
+                    replica.name, e.getMessage());
+            }
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Connections with explicit credentials are not routed.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Probes every replica and updates its availability. Runs on a fixed delay, starting right after
+     * startup.
+     */
+    @Scheduled(fixedDelayString = "${tiny-url.read-replicas.health-check-interval:PT5S}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean available;
+            String reason;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                Duration lag = measureLag(connection);
+                available = lag != null && lag.compareTo(maxLag) <= 0;
+                reason = lag == null ? "lag unknown" : "lag " + lag.toMillis() + " ms";
+            } catch (SQLException e) {
+                available = false;
+                reason = e.getMessage();
+            }
+
+            if (replica.available.getAndSet(available) != available) {
+                if (available) {
+                    log.info("Replica '{}' available for reads ({})", replica.name, reason);
+                } else {
+                    log.warn("Replica '{}' unavailable for reads: {}", replica.name, reason);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the replica pools; the primary is closed by its owner.
+     */
+    public void close() {
+        for (Replica replica : replicas) {
+            try {
+                if (replica.dataSource.isWrapperFor(AutoCloseable.class)) {
+                    replica.dataSource.unwrap(AutoCloseable.class).close();
+                }
+            } catch (Exception e) {
+                log.warn("Failed to close replica '{}'", replica.name, e);
+            }
+        }
+    }
+
+    /**
+     * @return the replica for the current connection request, or {@code null} for the primary
+     */
+    private Replica route() {
+        if (replicas.isEmpty()
+            || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+            || primaryRequired.getAsBoolean()) {
+            return null;
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        Replica chosen = null;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.available.get()) {
+                continue;
+            }
+            if (selection == Selection.ROUND_ROBIN) {
+                return replica;
+            }
+            if (chosen == null || replica.active.get() < chosen.active.get()) {
+                chosen = replica;
+            }
+        }
+        return chosen;
+    }
+
+    private Duration measureLag(Connection connection) throws SQLException {
+        if (lagQuery == null || lagQuery.isBlank()) {
+            return connection.isValid(1) ? Duration.ZERO : null;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            double seconds = resultSet.getDouble(1);
+            return resultSet.wasNull() ? null : Duration.ofMillis(Math.round(seconds * 1000));
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicBoolean available = new AtomicBoolean();
+        private final AtomicInteger active = new AtomicInteger();
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private Connection connect() throws SQLException {
+            active.incrementAndGet();
+            Connection connection;
+            try {
+                connection = dataSource.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                active.decrementAndGet();
+                throw e;
+            }
+            return (Connection) Proxy.newProxyInstance(
+                ReplicaRoutingDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new CountingHandler(connection, active));
+        }
+    }
+
+    /**
+     * Decrements the replica's checked-out count once, when the connection is closed.
+     */
+    private static final class CountingHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final AtomicInteger active;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private CountingHandler(Connection target, AtomicInteger active) {
+            this.target = target;
+            this.active = active;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    try {
+                        target.close();
+                    } finally {
+                        if (closed.compareAndSet(false, true)) {
+                            active.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+                case "unwrap" -> {
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                }
+                case "isWrapperFor" -> {
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.OffsetDateTime;
 
@@ -42,13 +43,20 @@ public class UrlEntity {
     @Builder.Default
     private Boolean isActive = true;
 
-    @Column(name = "redirect_count", nullable = false)
+    // Counters are only written by the redirect counter flush; a save of a loaded entity must not overwrite
+    // increments committed since it was loaded
+    @Column(name = "redirect_count", nullable = false, updatable = false)
     @Builder.Default
     private Long redirectCount = 0L;
 
-    @Column(name = "last_redirect_at")
+    @Column(name = "last_redirect_at", updatable = false)
     private OffsetDateTime lastRedirectAt;
 
+    // Maintained by the redirect counter flush only
+    @Column(name = "stats_version", insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long statsVersion;
+
     @PrePersist
     protected void onCreate() {
         OffsetDateTime now = OffsetDateTime.now();
@@ -64,9 +72,4 @@ public class UrlEntity {
     public boolean isExpired() {
         return expiresAt != null && OffsetDateTime.now().isAfter(expiresAt);
     }
-
-    public void incrementRedirectCount() {
-        this.redirectCount++;
-        this.lastRedirectAt = OffsetDateTime.now();
-    }
 }
@@ -5,12 +5,16 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 
 @Entity
-@Table(name = "url_stats")
+@Table(
+    name = "url_stats",
+    uniqueConstraints = @UniqueConstraint(name = "uk_url_stats_url_date", columnNames = {"url_id", "stat_date"})
+)
 @Data
 @Builder
 @NoArgsConstructor
@@ -35,6 +39,10 @@ public class UrlStatsEntity {
     @Builder.Default
     private Long uniqueVisitors = 0L;
 
+    @Column(name = "visitor_sketch")
+    @ToString.Exclude
+    private byte[] visitorSketch;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private OffsetDateTime createdAt;
 
@@ -52,8 +60,4 @@ public class UrlStatsEntity {
     protected void onUpdate() {
         updatedAt = OffsetDateTime.now();
     }
-
-    public void incrementRedirectCount() {
-        this.redirectCount++;
-    }
 }
@@ -0,0 +1,9 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+/**
+ * Alias of a url with its id, for scans that page through {@code urls} in id order.
+ */
+public record AliasRow(
+    Long id,
+    String alias
+) {}
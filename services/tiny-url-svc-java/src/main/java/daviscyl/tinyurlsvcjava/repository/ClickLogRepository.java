@@ -0,0 +1,95 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Stores the compaction checkpoint of each node's click log and the per-day dimension counts folded out of
+ * it. Callers write both in the transaction that applies the clicks' counters, so a restart resumes exactly
+ * after the last applied click.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClickLogRepository {
+
+    private static final String SELECT_CHECKPOINT =
+        "SELECT segment, position FROM click_log_checkpoints WHERE node_id = ?";
+
+    private static final String UPSERT_CHECKPOINT =
+        "INSERT INTO click_log_checkpoints (node_id, segment, position, updated_at) " +
+        "VALUES (?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (node_id) DO UPDATE SET segment = EXCLUDED.segment, position = EXCLUDED.position, " +
+        "updated_at = EXCLUDED.updated_at";
+
+    // Selecting from urls skips clicks of urls removed by the reaper since they were logged
+    private static final String UPSERT_DIMENSION_COUNTS =
+        "INSERT INTO url_stats_dimensions (url_id, stat_date, dimension, dimension_value, redirect_count) " +
+        "SELECT id, ?, ?, ?, ? FROM urls WHERE id = ? " +
+        "ON CONFLICT (url_id, stat_date, dimension, dimension_value) " +
+        "DO UPDATE SET redirect_count = url_stats_dimensions.redirect_count + EXCLUDED.redirect_count";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return the node's checkpoint, or {@link Checkpoint#START} when it has not compacted anything yet
+     */
+    public Checkpoint findCheckpoint(String nodeId) {
+        List<Checkpoint> checkpoints = jdbcTemplate.query(SELECT_CHECKPOINT,
+            (rs, rowNum) -> new Checkpoint(rs.getLong("segment"), rs.getInt("position")), nodeId);
+        return checkpoints.isEmpty() ? Checkpoint.START : checkpoints.get(0);
+    }
+
+    public void saveCheckpoint(String nodeId, Checkpoint checkpoint) {
+        jdbcTemplate.update(UPSERT_CHECKPOINT, nodeId, checkpoint.segment(), checkpoint.position());
+    }
+
+    /**
+     * Adds dimension counts; the sorted keys keep row locks in one order across nodes.
+     */
+    public void applyDimensionCounts(SortedMap<DimensionKey, Long> counts, int batchSize) {
+        List<Object[]> upserts = new ArrayList<>(counts.size());
+        for (Map.Entry<DimensionKey, Long> entry : counts.entrySet()) {
+            DimensionKey key = entry.getKey();
+            upserts.add(new Object[] {
+                Date.valueOf(key.statDate()), key.dimension(), key.value(), entry.getValue(), key.urlId()});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_DIMENSION_COUNTS, upserts, batchSize,
+            (ps, args) -> new ArgumentPreparedStatementSetter(args).setValues(ps));
+    }
+
+    /**
+     * Position of the next click to compact: a segment sequence and a slot within it.
+     */
+    public record Checkpoint(long segment, int position) {
+
+        public static final Checkpoint START = new Checkpoint(0, 0);
+    }
+
+    /**
+     * One dimension value of a url on one day, e.g. {@code referrer = news.ycombinator.com}.
+     */
+    public record DimensionKey(long urlId, LocalDate statDate, String dimension, String value)
+        implements Comparable<DimensionKey> {
+
+        @Override
+        public int compareTo(DimensionKey other) {
+            int result = Long.compare(urlId, other.urlId);
+            if (result == 0) {
+                result = statDate.compareTo(other.statDate);
+            }
+            if (result == 0) {
+                result = dimension.compareTo(other.dimension);
+            }
+            return result != 0 ? result : value.compareTo(other.value);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Stores the position and counters of bulk url imports, and the lines they rejected. Progress is saved in the
+ * transaction that inserts the urls of a batch, so a resumed import continues exactly after the last batch
+ * that committed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportJobRepository {
+
+    private static final String SELECT_JOB =
+        "SELECT job_id, status, lines_done, imported, conflicts, rejected FROM import_jobs WHERE job_id = ?";
+
+    private static final String INSERT_JOB =
+        "INSERT INTO import_jobs (job_id, source, status) VALUES (?, ?, 'RUNNING')";
+
+    // Only advances from the position this run started from, so two runs of one job cannot both commit
+    private static final String UPDATE_PROGRESS =
+        "UPDATE import_jobs SET lines_done = ?, imported = imported + ?, conflicts = conflicts + ?, " +
+        "rejected = rejected + ?, updated_at = CURRENT_TIMESTAMP WHERE job_id = ? AND lines_done = ?";
+
+    private static final String UPDATE_STATUS =
+        "UPDATE import_jobs SET status = ?, source = ?, updated_at = CURRENT_TIMESTAMP WHERE job_id = ?";
+
+    private static final String INSERT_REJECT =
+        "INSERT INTO import_rejects (job_id, line_number, reason) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the job, created as {@code RUNNING} at line 0 if it does not exist yet; an existing job that did
+     * not complete is marked {@code RUNNING} again.
+     */
+    public ImportJob start(String jobId, String source) {
+        ImportJob job = find(jobId);
+        if (job == null) {
+            jdbcTemplate.update(INSERT_JOB, jobId, source);
+            return new ImportJob(jobId, ImportJob.Status.RUNNING, 0, 0, 0, 0);
+        }
+        if (job.status() != ImportJob.Status.COMPLETED) {
+            jdbcTemplate.update(UPDATE_STATUS, ImportJob.Status.RUNNING.name(), source, jobId);
+        }
+        return job;
+    }
+
+    public ImportJob find(String jobId) {
+        List<ImportJob> jobs = jdbcTemplate.query(SELECT_JOB, (rs, rowNum) -> new ImportJob(
+            rs.getString("job_id"),
+            ImportJob.Status.valueOf(rs.getString("status")),
+            rs.getLong("lines_done"),
+            rs.getLong("imported"),
+            rs.getLong("conflicts"),
+            rs.getLong("rejected")), jobId);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * Moves the job from line {@code fromLine} to {@code toLine} and adds the batch's counts. Must run in the
+     * transaction that wrote the batch.
+     *
+     * @throws IllegalStateException when the job is no longer at {@code fromLine}, i.e. another run of it
+     *                               committed in the meantime
+     */
+    public void saveProgress(String jobId, long fromLine, long toLine, long imported, long conflicts, long rejected) {
+        int updated = jdbcTemplate.update(UPDATE_PROGRESS, toLine, imported, conflicts, rejected, jobId, fromLine);
+        if (updated != 1) {
+            throw new IllegalStateException("Import " + jobId + " was advanced by another run");
+        }
+    }
+
+    public void saveRejects(String jobId, List<Reject> rejects) {
+        if (rejects.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_REJECT, rejects, rejects.size(),
+            (ps, reject) -> {
+                ps.setString(1, jobId);
+                ps.setLong(2, reject.lineNumber());
+                ps.setString(3, reject.reason());
+            });
+    }
+
+    public void finish(String jobId, String source, ImportJob.Status status) {
+        jdbcTemplate.update(UPDATE_STATUS, status.name(), source, jobId);
+    }
+
+    /**
+     * An import and the counters of all its committed batches.
+     *
+     * @param linesDone last input line covered by a committed batch
+     */
+    public record ImportJob(String jobId, Status status, long linesDone, long imported, long conflicts,
+                            long rejected) {
+
+        public enum Status { RUNNING, COMPLETED, FAILED }
+    }
+
+    /**
+     * An input line that was not imported, and why.
+     */
+    public record Reject(long lineNumber, String reason) {}
+}
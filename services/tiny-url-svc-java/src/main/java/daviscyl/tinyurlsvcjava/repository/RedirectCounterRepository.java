@@ -0,0 +1,207 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import daviscyl.tinyurlsvcjava.config.StatsRollupProperties;
+import daviscyl.tinyurlsvcjava.service.HyperLogLog;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import daviscyl.tinyurlsvcjava.service.StatsGranularity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Applies drained redirect counters with relative updates, so concurrent flushes from several nodes
+ * never overwrite each other's counts. Visitor sketches are merged into the stored ones, which is
+ * idempotent, so re-sending a sketch never inflates the unique-visitor count.
+ * <p>
+ * The flusher sends sketches once per sketch flush interval, with the visitors of that interval merged in
+ * memory, and a sketch that adds no register to the stored one leaves the row as it is.
+ * <p>
+ * Every flush updates the daily rows, plus the hourly rollup when it is enabled, and queues the days it wrote
+ * for the weekly and monthly rebuild of {@link StatsRollupRepository}. Hourly rows take the hour of the latest
+ * redirect of each drained entry, so a flush interval that straddles the turn of an hour attributes its
+ * redirects to the later hour.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RedirectCounterRepository {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    // GREATEST ignores a NULL argument, so entries with only a re-sent sketch leave last_redirect_at alone
+    private static final String UPDATE_URL_COUNTERS =
+        "UPDATE urls SET redirect_count = redirect_count + ?, " +
+        "last_redirect_at = GREATEST(COALESCE(last_redirect_at, ?), ?), " +
+        "stats_version = stats_version + 1 " +
+        "WHERE id = ?";
+
+    // Selecting from urls skips counts of urls removed by the reaper since they were buffered
+    private static final String UPSERT_COUNTS =
+        "INSERT INTO %1$s (url_id, %2$s, redirect_count) SELECT id, ?, ? FROM urls WHERE id = ? " +
+        "ON CONFLICT (url_id, %2$s) " +
+        "DO UPDATE SET redirect_count = %1$s.redirect_count + EXCLUDED.redirect_count";
+
+    private static final String SELECT_VISITOR_SKETCHES =
+        "SELECT url_id, visitor_sketch FROM %s WHERE %s = :bucket AND url_id IN (:urlIds)";
+
+    private static final String UPDATE_VISITOR_SKETCH =
+        "UPDATE %s SET visitor_sketch = ?, unique_visitors = ? WHERE url_id = ? AND %s = ?";
+
+    // An already queued day is locked without being rewritten (DO UPDATE locks the row even when its WHERE
+    // fails), so a rebuild cannot take it before this flush commits the counts it was queued for
+    private static final String QUEUE_ROLLUP =
+        "INSERT INTO url_stats_rollup_queue (url_id, stat_date) SELECT id, ? FROM urls WHERE id = ? " +
+        "ON CONFLICT (url_id, stat_date) DO UPDATE SET stat_date = EXCLUDED.stat_date WHERE FALSE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final StatsRollupProperties rollupProperties;
+
+    @Transactional
+    public void applyRedirectCounts(List<PendingRedirects> batch, int batchSize) {
+        // Rows are touched in id order so that two nodes flushing at once cannot deadlock each other
+        Map<Long, long[]> perUrl = new TreeMap<>();
+        for (PendingRedirects redirects : batch) {
+            long[] totals = perUrl.computeIfAbsent(redirects.urlId(), id -> new long[] {0L, Long.MIN_VALUE});
+            totals[0] += redirects.count();
+            totals[1] = Math.max(totals[1], redirects.lastRedirectAtMillis());
+        }
+
+        List<Object[]> urlUpdates = new ArrayList<>(perUrl.size());
+        perUrl.forEach((urlId, totals) -> {
+            // Every url in the batch gets a new stats version, including those with only a new sketch
+            SqlParameterValue lastRedirectAt = new SqlParameterValue(Types.TIMESTAMP,
+                totals[1] == Long.MIN_VALUE ? null : Timestamp.from(Instant.ofEpochMilli(totals[1])));
+            urlUpdates.add(new Object[] {totals[0], lastRedirectAt, lastRedirectAt, urlId});
+        });
+
+        jdbcTemplate.batchUpdate(UPDATE_URL_COUNTERS, urlUpdates, batchSize,
+            (ps, args) -> new ArgumentPreparedStatementSetter(args).setValues(ps));
+
+        // Tables are always visited in the same order, for the same reason
+        long now = System.currentTimeMillis();
+        if (rollupProperties.hourlyEnabled()) {
+            applyToTable(RollupTable.HOURLY, batch, batchSize, now);
+        }
+        applyToTable(RollupTable.DAILY, batch, batchSize, now);
+        queueRollups(batch, batchSize);
+    }
+
+    private void queueRollups(List<PendingRedirects> batch, int batchSize) {
+        Set<BucketKey> days = new TreeSet<>();
+        for (PendingRedirects redirects : batch) {
+            days.add(new BucketKey(redirects.urlId(), bucketStart(RollupTable.DAILY, redirects, 0L)));
+        }
+
+        List<Object[]> queued = new ArrayList<>(days.size());
+        for (BucketKey day : days) {
+            queued.add(new Object[] {RollupTable.DAILY.toColumnValue(day.start()), day.urlId()});
+        }
+        jdbcTemplate.batchUpdate(QUEUE_ROLLUP, queued, batchSize,
+            (ps, args) -> new ArgumentPreparedStatementSetter(args).setValues(ps));
+    }
+
+    private void applyToTable(RollupTable table, List<PendingRedirects> batch, int batchSize, long now) {
+        Map<BucketKey, Long> counts = new TreeMap<>();
+        Map<BucketKey, HyperLogLog> sketches = new TreeMap<>();
+        for (PendingRedirects redirects : batch) {
+            BucketKey key = new BucketKey(redirects.urlId(), bucketStart(table, redirects, now));
+            // Entries without redirects still create the row their re-sent sketch is merged into
+            counts.merge(key, redirects.count(), Long::sum);
+            if (redirects.visitors() != null) {
+                sketches.merge(key, redirects.visitors(), (a, b) -> HyperLogLog.union(List.of(a, b)));
+            }
+        }
+
+        List<Object[]> upserts = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> upserts.add(new Object[] {table.toColumnValue(key.start()), count, key.urlId()}));
+        jdbcTemplate.batchUpdate(UPSERT_COUNTS.formatted(table.table, table.bucketColumn), upserts, batchSize,
+            (ps, args) -> new ArgumentPreparedStatementSetter(args).setValues(ps));
+
+        mergeVisitorSketches(table, sketches, batchSize);
+    }
+
+    private void mergeVisitorSketches(RollupTable table, Map<BucketKey, HyperLogLog> sketches, int batchSize) {
+        Map<Instant, Map<Long, HyperLogLog>> perBucket = new TreeMap<>();
+        sketches.forEach((key, sketch) ->
+            perBucket.computeIfAbsent(key.start(), start -> new TreeMap<>()).put(key.urlId(), sketch));
+
+        String select = SELECT_VISITOR_SKETCHES.formatted(table.table, table.bucketColumn);
+        List<Object[]> sketchUpdates = new ArrayList<>();
+        perBucket.forEach((bucketStart, bucketSketches) -> {
+            // The upsert above already holds the row locks, so this read cannot race another node's merge
+            Object bucket = table.toColumnValue(bucketStart);
+            Map<Long, byte[]> stored = new HashMap<>();
+            namedParameterJdbcTemplate.query(select,
+                new MapSqlParameterSource()
+                    .addValue("bucket", bucket)
+                    .addValue("urlIds", bucketSketches.keySet()),
+                rs -> {
+                    stored.put(rs.getLong("url_id"), rs.getBytes("visitor_sketch"));
+                });
+
+            bucketSketches.forEach((urlId, pendingSketch) -> {
+                HyperLogLog merged = merge(stored.get(urlId), pendingSketch);
+                if (merged != null) {
+                    sketchUpdates.add(new Object[] {merged.toBytes(), merged.estimate(), urlId, bucket});
+                }
+            });
+        });
+
+        jdbcTemplate.batchUpdate(UPDATE_VISITOR_SKETCH.formatted(table.table, table.bucketColumn), sketchUpdates, batchSize,
+            (ps, args) -> new ArgumentPreparedStatementSetter(args).setValues(ps));
+    }
+
+    /**
+     * The stored sketch with the pending one merged in, or {@code null} when that changes no register, as for
+     * a returning visitor, so the row need not be rewritten.
+     */
+    private static HyperLogLog merge(byte[] storedBytes, HyperLogLog pendingSketch) {
+        if (storedBytes == null) {
+            return pendingSketch;
+        }
+        HyperLogLog stored = HyperLogLog.fromBytes(storedBytes);
+        if (stored.precision() != pendingSketch.precision()) {
+            return HyperLogLog.union(List.of(stored, pendingSketch));
+        }
+        return stored.mergeFrom(pendingSketch) ? stored : null;
+    }
+
+    private static Instant bucketStart(RollupTable table, PendingRedirects redirects, long now) {
+        if (table.granularity != StatsGranularity.HOUR) {
+            return table.granularity.bucketStart(redirects.statDate().atStartOfDay(ZoneOffset.UTC).toInstant());
+        }
+        long at = redirects.lastRedirectAtMillis();
+        if (at == Long.MIN_VALUE) {
+            // A re-sent sketch without new redirects; attribute it to the latest hour of its day
+            long dayEnd = (redirects.statDate().toEpochDay() + 1) * MILLIS_PER_DAY;
+            at = Math.min(now, dayEnd - 1);
+        }
+        return StatsGranularity.HOUR.bucketStart(Instant.ofEpochMilli(at));
+    }
+
+    private record BucketKey(long urlId, Instant start) implements Comparable<BucketKey> {
+
+        @Override
+        public int compareTo(BucketKey other) {
+            int byUrl = Long.compare(urlId, other.urlId);
+            return byUrl != 0 ? byUrl : start.compareTo(other.start);
+        }
+    }
+}
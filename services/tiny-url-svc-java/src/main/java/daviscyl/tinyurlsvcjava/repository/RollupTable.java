@@ -0,0 +1,57 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import daviscyl.tinyurlsvcjava.service.StatsGranularity;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Table and bucket column of each stats tier. Only the hourly tier stores a timestamp; the others store the
+ * UTC date their bucket starts on.
+ */
+enum RollupTable {
+
+    HOURLY(StatsGranularity.HOUR, "url_stats_hourly", "stat_hour"),
+    DAILY(StatsGranularity.DAY, "url_stats", "stat_date"),
+    WEEKLY(StatsGranularity.WEEK, "url_stats_weekly", "week_start"),
+    MONTHLY(StatsGranularity.MONTH, "url_stats_monthly", "month_start");
+
+    final StatsGranularity granularity;
+    final String table;
+    final String bucketColumn;
+
+    RollupTable(StatsGranularity granularity, String table, String bucketColumn) {
+        this.granularity = granularity;
+        this.table = table;
+        this.bucketColumn = bucketColumn;
+    }
+
+    static RollupTable of(StatsGranularity granularity) {
+        for (RollupTable table : values()) {
+            if (table.granularity == granularity) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("No table for " + granularity);
+    }
+
+    /**
+     * JDBC value of the bucket column for a bucket start.
+     */
+    Object toColumnValue(Instant bucketStart) {
+        return granularity == StatsGranularity.HOUR
+            ? Timestamp.from(bucketStart)
+            : Date.valueOf(LocalDate.ofInstant(bucketStart, ZoneOffset.UTC));
+    }
+
+    Instant readBucketStart(ResultSet rs) throws SQLException {
+        return granularity == StatsGranularity.HOUR
+            ? rs.getTimestamp(bucketColumn).toInstant()
+            : rs.getDate(bucketColumn).toLocalDate().atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
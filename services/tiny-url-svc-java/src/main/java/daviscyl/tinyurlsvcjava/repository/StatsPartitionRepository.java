@@ -0,0 +1,120 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates, detaches and drops the monthly partitions of {@code url_stats}, named
+ * {@code url_stats_pYYYYMM}. PostgreSQL only.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatsPartitionRepository {
+
+    private static final String PARENT = "url_stats";
+    private static final String DEFAULT_PARTITION = "url_stats_default";
+
+    private static final String PARTITION_PREFIX = PARENT + "_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("uuuuMM");
+
+    private static final String SELECT_PARTITIONS =
+        "SELECT child.relname FROM pg_inherits i " +
+        "JOIN pg_class parent ON parent.oid = i.inhparent " +
+        "JOIN pg_class child ON child.oid = i.inhrelid " +
+        "WHERE parent.relname = ? AND parent.relnamespace = to_regnamespace(current_schema())";
+
+    private static final String MOVE_FROM_DEFAULT =
+        "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE stat_date >= ? AND stat_date < ? RETURNING *) " +
+        "INSERT INTO %s SELECT * FROM moved";
+
+    private static final String TRY_LOCK_MAINTENANCE = "SELECT pg_try_advisory_xact_lock(?)";
+
+    private static final long MAINTENANCE_LOCK_KEY = 0x7475726c70617274L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes the maintenance lock for the current transaction; a transaction-level lock cannot outlive a run
+     * on a pooled connection the way a session-level one could.
+     *
+     * @return {@code false} when another node holds it
+     */
+    public boolean tryLockMaintenance() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_MAINTENANCE, Boolean.class, MAINTENANCE_LOCK_KEY));
+    }
+
+    /**
+     * Months that currently have an attached partition.
+     */
+    public List<YearMonth> findPartitionMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class, PARENT)) {
+            YearMonth month = monthOf(name);
+            if (month != null) {
+                months.add(month);
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Creates the month's partition as a plain table, moves the month's rows out of the default partition
+     * into it and attaches it; a plain {@code PARTITION OF} would fail once the default partition holds rows
+     * of that month. Indexes, the foreign key and the trigger are cloned from {@code url_stats} on attach.
+     */
+    @Transactional
+    public void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + PARENT + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbcTemplate.update(MOVE_FROM_DEFAULT.formatted(name), Date.valueOf(from), Date.valueOf(to));
+        jdbcTemplate.execute("ALTER TABLE " + PARENT + " ATTACH PARTITION " + name
+            + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    /**
+     * Detaches the month's partition; its table stays for export or later removal by an operator. Like a
+     * drop, this briefly takes an exclusive lock on {@code url_stats}.
+     */
+    public void detachPartition(YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + partitionName(month));
+    }
+
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE " + partitionName(month));
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(month);
+    }
+
+    /**
+     * The month of a {@code url_stats_pYYYYMM} partition, or {@code null} for any other table, such as the
+     * default partition.
+     */
+    static YearMonth monthOf(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)
+            || partitionName.length() != PARTITION_PREFIX.length() + 6) {
+            return null;
+        }
+        String suffix = partitionName.substring(PARTITION_PREFIX.length());
+        for (int i = 0; i < suffix.length(); i++) {
+            if (suffix.charAt(i) < '0' || suffix.charAt(i) > '9') {
+                return null;
+            }
+        }
+        int month = Integer.parseInt(suffix.substring(4));
+        return month >= 1 && month <= 12 ? YearMonth.of(Integer.parseInt(suffix.substring(0, 4)), month) : null;
+    }
+}
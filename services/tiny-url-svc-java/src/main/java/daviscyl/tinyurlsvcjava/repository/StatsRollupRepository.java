@@ -0,0 +1,159 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import daviscyl.tinyurlsvcjava.service.HyperLogLog;
+import daviscyl.tinyurlsvcjava.service.StatsGranularity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the hourly, weekly and monthly stats rollups, and rebuilds the weekly and monthly ones from the daily
+ * rows of the days {@link RedirectCounterRepository} queued. Hourly rows are written by the flush itself.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatsRollupRepository {
+
+    private static final String SELECT_BUCKETS =
+        "SELECT %1$s, redirect_count, unique_visitors, visitor_sketch FROM %2$s " +
+        "WHERE url_id = :urlId AND %1$s IN (:buckets) ORDER BY %1$s";
+
+    private static final String DELETE_HOURLY_BEFORE = "DELETE FROM url_stats_hourly WHERE stat_hour < ?";
+
+    // Only one node rebuilds at a time: a slower rebuild could otherwise overwrite a bucket with counts read
+    // before those another node rebuilt it from
+    private static final String TRY_LOCK_ROLLUPS = "SELECT pg_try_advisory_xact_lock(?)";
+
+    private static final long ROLLUP_LOCK_KEY = 0x7475726c726f6c6cL;
+
+    // Days still locked by a flush that has not committed are left for the next run
+    private static final String TAKE_QUEUED_DAYS =
+        "DELETE FROM url_stats_rollup_queue WHERE (url_id, stat_date) IN (" +
+        "SELECT url_id, stat_date FROM url_stats_rollup_queue ORDER BY url_id, stat_date LIMIT ? " +
+        "FOR UPDATE SKIP LOCKED) RETURNING url_id, stat_date";
+
+    private static final String SELECT_DAILY_ROWS =
+        "SELECT url_id, redirect_count, visitor_sketch FROM url_stats " +
+        "WHERE url_id IN (:urlIds) AND stat_date >= :from AND stat_date < :to";
+
+    private static final String UPSERT_ROLLUP =
+        "INSERT INTO %1$s (url_id, %2$s, redirect_count, unique_visitors, visitor_sketch) " +
+        "SELECT id, ?, ?, ?, ? FROM urls WHERE id = ? " +
+        "ON CONFLICT (url_id, %2$s) DO UPDATE SET redirect_count = EXCLUDED.redirect_count, " +
+        "unique_visitors = EXCLUDED.unique_visitors, visitor_sketch = EXCLUDED.visitor_sketch";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * The stored buckets among {@code bucketStarts}; buckets without redirects have no row.
+     */
+    public List<StatsRow> findBuckets(StatsGranularity granularity, long urlId, Collection<Instant> bucketStarts) {
+        if (granularity == StatsGranularity.DAY) {
+            throw new IllegalArgumentException("Daily rows are read through UrlStatsRepository");
+        }
+        if (bucketStarts.isEmpty()) {
+            return List.of();
+        }
+
+        RollupTable table = RollupTable.of(granularity);
+        return namedParameterJdbcTemplate.query(
+            SELECT_BUCKETS.formatted(table.bucketColumn, table.table),
+            new MapSqlParameterSource()
+                .addValue("urlId", urlId)
+                .addValue("buckets", bucketStarts.stream().map(table::toColumnValue).toList()),
+            (rs, rowNum) -> new StatsRow(
+                table.readBucketStart(rs),
+                rs.getLong("redirect_count"),
+                rs.getLong("unique_visitors"),
+                rs.getBytes("visitor_sketch")));
+    }
+
+    public int deleteHourlyBefore(Instant cutoff) {
+        return jdbcTemplate.update(DELETE_HOURLY_BEFORE, Timestamp.from(cutoff));
+    }
+
+    /**
+     * Takes the rebuild lock for the current transaction.
+     *
+     * @return {@code false} when another node holds it
+     */
+    public boolean tryLockRollups() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_ROLLUPS, Boolean.class, ROLLUP_LOCK_KEY));
+    }
+
+    /**
+     * Removes up to {@code limit} queued days; they are only gone once the current transaction commits, so the
+     * buckets containing them must be rebuilt in the same transaction.
+     */
+    public List<QueuedDay> takeQueuedDays(int limit) {
+        return jdbcTemplate.query(TAKE_QUEUED_DAYS,
+            (rs, rowNum) -> new QueuedDay(rs.getLong("url_id"), rs.getDate("stat_date").toLocalDate()),
+            limit);
+    }
+
+    /**
+     * Recomputes the weekly or monthly bucket starting on {@code bucketStart} of each url from its daily rows:
+     * counts are summed and sketches merged, and the result replaces the stored row.
+     *
+     * @return the rows written
+     */
+    public int rebuildBuckets(StatsGranularity granularity, LocalDate bucketStart, Collection<Long> urlIds) {
+        if (granularity != StatsGranularity.WEEK && granularity != StatsGranularity.MONTH) {
+            throw new IllegalArgumentException("Only weekly and monthly rows are rebuilt: " + granularity);
+        }
+        if (urlIds.isEmpty()) {
+            return 0;
+        }
+
+        Instant start = bucketStart.atStartOfDay(ZoneOffset.UTC).toInstant();
+        LocalDate end = LocalDate.ofInstant(granularity.next(start), ZoneOffset.UTC);
+        Map<Long, long[]> counts = new TreeMap<>();
+        Map<Long, List<HyperLogLog>> sketches = new TreeMap<>();
+        namedParameterJdbcTemplate.query(SELECT_DAILY_ROWS,
+            new MapSqlParameterSource()
+                .addValue("urlIds", urlIds)
+                .addValue("from", Date.valueOf(bucketStart))
+                .addValue("to", Date.valueOf(end)),
+            rs -> {
+                long urlId = rs.getLong("url_id");
+                counts.computeIfAbsent(urlId, id -> new long[1])[0] += rs.getLong("redirect_count");
+                byte[] sketch = rs.getBytes("visitor_sketch");
+                if (sketch != null) {
+                    sketches.computeIfAbsent(urlId, id -> new ArrayList<>()).add(HyperLogLog.fromBytes(sketch));
+                }
+            });
+
+        RollupTable table = RollupTable.of(granularity);
+        List<Object[]> upserts = new ArrayList<>(counts.size());
+        counts.forEach((urlId, count) -> {
+            List<HyperLogLog> urlSketches = sketches.get(urlId);
+            HyperLogLog merged = urlSketches != null ? HyperLogLog.union(urlSketches) : null;
+            upserts.add(new Object[] {
+                table.toColumnValue(start),
+                count[0],
+                merged != null ? merged.estimate() : 0L,
+                new SqlParameterValue(Types.BINARY, merged != null ? merged.toBytes() : null),
+                urlId});
+        });
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP.formatted(table.table, table.bucketColumn), upserts);
+        return upserts.size();
+    }
+
+    public record QueuedDay(long urlId, LocalDate statDate) {}
+}
@@ -0,0 +1,21 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * One stored stats bucket, read without hydrating an entity.
+ *
+ * @param start         start of the bucket
+ * @param visitorSketch serialized HyperLogLog of the bucket's visitors, or {@code null} when none was recorded
+ */
+public record StatsRow(Instant start, long redirectCount, long uniqueVisitors, byte[] visitorSketch) {
+
+    /**
+     * Constructor expression target for daily rows.
+     */
+    public StatsRow(LocalDate statDate, Long redirectCount, Long uniqueVisitors, byte[] visitorSketch) {
+        this(statDate.atStartOfDay(ZoneOffset.UTC).toInstant(), redirectCount, uniqueVisitors, visitorSketch);
+    }
+}
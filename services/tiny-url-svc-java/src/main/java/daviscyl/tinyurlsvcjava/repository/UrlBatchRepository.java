@@ -0,0 +1,81 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts urls with plain JDBC batches. {@link UrlEntity} uses identity ids, which stops Hibernate from
+ * batching inserts, so bulk creation bypasses the entity manager.
+ * <p>
+ * Conflicts are told apart by per-row update counts, so the PostgreSQL driver must keep
+ * {@code reWriteBatchedInserts} off: rewritten batches only report {@link Statement#SUCCESS_NO_INFO}.
+ * Generated ids are read back from the batch; skipped rows return none, so the ids of the written rows
+ * arrive in batch order.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UrlBatchRepository {
+
+    // Alias conflicts skip the row instead of aborting the whole batch
+    private static final String INSERT_URL =
+        "INSERT INTO urls (alias, destination_url, user_id, created_at, updated_at, expires_at, is_active, redirect_count) " +
+        "VALUES (?, ?, ?, ?, ?, ?, TRUE, 0) " +
+        "ON CONFLICT (alias) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the urls as one batch, sets the generated id of each written url and returns, per url, whether
+     * a row was written. Must run inside a transaction.
+     */
+    public boolean[] insertIgnoringConflicts(List<UrlEntity> urls) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int[] counts = jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(INSERT_URL, new String[] {"id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    UrlEntity url = urls.get(i);
+                    Timestamp createdAt = Timestamp.from(url.getCreatedAt().toInstant());
+                    ps.setString(1, url.getAlias());
+                    ps.setString(2, url.getDestinationUrl());
+                    ps.setString(3, url.getUserId());
+                    ps.setTimestamp(4, createdAt);
+                    ps.setTimestamp(5, createdAt);
+                    ps.setTimestamp(6, url.getExpiresAt() != null ? Timestamp.from(url.getExpiresAt().toInstant()) : null);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return urls.size();
+                }
+            },
+            keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        boolean[] inserted = new boolean[urls.size()];
+        int written = 0;
+        for (int i = 0; i < counts.length; i++) {
+            inserted[i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+            if (inserted[i]) {
+                if (written == keys.size()) {
+                    throw new IllegalStateException("Batch insert returned " + keys.size() + " ids for more rows");
+                }
+                urls.get(i).setId(((Number) keys.get(written++).get("id")).longValue());
+            }
+        }
+        return inserted;
+    }
+}
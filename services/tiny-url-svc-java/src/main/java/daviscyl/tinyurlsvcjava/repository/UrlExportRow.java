@@ -0,0 +1,35 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * One exported url, read as a JPQL constructor projection so that streamed rows never enter the persistence
+ * context. The {@code url_stats} totals are {@code null} unless the export asked for them.
+ *
+ * @param activeDays         days with at least one redirect
+ * @param peakDailyRedirects redirects of the busiest day
+ * @param firstRedirectDate  first day with a redirect
+ */
+public record UrlExportRow(
+    Long id,
+    String alias,
+    String destinationUrl,
+    Boolean active,
+    OffsetDateTime createdAt,
+    OffsetDateTime updatedAt,
+    OffsetDateTime expiresAt,
+    Long redirectCount,
+    OffsetDateTime lastRedirectAt,
+    Long activeDays,
+    Long peakDailyRedirects,
+    LocalDate firstRedirectDate
+) {
+
+    public UrlExportRow(Long id, String alias, String destinationUrl, Boolean active, OffsetDateTime createdAt,
+                        OffsetDateTime updatedAt, OffsetDateTime expiresAt, Long redirectCount,
+                        OffsetDateTime lastRedirectAt) {
+        this(id, alias, destinationUrl, active, createdAt, updatedAt, expiresAt, redirectCount, lastRedirectAt,
+            null, null, null);
+    }
+}
@@ -0,0 +1,84 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Removes expired and long-inactive urls in bounded batches, either moving them to {@code urls_archive} or
+ * deleting them; stats rows go with them through {@code ON DELETE CASCADE}.
+ * <p>
+ * Candidates are picked with {@code FOR UPDATE SKIP LOCKED}, so rows locked by a counter flush or an
+ * update are left for a later batch instead of being waited for. PostgreSQL only; callers run each batch in
+ * its own transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UrlReaperRepository {
+
+    /**
+     * Which rows a batch removes. Each picks its candidates from a partial index in index order.
+     */
+    public enum Reason {
+        EXPIRED("expires_at < ? ORDER BY expires_at"),
+        INACTIVE("is_active = FALSE AND updated_at < ? ORDER BY updated_at");
+
+        private final String condition;
+
+        Reason(String condition) {
+            this.condition = condition;
+        }
+    }
+
+    private static final String CANDIDATES =
+        "SELECT id FROM urls WHERE %s LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String DELETE =
+        "DELETE FROM urls WHERE id IN (" + CANDIDATES + ") RETURNING alias";
+
+    // Inactive rows were deactivated at their last change; counter flushes leave updated_at alone (V13)
+    private static final String ARCHIVE =
+        "WITH reaped AS (" +
+        "DELETE FROM urls WHERE id IN (" + CANDIDATES + ") " +
+        "RETURNING id, alias, destination_url, user_id, created_at, expires_at, is_active, updated_at, " +
+        "redirect_count, last_redirect_at) " +
+        "INSERT INTO urls_archive (id, alias, destination_url, user_id, created_at, expires_at, deactivated_at, " +
+        "redirect_count, last_redirect_at) " +
+        "SELECT id, alias, destination_url, user_id, created_at, expires_at, " +
+        "CASE WHEN is_active THEN NULL ELSE updated_at END, redirect_count, last_redirect_at FROM reaped " +
+        "RETURNING alias";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Bounds lock waits of the current transaction, including those of the cascading stats deletes.
+     */
+    public void setLockTimeout(Duration timeout) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + Math.max(1, timeout.toMillis()) + "ms'");
+    }
+
+    /**
+     * Archives up to {@code limit} urls matching the reason with a cutoff before {@code cutoff}.
+     *
+     * @return aliases of the archived urls
+     */
+    public List<String> archive(Reason reason, Instant cutoff, int limit) {
+        return jdbcTemplate.queryForList(ARCHIVE.formatted(reason.condition), String.class,
+            Timestamp.from(cutoff), limit);
+    }
+
+    /**
+     * Deletes up to {@code limit} urls matching the reason with a cutoff before {@code cutoff}.
+     *
+     * @return aliases of the deleted urls
+     */
+    public List<String> delete(Reason reason, Instant cutoff, int limit) {
+        return jdbcTemplate.queryForList(DELETE.formatted(reason.condition), String.class,
+            Timestamp.from(cutoff), limit);
+    }
+}
@@ -1,38 +1,163 @@
 package daviscyl.tinyurlsvcjava.repository;
 
 import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UrlRepository extends JpaRepository<UrlEntity, Long> {
 
     Optional<UrlEntity> findByAlias(String alias);
 
+    @Transactional(readOnly = true)
     Optional<UrlEntity> findByAliasAndIsActiveTrue(String alias);
 
     boolean existsByAlias(String alias);
 
+    @Query("SELECT u.alias FROM UrlEntity u WHERE u.alias IN :aliases")
+    List<String> findExistingAliases(@Param("aliases") Collection<String> aliases);
+
     Page<UrlEntity> findByUserId(String userId, Pageable pageable);
 
+    Slice<UrlEntity> findSliceByUserId(String userId, Pageable pageable);
+
+    /**
+     * Matches a lower-case LIKE pattern (escape character {@code !}) against alias and destination url; served
+     * by the trigram indexes on {@code lower(alias)} and {@code lower(destination_url)}.
+     */
     @Query("SELECT u FROM UrlEntity u WHERE u.userId = :userId " +
-           "AND (:search IS NULL OR u.alias LIKE %:search% OR u.destinationUrl LIKE %:search%)")
+           "AND (LOWER(u.alias) LIKE :pattern ESCAPE '!' OR LOWER(u.destinationUrl) LIKE :pattern ESCAPE '!')")
     Page<UrlEntity> findByUserIdWithSearch(
         @Param("userId") String userId,
-        @Param("search") String search,
+        @Param("pattern") String pattern,
+        Pageable pageable
+    );
+
+    @Query("SELECT u FROM UrlEntity u WHERE u.userId = :userId " +
+           "AND (LOWER(u.alias) LIKE :pattern ESCAPE '!' OR LOWER(u.destinationUrl) LIKE :pattern ESCAPE '!')")
+    Slice<UrlEntity> findSliceByUserIdWithSearch(
+        @Param("userId") String userId,
+        @Param("pattern") String pattern,
         Pageable pageable
     );
 
+    long countByUserId(String userId);
+
     @Query("SELECT COUNT(u) FROM UrlEntity u WHERE u.userId = :userId " +
-           "AND (:search IS NULL OR u.alias LIKE %:search% OR u.destinationUrl LIKE %:search%)")
+           "AND (LOWER(u.alias) LIKE :pattern ESCAPE '!' OR LOWER(u.destinationUrl) LIKE :pattern ESCAPE '!')")
     long countByUserIdWithSearch(
         @Param("userId") String userId,
-        @Param("search") String search
+        @Param("pattern") String pattern
+    );
+
+    /**
+     * Keyset page: urls ordered after the given {@code (createdAt, id)} position, newest first. Seeks on the
+     * {@code (user_id, created_at DESC, id DESC)} index, so the cost does not grow with page depth.
+     */
+    @Query("SELECT u FROM UrlEntity u WHERE u.userId = :userId " +
+           "AND (u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id)) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<UrlEntity> findPageAfter(
+        @Param("userId") String userId,
+        @Param("createdAt") OffsetDateTime createdAt,
+        @Param("id") Long id,
+        Limit limit
     );
+
+    @Query("SELECT u FROM UrlEntity u WHERE u.userId = :userId " +
+           "AND (u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id)) " +
+           "AND (LOWER(u.alias) LIKE :pattern ESCAPE '!' OR LOWER(u.destinationUrl) LIKE :pattern ESCAPE '!') " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<UrlEntity> findPageAfterWithSearch(
+        @Param("userId") String userId,
+        @Param("createdAt") OffsetDateTime createdAt,
+        @Param("id") Long id,
+        @Param("pattern") String pattern,
+        Limit limit
+    );
+
+    /**
+     * Streams the active, unexpired urls with the most redirects, most recently used first among equals, with
+     * a forward-only cursor; must be consumed inside a transaction and closed. Sorted once with a top-N sort
+     * instead of through an index on {@code redirect_count}, which every counter flush would have to update.
+     */
+    @Query("SELECT new daviscyl.tinyurlsvcjava.repository.WarmUpRow(u.alias, u.id, u.destinationUrl, u.expiresAt) " +
+           "FROM UrlEntity u WHERE u.isActive = TRUE AND (u.expiresAt IS NULL OR u.expiresAt > :now) " +
+           "ORDER BY u.redirectCount DESC, u.lastRedirectAt DESC NULLS LAST, u.id")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<WarmUpRow> streamHottest(@Param("now") OffsetDateTime now, Limit limit);
+
+    @Query("SELECT new daviscyl.tinyurlsvcjava.repository.WarmUpRow(u.alias, u.id, u.destinationUrl, u.expiresAt) " +
+           "FROM UrlEntity u WHERE u.alias IN :aliases AND u.isActive = TRUE " +
+           "AND (u.expiresAt IS NULL OR u.expiresAt > :now)")
+    List<WarmUpRow> findWarmUpRows(@Param("aliases") Collection<String> aliases, @Param("now") OffsetDateTime now);
+
+    /**
+     * Streams every alias with a forward-only cursor; must be consumed inside a transaction and closed.
+     */
+    @Query("SELECT u.alias FROM UrlEntity u")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<String> streamAllAliases();
+
+    @Query("SELECT MAX(u.id) FROM UrlEntity u")
+    Optional<Long> findMaxId();
+
+    /**
+     * Urls with an id above the given one, in id order; a page of a scan for recently inserted rows.
+     */
+    @Query("SELECT new daviscyl.tinyurlsvcjava.repository.AliasRow(u.id, u.alias) " +
+           "FROM UrlEntity u WHERE u.id > :afterId ORDER BY u.id")
+    List<AliasRow> findAliasesAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Streams a user's urls, newest first, with a forward-only cursor along the
+     * {@code (user_id, created_at DESC, id DESC)} index; must be consumed inside a transaction and closed.
+     */
+    @Query("SELECT new daviscyl.tinyurlsvcjava.repository.UrlExportRow(u.id, u.alias, u.destinationUrl, " +
+           "u.isActive, u.createdAt, u.updatedAt, u.expiresAt, u.redirectCount, u.lastRedirectAt) " +
+           "FROM UrlEntity u WHERE u.userId = :userId ORDER BY u.createdAt DESC, u.id DESC")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<UrlExportRow> streamExportRows(@Param("userId") String userId);
+
+    /**
+     * Like {@link #streamExportRows}, with {@code url_stats} totals. They are correlated subqueries on the
+     * {@code (url_id, stat_date)} index, so rows keep streaming in index order instead of waiting for an
+     * aggregate over all of the user's stats.
+     */
+    @Query("SELECT new daviscyl.tinyurlsvcjava.repository.UrlExportRow(u.id, u.alias, u.destinationUrl, " +
+           "u.isActive, u.createdAt, u.updatedAt, u.expiresAt, u.redirectCount, u.lastRedirectAt, " +
+           "(SELECT COUNT(s) FROM UrlStatsEntity s WHERE s.urlId = u.id AND s.redirectCount > 0), " +
+           "(SELECT MAX(s.redirectCount) FROM UrlStatsEntity s WHERE s.urlId = u.id), " +
+           "(SELECT MIN(s.statDate) FROM UrlStatsEntity s WHERE s.urlId = u.id AND s.redirectCount > 0)) " +
+           "FROM UrlEntity u WHERE u.userId = :userId ORDER BY u.createdAt DESC, u.id DESC")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<UrlExportRow> streamExportRowsWithStats(@Param("userId") String userId);
 }
@@ -7,25 +7,21 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface UrlStatsRepository extends JpaRepository<UrlStatsEntity, Long> {
 
-    Optional<UrlStatsEntity> findByUrlIdAndStatDate(Long urlId, LocalDate statDate);
-
-    List<UrlStatsEntity> findByUrlIdAndStatDateBetween(
-        Long urlId,
-        LocalDate startDate,
-        LocalDate endDate
-    );
-
-    @Query("SELECT SUM(s.redirectCount) FROM UrlStatsEntity s " +
-           "WHERE s.urlId = :urlId AND s.statDate BETWEEN :startDate AND :endDate")
-    Long sumRedirectCountByUrlIdAndDateRange(
+    /**
+     * Daily rows of the given days as {@link StatsRow} projections, without entity hydration. The days are
+     * bound as an IN list on the partition key, so PostgreSQL only scans the monthly partitions they fall in.
+     */
+    @Query("SELECT new daviscyl.tinyurlsvcjava.repository.StatsRow(" +
+           "s.statDate, s.redirectCount, s.uniqueVisitors, s.visitorSketch) FROM UrlStatsEntity s " +
+           "WHERE s.urlId = :urlId AND s.statDate IN :statDates ORDER BY s.statDate")
+    List<StatsRow> findDailyRows(
         @Param("urlId") Long urlId,
-        @Param("startDate") LocalDate startDate,
-        @Param("endDate") LocalDate endDate
+        @Param("statDates") Collection<LocalDate> statDates
     );
 }
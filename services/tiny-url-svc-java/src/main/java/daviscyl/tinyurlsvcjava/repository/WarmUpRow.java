@@ -0,0 +1,13 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import java.time.OffsetDateTime;
+
+/**
+ * What the cache warm-up needs of a url, read as a JPQL constructor projection without entity hydration.
+ */
+public record WarmUpRow(
+    String alias,
+    Long id,
+    String destinationUrl,
+    OffsetDateTime expiresAt
+) {}
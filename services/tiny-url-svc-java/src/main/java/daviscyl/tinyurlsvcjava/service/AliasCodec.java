@@ -0,0 +1,86 @@
+package daviscyl.tinyurlsvcjava.service;
+
+/**
+ * Turns numeric ids into fixed-length base62 aliases.
+ * <p>
+ * With scrambling enabled the id is first passed through a keyed Feistel permutation of the alias space,
+ * so consecutive ids map to unrelated aliases while staying collision free. The permutation works on
+ * 42 bits and cycle-walks until the result fits into {@code 62^7} values.
+ */
+public final class AliasCodec {
+
+    public static final int ALIAS_LENGTH = 7;
+    private static final char[] ALPHABET =
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+    private static final long ALIAS_SPACE = pow(ALPHABET.length, ALIAS_LENGTH);
+
+    private static final int HALF_BITS = 21;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final boolean scramble;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public AliasCodec(boolean scramble, long key) {
+        this.scramble = scramble;
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state = mix(state + 0x9E3779B97F4A7C15L);
+            roundKeys[i] = state;
+        }
+    }
+
+    /**
+     * Number of distinct aliases this codec can produce.
+     */
+    public static long capacity() {
+        return ALIAS_SPACE;
+    }
+
+    public String encode(long id) {
+        if (id < 0 || id >= ALIAS_SPACE) {
+            throw new IllegalArgumentException("Id outside of the alias space: " + id);
+        }
+
+        long value = scramble ? permute(id) : id;
+        char[] alias = new char[ALIAS_LENGTH];
+        for (int i = ALIAS_LENGTH - 1; i >= 0; i--) {
+            alias[i] = ALPHABET[(int) (value % ALPHABET.length)];
+            value /= ALPHABET.length;
+        }
+        return new String(alias);
+    }
+
+    private long permute(long id) {
+        long value = id;
+        do {
+            value = feistel(value);
+        } while (value >= ALIAS_SPACE);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ (mix(right ^ roundKeys[i]) & HALF_MASK);
+            left = right;
+            right = next;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long pow(long base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+}
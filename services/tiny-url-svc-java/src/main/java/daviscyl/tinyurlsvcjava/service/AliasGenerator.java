@@ -0,0 +1,173 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.AliasGeneratorProperties;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out collision-free aliases without querying the database per alias.
+ * <p>
+ * Each node reserves blocks of ids from the {@code url_alias_block_seq} sequence and serves ids from its
+ * current block with a single atomic increment; only exhausting a block takes a lock and a database round
+ * trip. Ids are encoded by {@link AliasCodec}.
+ * <p>
+ * Custom and imported aliases can have the same shape as generated ones. Reserving a block therefore also
+ * looks up which of its aliases already exist and skips those ids; an alias taken after its block was
+ * reserved surfaces as a conflict on insert, which callers answer with another alias.
+ */
+@Component
+@Slf4j
+public class AliasGenerator {
+
+    /**
+     * Aliases to try for one url before giving up. A generated alias only collides with a custom or imported
+     * alias of the same shape, so consecutive collisions are rare.
+     */
+    public static final int MAX_ATTEMPTS = 5;
+
+    static final String BLOCK_SEQUENCE = "url_alias_block_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UrlRepository urlRepository;
+    private final int blockSize;
+    private final AliasCodec codec;
+    private final String nextBlockSql;
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private final Timer blockReservations;
+    private volatile IdBlock block;
+
+    public AliasGenerator(JdbcTemplate jdbcTemplate,
+                          UrlRepository urlRepository,
+                          EntityManagerFactory entityManagerFactory,
+                          AliasGeneratorProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.urlRepository = urlRepository;
+        this.blockSize = properties.blockSize();
+        this.codec = new AliasCodec(properties.scramble(), properties.scramble() ? properties.scrambleKey() : 0L);
+        this.nextBlockSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getJdbcServices()
+            .getDialect()
+            .getSequenceSupport()
+            .getSequenceNextValString(BLOCK_SEQUENCE);
+        this.blockReservations = Timer.builder("tinyurl.alias.block.reserve")
+            .description("Round trips reserving a block of alias ids")
+            .register(meterRegistry);
+    }
+
+    public String nextAlias() {
+        return codec.encode(nextId());
+    }
+
+    /**
+     * Hands out {@code count} aliases, taking them from the current block in one step where possible.
+     */
+    public List<String> nextAliases(int count) {
+        List<String> aliases = new ArrayList<>(count);
+        while (aliases.size() < count) {
+            IdBlock current = block;
+            if (current != null) {
+                int wanted = count - aliases.size();
+                long first = current.next.getAndAdd(wanted);
+                long end = Math.min(first + wanted, current.end);
+                for (long id = first; id < end; id++) {
+                    if (!current.isTaken(id)) {
+                        aliases.add(codec.encode(id));
+                    }
+                }
+                if (aliases.size() == count) {
+                    break;
+                }
+                if (end < current.end) {
+                    // Skipped taken ids; the block has more
+                    continue;
+                }
+            }
+            refill(current);
+        }
+        return aliases;
+    }
+
+    long nextId() {
+        while (true) {
+            IdBlock current = block;
+            if (current != null) {
+                long id = current.next.getAndIncrement();
+                if (id < current.end) {
+                    if (!current.isTaken(id)) {
+                        return id;
+                    }
+                    continue;
+                }
+            }
+            refill(current);
+        }
+    }
+
+    private void refill(IdBlock exhausted) {
+        refillLock.lock();
+        try {
+            // Another thread may have refilled while this one waited for the lock
+            if (block != exhausted) {
+                return;
+            }
+
+            Long blockNumber = blockReservations.record(() -> jdbcTemplate.queryForObject(nextBlockSql, Long.class));
+            if (blockNumber == null) {
+                throw new IllegalStateException("Sequence " + BLOCK_SEQUENCE + " returned no value");
+            }
+
+            long start = Math.multiplyExact(blockNumber, (long) blockSize);
+            long end = Math.min(start + blockSize, AliasCodec.capacity());
+            if (start >= end) {
+                throw new IllegalStateException("Alias space exhausted at block " + blockNumber);
+            }
+
+            block = new IdBlock(new AtomicLong(start), start, end, takenIds(start, end));
+            log.debug("Reserved alias id block {} ({} - {})", blockNumber, start, end - 1);
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    /**
+     * Ids of the range whose alias is already in use, relative to {@code start}.
+     */
+    private BitSet takenIds(long start, long end) {
+        Map<String, Long> ids = new HashMap<>();
+        for (long id = start; id < end; id++) {
+            ids.put(codec.encode(id), id);
+        }
+        BitSet taken = new BitSet();
+        for (String alias : urlRepository.findExistingAliases(ids.keySet())) {
+            taken.set((int) (ids.get(alias) - start));
+        }
+        if (!taken.isEmpty()) {
+            log.info("Skipping {} ids of alias block {} - {} whose aliases are already taken",
+                taken.cardinality(), start, end - 1);
+        }
+        return taken;
+    }
+
+    private record IdBlock(AtomicLong next, long start, long end, BitSet taken) {
+
+        // Never modified after the block is published
+        private boolean isTaken(long id) {
+            return taken.get((int) (id - start));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.cache.HotSetEndpoint;
+import daviscyl.tinyurlsvcjava.config.CacheWarmUpProperties;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import daviscyl.tinyurlsvcjava.repository.WarmUpRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Preloads the alias cache before the node takes traffic, so a fresh node does not send its first minutes
+ * of redirects to PostgreSQL.
+ * <p>
+ * Runs as an {@link ApplicationRunner}: Spring Boot only switches readiness to {@code ACCEPTING_TRAFFIC}
+ * after all runners returned, so the readiness probe keeps the node out of rotation until warm-up is done.
+ * The hot set is taken from a running peer's {@link HotSetEndpoint} when one is configured, else ranked by
+ * redirect count, and loaded in ranked order until the entry, time or memory budget is spent. Failures are
+ * logged and never keep the node from starting.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tiny-url.warm-up", name = "enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class CacheWarmUp implements ApplicationRunner {
+
+    private static final int PAGE_SIZE = 500;
+
+    // Object headers, cache node and the ResolvedUrl around the two strings
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    private final UrlRepository urlRepository;
+    private final CacheManager cacheManager;
+    private final CacheWarmUpProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final RestClient.Builder restClientBuilder;
+
+    public CacheWarmUp(UrlRepository urlRepository,
+                       CacheManager cacheManager,
+                       CacheWarmUpProperties properties,
+                       PlatformTransactionManager transactionManager,
+                       RestClient.Builder restClientBuilder) {
+        this.urlRepository = urlRepository;
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+        this.restClientBuilder = restClientBuilder;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Cache cache = cacheManager.getCache(RedirectService.URL_CACHE);
+        if (cache == null || properties.maxEntries() <= 0) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        Budget budget = new Budget(started + properties.maxDuration().toNanos(), properties.memoryBudget().toBytes());
+        String source = "redirect ranking";
+        try {
+            List<String> peerAliases = fetchPeerHotSet();
+            if (peerAliases != null) {
+                source = properties.peerUrl();
+                warmFromAliases(cache, peerAliases, budget);
+            } else {
+                warmFromRanking(cache, budget);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cache warm-up failed after {} entries, continuing startup", budget.entries, e);
+        }
+
+        log.info("Cache warm-up loaded {} aliases (~{} KiB) from {} in {} ms{}",
+            budget.entries, budget.bytes / 1024, source, Duration.ofNanos(System.nanoTime() - started).toMillis(),
+            budget.exhausted != null ? ", stopped by the " + budget.exhausted : "");
+    }
+
+    private void warmFromRanking(Cache cache, Budget budget) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<WarmUpRow> rows = urlRepository.streamHottest(
+                OffsetDateTime.now(), Limit.of(properties.maxEntries()))) {
+                Iterator<WarmUpRow> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    if (!budget.admit(iterator.next(), cache)) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the peer's aliases page by page in their ranked order; aliases that were deleted, deactivated
+     * or expired in the meantime are not returned by the query and skipped.
+     */
+    private void warmFromAliases(Cache cache, List<String> aliases, Budget budget) {
+        int end = Math.min(aliases.size(), properties.maxEntries());
+        for (int start = 0; start < end; start += PAGE_SIZE) {
+            List<String> page = aliases.subList(start, Math.min(start + PAGE_SIZE, end));
+            List<WarmUpRow> rows = readOnlyTransaction.execute(status ->
+                urlRepository.findWarmUpRows(page, OffsetDateTime.now()));
+            for (WarmUpRow row : rows) {
+                if (!budget.admit(row, cache)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the peer's ranked aliases, or {@code null} when no peer is configured or it did not answer
+     */
+    private List<String> fetchPeerHotSet() {
+        if (properties.peerUrl() == null || properties.peerUrl().isBlank()) {
+            return null;
+        }
+        try {
+            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+            requestFactory.setConnectTimeout(properties.peerTimeout());
+            requestFactory.setReadTimeout(properties.peerTimeout());
+            RestClient client = restClientBuilder.requestFactory(requestFactory).build();
+            HotSetEndpoint.HotSet hotSet = client.get()
+                .uri(properties.peerUrl() + "?limit={limit}", properties.maxEntries())
+                .retrieve()
+                .body(HotSetEndpoint.HotSet.class);
+            return hotSet != null ? hotSet.aliases() : null;
+        } catch (RestClientException e) {
+            log.warn("Hot set of peer {} unavailable, ranking by redirect count instead: {}",
+                properties.peerUrl(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class Budget {
+
+        private final long deadlineNanos;
+        private final long maxBytes;
+        private int entries;
+        private long bytes;
+        private String exhausted;
+
+        private Budget(long deadlineNanos, long maxBytes) {
+            this.deadlineNanos = deadlineNanos;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Puts the row into the cache unless a budget is spent.
+         *
+         * @return whether loading should go on
+         */
+        private boolean admit(WarmUpRow row, Cache cache) {
+            if (System.nanoTime() > deadlineNanos) {
+                exhausted = "time budget";
+                return false;
+            }
+            long size = ENTRY_OVERHEAD_BYTES + 2L * (row.alias().length() + row.destinationUrl().length());
+            if (bytes + size > maxBytes) {
+                exhausted = "memory budget";
+                return false;
+            }
+
+            ResolvedUrl resolved;
+            try {
+                resolved = ResolvedUrl.of(row.id(), row.destinationUrl(),
+                    row.expiresAt() != null ? row.expiresAt().toInstant() : null);
+            } catch (IllegalArgumentException e) {
+                // Resolves as not found anyway
+                return true;
+            }
+            // Leaves entries that are already cached; on the two-tier cache this fills L1 from Redis where
+            // Redis has the alias and writes both tiers where it does not. Unlike put, it is not deferred to
+            // the end of the streaming transaction.
+            cache.putIfAbsent(row.alias(), resolved);
+            entries++;
+            bytes += size;
+            return true;
+        }
+    }
+}
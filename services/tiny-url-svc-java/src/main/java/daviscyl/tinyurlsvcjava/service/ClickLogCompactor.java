@@ -0,0 +1,202 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.clicklog.ClickLog;
+import daviscyl.tinyurlsvcjava.clicklog.ClickLogSegment;
+import daviscyl.tinyurlsvcjava.clicklog.ClickRecord;
+import daviscyl.tinyurlsvcjava.config.ClickLogProperties;
+import daviscyl.tinyurlsvcjava.config.RedirectTrackingProperties;
+import daviscyl.tinyurlsvcjava.config.UniqueVisitorProperties;
+import daviscyl.tinyurlsvcjava.repository.ClickLogRepository;
+import daviscyl.tinyurlsvcjava.repository.ClickLogRepository.Checkpoint;
+import daviscyl.tinyurlsvcjava.repository.ClickLogRepository.DimensionKey;
+import daviscyl.tinyurlsvcjava.repository.RedirectCounterRepository;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Folds the clicks of this node's {@link ClickLog} into {@code url_stats}, its rollups and the dimension
+ * counts, in batches that each commit together with the node's checkpoint. A restart, or a batch that
+ * failed, resumes at the checkpoint, so every click is applied exactly once.
+ * <p>
+ * Segments are read up to their last contiguous published record, so clicks reach the stats within one
+ * compaction interval instead of once a segment fills up. Fully compacted segments are deleted once
+ * their retention has passed.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tiny-url.click-log", name = "enabled", havingValue = "true")
+@Slf4j
+public class ClickLogCompactor {
+
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    private final ClickLog clickLog;
+    private final ClickLogRepository clickLogRepository;
+    private final RedirectCounterRepository counterRepository;
+    private final ClickLogProperties properties;
+    private final RedirectTrackingProperties trackingProperties;
+    private final UniqueVisitorProperties visitorProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter compactedClicks;
+    private final Clock clock;
+    private final String nodeId;
+
+    public ClickLogCompactor(ClickLog clickLog,
+                             ClickLogRepository clickLogRepository,
+                             RedirectCounterRepository counterRepository,
+                             ClickLogProperties properties,
+                             RedirectTrackingProperties trackingProperties,
+                             UniqueVisitorProperties visitorProperties,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             Clock clock) {
+        this.clickLog = clickLog;
+        this.clickLogRepository = clickLogRepository;
+        this.counterRepository = counterRepository;
+        this.properties = properties;
+        this.trackingProperties = trackingProperties;
+        this.visitorProperties = visitorProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.compactedClicks = Counter.builder("tinyurl.clicklog.compacted")
+            .description("Clicks folded from the click log into the stats tables")
+            .register(meterRegistry);
+        this.clock = clock;
+        this.nodeId = properties.nodeId() != null && !properties.nodeId().isBlank()
+            ? properties.nodeId()
+            : hostName();
+    }
+
+    @Scheduled(fixedDelayString = "${tiny-url.click-log.compact-interval:PT5S}")
+    public void compact() {
+        Checkpoint checkpoint = clickLogRepository.findCheckpoint(nodeId);
+        long compacted = 0;
+        for (ClickLogSegment segment : clickLog.segments()) {
+            if (segment.sequence() < checkpoint.segment()) {
+                continue;
+            }
+
+            int position = segment.sequence() == checkpoint.segment() ? checkpoint.position() : 0;
+            while (true) {
+                Batch batch = new Batch(visitorProperties.precision());
+                int end = segment.read(position, properties.maxBatchRecords(), batch::add);
+                if (end == position) {
+                    break;
+                }
+                Checkpoint next = new Checkpoint(segment.sequence(), end);
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (batch.clicks > 0) {
+                        counterRepository.applyRedirectCounts(batch.redirects(), trackingProperties.batchSize());
+                        clickLogRepository.applyDimensionCounts(batch.dimensions, trackingProperties.batchSize());
+                    }
+                    clickLogRepository.saveCheckpoint(nodeId, next);
+                });
+                compactedClicks.increment(batch.clicks);
+                compacted += batch.clicks;
+                checkpoint = next;
+                position = end;
+            }
+
+            if (!segment.isComplete() || position < segment.slots()) {
+                // The active segment, or one still being finished by a writer
+                break;
+            }
+        }
+
+        if (compacted > 0) {
+            log.debug("Compacted {} clicks up to segment {} slot {}", compacted, checkpoint.segment(), checkpoint.position());
+        }
+        deleteExpired(checkpoint);
+    }
+
+    private void deleteExpired(Checkpoint checkpoint) {
+        long cutoff = clock.millis() - properties.retention().toMillis();
+        for (ClickLogSegment segment : clickLog.segments()) {
+            boolean compacted = segment.sequence() < checkpoint.segment()
+                || segment.sequence() == checkpoint.segment() && segment.isComplete()
+                && checkpoint.position() >= segment.slots();
+            // Sequences are creation times
+            if (!compacted || segment.sequence() > cutoff) {
+                break;
+            }
+            clickLog.delete(segment);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Set tiny-url.click-log.node-id, the host name is unknown", e);
+        }
+    }
+
+    /**
+     * Clicks of one batch, aggregated per url and hour so that the hourly rollup gets the right hour even
+     * when a batch spans several, plus dimension counts per url and day.
+     */
+    private static final class Batch {
+
+        private final int precision;
+        private final Map<HourKey, PendingClicks> perHour = new HashMap<>();
+        private final SortedMap<DimensionKey, Long> dimensions = new TreeMap<>();
+        private long clicks;
+
+        private Batch(int precision) {
+            this.precision = precision;
+        }
+
+        private void add(ClickRecord click) {
+            long epochHour = Math.floorDiv(click.timestampMillis(), MILLIS_PER_HOUR);
+            PendingClicks pending = perHour.computeIfAbsent(new HourKey(click.urlId(), epochHour),
+                key -> new PendingClicks(new HyperLogLog(precision)));
+            pending.count++;
+            pending.lastRedirectAt = Math.max(pending.lastRedirectAt, click.timestampMillis());
+            pending.visitors.add(click.visitorHash());
+
+            LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(epochHour, 24));
+            dimensions.merge(new DimensionKey(click.urlId(), day, "referrer", click.referrerHost()), 1L, Long::sum);
+            dimensions.merge(new DimensionKey(click.urlId(), day, "agent",
+                click.agent().name().toLowerCase(Locale.ROOT)), 1L, Long::sum);
+            clicks++;
+        }
+
+        private List<PendingRedirects> redirects() {
+            List<PendingRedirects> redirects = new ArrayList<>(perHour.size());
+            perHour.forEach((key, pending) -> redirects.add(new PendingRedirects(
+                key.urlId(), LocalDate.ofEpochDay(Math.floorDiv(key.epochHour(), 24)),
+                pending.count, pending.lastRedirectAt, pending.visitors)));
+            return redirects;
+        }
+    }
+
+    private record HourKey(long urlId, long epochHour) {}
+
+    private static final class PendingClicks {
+
+        private final HyperLogLog visitors;
+        private long count;
+        private long lastRedirectAt = Long.MIN_VALUE;
+
+        private PendingClicks(HyperLogLog visitors) {
+            this.visitors = visitors;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+
+/**
+ * HyperLogLog cardinality sketch over 64-bit hashes.
+ * <p>
+ * A sketch of precision {@code p} keeps {@code 2^p} one-byte registers in memory and has a standard error of
+ * about {@code 1.04 / sqrt(2^p)}. Registers are updated with compare-and-set, so concurrent {@link #add}
+ * calls never lose a larger rank. Serialized sketches use a sparse (index, rank) list while few registers
+ * are set and 6-bit packed registers otherwise.
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private static final VarHandle REGISTERS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    private static final int REGISTER_BITS = 6;
+
+    private final int precision;
+    private final byte[] registers;
+    private volatile boolean dirty;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and "
+                + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Standard error of a sketch with the given precision.
+     */
+    public static double relativeError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * Adds a hashed element. Returns {@code true} if a register changed.
+     */
+    public boolean add(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+
+        byte current = (byte) REGISTERS.getAcquire(registers, index);
+        while (rank > current) {
+            if (REGISTERS.compareAndSet(registers, index, current, rank)) {
+                dirty = true;
+                return true;
+            }
+            current = (byte) REGISTERS.getAcquire(registers, index);
+        }
+        return false;
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            int rank = (byte) REGISTERS.getAcquire(registers, i);
+            sum += Math.scalb(1.0, -rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Small-range correction (linear counting)
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merges another sketch of the same precision into this one. Returns {@code true} if a register changed.
+     */
+    public boolean mergeFrom(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge precision " + other.precision + " into " + precision);
+        }
+        boolean changed = false;
+        for (int i = 0; i < registers.length; i++) {
+            byte rank = (byte) REGISTERS.getAcquire(other.registers, i);
+            byte current = (byte) REGISTERS.getAcquire(registers, i);
+            while (rank > current) {
+                if (REGISTERS.compareAndSet(registers, i, current, rank)) {
+                    dirty = true;
+                    changed = true;
+                    break;
+                }
+                current = (byte) REGISTERS.getAcquire(registers, i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns whether registers changed since the last call, and clears the flag.
+     */
+    public boolean checkAndClearDirty() {
+        if (!dirty) {
+            return false;
+        }
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * Union of sketches. Sketches of different precision are folded down to the lowest one.
+     */
+    public static HyperLogLog union(Collection<HyperLogLog> sketches) {
+        int precision = sketches.stream().mapToInt(HyperLogLog::precision).min()
+            .orElseThrow(() -> new IllegalArgumentException("No sketches to merge"));
+
+        HyperLogLog union = new HyperLogLog(precision);
+        for (HyperLogLog sketch : sketches) {
+            int shift = sketch.precision - precision;
+            for (int i = 0; i < sketch.registers.length; i++) {
+                int rank = (byte) REGISTERS.getAcquire(sketch.registers, i);
+                if (rank == 0) {
+                    continue;
+                }
+                int index = i >>> shift;
+                int foldedBits = i & ((1 << shift) - 1);
+                int foldedRank = foldedBits != 0
+                    ? Integer.numberOfLeadingZeros(foldedBits) - (Integer.SIZE - shift) + 1
+                    : rank + shift;
+                if (foldedRank > union.registers[index]) {
+                    union.registers[index] = (byte) foldedRank;
+                }
+            }
+        }
+        return union;
+    }
+
+    public byte[] toBytes() {
+        int m = registers.length;
+        int setRegisters = 0;
+        for (int i = 0; i < m; i++) {
+            if ((byte) REGISTERS.getAcquire(registers, i) != 0) {
+                setRegisters++;
+            }
+        }
+
+        int sparseSize = 2 + setRegisters * 3;
+        int denseSize = 2 + (m * REGISTER_BITS + 7) / 8;
+        if (sparseSize < denseSize) {
+            byte[] bytes = new byte[sparseSize];
+            bytes[0] = SPARSE;
+            bytes[1] = (byte) precision;
+            int offset = 2;
+            for (int i = 0; i < m && offset < sparseSize; i++) {
+                byte rank = (byte) REGISTERS.getAcquire(registers, i);
+                if (rank != 0) {
+                    bytes[offset++] = (byte) (i >>> 8);
+                    bytes[offset++] = (byte) i;
+                    bytes[offset++] = rank;
+                }
+            }
+            return bytes;
+        }
+
+        byte[] bytes = new byte[denseSize];
+        bytes[0] = DENSE;
+        bytes[1] = (byte) precision;
+        for (int i = 0; i < m; i++) {
+            int rank = (byte) REGISTERS.getAcquire(registers, i);
+            int bit = i * REGISTER_BITS;
+            int value = rank << (bit & 7);
+            bytes[2 + (bit >>> 3)] |= (byte) value;
+            if ((bit & 7) + REGISTER_BITS > 8) {
+                bytes[3 + (bit >>> 3)] |= (byte) (value >>> 8);
+            }
+        }
+        return bytes;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog(bytes[1]);
+        if (bytes[0] == SPARSE) {
+            for (int offset = 2; offset + 2 < bytes.length; offset += 3) {
+                int index = ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+                sketch.registers[index] = bytes[offset + 2];
+            }
+        } else if (bytes[0] == DENSE) {
+            int mask = (1 << REGISTER_BITS) - 1;
+            for (int i = 0; i < sketch.registers.length; i++) {
+                int bit = i * REGISTER_BITS;
+                int value = bytes[2 + (bit >>> 3)] & 0xFF;
+                if ((bit & 7) + REGISTER_BITS > 8) {
+                    value |= (bytes[3 + (bit >>> 3)] & 0xFF) << 8;
+                }
+                sketch.registers[i] = (byte) ((value >>> (bit & 7)) & mask);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown sketch encoding: " + bytes[0]);
+        }
+        return sketch;
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a url listing ordered by {@code created_at DESC, id DESC}: the sort key of the last url of the
+ * previous page. Clients only see it as an opaque string.
+ */
+public record ListCursor(Instant createdAt, long id) {
+
+    public static ListCursor after(OffsetDateTime createdAt, long id) {
+        return new ListCursor(createdAt.toInstant(), id);
+    }
+
+    public static ListCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ListCursor(
+                Instant.parse(value.substring(0, separator)),
+                Long.parseLong(value.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public OffsetDateTime createdAtUtc() {
+        return createdAt.atOffset(ZoneOffset.UTC);
+    }
+}
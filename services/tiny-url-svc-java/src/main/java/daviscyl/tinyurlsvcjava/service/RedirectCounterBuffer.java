@@ -0,0 +1,172 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.RedirectTrackingProperties;
+import daviscyl.tinyurlsvcjava.config.UniqueVisitorProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory accumulator for redirect counts and unique-visitor sketches keyed by url id and UTC day.
+ * <p>
+ * Recording only touches striped {@link LongAdder} cells and compare-and-set sketch registers, so concurrent
+ * redirects of the same alias do not contend on a row lock or a shared counter.
+ * {@link RedirectCounterFlusher} periodically drains the buffer into batched database upserts.
+ */
+@Component
+@RequiredArgsConstructor
+public class RedirectCounterBuffer {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final RedirectTrackingProperties properties;
+    private final UniqueVisitorProperties visitorProperties;
+    private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+    private final LongAdder pending = new LongAdder();
+
+    // Sketches taken out by the previous drain; a recorder that still held one may have updated it since
+    private Map<CounterKey, HyperLogLog> retiredSketches = Map.of();
+
+    /**
+     * Records one redirect and returns {@code true} when the buffer holds more redirects than allowed,
+     * in which case the caller should request an early flush.
+     */
+    public boolean record(long urlId, long visitorHash) {
+        long now = System.currentTimeMillis();
+        Counter counter = counters.computeIfAbsent(new CounterKey(urlId, Math.floorDiv(now, MILLIS_PER_DAY)), k -> new Counter());
+        counter.count.increment();
+        counter.lastRedirectAt.accumulate(now);
+        counter.visitors().add(visitorHash);
+        pending.increment();
+        return pending.sum() >= properties.maxPendingRedirects();
+    }
+
+    public long pendingCount() {
+        return pending.sum();
+    }
+
+    /**
+     * Moves all buffered counts, and with {@code includeSketches} all changed sketches, out of the buffer.
+     * Sketches left in the buffer keep merging visitors until a drain takes them, so most of a url's visitors
+     * reach the database in one sketch write per sketch flush instead of one per count flush. Counts recorded
+     * concurrently with a drain are never lost: they are either part of the returned list or picked up by the
+     * next drain. Sketch updates racing with a drain are picked up by the next drain with sketches, which
+     * re-sends retired sketches that changed. Must not be called concurrently.
+     */
+    public List<PendingRedirects> drain(boolean includeSketches) {
+        long today = Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_DAY);
+        Map<CounterKey, PendingRedirects> drained = new LinkedHashMap<>();
+        Map<CounterKey, HyperLogLog> retired = new ConcurrentHashMap<>();
+
+        counters.forEach((key, counter) -> {
+            long count = counter.count.sumThenReset();
+            HyperLogLog visitors = null;
+            if (includeSketches) {
+                visitors = counter.visitors.getAndSet(null);
+                if (visitors != null) {
+                    retired.put(key, visitors);
+                    if (!visitors.checkAndClearDirty()) {
+                        visitors = null;
+                    }
+                }
+            }
+
+            if (count > 0 || visitors != null) {
+                pending.add(-count);
+                drained.put(key, new PendingRedirects(
+                    key.urlId(), LocalDate.ofEpochDay(key.epochDay()), count, counter.lastRedirectAt.get(), visitors));
+            } else if (key.epochDay() < today - 1 && counter.visitors.get() == null) {
+                // Nobody records against a day that ended more than a day ago, so the entry can go
+                counters.remove(key, counter);
+            }
+        });
+
+        if (includeSketches) {
+            retiredSketches.forEach((key, visitors) -> {
+                if (visitors.checkAndClearDirty()) {
+                    drained.merge(key,
+                        new PendingRedirects(key.urlId(), LocalDate.ofEpochDay(key.epochDay()), 0, Long.MIN_VALUE, visitors),
+                        PendingRedirects::combine);
+                }
+            });
+            retiredSketches = retired;
+        }
+
+        return new ArrayList<>(drained.values());
+    }
+
+    /**
+     * Puts counts and sketches back after a failed flush so they are retried on the next one, up to the
+     * pending limit. While the database is down, restoring everything would grow the buffer by a counter and
+     * a sketch per active url on every failed flush, so what does not fit is dropped instead.
+     *
+     * @return the redirects dropped because the buffer was full
+     */
+    public long restore(List<PendingRedirects> batch) {
+        long dropped = 0;
+        for (PendingRedirects redirects : batch) {
+            long room = properties.maxPendingRedirects() - pending.sum();
+            if (room <= 0) {
+                dropped += redirects.count();
+                continue;
+            }
+            long restored = Math.min(redirects.count(), room);
+            Counter counter = counters.computeIfAbsent(
+                new CounterKey(redirects.urlId(), redirects.statDate().toEpochDay()), k -> new Counter());
+            counter.count.add(restored);
+            counter.lastRedirectAt.accumulate(redirects.lastRedirectAtMillis());
+            if (redirects.visitors() != null) {
+                counter.visitors().mergeFrom(redirects.visitors());
+            }
+            pending.add(restored);
+            dropped += redirects.count() - restored;
+        }
+        return dropped;
+    }
+
+    /**
+     * Buffered activity of one url on one day. {@code visitors} is {@code null} when no sketch changed.
+     */
+    public record PendingRedirects(
+        long urlId,
+        LocalDate statDate,
+        long count,
+        long lastRedirectAtMillis,
+        HyperLogLog visitors
+    ) {
+
+        private static PendingRedirects combine(PendingRedirects a, PendingRedirects b) {
+            HyperLogLog visitors = a.visitors == null ? b.visitors
+                : b.visitors == null ? a.visitors
+                : HyperLogLog.union(List.of(a.visitors, b.visitors));
+            return new PendingRedirects(a.urlId, a.statDate, a.count + b.count,
+                Math.max(a.lastRedirectAtMillis, b.lastRedirectAtMillis), visitors);
+        }
+    }
+
+    private record CounterKey(long urlId, long epochDay) {}
+
+    private final class Counter {
+        private final LongAdder count = new LongAdder();
+        private final LongAccumulator lastRedirectAt = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final AtomicReference<HyperLogLog> visitors = new AtomicReference<>();
+
+        private HyperLogLog visitors() {
+            HyperLogLog sketch = visitors.get();
+            while (sketch == null) {
+                visitors.compareAndSet(null, new HyperLogLog(visitorProperties.precision()));
+                sketch = visitors.get();
+            }
+            return sketch;
+        }
+    }
+}
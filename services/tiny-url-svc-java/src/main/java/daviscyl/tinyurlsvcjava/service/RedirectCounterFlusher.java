@@ -0,0 +1,162 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.RedirectTrackingProperties;
+import daviscyl.tinyurlsvcjava.config.UniqueVisitorProperties;
+import daviscyl.tinyurlsvcjava.repository.RedirectCounterRepository;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Periodically drains {@link RedirectCounterBuffer} into the database and drains it one last time on shutdown.
+ * Counts are written on every flush, visitor sketches only once per sketch flush interval and on shutdown.
+ * <p>
+ * Runs in a lifecycle phase below the embedded web server, so it is stopped only after the server has
+ * stopped accepting redirects and before the datasource is closed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RedirectCounterFlusher implements SmartLifecycle {
+
+    private final RedirectCounterBuffer buffer;
+    private final RedirectCounterRepository counterRepository;
+    private final RedirectTrackingProperties properties;
+    private final UniqueVisitorProperties visitorProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean earlyFlushRequested = new AtomicBoolean();
+    private long lastSketchFlushNanos = System.nanoTime();
+    private volatile ScheduledExecutorService scheduler;
+
+    @Override
+    public void start() {
+        Gauge.builder("tinyurl.redirect.pending", buffer, RedirectCounterBuffer::pendingCount)
+            .description("Redirects buffered but not yet flushed")
+            .register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+            .name("redirect-counter-flusher")
+            .daemon(true)
+            .factory());
+        long intervalMillis = properties.flushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(() -> flushQuietly(false), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Redirect counters flush every {} (early flush above {} pending redirects)",
+            properties.flushInterval(), properties.maxPendingRedirects());
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService current = scheduler;
+        scheduler = null;
+        if (current != null) {
+            current.shutdown();
+            try {
+                if (!current.awaitTermination(properties.flushInterval().toMillis() + 5_000, TimeUnit.MILLISECONDS)) {
+                    log.warn("Redirect counter flusher did not stop in time");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly(true);
+        if (buffer.pendingCount() > 0) {
+            log.error("Shutting down with {} redirects that could not be flushed", buffer.pendingCount());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    @Override
+    public int getPhase() {
+        // Web server lifecycles run at DEFAULT_PHASE - 1024 and - 2048; stop after them
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Asks for a flush ahead of schedule. Repeated requests collapse into a single pending flush.
+     */
+    public void requestFlush() {
+        ScheduledExecutorService current = scheduler;
+        if (current != null && earlyFlushRequested.compareAndSet(false, true)) {
+            try {
+                current.execute(() -> {
+                    earlyFlushRequested.set(false);
+                    flushQuietly(false);
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the final drain in stop() picks the counts up
+                earlyFlushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Drains the buffer and applies the counts, plus the visitor sketches when they are due or
+     * {@code includeSketches} is set. Returns the number of redirects written.
+     */
+    public long flush(boolean includeSketches) {
+        flushLock.lock();
+        try {
+            long now = System.nanoTime();
+            boolean sketches = includeSketches
+                || now - lastSketchFlushNanos >= visitorProperties.sketchFlushInterval().toNanos();
+            List<PendingRedirects> batch = buffer.drain(sketches);
+            if (sketches) {
+                lastSketchFlushNanos = now;
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                counterRepository.applyRedirectCounts(batch, properties.batchSize());
+            } catch (RuntimeException e) {
+                long dropped = buffer.restore(batch);
+                if (dropped > 0) {
+                    Counter.builder("tinyurl.redirect.dropped")
+                        .description("Redirects of failed flushes dropped because the buffer was full")
+                        .register(meterRegistry)
+                        .increment(dropped);
+                    log.error("Dropped {} redirects of a failed flush, the buffer holds its limit of {}",
+                        dropped, properties.maxPendingRedirects());
+                }
+                throw e;
+            }
+
+            long flushed = batch.stream().mapToLong(PendingRedirects::count).sum();
+            log.debug("Flushed {} redirects across {} url/day counters", flushed, batch.size());
+            return flushed;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly(boolean includeSketches) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            flush(includeSketches);
+            sample.stop(meterRegistry.timer("tinyurl.redirect.flush", "outcome", "success"));
+        } catch (RuntimeException e) {
+            sample.stop(meterRegistry.timer("tinyurl.redirect.flush", "outcome", "failure"));
+            log.error("Failed to flush redirect counters, {} redirects pending", buffer.pendingCount(), e);
+        }
+    }
+}
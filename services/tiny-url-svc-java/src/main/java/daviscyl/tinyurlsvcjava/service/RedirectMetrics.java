@@ -0,0 +1,67 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the redirect path, registered once so recording is a plain field access. Tags only carry
+ * outcomes and status codes, never aliases, so the number of series stays fixed.
+ */
+@Component
+public class RedirectMetrics {
+
+    /**
+     * How an alias lookup ended: served from a hot-alias pin or the cache, loaded from the database, or not
+     * resolvable because it expired, does not exist, or was rejected by the shield without a lookup.
+     */
+    public enum Outcome { PINNED, HIT, MISS, EXPIRED, NOT_FOUND, REJECTED }
+
+    private final Map<Outcome, Timer> resolveTimers = new EnumMap<>(Outcome.class);
+    private final Timer trackTimer;
+    private final Counter foundResponses;
+    private final Counter notFoundResponses;
+
+    public RedirectMetrics(MeterRegistry meterRegistry) {
+        for (Outcome outcome : Outcome.values()) {
+            resolveTimers.put(outcome, Timer.builder("tinyurl.redirect.resolve")
+                .description("Alias resolution, by outcome")
+                .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+        }
+        trackTimer = Timer.builder("tinyurl.redirect.track")
+            .description("Recording a redirect in the write-behind buffer")
+            .register(meterRegistry);
+        foundResponses = redirectResponses(meterRegistry, "302");
+        notFoundResponses = redirectResponses(meterRegistry, "404");
+    }
+
+    void recordResolve(Outcome outcome, long startNanos) {
+        resolveTimers.get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordTrack(long startNanos) {
+        trackTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void redirectFound() {
+        foundResponses.increment();
+    }
+
+    public void redirectNotFound() {
+        notFoundResponses.increment();
+    }
+
+    private static Counter redirectResponses(MeterRegistry meterRegistry, String status) {
+        return Counter.builder("tinyurl.redirect.responses")
+            .description("Responses of the public redirect endpoint, by status")
+            .tag("status", status)
+            .register(meterRegistry);
+    }
+}
@@ -1,16 +1,19 @@
 package daviscyl.tinyurlsvcjava.service;
 
+import daviscyl.tinyurlsvcjava.cache.AliasShield;
+import daviscyl.tinyurlsvcjava.cache.HotAliasTracker;
+import daviscyl.tinyurlsvcjava.clicklog.ClickLog;
+import daviscyl.tinyurlsvcjava.clicklog.ClickRecord;
+import daviscyl.tinyurlsvcjava.clicklog.UserAgentClass;
+import daviscyl.tinyurlsvcjava.datasource.ReadYourWrites;
 import daviscyl.tinyurlsvcjava.entity.UrlEntity;
-import daviscyl.tinyurlsvcjava.entity.UrlStatsEntity;
 import daviscyl.tinyurlsvcjava.repository.UrlRepository;
-import daviscyl.tinyurlsvcjava.repository.UrlStatsRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
 import java.util.Optional;
 
 @Service
@@ -18,51 +21,135 @@ import java.util.Optional;
 @Slf4j
 public class RedirectService {
 
+    public static final String URL_CACHE = "url-cache";
+
     private final UrlRepository urlRepository;
-    private final UrlStatsRepository urlStatsRepository;
+    private final CacheManager cacheManager;
+    private final AliasShield aliasShield;
+    private final HotAliasTracker hotAliasTracker;
+    private final ReadYourWrites readYourWrites;
+    private final RedirectCounterBuffer redirectCounterBuffer;
+    private final RedirectCounterFlusher redirectCounterFlusher;
+    private final ClickLog clickLog;
+    private final RedirectMetrics redirectMetrics;
+
+    /**
+     * Resolves an alias through the pinned hot aliases, the negative-lookup shield, then the alias cache,
+     * then the database. Only cache misses open a (read-only) transaction.
+     */
+    public Optional<ResolvedUrl> resolveAlias(String alias) {
+        return Optional.ofNullable(resolve(alias));
+    }
+
+    /**
+     * Same as {@link #resolveAlias} without the {@code Optional}, for the redirect fast path.
+     *
+     * @return the resolved url, or {@code null} when the alias is unknown, inactive or expired
+     */
+    public ResolvedUrl resolve(String alias) {
+        long start = System.nanoTime();
+        ResolvedUrl pinned = hotAliasTracker.pinned(alias);
+        if (pinned != null) {
+            hotAliasTracker.recordPinnedHit(alias);
+            redirectMetrics.recordResolve(RedirectMetrics.Outcome.PINNED, start);
+            return pinned;
+        }
+
+        if (aliasShield.isKnownMissing(alias)) {
+            log.debug("Alias rejected by shield: {}", alias);
+            redirectMetrics.recordResolve(RedirectMetrics.Outcome.REJECTED, start);
+            return null;
+        }
+
+        // Read before the cache, so that a url resolved before a concurrent change is never pinned after it
+        long pinGeneration = hotAliasTracker.generation(alias);
+        // Set by the loader, which only runs on a cache miss that no concurrent request is already loading
+        RedirectMetrics.Outcome[] outcome = {RedirectMetrics.Outcome.HIT};
+        Thread caller = Thread.currentThread();
+        Cache cache = urlCache();
+        ResolvedUrl resolved = cache.get(alias, () -> {
+            // A refresh-ahead reload runs on another thread, possibly after this request has recorded its outcome
+            return loadAlias(alias, Thread.currentThread() == caller ? outcome : new RedirectMetrics.Outcome[1]);
+        });
+        if (resolved == null && outcome[0] == RedirectMetrics.Outcome.HIT) {
+            // Waited for the load of a concurrent miss, which found nothing
+            outcome[0] = RedirectMetrics.Outcome.NOT_FOUND;
+        }
+        if (resolved != null && resolved.isExpired()) {
+            // Redis entries expire with the url, but the in-process tier may still hold one for a while
+            log.debug("Cached alias expired: {}", alias);
+            cache.evict(alias);
+            outcome[0] = RedirectMetrics.Outcome.EXPIRED;
+            resolved = null;
+        }
+        redirectMetrics.recordResolve(outcome[0], start);
+        if (resolved == null) {
+            aliasShield.recordMissing(alias);
+        } else {
+            hotAliasTracker.recordHit(alias, resolved, pinGeneration);
+        }
+        return resolved;
+    }
 
-    @Cacheable(value = "url-cache", key = "#alias")
-    @Transactional(readOnly = true)
-    public Optional<String> resolveAlias(String alias) {
-        Optional<UrlEntity> urlOpt = urlRepository.findByAliasAndIsActiveTrue(alias);
+    /**
+     * Records a redirect and its visitor. With the click log enabled the click is appended to it, with its
+     * referrer host and user-agent class, and reaches the database on the next compaction; otherwise, or when
+     * the log cannot take it, counts and visitor sketches go to the write-behind buffer and reach the
+     * database on the next flush.
+     */
+    public void trackRedirect(ResolvedUrl url, long visitorHash, String referer, String userAgent) {
+        long start = System.nanoTime();
+        if (clickLog.isEnabled() && clickLog.append(new ClickRecord(System.currentTimeMillis(), url.id(),
+            visitorHash, UserAgentClass.of(userAgent), ClickRecord.referrerHost(referer)))) {
+            redirectMetrics.recordTrack(start);
+            return;
+        }
+        if (redirectCounterBuffer.record(url.id(), visitorHash)) {
+            redirectCounterFlusher.requestFlush();
+        }
+        redirectMetrics.recordTrack(start);
+    }
+
+    private ResolvedUrl loadAlias(String alias, RedirectMetrics.Outcome[] outcome) {
+        // A lagging replica must not put the url from before a recent change back into the cache
+        Optional<UrlEntity> urlOpt;
+        try (ReadYourWrites.Scope scope = readYourWrites.forAlias(alias)) {
+            urlOpt = urlRepository.findByAliasAndIsActiveTrue(alias);
+        }
 
         if (urlOpt.isEmpty()) {
             log.debug("Alias not found or inactive: {}", alias);
-            return Optional.empty();
+            outcome[0] = RedirectMetrics.Outcome.NOT_FOUND;
+            return null;
         }
 
         UrlEntity url = urlOpt.get();
 
         if (url.isExpired()) {
             log.debug("Alias expired: {}", alias);
-            return Optional.empty();
+            outcome[0] = RedirectMetrics.Outcome.EXPIRED;
+            return null;
+        }
+
+        ResolvedUrl resolved;
+        try {
+            resolved = ResolvedUrl.of(url.getId(), url.getDestinationUrl(),
+                url.getExpiresAt() != null ? url.getExpiresAt().toInstant() : null);
+        } catch (IllegalArgumentException e) {
+            log.warn("Destination of alias {} is not a valid URI", alias);
+            outcome[0] = RedirectMetrics.Outcome.NOT_FOUND;
+            return null;
         }
 
-        return Optional.of(url.getDestinationUrl());
+        outcome[0] = RedirectMetrics.Outcome.MISS;
+        return resolved;
     }
 
-    @Transactional
-    public void trackRedirect(String alias) {
-        urlRepository.findByAliasAndIsActiveTrue(alias).ifPresent(url -> {
-            // Update URL redirect count and last redirect time
-            url.incrementRedirectCount();
-            urlRepository.save(url);
-
-            // Update daily stats
-            LocalDate today = LocalDate.now();
-            UrlStatsEntity stats = urlStatsRepository
-                    .findByUrlIdAndStatDate(url.getId(), today)
-                    .orElse(UrlStatsEntity.builder()
-                                    .urlId(url.getId())
-                                    .statDate(today)
-                                    .redirectCount(0L)
-                                    .uniqueVisitors(0L)
-                                    .build());
-
-            stats.incrementRedirectCount();
-            urlStatsRepository.save(stats);
-
-            log.debug("Tracked redirect for alias: {}", alias);
-        });
+    private Cache urlCache() {
+        Cache cache = cacheManager.getCache(URL_CACHE);
+        if (cache == null) {
+            throw new IllegalStateException("Cache not configured: " + URL_CACHE);
+        }
+        return cache;
     }
 }
@@ -0,0 +1,34 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import java.net.URI;
+import java.time.Instant;
+
+/**
+ * Cached result of resolving an alias: everything the redirect path needs without touching the database.
+ *
+ * @param destinationUrl the destination as a validated, ASCII-encoded URI, usable as a {@code Location} header
+ * @param expiresAt      when the url stops redirecting, or {@code null} when it never expires
+ */
+public record ResolvedUrl(
+    Long id,
+    String destinationUrl,
+    Instant expiresAt
+) {
+
+    /**
+     * Validates the destination and ASCII-encodes it once, so redirects can copy it into the {@code Location}
+     * header as is.
+     *
+     * @throws IllegalArgumentException if the destination is not a valid URI
+     */
+    public static ResolvedUrl of(Long id, String destinationUrl, Instant expiresAt) {
+        return new ResolvedUrl(id, URI.create(destinationUrl).toASCIIString(), expiresAt);
+    }
+
+    /**
+     * Same rule as {@code UrlEntity.isExpired()}, checked on cache hits since entries can outlive the url.
+     */
+    public boolean isExpired() {
+        return expiresAt != null && System.currentTimeMillis() > expiresAt.toEpochMilli();
+    }
+}
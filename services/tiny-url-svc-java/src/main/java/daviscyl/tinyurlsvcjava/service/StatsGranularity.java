@@ -0,0 +1,58 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket sizes of the stats tiers. Buckets are aligned in UTC: whole hours, days, ISO weeks starting on
+ * Monday and calendar months.
+ */
+public enum StatsGranularity {
+
+    HOUR,
+    DAY,
+    WEEK,
+    MONTH;
+
+    /**
+     * Start of the bucket containing the instant.
+     */
+    public Instant bucketStart(Instant instant) {
+        if (this == HOUR) {
+            return instant.truncatedTo(ChronoUnit.HOURS);
+        }
+        return startOfDay(bucketStart(LocalDate.ofInstant(instant, ZoneOffset.UTC)));
+    }
+
+    /**
+     * First day of the bucket containing the day; not defined for {@link #HOUR}.
+     */
+    public LocalDate bucketStart(LocalDate day) {
+        return switch (this) {
+            case HOUR -> throw new IllegalStateException("Hourly buckets do not start on a day boundary");
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * Start of the bucket following the one that starts at {@code start}.
+     */
+    public Instant next(Instant start) {
+        return switch (this) {
+            case HOUR -> start.plus(1, ChronoUnit.HOURS);
+            case DAY -> start.plus(1, ChronoUnit.DAYS);
+            case WEEK -> start.plus(7, ChronoUnit.DAYS);
+            case MONTH -> startOfDay(LocalDate.ofInstant(start, ZoneOffset.UTC).plusMonths(1));
+        };
+    }
+
+    static Instant startOfDay(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,113 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.StatsPartitionProperties;
+import daviscyl.tinyurlsvcjava.repository.StatsPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the monthly partitions of {@code url_stats} ahead of the calendar and retires the ones that fell
+ * out of the retention window, so old daily rows go with a detach or drop instead of a DELETE.
+ * <p>
+ * Only enabled where {@code url_stats} is partitioned (PostgreSQL with the V9 migration); elsewhere it stays
+ * a plain table and nothing else depends on the partitioning.
+ * <p>
+ * Every node schedules the job, but a run plans and applies its changes in one transaction holding an
+ * advisory lock, so nodes starting together cannot both create the same partition; a node that finds the
+ * lock taken skips its run.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tiny-url.stats-partitions", name = "enabled", havingValue = "true")
+@Slf4j
+public class StatsPartitionMaintenance {
+
+    private final StatsPartitionRepository statsPartitionRepository;
+    private final StatsPartitionProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+
+    public StatsPartitionMaintenance(
+        StatsPartitionRepository statsPartitionRepository,
+        StatsPartitionProperties properties,
+        PlatformTransactionManager transactionManager,
+        Clock clock
+    ) {
+        this.statsPartitionRepository = statsPartitionRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${tiny-url.stats-partitions.interval:PT12H}")
+    public void maintainPartitions() {
+        Boolean ran = transactionTemplate.execute(status -> {
+            if (!statsPartitionRepository.tryLockMaintenance()) {
+                return false;
+            }
+            apply(plan(statsPartitionRepository.findPartitionMonths(), YearMonth.now(clock.withZone(ZoneOffset.UTC)),
+                properties.monthsAhead(), properties.retentionMonths()));
+            return true;
+        });
+        if (!Boolean.TRUE.equals(ran)) {
+            log.debug("url_stats partitions are being maintained by another node");
+        }
+    }
+
+    private void apply(Plan plan) {
+        for (YearMonth month : plan.create()) {
+            statsPartitionRepository.createPartition(month);
+            log.info("Created url_stats partition for {}", month);
+        }
+        for (YearMonth month : plan.retire()) {
+            if (properties.retentionAction() == StatsPartitionProperties.RetentionAction.DROP) {
+                statsPartitionRepository.dropPartition(month);
+                log.info("Dropped url_stats partition for {}", month);
+            } else {
+                statsPartitionRepository.detachPartition(month);
+                log.info("Detached url_stats partition for {}", month);
+            }
+        }
+    }
+
+    /**
+     * Partitions to create, from the current month to {@code monthsAhead} months ahead, and to retire, older
+     * than {@code retentionMonths} months before the current one ({@code 0} retires nothing), oldest first.
+     */
+    static Plan plan(Collection<YearMonth> existing, YearMonth current, int monthsAhead, int retentionMonths) {
+        Set<YearMonth> present = new HashSet<>(existing);
+        List<YearMonth> create = new ArrayList<>();
+        for (int ahead = 0; ahead <= monthsAhead; ahead++) {
+            YearMonth month = current.plusMonths(ahead);
+            if (!present.contains(month)) {
+                create.add(month);
+            }
+        }
+
+        List<YearMonth> retire = new ArrayList<>();
+        if (retentionMonths > 0) {
+            YearMonth oldestRetained = current.minusMonths(retentionMonths);
+            for (YearMonth month : present) {
+                if (month.isBefore(oldestRetained)) {
+                    retire.add(month);
+                }
+            }
+            retire.sort(null);
+        }
+        return new Plan(create, retire);
+    }
+
+    record Plan(List<YearMonth> create, List<YearMonth> retire) {}
+}
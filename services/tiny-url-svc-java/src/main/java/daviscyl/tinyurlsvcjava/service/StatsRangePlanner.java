@@ -0,0 +1,114 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Covers a stats range with the fewest stored buckets: whole calendar months from the monthly rollup, whole
+ * weeks from the weekly rollup in the parts before and after those months, and single days for the rest.
+ * Partial days at either end are read from the hourly rollup when it holds them, and widened to whole days
+ * otherwise. Weeks and months that may not be rolled up yet are read as single days.
+ */
+final class StatsRangePlanner {
+
+    private StatsRangePlanner() {
+    }
+
+    /**
+     * Buckets covering {@code [from, to)} in chronological order.
+     *
+     * @param hourlyFrom     first hour kept by the hourly rollup, or {@code null} when it is disabled
+     * @param rolledUpBefore weekly and monthly buckets are only used when they end on or before this day
+     *                       boundary, or {@code null} to use them everywhere
+     */
+    static List<Bucket> plan(Instant from, Instant to, Instant hourlyFrom, Instant rolledUpBefore) {
+        List<Bucket> buckets = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return buckets;
+        }
+        LocalDate firstDay = LocalDate.ofInstant(from, ZoneOffset.UTC);
+        LocalDate lastDay = LocalDate.ofInstant(to, ZoneOffset.UTC);
+        boolean partialStart = !from.equals(StatsGranularity.startOfDay(firstDay));
+        boolean partialEnd = !to.equals(StatsGranularity.startOfDay(lastDay));
+
+        if (partialStart && hourlyFrom != null && !from.isBefore(hourlyFrom)) {
+            Instant hoursEnd = firstDay.equals(lastDay) ? to : StatsGranularity.startOfDay(firstDay.plusDays(1));
+            addHours(buckets, from, hoursEnd);
+            firstDay = firstDay.plusDays(1);
+            if (hoursEnd.equals(to)) {
+                return buckets;
+            }
+        }
+
+        List<Bucket> trailingHours = new ArrayList<>();
+        if (partialEnd) {
+            Instant endDayStart = StatsGranularity.startOfDay(lastDay);
+            if (hourlyFrom != null && !endDayStart.isBefore(hourlyFrom)) {
+                addHours(trailingHours, endDayStart, to);
+            } else {
+                lastDay = lastDay.plusDays(1);
+            }
+        }
+
+        LocalDate rollupsEnd = lastDay;
+        if (rolledUpBefore != null) {
+            LocalDate cutoff = LocalDate.ofInstant(rolledUpBefore, ZoneOffset.UTC);
+            if (cutoff.isBefore(lastDay)) {
+                rollupsEnd = cutoff.isAfter(firstDay) ? cutoff : firstDay;
+            }
+        }
+        addDays(buckets, firstDay, rollupsEnd);
+        addSingleDays(buckets, rollupsEnd, lastDay);
+        buckets.addAll(trailingHours);
+        return buckets;
+    }
+
+    private static void addDays(List<Bucket> buckets, LocalDate first, LocalDate end) {
+        LocalDate firstMonth = first.getDayOfMonth() == 1 ? first : first.withDayOfMonth(1).plusMonths(1);
+        LocalDate endMonth = StatsGranularity.MONTH.bucketStart(end);
+
+        if (firstMonth.isBefore(endMonth)) {
+            addWeeks(buckets, first, firstMonth);
+            for (LocalDate month = firstMonth; month.isBefore(endMonth); month = month.plusMonths(1)) {
+                buckets.add(new Bucket(StatsGranularity.MONTH, StatsGranularity.startOfDay(month)));
+            }
+            addWeeks(buckets, endMonth, end);
+        } else {
+            addWeeks(buckets, first, end);
+        }
+    }
+
+    private static void addWeeks(List<Bucket> buckets, LocalDate first, LocalDate end) {
+        // The first Monday on or after the first day
+        LocalDate firstWeek = StatsGranularity.WEEK.bucketStart(first.plusDays(6));
+        LocalDate endWeek = StatsGranularity.WEEK.bucketStart(end);
+
+        if (firstWeek.isBefore(endWeek)) {
+            addSingleDays(buckets, first, firstWeek);
+            for (LocalDate week = firstWeek; week.isBefore(endWeek); week = week.plusWeeks(1)) {
+                buckets.add(new Bucket(StatsGranularity.WEEK, StatsGranularity.startOfDay(week)));
+            }
+            addSingleDays(buckets, endWeek, end);
+        } else {
+            addSingleDays(buckets, first, end);
+        }
+    }
+
+    private static void addSingleDays(List<Bucket> buckets, LocalDate first, LocalDate end) {
+        for (LocalDate day = first; day.isBefore(end); day = day.plusDays(1)) {
+            buckets.add(new Bucket(StatsGranularity.DAY, StatsGranularity.startOfDay(day)));
+        }
+    }
+
+    private static void addHours(List<Bucket> buckets, Instant from, Instant to) {
+        for (Instant hour = from.truncatedTo(ChronoUnit.HOURS); hour.isBefore(to); hour = hour.plus(1, ChronoUnit.HOURS)) {
+            buckets.add(new Bucket(StatsGranularity.HOUR, hour));
+        }
+    }
+
+    record Bucket(StatsGranularity granularity, Instant start) {}
+}
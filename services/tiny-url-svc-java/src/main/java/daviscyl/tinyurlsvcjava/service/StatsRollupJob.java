@@ -0,0 +1,93 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.StatsRollupProperties;
+import daviscyl.tinyurlsvcjava.repository.StatsRollupRepository;
+import daviscyl.tinyurlsvcjava.repository.StatsRollupRepository.QueuedDay;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Rolls the daily rows of the days the counter flush queued up into the weekly and monthly tiers. A busy url
+ * costs one rebuild of its week and month per run instead of a sketch read and rewrite of both on every flush.
+ * <p>
+ * Each batch of queued days is taken and rebuilt in one transaction under an advisory lock, so only one node
+ * rebuilds at a time and a failed batch leaves its days queued for the next run. Rebuilds are absolute, so
+ * rebuilding a bucket twice is harmless.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tiny-url.stats-rollups", name = "rollup-enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class StatsRollupJob {
+
+    private static final List<StatsGranularity> ROLLED_UP = List.of(StatsGranularity.WEEK, StatsGranularity.MONTH);
+
+    private final StatsRollupRepository statsRollupRepository;
+    private final StatsRollupProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public StatsRollupJob(
+        StatsRollupRepository statsRollupRepository,
+        StatsRollupProperties properties,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.statsRollupRepository = statsRollupRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(
+        initialDelayString = "${tiny-url.stats-rollups.rollup-interval:PT5M}",
+        fixedDelayString = "${tiny-url.stats-rollups.rollup-interval:PT5M}")
+    public void rollUp() {
+        int days = 0;
+        int rows = 0;
+        while (true) {
+            int[] batch = transactionTemplate.execute(status -> rollUpBatch());
+            if (batch == null) {
+                log.debug("Stats rollups are being rebuilt by another node");
+                break;
+            }
+            days += batch[0];
+            rows += batch[1];
+            if (batch[0] < properties.rollupBatchSize()) {
+                break;
+            }
+        }
+        if (days > 0) {
+            log.info("Rebuilt {} weekly and monthly stats rows from {} queued days", rows, days);
+        }
+    }
+
+    /**
+     * @return the queued days taken and the rows rebuilt, or {@code null} when another node holds the lock
+     */
+    private int[] rollUpBatch() {
+        if (!statsRollupRepository.tryLockRollups()) {
+            return null;
+        }
+        List<QueuedDay> days = statsRollupRepository.takeQueuedDays(properties.rollupBatchSize());
+        int rows = 0;
+        for (StatsGranularity granularity : ROLLED_UP) {
+            Map<LocalDate, Set<Long>> urlsByBucket = new TreeMap<>();
+            for (QueuedDay day : days) {
+                urlsByBucket.computeIfAbsent(granularity.bucketStart(day.statDate()), start -> new TreeSet<>())
+                    .add(day.urlId());
+            }
+            for (Map.Entry<LocalDate, Set<Long>> bucket : urlsByBucket.entrySet()) {
+                rows += statsRollupRepository.rebuildBuckets(granularity, bucket.getKey(), bucket.getValue());
+            }
+        }
+        return new int[] {days.size(), rows};
+    }
+}
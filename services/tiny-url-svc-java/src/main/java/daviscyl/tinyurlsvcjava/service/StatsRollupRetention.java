@@ -0,0 +1,33 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.StatsRollupProperties;
+import daviscyl.tinyurlsvcjava.repository.StatsRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Deletes hourly stats rows that fell out of the retention window.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tiny-url.stats-rollups", name = "hourly-enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class StatsRollupRetention {
+
+    private final StatsRollupRepository statsRollupRepository;
+    private final StatsRollupProperties properties;
+
+    @Scheduled(fixedDelayString = "${tiny-url.stats-rollups.purge-interval:PT1H}")
+    public void purgeExpiredHours() {
+        Instant cutoff = StatsGranularity.HOUR.bucketStart(Instant.now().minus(properties.hourlyRetention()));
+        int deleted = statsRollupRepository.deleteHourlyBefore(cutoff);
+        if (deleted > 0) {
+            log.info("Purged {} hourly stats rows before {}", deleted, cutoff);
+        }
+    }
+}
@@ -1,18 +1,34 @@
 package daviscyl.tinyurlsvcjava.service;
 
+import daviscyl.tinyurlsvcjava.config.StatsRollupProperties;
+import daviscyl.tinyurlsvcjava.datasource.ReadYourWrites;
 import daviscyl.tinyurlsvcjava.entity.UrlEntity;
-import daviscyl.tinyurlsvcjava.entity.UrlStatsEntity;
+import daviscyl.tinyurlsvcjava.repository.StatsRollupRepository;
+import daviscyl.tinyurlsvcjava.repository.StatsRow;
 import daviscyl.tinyurlsvcjava.repository.UrlRepository;
 import daviscyl.tinyurlsvcjava.repository.UrlStatsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Answers stats queries from the coarsest stored tier that covers each part of the range, see
+ * {@link StatsRangePlanner}: a year of stats reads twelve monthly rows instead of 365 daily ones.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -20,34 +36,139 @@ public class StatsService {
 
     private final UrlRepository urlRepository;
     private final UrlStatsRepository urlStatsRepository;
+    private final StatsRollupRepository statsRollupRepository;
+    private final StatsRollupProperties rollupProperties;
+    private final ReadYourWrites readYourWrites;
+    private final MeterRegistry meterRegistry;
 
     @Transactional(readOnly = true)
     public StatsResult getUrlStats(String alias, String userId, OffsetDateTime startDate, OffsetDateTime endDate) {
-        UrlEntity url = urlRepository.findByAlias(alias)
-            .orElseThrow(() -> new IllegalArgumentException("URL not found: " + alias));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (ReadYourWrites.Scope scope = readYourWrites.forUser(userId)) {
+            return loadUrlStats(alias, userId, startDate, endDate);
+        } finally {
+            sample.stop(meterRegistry.timer("tinyurl.stats.get"));
+        }
+    }
 
-        if (!url.getUserId().equals(userId)) {
-            throw new SecurityException("User does not own this URL");
+    /**
+     * Identifies the current state of a url's stats for conditional requests and response caching. Stats of
+     * one range only change when the url's stats version does, or when the day (the hour, with the hourly
+     * tier) turns and a relative range or the hourly retention window moves.
+     */
+    @Transactional(readOnly = true)
+    public StatsVersion getStatsVersion(String alias, String userId) {
+        UrlEntity url;
+        try (ReadYourWrites.Scope scope = readYourWrites.forUser(userId)) {
+            url = findOwnedUrl(alias, userId);
+        }
+        long now = System.currentTimeMillis();
+        long planEpoch = rollupProperties.hourlyEnabled()
+            ? Math.floorDiv(now, 3_600_000L)
+            : Math.floorDiv(now, 86_400_000L);
+        return new StatsVersion(url.getId(), url.getStatsVersion() != null ? url.getStatsVersion() : 0L, planEpoch);
+    }
+
+    private StatsResult loadUrlStats(String alias, String userId, OffsetDateTime startDate, OffsetDateTime endDate) {
+        UrlEntity url = findOwnedUrl(alias, userId);
+
+        List<StatsRangePlanner.Bucket> plan = planRange(startDate, endDate);
+        Map<StatsGranularity, List<Instant>> bucketsByTier = new EnumMap<>(StatsGranularity.class);
+        for (StatsRangePlanner.Bucket bucket : plan) {
+            bucketsByTier.computeIfAbsent(bucket.granularity(), g -> new ArrayList<>()).add(bucket.start());
         }
 
-        LocalDate start = startDate != null ? startDate.toLocalDate() : LocalDate.now().minusDays(30);
-        LocalDate end = endDate != null ? endDate.toLocalDate() : LocalDate.now();
+        // Totals and the visitor union are computed in the same pass that builds the time series
+        List<StatsBucket> timeSeries = new ArrayList<>();
+        List<HyperLogLog> sketches = new ArrayList<>();
+        long periodRedirects = 0;
+        for (Map.Entry<StatsGranularity, List<Instant>> tier : bucketsByTier.entrySet()) {
+            for (StatsRow row : findRows(tier.getKey(), url.getId(), tier.getValue())) {
+                timeSeries.add(new StatsBucket(tier.getKey(), row.start(), row.redirectCount(), row.uniqueVisitors()));
+                periodRedirects += row.redirectCount();
+                if (row.visitorSketch() != null) {
+                    sketches.add(HyperLogLog.fromBytes(row.visitorSketch()));
+                }
+            }
+        }
+        timeSeries.sort(Comparator.comparing(StatsBucket::start));
 
-        List<UrlStatsEntity> dailyStats = urlStatsRepository.findByUrlIdAndStatDateBetween(url.getId(), start, end);
-        Long totalRedirects = urlStatsRepository.sumRedirectCountByUrlIdAndDateRange(url.getId(), start, end);
+        // Sketches are merged rather than summed, so a visitor seen in several buckets counts once
+        long uniqueVisitors = sketches.isEmpty() ? 0L : HyperLogLog.union(sketches).estimate();
 
         return new StatsResult(
             url.getRedirectCount(),
-            totalRedirects != null ? totalRedirects : 0L,
+            periodRedirects,
+            uniqueVisitors,
             url.getLastRedirectAt(),
-            dailyStats
+            timeSeries
         );
     }
 
+    /**
+     * Ranges are half-open, {@code [startDate, endDate)}, whatever the tiers that answer them; without bounds
+     * they cover the 30 whole UTC days before today and today. A bound within a day is kept to the hour where
+     * the hourly tier holds that day, and otherwise widened outwards to the whole day.
+     * <p>
+     * Weekly and monthly rows are rebuilt from the daily ones after the flush, see {@link StatsRollupJob}, so
+     * they are only read once the day after their bucket ended has passed; that also keeps the plan stable
+     * within the day of {@link StatsVersion#planEpoch()}.
+     */
+    private List<StatsRangePlanner.Bucket> planRange(OffsetDateTime startDate, OffsetDateTime endDate) {
+        Instant now = Instant.now();
+        Instant today = StatsGranularity.DAY.bucketStart(now);
+        Instant from = startDate != null ? startDate.toInstant() : today.minus(30, ChronoUnit.DAYS);
+        Instant to = endDate != null ? endDate.toInstant() : today.plus(1, ChronoUnit.DAYS);
+        Instant hourlyFrom = rollupProperties.hourlyEnabled()
+            ? StatsGranularity.HOUR.bucketStart(now.minus(rollupProperties.hourlyRetention()))
+            : null;
+        return StatsRangePlanner.plan(from, to, hourlyFrom, today.minus(1, ChronoUnit.DAYS));
+    }
+
+    private UrlEntity findOwnedUrl(String alias, String userId) {
+        UrlEntity url = urlRepository.findByAlias(alias)
+            .orElseThrow(() -> new IllegalArgumentException("URL not found: " + alias));
+
+        if (!url.getUserId().equals(userId)) {
+            throw new SecurityException("User does not own this URL");
+        }
+        return url;
+    }
+
+    private List<StatsRow> findRows(StatsGranularity granularity, long urlId, List<Instant> bucketStarts) {
+        if (granularity == StatsGranularity.DAY) {
+            return urlStatsRepository.findDailyRows(urlId, bucketStarts.stream()
+                .map(start -> LocalDate.ofInstant(start, ZoneOffset.UTC))
+                .toList());
+        }
+        return statsRollupRepository.findBuckets(granularity, urlId, bucketStarts);
+    }
+
     public record StatsResult(
         Long totalRedirectCount,
         Long periodRedirectCount,
+        Long periodUniqueVisitors,
         OffsetDateTime lastRedirectAt,
-        List<UrlStatsEntity> dailyStats
+        List<StatsBucket> timeSeries
+    ) {}
+
+    /**
+     * @param planEpoch the current UTC day, or hour when the hourly tier is enabled
+     */
+    public record StatsVersion(long urlId, long version, long planEpoch) {
+
+        public String tag() {
+            return "stats-" + urlId + "-" + version + "-" + planEpoch;
+        }
+    }
+
+    /**
+     * One stored bucket of the time series; only buckets with recorded redirects are returned.
+     */
+    public record StatsBucket(
+        StatsGranularity granularity,
+        Instant start,
+        long redirectCount,
+        long uniqueVisitors
     ) {}
 }
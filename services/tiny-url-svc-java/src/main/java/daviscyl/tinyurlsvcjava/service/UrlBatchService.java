@@ -0,0 +1,184 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.cache.AliasShield;
+import daviscyl.tinyurlsvcjava.config.BatchCreateProperties;
+import daviscyl.tinyurlsvcjava.datasource.ReadYourWrites;
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import daviscyl.tinyurlsvcjava.repository.UrlBatchRepository;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Creates many urls per request.
+ * <p>
+ * Custom aliases are checked with one query, generated aliases come from {@link AliasGenerator} in bulk, and
+ * rows are inserted as JDBC batches with one transaction per chunk, so a large request neither holds a
+ * single long transaction nor pays a round trip per url. Only custom aliases can be reported as taken: a
+ * generated alias that collides with a custom or imported alias is replaced within the chunk's transaction.
+ */
+@Service
+@Slf4j
+public class UrlBatchService {
+
+    private final UrlRepository urlRepository;
+    private final UrlBatchRepository urlBatchRepository;
+    private final AliasGenerator aliasGenerator;
+    private final AliasShield aliasShield;
+    private final ReadYourWrites readYourWrites;
+    private final BatchCreateProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public UrlBatchService(UrlRepository urlRepository,
+                           UrlBatchRepository urlBatchRepository,
+                           AliasGenerator aliasGenerator,
+                           AliasShield aliasShield,
+                           ReadYourWrites readYourWrites,
+                           BatchCreateProperties properties,
+                           PlatformTransactionManager transactionManager) {
+        this.urlRepository = urlRepository;
+        this.urlBatchRepository = urlBatchRepository;
+        this.aliasGenerator = aliasGenerator;
+        this.aliasShield = aliasShield;
+        this.readYourWrites = readYourWrites;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates the urls and returns one result per request, in request order. A request whose custom alias is
+     * taken, or used by an earlier request of the same batch, gets a result without url; requests without a
+     * custom alias are always created.
+     */
+    public List<BatchCreateResult> createUrls(List<NewUrl> requests, String userId) {
+        if (requests.size() > properties.maxItems()) {
+            throw new IllegalArgumentException("At most " + properties.maxItems() + " urls can be created at once");
+        }
+
+        UrlEntity[] urls = new UrlEntity[requests.size()];
+        Set<String> claimedAliases = new HashSet<>();
+        List<String> requestedAliases = requests.stream()
+            .map(NewUrl::customAlias)
+            .filter(Objects::nonNull)
+            .toList();
+        Set<String> takenAliases = requestedAliases.isEmpty()
+            ? Set.of()
+            : new HashSet<>(urlRepository.findExistingAliases(requestedAliases));
+
+        int generatedCount = 0;
+        for (NewUrl request : requests) {
+            if (request.customAlias() == null) {
+                generatedCount++;
+            }
+        }
+        Iterator<String> generatedAliases = aliasGenerator.nextAliases(generatedCount).iterator();
+
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < requests.size(); i++) {
+            NewUrl request = requests.get(i);
+            String alias = request.customAlias() != null ? request.customAlias() : generatedAliases.next();
+            if (request.customAlias() != null
+                && (takenAliases.contains(alias) || !claimedAliases.add(alias))) {
+                continue;
+            }
+            urls[i] = UrlEntity.builder()
+                .alias(alias)
+                .destinationUrl(request.destinationUrl())
+                .userId(userId)
+                .createdAt(now)
+                .updatedAt(now)
+                .expiresAt(request.expiresAt())
+                .isActive(true)
+                .redirectCount(0L)
+                .build();
+        }
+
+        insertInChunks(urls, requests);
+        readYourWrites.userWrote(userId);
+
+        List<BatchCreateResult> results = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            results.add(new BatchCreateResult(i, urls[i]));
+        }
+        return results;
+    }
+
+    private void insertInChunks(UrlEntity[] urls, List<NewUrl> requests) {
+        int chunkSize = properties.chunkSize();
+        for (int start = 0; start < urls.length; start += chunkSize) {
+            int end = Math.min(start + chunkSize, urls.length);
+            List<Integer> positions = new ArrayList<>(end - start);
+            List<UrlEntity> chunk = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                if (urls[i] != null) {
+                    positions.add(i);
+                    chunk.add(urls[i]);
+                }
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+
+            // Conflicting rows are skipped, not failed, so retries can run in the same transaction
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Integer> attemptPositions = positions;
+                List<UrlEntity> attempt = chunk;
+                for (int round = 1; !attempt.isEmpty(); round++) {
+                    boolean[] inserted = urlBatchRepository.insertIgnoringConflicts(attempt);
+                    List<Integer> retryPositions = new ArrayList<>();
+                    List<UrlEntity> retry = new ArrayList<>();
+                    for (int i = 0; i < inserted.length; i++) {
+                        UrlEntity url = attempt.get(i);
+                        int position = attemptPositions.get(i);
+                        if (inserted[i]) {
+                            aliasShield.aliasCreated(url.getAlias());
+                            readYourWrites.aliasWritten(url.getAlias());
+                        } else if (requests.get(position).customAlias() != null) {
+                            // Taken between the existence check and the insert
+                            urls[position] = null;
+                        } else if (round < AliasGenerator.MAX_ATTEMPTS) {
+                            retryPositions.add(position);
+                            retry.add(url);
+                        } else {
+                            throw new IllegalStateException("No free alias after " + round + " generated aliases");
+                        }
+                    }
+
+                    if (!retry.isEmpty()) {
+                        log.warn("{} generated aliases of a batch were already taken, retrying with others", retry.size());
+                        Iterator<String> fresh = aliasGenerator.nextAliases(retry.size()).iterator();
+                        retry.forEach(url -> url.setAlias(fresh.next()));
+                    }
+                    attemptPositions = retryPositions;
+                    attempt = retry;
+                }
+            });
+        }
+
+        long created = Arrays.stream(urls).filter(Objects::nonNull).count();
+        log.debug("Batch created {} of {} urls", created, urls.length);
+    }
+
+    public record NewUrl(String destinationUrl, String customAlias, OffsetDateTime expiresAt) {}
+
+    /**
+     * Outcome of one request of a batch; {@code url} is {@code null} when its alias was not available.
+     */
+    public record BatchCreateResult(int index, UrlEntity url) {
+
+        public boolean created() {
+            return url != null;
+        }
+    }
+}
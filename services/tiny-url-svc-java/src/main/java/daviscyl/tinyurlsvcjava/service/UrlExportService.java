@@ -0,0 +1,108 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.concurrency.BulkheadFullException;
+import daviscyl.tinyurlsvcjava.config.UrlExportProperties;
+import daviscyl.tinyurlsvcjava.datasource.ReadYourWrites;
+import daviscyl.tinyurlsvcjava.repository.UrlExportRow;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Streams all urls of a user to a {@link RowWriter}, in one read-only transaction over a forward-only cursor.
+ * <p>
+ * Rows go to the writer as the cursor yields them and are never collected, so memory stays flat whatever the
+ * number of urls. A slow client blocks the writer and with it the cursor. Because every export holds a
+ * connection for as long as its client takes, a node runs a bounded number of them at once.
+ */
+@Service
+public class UrlExportService {
+
+    private final UrlRepository urlRepository;
+    private final ReadYourWrites readYourWrites;
+    private final UrlExportProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore exportSlots;
+
+    public UrlExportService(UrlRepository urlRepository,
+                            ReadYourWrites readYourWrites,
+                            UrlExportProperties properties,
+                            PlatformTransactionManager transactionManager) {
+        this.urlRepository = urlRepository;
+        this.readYourWrites = readYourWrites;
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.exportSlots = new Semaphore(properties.maxConcurrentExports());
+    }
+
+    /**
+     * Writes the user's urls, newest first, optionally with their {@code url_stats} totals.
+     *
+     * @return the number of rows written
+     * @throws BulkheadFullException when the node already runs its maximum of exports; the writer has not been
+     *                               started then
+     * @throws IOException           when writing fails, typically because the client went away
+     */
+    public long export(String userId, boolean includeStats, RowWriter writer) throws IOException {
+        if (!exportSlots.tryAcquire()) {
+            throw new BulkheadFullException("All export slots are taken", properties.retryAfter());
+        }
+        try {
+            writer.begin(includeStats);
+            Long rows;
+            try (ReadYourWrites.Scope scope = readYourWrites.forUser(userId)) {
+                rows = readOnlyTransaction.execute(status -> writeRows(userId, includeStats, writer));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+            return rows != null ? rows : 0;
+        } finally {
+            exportSlots.release();
+        }
+    }
+
+    private long writeRows(String userId, boolean includeStats, RowWriter writer) {
+        long written = 0;
+        try (Stream<UrlExportRow> rows = includeStats
+            ? urlRepository.streamExportRowsWithStats(userId)
+            : urlRepository.streamExportRows(userId)) {
+            Iterator<UrlExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                if (++written % properties.flushEveryRows() == 0) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    /**
+     * Receives the rows of one export, in the format of the caller's choice.
+     */
+    public interface RowWriter {
+
+        /**
+         * Called once the export is admitted and before the first row, e.g. to send headers.
+         */
+        void begin(boolean includeStats) throws IOException;
+
+        void write(UrlExportRow row) throws IOException;
+
+        /**
+         * Pushes buffered rows to the client.
+         */
+        void flush() throws IOException;
+    }
+}
@@ -0,0 +1,287 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the records of a url import one line at a time and validates them with the rules of the API's
+ * {@code CreateUrlRequest}.
+ * <p>
+ * NDJSON lines are objects, CSV files start with a header naming their columns; CSV fields may be quoted but
+ * cannot span lines. Fields are {@code longUrl}, {@code customAlias}, {@code expiresAt}, plus {@code userId}
+ * (the owner, defaulting to the import's user) and {@code createdAt} to keep the creation time of a migrated
+ * link. Lines are numbered from 1, header included, and blank lines are skipped, so a line number is a
+ * stable position to resume from.
+ */
+public final class UrlImportReader implements Closeable {
+
+    private static final Pattern ALIAS = Pattern.compile("^[a-zA-Z0-9_-]{4,64}$");
+    private static final int MAX_USER_ID_LENGTH = 255;
+    private static final Set<String> FIELDS = Set.of("longUrl", "customAlias", "expiresAt", "userId", "createdAt");
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final String defaultUserId;
+    private final List<String> columns;
+
+    private long lineNumber;
+
+    /**
+     * @throws IllegalArgumentException when a CSV header is missing, lacks {@code longUrl} or names an
+     *                                  unknown column
+     */
+    public UrlImportReader(BufferedReader reader, Format format, String defaultUserId) throws IOException {
+        this.reader = reader;
+        this.format = format;
+        this.defaultUserId = defaultUserId;
+        this.columns = format == Format.CSV ? readHeader() : List.of();
+    }
+
+    /**
+     * Number of the last line read.
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Skips the input up to and including line {@code line}, e.g. the lines an earlier run committed.
+     *
+     * @throws IllegalStateException when the input ends before that line
+     */
+    public void skipThrough(long line) throws IOException {
+        while (lineNumber < line) {
+            if (reader.readLine() == null) {
+                throw new IllegalStateException("Input has " + lineNumber + " lines, fewer than the " + line
+                    + " already imported");
+            }
+            lineNumber++;
+        }
+    }
+
+    /**
+     * @return the next non-blank line as a record or a reject, or {@code null} at the end of the input
+     */
+    public ImportLine next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!line.isBlank()) {
+                return parse(line);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private List<String> readHeader() throws IOException {
+        String header = reader.readLine();
+        lineNumber++;
+        if (header == null) {
+            throw new IllegalArgumentException("CSV input has no header");
+        }
+        List<String> names = splitCsv(header.strip());
+        if (names == null) {
+            throw new IllegalArgumentException("CSV header has an unterminated quoted field");
+        }
+        for (String name : names) {
+            if (!FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown CSV column: " + name);
+            }
+        }
+        if (!names.contains("longUrl")) {
+            throw new IllegalArgumentException("CSV header has no longUrl column");
+        }
+        return names;
+    }
+
+    private ImportLine parse(String line) {
+        Map<String, String> fields = new HashMap<>();
+        String error = format == Format.NDJSON ? readJson(line, fields) : readCsv(line, fields);
+        if (error != null) {
+            return ImportLine.reject(lineNumber, error);
+        }
+        return validate(lineNumber, fields, defaultUserId);
+    }
+
+    private static String readJson(String line, Map<String, String> fields) {
+        JsonNode node;
+        try {
+            node = JSON.readTree(line);
+        } catch (JsonProcessingException e) {
+            return "Not valid JSON";
+        }
+        if (node == null || !node.isObject()) {
+            return "Not a JSON object";
+        }
+        Iterator<Map.Entry<String, JsonNode>> entries = node.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            if (!FIELDS.contains(entry.getKey())) {
+                return "Unknown field: " + entry.getKey();
+            }
+            JsonNode value = entry.getValue();
+            if (value.isNull()) {
+                continue;
+            }
+            if (!value.isTextual()) {
+                return entry.getKey() + " must be a string";
+            }
+            fields.put(entry.getKey(), value.asText());
+        }
+        return null;
+    }
+
+    private String readCsv(String line, Map<String, String> fields) {
+        List<String> values = splitCsv(line);
+        if (values == null) {
+            return "Unterminated quoted field";
+        }
+        if (values.size() != columns.size()) {
+            return "Expected " + columns.size() + " fields, found " + values.size();
+        }
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).isEmpty()) {
+                fields.put(columns.get(i), values.get(i));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Splits one RFC 4180 line; {@code ""} inside a quoted field is a quote.
+     *
+     * @return the fields, or {@code null} when a quoted field is not terminated
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    static ImportLine validate(long lineNumber, Map<String, String> fields, String defaultUserId) {
+        String longUrl = fields.get("longUrl");
+        if (longUrl == null) {
+            return ImportLine.reject(lineNumber, "longUrl is required");
+        }
+        try {
+            if (!new URI(longUrl).isAbsolute()) {
+                return ImportLine.reject(lineNumber, "longUrl must be an absolute URI");
+            }
+        } catch (URISyntaxException e) {
+            return ImportLine.reject(lineNumber, "longUrl is not a valid URI");
+        }
+
+        String customAlias = fields.get("customAlias");
+        if (customAlias != null && !ALIAS.matcher(customAlias).matches()) {
+            return ImportLine.reject(lineNumber, "customAlias must match " + ALIAS.pattern());
+        }
+
+        String userId = fields.getOrDefault("userId", defaultUserId);
+        if (userId == null || userId.isBlank()) {
+            return ImportLine.reject(lineNumber, "userId is required");
+        }
+        if (userId.length() > MAX_USER_ID_LENGTH) {
+            return ImportLine.reject(lineNumber, "userId is longer than " + MAX_USER_ID_LENGTH + " characters");
+        }
+
+        OffsetDateTime expiresAt;
+        OffsetDateTime createdAt;
+        try {
+            expiresAt = dateTime(fields.get("expiresAt"));
+            createdAt = dateTime(fields.get("createdAt"));
+        } catch (DateTimeParseException e) {
+            return ImportLine.reject(lineNumber, "expiresAt and createdAt must be ISO-8601 date-times with offset");
+        }
+        if (expiresAt != null && expiresAt.isBefore(OffsetDateTime.now())) {
+            return ImportLine.reject(lineNumber, "expiresAt is in the past");
+        }
+
+        return new ImportLine(lineNumber, new ImportRecord(longUrl, customAlias, expiresAt, userId, createdAt), null);
+    }
+
+    private static OffsetDateTime dateTime(String value) {
+        return value != null ? OffsetDateTime.parse(value) : null;
+    }
+
+    public enum Format {
+
+        NDJSON, CSV;
+
+        /**
+         * Format of a file by its extension: {@code .csv} is CSV, anything else NDJSON.
+         */
+        public static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    /**
+     * A valid record to import; {@code customAlias} is {@code null} for a generated alias and
+     * {@code createdAt} for the time of the import.
+     */
+    public record ImportRecord(String longUrl, String customAlias, OffsetDateTime expiresAt, String userId,
+                               OffsetDateTime createdAt) {}
+
+    /**
+     * One input line: either a {@code record} or the {@code rejectReason} why it cannot be imported.
+     */
+    public record ImportLine(long lineNumber, ImportRecord record, String rejectReason) {
+
+        static ImportLine reject(long lineNumber, String reason) {
+            return new ImportLine(lineNumber, null, reason);
+        }
+
+        public boolean rejected() {
+            return record == null;
+        }
+    }
+}
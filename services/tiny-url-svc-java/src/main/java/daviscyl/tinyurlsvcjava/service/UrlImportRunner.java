@@ -0,0 +1,60 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.UrlImportProperties;
+import daviscyl.tinyurlsvcjava.repository.ImportJobRepository.ImportJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports {@code tiny-url.import.file} at startup, e.g.
+ * {@code java -jar app.jar --spring.main.web-application-type=none --tiny-url.import.file=links.ndjson
+ * --tiny-url.import.user-id=legacy}. Running the same command again after an interruption resumes the import.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tiny-url.import", name = "file")
+@RequiredArgsConstructor
+@Slf4j
+public class UrlImportRunner implements ApplicationRunner {
+
+    private final UrlImporter urlImporter;
+    private final UrlImportProperties properties;
+    private final ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path file = properties.file();
+        UrlImportReader.Format format = properties.format() != null ? properties.format() : UrlImportReader.Format.of(file);
+        String jobId = properties.jobId() != null && !properties.jobId().isBlank()
+            ? properties.jobId()
+            : file.getFileName().toString();
+
+        int exitCode = 0;
+        try (UrlImportReader reader = new UrlImportReader(
+            Files.newBufferedReader(file, StandardCharsets.UTF_8), format, properties.userId())) {
+            ImportJob job = urlImporter.run(jobId, file.toAbsolutePath().toString(), reader);
+            log.info("Import {} of {}: {} urls imported, {} conflicts, {} rejected (see import_rejects)",
+                jobId, file, job.imported(), job.conflicts(), job.rejected());
+        } catch (Exception e) {
+            if (!properties.exitWhenDone()) {
+                throw e;
+            }
+            log.error("Import {} of {} failed; run it again to resume after the last committed line", jobId, file, e);
+            exitCode = 1;
+        }
+
+        if (properties.exitWhenDone()) {
+            int status = exitCode;
+            System.exit(SpringApplication.exit(applicationContext, () -> status));
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.cache.AliasShield;
+import daviscyl.tinyurlsvcjava.config.UrlImportProperties;
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import daviscyl.tinyurlsvcjava.repository.ImportJobRepository;
+import daviscyl.tinyurlsvcjava.repository.ImportJobRepository.ImportJob;
+import daviscyl.tinyurlsvcjava.repository.ImportJobRepository.Reject;
+import daviscyl.tinyurlsvcjava.repository.UrlBatchRepository;
+import daviscyl.tinyurlsvcjava.service.UrlImportReader.ImportLine;
+import daviscyl.tinyurlsvcjava.service.UrlImportReader.ImportRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports existing short links from a {@link UrlImportReader} in batches.
+ * <p>
+ * The calling thread parses and validates lines while a writer thread inserts the previous batches; a bounded
+ * queue between them stops parsing when the database falls behind. Each batch is one JDBC batch with
+ * {@code ON CONFLICT (alias) DO NOTHING}, committed together with the job's line position, its counters and
+ * its rejected lines. An interrupted import therefore resumes after its last committed batch, without
+ * importing or reporting any line twice.
+ */
+@Service
+@Slf4j
+public class UrlImporter {
+
+    private static final String ALIAS_TAKEN = "customAlias is already taken";
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final UrlBatchRepository urlBatchRepository;
+    private final ImportJobRepository importJobRepository;
+    private final AliasGenerator aliasGenerator;
+    private final AliasShield aliasShield;
+    private final UrlImportProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter importedRecords;
+    private final Counter conflictingRecords;
+    private final Counter rejectedRecords;
+
+    public UrlImporter(UrlBatchRepository urlBatchRepository,
+                       ImportJobRepository importJobRepository,
+                       AliasGenerator aliasGenerator,
+                       AliasShield aliasShield,
+                       UrlImportProperties properties,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.urlBatchRepository = urlBatchRepository;
+        this.importJobRepository = importJobRepository;
+        this.aliasGenerator = aliasGenerator;
+        this.aliasShield = aliasShield;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importedRecords = recordCounter(meterRegistry, "imported");
+        this.conflictingRecords = recordCounter(meterRegistry, "conflict");
+        this.rejectedRecords = recordCounter(meterRegistry, "rejected");
+    }
+
+    /**
+     * Runs or resumes the import job {@code jobId}; a job that already completed is not run again.
+     *
+     * @return the job with the counters of all its runs
+     * @throws IllegalStateException when a batch could not be written; batches before it stay committed
+     */
+    public ImportJob run(String jobId, String source, UrlImportReader reader) throws IOException, InterruptedException {
+        ImportJob job = importJobRepository.start(jobId, source);
+        if (job.status() == ImportJob.Status.COMPLETED) {
+            log.info("Import {} already completed with {} urls imported", jobId, job.imported());
+            return job;
+        }
+        if (job.linesDone() > 0) {
+            log.info("Resuming import {} after line {}", jobId, job.linesDone());
+            reader.skipThrough(job.linesDone());
+        }
+
+        BatchWriter writer = new BatchWriter(job);
+        Thread writerThread = Thread.ofPlatform().name("url-import-writer").start(writer);
+        boolean parsed = false;
+        try {
+            Batch batch = new Batch();
+            ImportLine line;
+            // Stops early once the writer failed; nothing after its last commit is kept anyway
+            while (writer.failure == null && (line = reader.next()) != null) {
+                batch.lines.add(line);
+                if (batch.lines.size() >= properties.batchSize()) {
+                    batch.lastLine = reader.lineNumber();
+                    writer.submit(batch, writerThread);
+                    batch = new Batch();
+                }
+            }
+            // Also moves the position past trailing blank lines
+            batch.lastLine = reader.lineNumber();
+            writer.submit(batch, writerThread);
+            parsed = true;
+        } finally {
+            writer.submit(Batch.END, writerThread);
+            writerThread.join();
+            if (!parsed || writer.failure != null) {
+                importJobRepository.finish(jobId, source, ImportJob.Status.FAILED);
+            }
+        }
+
+        if (writer.failure != null) {
+            throw new IllegalStateException("Import " + jobId + " failed after line " + writer.position,
+                writer.failure);
+        }
+        importJobRepository.finish(jobId, source, ImportJob.Status.COMPLETED);
+        writer.report(true);
+        return importJobRepository.find(jobId);
+    }
+
+    private static Counter recordCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("tinyurl.import.records")
+            .description("Records of bulk url imports, by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Input lines of one transaction, up to and including {@code lastLine}.
+     */
+    private static final class Batch {
+
+        private static final Batch END = new Batch();
+
+        private final List<ImportLine> lines = new ArrayList<>();
+        private long lastLine;
+    }
+
+    private final class BatchWriter implements Runnable {
+
+        private final String jobId;
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+        private final long startNanos = System.nanoTime();
+        private final long startLine;
+
+        private volatile Throwable failure;
+        private volatile long position;
+        private long imported;
+        private long conflicts;
+        private long rejected;
+        private long lastReportNanos = startNanos;
+
+        private BatchWriter(ImportJob job) {
+            this.jobId = job.jobId();
+            this.position = job.linesDone();
+            this.startLine = job.linesDone();
+        }
+
+        /**
+         * Hands a batch to the writer, waiting while the queue is full. Gives up once the writer stopped.
+         */
+        private void submit(Batch batch, Thread writerThread) throws InterruptedException {
+            while (!queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!writerThread.isAlive()) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Batch batch;
+                while ((batch = queue.take()) != Batch.END) {
+                    if (failure != null) {
+                        // Keeps draining so that the parser is never left blocked on a full queue
+                        continue;
+                    }
+                    try {
+                        write(batch);
+                        report(false);
+                    } catch (RuntimeException | Error e) {
+                        failure = e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                failure = e;
+            }
+        }
+
+        private void write(Batch batch) {
+            List<Reject> rejects = new ArrayList<>();
+            List<ImportLine> valid = new ArrayList<>(batch.lines.size());
+            int generatedCount = 0;
+            for (ImportLine line : batch.lines) {
+                if (line.rejected()) {
+                    rejects.add(new Reject(line.lineNumber(), line.rejectReason()));
+                } else {
+                    valid.add(line);
+                    if (line.record().customAlias() == null) {
+                        generatedCount++;
+                    }
+                }
+            }
+            int invalid = rejects.size();
+
+            Iterator<String> generatedAliases = aliasGenerator.nextAliases(generatedCount).iterator();
+            OffsetDateTime now = OffsetDateTime.now();
+            List<UrlEntity> urls = new ArrayList<>(valid.size());
+            for (ImportLine line : valid) {
+                ImportRecord record = line.record();
+                OffsetDateTime createdAt = record.createdAt() != null ? record.createdAt() : now;
+                urls.add(UrlEntity.builder()
+                    .alias(record.customAlias() != null ? record.customAlias() : generatedAliases.next())
+                    .destinationUrl(record.longUrl())
+                    .userId(record.userId())
+                    .createdAt(createdAt)
+                    .updatedAt(createdAt)
+                    .expiresAt(record.expiresAt())
+                    .isActive(true)
+                    .redirectCount(0L)
+                    .build());
+            }
+
+            long from = position;
+            int[] counts = new int[2];
+            transactionTemplate.executeWithoutResult(status -> {
+                // Skipped rows leave the transaction usable, so taken generated aliases are retried in it
+                List<Integer> attempt = new ArrayList<>(urls.size());
+                for (int i = 0; i < urls.size(); i++) {
+                    attempt.add(i);
+                }
+                for (int round = 1; !attempt.isEmpty(); round++) {
+                    boolean[] inserted = urlBatchRepository.insertIgnoringConflicts(
+                        attempt.stream().map(urls::get).toList());
+                    List<Integer> retry = new ArrayList<>();
+                    for (int i = 0; i < inserted.length; i++) {
+                        int index = attempt.get(i);
+                        if (inserted[i]) {
+                            aliasShield.aliasCreated(urls.get(index).getAlias());
+                            counts[0]++;
+                        } else if (valid.get(index).record().customAlias() != null) {
+                            rejects.add(new Reject(valid.get(index).lineNumber(), ALIAS_TAKEN));
+                            counts[1]++;
+                        } else if (round < AliasGenerator.MAX_ATTEMPTS) {
+                            retry.add(index);
+                        } else {
+                            throw new IllegalStateException("No free alias for line " + valid.get(index).lineNumber()
+                                + " after " + round + " generated aliases");
+                        }
+                    }
+
+                    Iterator<String> fresh = aliasGenerator.nextAliases(retry.size()).iterator();
+                    retry.forEach(index -> urls.get(index).setAlias(fresh.next()));
+                    attempt = retry;
+                }
+                importJobRepository.saveRejects(jobId, rejects);
+                importJobRepository.saveProgress(jobId, from, batch.lastLine, counts[0], counts[1], invalid);
+            });
+
+            position = batch.lastLine;
+            imported += counts[0];
+            conflicts += counts[1];
+            rejected += invalid;
+            importedRecords.increment(counts[0]);
+            conflictingRecords.increment(counts[1]);
+            rejectedRecords.increment(invalid);
+        }
+
+        private void report(boolean done) {
+            long now = System.nanoTime();
+            if (!done && now - lastReportNanos < properties.progressInterval().toNanos()) {
+                return;
+            }
+            lastReportNanos = now;
+            double seconds = Math.max(now - startNanos, 1) / 1e9;
+            log.info("Import {} {} line {}: {} imported, {} conflicts, {} rejected, {} lines/s",
+                jobId, done ? "completed at" : "at", position, imported, conflicts, rejected,
+                Math.round((position - startLine) / seconds));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.cache.HotAliasTracker;
+import daviscyl.tinyurlsvcjava.config.UrlReaperProperties;
+import daviscyl.tinyurlsvcjava.repository.UrlReaperRepository;
+import daviscyl.tinyurlsvcjava.repository.UrlReaperRepository.Reason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Removes urls that expired or were deactivated longer ago than their grace period, so that {@code urls}
+ * and its indexes stop growing with dead rows.
+ * <p>
+ * Each run removes bounded batches in short transactions, pauses between them, and gives up on the first
+ * lock timeout, leaving the remaining rows to the next run. Reaped aliases are evicted from the alias
+ * caches on all nodes. Generated aliases are never handed out again since they come from a sequence;
+ * a reaped custom alias can be claimed by a new url.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tiny-url.reaper", name = "enabled", havingValue = "true")
+@Slf4j
+public class UrlReaper {
+
+    private final UrlReaperRepository urlReaperRepository;
+    private final UrlReaperProperties properties;
+    private final CacheManager cacheManager;
+    private final HotAliasTracker hotAliasTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Reason, Counter> reapedUrls = new EnumMap<>(Reason.class);
+
+    public UrlReaper(UrlReaperRepository urlReaperRepository,
+                     UrlReaperProperties properties,
+                     CacheManager cacheManager,
+                     HotAliasTracker hotAliasTracker,
+                     PlatformTransactionManager transactionManager,
+                     MeterRegistry meterRegistry) {
+        this.urlReaperRepository = urlReaperRepository;
+        this.properties = properties;
+        this.cacheManager = cacheManager;
+        this.hotAliasTracker = hotAliasTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Reason reason : Reason.values()) {
+            reapedUrls.put(reason, Counter.builder("tinyurl.reaper.urls")
+                .description("Urls removed by the reaper, by reason and mode")
+                .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                .tag("mode", properties.mode().name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+        }
+    }
+
+    @Scheduled(
+        initialDelayString = "${tiny-url.reaper.interval:PT15M}",
+        fixedDelayString = "${tiny-url.reaper.interval:PT15M}")
+    public void reap() {
+        Instant now = Instant.now();
+        try {
+            int batches = reap(Reason.EXPIRED, now.minus(properties.expiredGracePeriod()), 0);
+            reap(Reason.INACTIVE, now.minus(properties.inactiveGracePeriod()), batches);
+        } catch (PessimisticLockingFailureException e) {
+            log.info("Reaper run stopped on a lock timeout; the remaining urls are left to the next run");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reaps batches of one reason until none is left or the run's batch budget is used up.
+     *
+     * @return batches run
+     */
+    private int reap(Reason reason, Instant cutoff, int batchesSoFar) throws InterruptedException {
+        int batches = 0;
+        long reaped = 0;
+        while (batchesSoFar + batches < properties.maxBatchesPerRun()) {
+            List<String> aliases = transactionTemplate.execute(status -> {
+                urlReaperRepository.setLockTimeout(properties.lockTimeout());
+                return properties.mode() == UrlReaperProperties.Mode.ARCHIVE
+                    ? urlReaperRepository.archive(reason, cutoff, properties.batchSize())
+                    : urlReaperRepository.delete(reason, cutoff, properties.batchSize());
+            });
+            batches++;
+            if (aliases == null || aliases.isEmpty()) {
+                break;
+            }
+
+            evict(aliases);
+            reaped += aliases.size();
+            reapedUrls.get(reason).increment(aliases.size());
+            if (aliases.size() < properties.batchSize()) {
+                break;
+            }
+            Thread.sleep(properties.pauseBetweenBatches());
+        }
+
+        if (reaped > 0) {
+            log.info("Reaper {} {} {} urls in {} batches", properties.mode() == UrlReaperProperties.Mode.ARCHIVE
+                ? "archived" : "deleted", reaped, reason.name().toLowerCase(Locale.ROOT), batches);
+        }
+        return batches;
+    }
+
+    private void evict(List<String> aliases) {
+        Cache cache = cacheManager.getCache(RedirectService.URL_CACHE);
+        for (String alias : aliases) {
+            // Evictions of the two-tier cache reach the other nodes, whose hot-alias pins follow them
+            if (cache != null) {
+                cache.evict(alias);
+            }
+            hotAliasTracker.aliasChanged(alias);
+        }
+    }
+}
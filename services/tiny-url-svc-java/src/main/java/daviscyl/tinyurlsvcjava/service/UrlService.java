@@ -1,61 +1,193 @@
 package daviscyl.tinyurlsvcjava.service;
 
+import daviscyl.tinyurlsvcjava.cache.AliasShield;
+import daviscyl.tinyurlsvcjava.cache.HotAliasTracker;
+import daviscyl.tinyurlsvcjava.datasource.ReadYourWrites;
 import daviscyl.tinyurlsvcjava.entity.UrlEntity;
 import daviscyl.tinyurlsvcjava.repository.UrlRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.Random;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UrlService {
 
     private final UrlRepository urlRepository;
-    private static final String ALIAS_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-    private static final int DEFAULT_ALIAS_LENGTH = 7;
-    private static final Random RANDOM = new Random();
+    private final AliasShield aliasShield;
+    private final HotAliasTracker hotAliasTracker;
+    private final AliasGenerator aliasGenerator;
+    private final ReadYourWrites readYourWrites;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    public UrlService(UrlRepository urlRepository,
+                      AliasShield aliasShield,
+                      HotAliasTracker hotAliasTracker,
+                      AliasGenerator aliasGenerator,
+                      ReadYourWrites readYourWrites,
+                      MeterRegistry meterRegistry,
+                      PlatformTransactionManager transactionManager) {
+        this.urlRepository = urlRepository;
+        this.aliasShield = aliasShield;
+        this.hotAliasTracker = hotAliasTracker;
+        this.aliasGenerator = aliasGenerator;
+        this.readYourWrites = readYourWrites;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
-    @Transactional
+    /**
+     * Creates a url under the custom alias, or under a generated one when none is given. A taken custom alias
+     * is rejected; a generated alias that is taken, by a custom or imported alias of the same shape, is
+     * replaced by a fresh one up to {@link AliasGenerator#MAX_ATTEMPTS} times.
+     * <p>
+     * Each attempt runs in its own transaction, since PostgreSQL cannot continue one after a failed insert.
+     */
+    @CacheEvict(value = "url-cache", key = "#customAlias", condition = "#customAlias != null")
     public UrlEntity createUrl(String destinationUrl, String customAlias, OffsetDateTime expiresAt, String userId) {
-        String alias = customAlias != null ? customAlias : generateUniqueAlias();
-
-        if (urlRepository.existsByAlias(alias)) {
-            throw new IllegalArgumentException("Alias already exists: " + alias);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String aliasSource = customAlias != null ? "custom" : "generated";
+        for (int attempt = 1; ; attempt++) {
+            String alias = customAlias != null ? customAlias : aliasGenerator.nextAlias();
+            UrlEntity url = UrlEntity.builder()
+                .alias(alias)
+                .destinationUrl(destinationUrl)
+                .userId(userId)
+                .expiresAt(expiresAt)
+                .isActive(true)
+                .redirectCount(0L)
+                .build();
+
+            try {
+                UrlEntity saved = transactionTemplate.execute(status -> {
+                    UrlEntity inserted = urlRepository.save(url);
+                    aliasShield.aliasCreated(alias);
+                    readYourWrites.userWrote(userId);
+                    readYourWrites.aliasWritten(alias);
+                    return inserted;
+                });
+                sample.stop(createTimer(aliasSource, "created"));
+                return saved;
+            } catch (DataIntegrityViolationException e) {
+                // Only the unique alias is a conflict; any other violated constraint is a genuine error
+                if (!urlRepository.existsByAlias(alias)) {
+                    sample.stop(createTimer(aliasSource, "error"));
+                    throw e;
+                }
+                if (customAlias != null) {
+                    sample.stop(createTimer(aliasSource, "conflict"));
+                    throw new IllegalArgumentException("Alias already exists: " + alias, e);
+                }
+                if (attempt == AliasGenerator.MAX_ATTEMPTS) {
+                    sample.stop(createTimer(aliasSource, "conflict"));
+                    throw new IllegalStateException("No free alias after " + attempt + " generated aliases", e);
+                }
+                log.warn("Generated alias {} is already taken, retrying with another one", alias);
+            }
         }
-
-        UrlEntity url = UrlEntity.builder()
-            .alias(alias)
-            .destinationUrl(destinationUrl)
-            .userId(userId)
-            .expiresAt(expiresAt)
-            .isActive(true)
-            .redirectCount(0L)
-            .build();
-
-        return urlRepository.save(url);
     }
 
     @Transactional(readOnly = true)
     public Optional<UrlEntity> findByAlias(String alias) {
-        return urlRepository.findByAlias(alias);
+        try (ReadYourWrites.Scope scope = readYourWrites.forAlias(alias)) {
+            return urlRepository.findByAlias(alias);
+        }
     }
 
+    /**
+     * Lists a user's urls, newest first. With a cursor the page is read by seeking past the cursor position;
+     * otherwise by offset. Totals are only counted when asked for.
+     */
     @Transactional(readOnly = true)
-    public Page<UrlEntity> listUrls(String userId, String search, Pageable pageable) {
-        if (search != null && !search.isBlank()) {
-            return urlRepository.findByUserIdWithSearch(userId, search, pageable);
+    public UrlPage listUrls(String userId, String search, int page, int pageSize, String cursor, boolean includeTotal) {
+        try (ReadYourWrites.Scope scope = readYourWrites.forUser(userId)) {
+            return findPage(userId, search, page, pageSize, cursor, includeTotal);
         }
-        return urlRepository.findByUserId(userId, pageable);
     }
 
+    private UrlPage findPage(String userId, String search, int page, int pageSize, String cursor, boolean includeTotal) {
+        String pattern = search != null && !search.isBlank() ? likePattern(search) : null;
+
+        if (cursor != null) {
+            ListCursor after = ListCursor.decode(cursor);
+            // One extra row tells whether another page follows
+            Limit limit = Limit.of(pageSize + 1);
+            List<UrlEntity> urls = pattern != null
+                ? urlRepository.findPageAfterWithSearch(userId, after.createdAtUtc(), after.id(), pattern, limit)
+                : urlRepository.findPageAfter(userId, after.createdAtUtc(), after.id(), limit);
+
+            boolean hasNext = urls.size() > pageSize;
+            List<UrlEntity> content = hasNext ? urls.subList(0, pageSize) : urls;
+            Long total = !includeTotal ? null
+                : pattern != null ? urlRepository.countByUserIdWithSearch(userId, pattern)
+                : urlRepository.countByUserId(userId);
+            return new UrlPage(content, null, total, hasNext ? nextCursor(content) : null);
+        }
+
+        Pageable pageable = PageRequest.of(page, pageSize,
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+        Slice<UrlEntity> slice;
+        Long total = null;
+        if (includeTotal) {
+            Page<UrlEntity> result = pattern != null
+                ? urlRepository.findByUserIdWithSearch(userId, pattern, pageable)
+                : urlRepository.findByUserId(userId, pageable);
+            total = result.getTotalElements();
+            slice = result;
+        } else {
+            slice = pattern != null
+                ? urlRepository.findSliceByUserIdWithSearch(userId, pattern, pageable)
+                : urlRepository.findSliceByUserId(userId, pageable);
+        }
+
+        return new UrlPage(
+            slice.getContent(),
+            slice.hasNext() ? page + 1 : null,
+            total,
+            slice.hasNext() ? nextCursor(slice.getContent()) : null
+        );
+    }
+
+    private Timer createTimer(String aliasSource, String outcome) {
+        return Timer.builder("tinyurl.urls.create")
+            .description("Url creation, by alias source and outcome")
+            .tag("alias", aliasSource)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static String nextCursor(List<UrlEntity> content) {
+        UrlEntity last = content.get(content.size() - 1);
+        return ListCursor.after(last.getCreatedAt(), last.getId()).encode();
+    }
+
+    private static String likePattern(String search) {
+        String escaped = search.toLowerCase(Locale.ROOT)
+            .replace("!", "!!")
+            .replace("%", "!%")
+            .replace("_", "!_");
+        return "%" + escaped + "%";
+    }
+
+    @CacheEvict(value = "url-cache", key = "#alias")
     @Transactional
     public UrlEntity updateUrl(String alias, String userId, String newDestinationUrl, OffsetDateTime newExpiresAt) {
         UrlEntity url = urlRepository.findByAlias(alias)
@@ -73,9 +205,14 @@ public class UrlService {
             url.setExpiresAt(newExpiresAt);
         }
 
+        aliasShield.aliasChanged(alias);
+        hotAliasTracker.aliasChanged(alias);
+        readYourWrites.userWrote(userId);
+        readYourWrites.aliasWritten(alias);
         return urlRepository.save(url);
     }
 
+    @CacheEvict(value = "url-cache", key = "#alias")
     @Transactional
     public void deleteUrl(String alias, String userId) {
         UrlEntity url = urlRepository.findByAlias(alias)
@@ -90,27 +227,15 @@ public class UrlService {
         }
 
         url.setIsActive(false);
+        hotAliasTracker.aliasChanged(alias);
+        readYourWrites.userWrote(userId);
+        readYourWrites.aliasWritten(alias);
         urlRepository.save(url);
     }
 
-    private String generateUniqueAlias() {
-        String alias;
-        int attempts = 0;
-        do {
-            alias = generateRandomAlias();
-            attempts++;
-            if (attempts > 10) {
-                throw new RuntimeException("Unable to generate unique alias after 10 attempts");
-            }
-        } while (urlRepository.existsByAlias(alias));
-        return alias;
-    }
-
-    private String generateRandomAlias() {
-        StringBuilder sb = new StringBuilder(DEFAULT_ALIAS_LENGTH);
-        for (int i = 0; i < DEFAULT_ALIAS_LENGTH; i++) {
-            sb.append(ALIAS_CHARACTERS.charAt(RANDOM.nextInt(ALIAS_CHARACTERS.length())));
-        }
-        return sb.toString();
-    }
+    /**
+     * One page of a listing. {@code nextPage} is only set in offset mode and {@code totalItems} only when
+     * totals were requested.
+     */
+    public record UrlPage(List<UrlEntity> content, Integer nextPage, Long totalItems, String nextCursor) {}
 }
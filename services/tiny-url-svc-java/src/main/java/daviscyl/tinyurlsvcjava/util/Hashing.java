@@ -0,0 +1,34 @@
+package daviscyl.tinyurlsvcjava.util;
+
+/**
+ * Fast non-cryptographic hashing shared by the probabilistic data structures.
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * FNV-1a over UTF-16 code units followed by the MurmurHash3 finalizer for better avalanche.
+     */
+    public static long hash64(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return fmix64(h);
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer.
+     */
+    public static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
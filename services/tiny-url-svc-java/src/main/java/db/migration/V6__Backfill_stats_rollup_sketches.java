@@ -0,0 +1,105 @@
+package db.migration;
+
+import daviscyl.tinyurlsvcjava.service.HyperLogLog;
+import daviscyl.tinyurlsvcjava.service.StatsGranularity;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Merges the visitor sketches of existing daily rows into the weekly and monthly rollups created by V5.
+ * Sketches are binary HyperLogLog registers, so the union cannot be expressed in SQL.
+ */
+public class V6__Backfill_stats_rollup_sketches extends BaseJavaMigration {
+
+    private static final String SELECT_DAILY_SKETCHES =
+        "SELECT url_id, stat_date, visitor_sketch FROM url_stats " +
+        "WHERE visitor_sketch IS NOT NULL ORDER BY url_id, stat_date";
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Rollup weekly = new Rollup(connection, "url_stats_weekly", "week_start", StatsGranularity.WEEK);
+             Rollup monthly = new Rollup(connection, "url_stats_monthly", "month_start", StatsGranularity.MONTH);
+             PreparedStatement select = connection.prepareStatement(SELECT_DAILY_SKETCHES)) {
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    long urlId = rs.getLong("url_id");
+                    LocalDate statDate = rs.getDate("stat_date").toLocalDate();
+                    HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("visitor_sketch"));
+                    weekly.add(urlId, statDate, sketch);
+                    monthly.add(urlId, statDate, sketch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accumulates the sketches of one bucket at a time; rows arrive ordered by url and day, so a bucket is
+     * complete as soon as a row of another bucket shows up.
+     */
+    private static final class Rollup implements AutoCloseable {
+
+        private final PreparedStatement update;
+        private final StatsGranularity granularity;
+        private long urlId = -1;
+        private LocalDate bucketStart;
+        private HyperLogLog sketch;
+        private int pending;
+
+        Rollup(Connection connection, String table, String bucketColumn, StatsGranularity granularity) throws SQLException {
+            this.update = connection.prepareStatement(
+                "UPDATE " + table + " SET visitor_sketch = ?, unique_visitors = ? WHERE url_id = ? AND " + bucketColumn + " = ?");
+            this.granularity = granularity;
+        }
+
+        void add(long rowUrlId, LocalDate statDate, HyperLogLog rowSketch) throws SQLException {
+            LocalDate rowBucket = granularity.bucketStart(statDate);
+            if (rowUrlId == urlId && rowBucket.equals(bucketStart)) {
+                sketch = HyperLogLog.union(List.of(sketch, rowSketch));
+                return;
+            }
+            writeBucket();
+            urlId = rowUrlId;
+            bucketStart = rowBucket;
+            sketch = rowSketch;
+        }
+
+        private void writeBucket() throws SQLException {
+            if (sketch == null) {
+                return;
+            }
+            update.setBytes(1, sketch.toBytes());
+            update.setLong(2, sketch.estimate());
+            update.setLong(3, urlId);
+            update.setDate(4, Date.valueOf(bucketStart));
+            update.addBatch();
+            if (++pending == BATCH_SIZE) {
+                update.executeBatch();
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                writeBucket();
+                if (pending > 0) {
+                    update.executeBatch();
+                }
+            } finally {
+                update.close();
+            }
+        }
+    }
+}
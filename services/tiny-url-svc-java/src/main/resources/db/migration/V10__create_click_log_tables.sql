@@ -0,0 +1,18 @@
+-- Per-day click counts by dimension, folded out of the node-local click logs next to url_stats.
+-- Dimensions: 'referrer' (referrer host, '' for direct visits) and 'agent' (user-agent class).
+CREATE TABLE url_stats_dimensions (
+    url_id BIGINT NOT NULL REFERENCES urls(id) ON DELETE CASCADE,
+    stat_date DATE NOT NULL,
+    dimension VARCHAR(16) NOT NULL,
+    dimension_value VARCHAR(64) NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (url_id, stat_date, dimension, dimension_value)
+);
+
+-- Position up to which each node's click log has been applied; written in the same transaction as the counts
+CREATE TABLE click_log_checkpoints (
+    node_id VARCHAR(255) PRIMARY KEY,
+    segment BIGINT NOT NULL,
+    position INTEGER NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,21 @@
+-- Bulk imports of existing short links. Each batch of urls commits together with its job's line position,
+-- so an interrupted import resumes right after the last committed line.
+CREATE TABLE import_jobs (
+    job_id VARCHAR(255) PRIMARY KEY,
+    source TEXT NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    lines_done BIGINT NOT NULL DEFAULT 0,
+    imported BIGINT NOT NULL DEFAULT 0,
+    conflicts BIGINT NOT NULL DEFAULT 0,
+    rejected BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Lines that were not imported: invalid records, and records whose alias was already taken
+CREATE TABLE import_rejects (
+    job_id VARCHAR(255) NOT NULL REFERENCES import_jobs(job_id) ON DELETE CASCADE,
+    line_number BIGINT NOT NULL,
+    reason TEXT NOT NULL,
+    PRIMARY KEY (job_id, line_number)
+);
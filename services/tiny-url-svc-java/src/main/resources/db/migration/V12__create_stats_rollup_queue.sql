@@ -0,0 +1,9 @@
+-- Days whose daily rows changed since the weekly and monthly rollups were last rebuilt from them. The counter
+-- flush queues each day it writes in the same transaction as its counts, and StatsRollupJob takes queued days,
+-- rebuilds their weeks and months from url_stats and removes them, so the flush no longer rewrites the
+-- weekly and monthly sketches itself.
+CREATE TABLE url_stats_rollup_queue (
+    url_id BIGINT NOT NULL REFERENCES urls(id) ON DELETE CASCADE,
+    stat_date DATE NOT NULL,
+    PRIMARY KEY (url_id, stat_date)
+);
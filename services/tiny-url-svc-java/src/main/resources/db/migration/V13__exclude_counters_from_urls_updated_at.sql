@@ -0,0 +1,8 @@
+-- updated_at of urls records changes of the url itself, not redirect counter flushes, so that the reaper can
+-- rely on it as the time an inactive url was deactivated. The trigger only fires for updates that set one of
+-- the url's own columns; counter-only updates also no longer change an indexed column and can be HOT updates.
+DROP TRIGGER update_urls_updated_at ON urls;
+
+CREATE TRIGGER update_urls_updated_at
+    BEFORE UPDATE OF alias, destination_url, user_id, expires_at, is_active ON urls
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
@@ -0,0 +1,3 @@
+-- Sequence of id blocks reserved by the alias generator; each value reserves
+-- tiny-url.alias-generator.block-size consecutive ids for one node
+CREATE SEQUENCE url_alias_block_seq START WITH 1 INCREMENT BY 1;
@@ -0,0 +1,2 @@
+-- Per-day HyperLogLog sketch of the visitors of a url; unique_visitors holds its estimate
+ALTER TABLE url_stats ADD COLUMN visitor_sketch BYTEA;
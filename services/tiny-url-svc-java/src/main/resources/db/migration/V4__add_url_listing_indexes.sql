@@ -0,0 +1,10 @@
+-- Keyset pagination of a user's urls seeks on (created_at, id) within one user
+CREATE INDEX idx_urls_user_created_id ON urls (user_id, created_at DESC, id DESC);
+
+-- Covered by the leading column of idx_urls_user_created_id
+DROP INDEX IF EXISTS idx_urls_user_id;
+
+-- Trigram indexes serve case-insensitive substring search (LIKE '%term%') on alias and destination url
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_urls_alias_trgm ON urls USING GIN (lower(alias) gin_trgm_ops);
+CREATE INDEX idx_urls_destination_url_trgm ON urls USING GIN (lower(destination_url) gin_trgm_ops);
@@ -0,0 +1,44 @@
+-- Pre-aggregated redirect stats, maintained by the counter flush next to the daily rows in url_stats.
+-- Each row keeps the merged HyperLogLog sketch of its bucket, so unique visitors can be combined across tiers.
+
+-- Optional tier for recent partial days; rows older than the configured retention are purged
+CREATE TABLE url_stats_hourly (
+    url_id BIGINT NOT NULL REFERENCES urls(id) ON DELETE CASCADE,
+    stat_hour TIMESTAMP NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    unique_visitors BIGINT NOT NULL DEFAULT 0,
+    visitor_sketch BYTEA,
+    PRIMARY KEY (url_id, stat_hour)
+);
+
+CREATE INDEX idx_url_stats_hourly_stat_hour ON url_stats_hourly (stat_hour);
+
+-- ISO weeks, starting on Monday
+CREATE TABLE url_stats_weekly (
+    url_id BIGINT NOT NULL REFERENCES urls(id) ON DELETE CASCADE,
+    week_start DATE NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    unique_visitors BIGINT NOT NULL DEFAULT 0,
+    visitor_sketch BYTEA,
+    PRIMARY KEY (url_id, week_start)
+);
+
+CREATE TABLE url_stats_monthly (
+    url_id BIGINT NOT NULL REFERENCES urls(id) ON DELETE CASCADE,
+    month_start DATE NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    unique_visitors BIGINT NOT NULL DEFAULT 0,
+    visitor_sketch BYTEA,
+    PRIMARY KEY (url_id, month_start)
+);
+
+-- Counts of existing daily rows; their sketches are merged into these rows by the V6 Java migration
+INSERT INTO url_stats_weekly (url_id, week_start, redirect_count)
+SELECT url_id, date_trunc('week', stat_date)::date, SUM(redirect_count)
+FROM url_stats
+GROUP BY url_id, date_trunc('week', stat_date)::date;
+
+INSERT INTO url_stats_monthly (url_id, month_start, redirect_count)
+SELECT url_id, date_trunc('month', stat_date)::date, SUM(redirect_count)
+FROM url_stats
+GROUP BY url_id, date_trunc('month', stat_date)::date;
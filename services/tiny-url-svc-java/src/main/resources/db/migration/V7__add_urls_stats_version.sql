@@ -0,0 +1,2 @@
+-- Bumped by every redirect counter flush that touches the url; stats ETags and cached stats are keyed by it
+ALTER TABLE urls ADD COLUMN stats_version BIGINT NOT NULL DEFAULT 0;
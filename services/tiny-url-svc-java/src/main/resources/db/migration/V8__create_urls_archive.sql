@@ -0,0 +1,21 @@
+-- Compact cold storage for urls removed by the reaper in archive mode. Stats rows are not archived; the
+-- totals kept here are what remains of a reaped url.
+CREATE TABLE urls_archive (
+    id BIGINT PRIMARY KEY,
+    alias VARCHAR(255) NOT NULL,
+    destination_url TEXT NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP,
+    deactivated_at TIMESTAMP,
+    redirect_count BIGINT NOT NULL,
+    last_redirect_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Custom aliases can be taken again once reaped, so several archived rows may share one alias
+CREATE INDEX idx_urls_archive_alias ON urls_archive (alias);
+CREATE INDEX idx_urls_archive_user_id ON urls_archive (user_id);
+
+-- Deactivation sets is_active and bumps updated_at; the reaper finds long-inactive rows by that time
+CREATE INDEX idx_urls_inactive_updated_at ON urls (updated_at) WHERE is_active = FALSE;
@@ -0,0 +1,51 @@
+-- url_stats becomes range-partitioned by month of stat_date, so old months can be detached or dropped
+-- instead of deleted row by row. Needs PostgreSQL 13 or later for row triggers on partitioned tables.
+-- Unique constraints of a partitioned table must contain the partition key, hence the (id, stat_date) key.
+
+ALTER TABLE url_stats RENAME TO url_stats_unpartitioned;
+ALTER TABLE url_stats_unpartitioned RENAME CONSTRAINT url_stats_pkey TO url_stats_unpartitioned_pkey;
+ALTER TABLE url_stats_unpartitioned RENAME CONSTRAINT uk_url_stats_url_date TO uk_url_stats_unpartitioned_url_date;
+
+CREATE TABLE url_stats (
+    id BIGINT NOT NULL DEFAULT nextval('url_stats_id_seq'),
+    url_id BIGINT NOT NULL REFERENCES urls(id) ON DELETE CASCADE,
+    stat_date DATE NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    unique_visitors BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    visitor_sketch BYTEA,
+    CONSTRAINT url_stats_pkey PRIMARY KEY (id, stat_date),
+    -- Also serves the (url_id, stat_date) lookups the dropped idx_url_stats_url_id_date was for
+    CONSTRAINT uk_url_stats_url_date UNIQUE (url_id, stat_date)
+) PARTITION BY RANGE (stat_date);
+
+ALTER SEQUENCE url_stats_id_seq OWNED BY url_stats.id;
+
+-- Catches days without a partition; the maintenance job moves them into the partition it creates
+CREATE TABLE url_stats_default PARTITION OF url_stats DEFAULT;
+
+-- One partition per month from the oldest stored day to three months ahead (tiny-url.stats-partitions.months-ahead)
+DO $$
+DECLARE
+    partition_month DATE := date_trunc('month',
+        COALESCE((SELECT MIN(stat_date) FROM url_stats_unpartitioned), CURRENT_DATE));
+    last_month DATE := date_trunc('month', CURRENT_DATE) + INTERVAL '3 months';
+BEGIN
+    WHILE partition_month <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF url_stats FOR VALUES FROM (%L) TO (%L)',
+            'url_stats_p' || to_char(partition_month, 'YYYYMM'),
+            partition_month,
+            (partition_month + INTERVAL '1 month')::date);
+        partition_month := (partition_month + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO url_stats (id, url_id, stat_date, redirect_count, unique_visitors, created_at, updated_at, visitor_sketch)
+SELECT id, url_id, stat_date, redirect_count, unique_visitors, created_at, updated_at, visitor_sketch
+FROM url_stats_unpartitioned;
+
+DROP TABLE url_stats_unpartitioned;
+
+CREATE TRIGGER update_url_stats_updated_at BEFORE UPDATE ON url_stats
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
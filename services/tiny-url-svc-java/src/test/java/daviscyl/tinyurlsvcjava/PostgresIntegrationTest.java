@@ -0,0 +1,27 @@
+package daviscyl.tinyurlsvcjava;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base of tests that need PostgreSQL itself, for SQL that H2 cannot run ({@code ON CONFLICT},
+ * {@code RETURNING}, partitions, advisory locks). Skipped where Docker is not available.
+ * <p>
+ * The container is started once per JVM and shared by all subclasses, so their cached application
+ * context keeps pointing at a running database.
+ */
+@SpringBootTest
+@ActiveProfiles("postgres")
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:17-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+}
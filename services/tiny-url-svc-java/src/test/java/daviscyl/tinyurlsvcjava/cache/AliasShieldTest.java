@@ -0,0 +1,45 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Syncs only when the test asks for one
+@SpringBootTest(properties = "tiny-url.alias-shield.delta-sync-interval=PT1H")
+@ActiveProfiles("test")
+class AliasShieldTest {
+
+    @Autowired
+    private AliasShield aliasShield;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Test
+    void deltaSyncAddsAliasesWhoseCreationWasNeverBroadcast() {
+        aliasShield.rebuild();
+        aliasShield.syncRecentAliases();
+
+        // Saved directly, as if the broadcast of another node's insert had been lost
+        for (int i = 0; i < 3; i++) {
+            urlRepository.save(UrlEntity.builder()
+                .alias("unsynced" + i)
+                .destinationUrl("https://example.com/unsynced")
+                .userId("alias-shield")
+                .build());
+        }
+        assertThat(aliasShield.isKnownMissing("unsynced0")).isTrue();
+
+        aliasShield.syncRecentAliases();
+
+        assertThat(aliasShield.isKnownMissing("unsynced0")).isFalse();
+        assertThat(aliasShield.isKnownMissing("unsynced1")).isFalse();
+        assertThat(aliasShield.isKnownMissing("unsynced2")).isFalse();
+        assertThat(aliasShield.isKnownMissing("neverCreated")).isTrue();
+    }
+}
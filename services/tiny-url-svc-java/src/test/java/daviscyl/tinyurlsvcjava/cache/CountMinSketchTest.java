@@ -0,0 +1,47 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTest {
+
+    @Test
+    void neverUndercountsAndStaysWithinTheErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(1000, 4);
+        assertThat(sketch.width()).isEqualTo(1024);
+
+        long total = 0;
+        for (int alias = 0; alias < 5_000; alias++) {
+            // A few heavy aliases on top of a long tail of single redirects
+            int count = alias < 5 ? 2_000 : 1;
+            for (int i = 0; i < count; i++) {
+                sketch.add("alias" + alias);
+            }
+            total += count;
+        }
+
+        // Each estimate exceeds the bound with probability e^-depth, under 2% here
+        long bound = (long) Math.ceil(Math.E / sketch.width() * total);
+        int beyondBound = 0;
+        for (int alias = 0; alias < 5_000; alias++) {
+            long actual = alias < 5 ? 2_000 : 1;
+            long estimate = sketch.estimate("alias" + alias);
+            assertThat(estimate).isGreaterThanOrEqualTo(actual);
+            if (estimate > actual + bound) {
+                beyondBound++;
+            }
+        }
+        assertThat(beyondBound).isLessThan(100);
+    }
+
+    @Test
+    void addReturnsTheUpdatedEstimate() {
+        CountMinSketch sketch = new CountMinSketch(64, 3);
+
+        assertThat(sketch.add("viral")).isEqualTo(1);
+        assertThat(sketch.add("viral")).isEqualTo(2);
+        assertThat(sketch.estimate("viral")).isEqualTo(2);
+        assertThat(sketch.estimate("unseen")).isZero();
+    }
+}
@@ -0,0 +1,39 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiryAwareTtlFunctionTest {
+
+    private final ExpiryAwareTtlFunction ttlFunction = new ExpiryAwareTtlFunction(Duration.ofHours(1));
+
+    @Test
+    void usesMaximumForUrlsWithoutNearExpiry() {
+        ResolvedUrl permanent = new ResolvedUrl(1L, "https://example.com/", null);
+        ResolvedUrl distant = new ResolvedUrl(1L, "https://example.com/", Instant.now().plus(Duration.ofDays(1)));
+
+        assertThat(ttlFunction.getTimeToLive("alias", permanent)).isEqualTo(Duration.ofHours(1));
+        assertThat(ttlFunction.getTimeToLive("alias", distant)).isEqualTo(Duration.ofHours(1));
+    }
+
+    @Test
+    void expiresEntriesWithTheUrl() {
+        ResolvedUrl soon = new ResolvedUrl(1L, "https://example.com/", Instant.now().plus(Duration.ofMinutes(5)));
+
+        assertThat(ttlFunction.getTimeToLive("alias", soon))
+            .isLessThanOrEqualTo(Duration.ofMinutes(5))
+            .isGreaterThan(Duration.ofMinutes(4));
+    }
+
+    @Test
+    void neverReturnsAPersistentTtl() {
+        ResolvedUrl expired = new ResolvedUrl(1L, "https://example.com/", Instant.now().minusSeconds(1));
+
+        assertThat(ttlFunction.getTimeToLive("alias", expired)).isPositive();
+    }
+}
@@ -0,0 +1,136 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.config.HotAliasProperties;
+import daviscyl.tinyurlsvcjava.config.TwoTierCacheProperties;
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotAliasTrackerTest {
+
+    @Test
+    void pinsOnlyAliasesAboveTheRateAfterTheWindow() {
+        HotAliasTracker tracker = tracker(1, 2);
+        ResolvedUrl viral = url(1);
+        hit(tracker, "viral", viral, 10_000);
+        hit(tracker, "popular", url(2), 5_000);
+        hit(tracker, "steady", url(3), 1_000);
+        hit(tracker, "quiet", url(4), 1);
+
+        assertThat(tracker.pinned("viral")).isNull();
+        tracker.rotate();
+
+        assertThat(tracker.pinned("viral")).isSameAs(viral);
+        assertThat(tracker.pinned("popular")).isNotNull();
+        // Above the rate, but beyond the pin limit
+        assertThat(tracker.pinned("steady")).isNull();
+        assertThat(tracker.report().topAliases())
+            .extracting(HotAliasTracker.HotAlias::alias)
+            .startsWith("viral", "popular", "steady");
+    }
+
+    @Test
+    void unpinsAliasesThatCooledDown() {
+        HotAliasTracker tracker = tracker(1, 4);
+        hit(tracker, "fading", url(1), 1_000);
+        tracker.rotate();
+        assertThat(tracker.pinned("fading")).isNotNull();
+
+        tracker.rotate();
+
+        assertThat(tracker.pinned("fading")).isNull();
+        assertThat(tracker.report().pinnedAliases()).isZero();
+    }
+
+    @Test
+    void changedAliasesArePinnedAgainWithTheReloadedUrl() {
+        HotAliasTracker tracker = tracker(1, 4);
+        hit(tracker, "moved", url(1), 1_000);
+        tracker.rotate();
+
+        tracker.aliasChanged("moved");
+        assertThat(tracker.pinned("moved")).isNull();
+
+        ResolvedUrl reloaded = new ResolvedUrl(1L, "https://example.com/new", null);
+        hit(tracker, "moved", reloaded, 1_000);
+        tracker.rotate();
+        assertThat(tracker.pinned("moved")).isSameAs(reloaded);
+    }
+
+    @Test
+    void dropsPinsOfExpiredUrls() throws InterruptedException {
+        HotAliasTracker tracker = tracker(1, 4);
+        hit(tracker, "expiring", new ResolvedUrl(1L, "https://example.com/", Instant.now().plusMillis(50)), 1_000);
+        tracker.rotate();
+        assertThat(tracker.pinned("expiring")).isNotNull();
+
+        Thread.sleep(100);
+
+        assertThat(tracker.pinned("expiring")).isNull();
+    }
+
+    @Test
+    void resolveRacingWithAChangeDoesNotPinTheOldUrl() {
+        HotAliasTracker tracker = tracker(1, 4);
+        // Read before the resolve, which returns the url from before the change
+        long generation = tracker.generation("raced");
+        tracker.aliasChanged("raced");
+        for (int i = 0; i < 1_000; i++) {
+            tracker.recordHit("raced", url(1), generation);
+        }
+
+        tracker.rotate();
+
+        assertThat(tracker.pinned("raced")).isNull();
+    }
+
+    @Test
+    void pinsAreNotKeptAliveByTheirOwnHitsBeyondTheLocalCacheTtl() throws InterruptedException {
+        HotAliasTracker tracker = tracker(1, 4, Duration.ofMillis(200));
+        hit(tracker, "aging", url(1), 1_000);
+        tracker.rotate();
+        assertThat(tracker.pinned("aging")).isNotNull();
+
+        // Served from the pin, so no newer url is offered
+        for (int i = 0; i < 1_000; i++) {
+            tracker.recordPinnedHit("aging");
+        }
+        tracker.rotate();
+        assertThat(tracker.pinned("aging")).isNotNull();
+
+        Thread.sleep(300);
+        assertThat(tracker.pinned("aging")).isNull();
+
+        ResolvedUrl reloaded = new ResolvedUrl(1L, "https://example.com/reloaded", null);
+        hit(tracker, "aging", reloaded, 1_000);
+        tracker.rotate();
+        assertThat(tracker.pinned("aging")).isSameAs(reloaded);
+    }
+
+    private static HotAliasTracker tracker(double pinRate, int maxPinned) {
+        return tracker(pinRate, maxPinned, Duration.ofSeconds(60));
+    }
+
+    private static HotAliasTracker tracker(double pinRate, int maxPinned, Duration localTimeToLive) {
+        return new HotAliasTracker(
+            new HotAliasProperties(true, Duration.ofSeconds(10), pinRate, maxPinned, 8, 1024, 4),
+            new TwoTierCacheProperties(10_000, localTimeToLive, "test", Duration.ofHours(1), Duration.ofSeconds(2),
+                Duration.ZERO),
+            null);
+    }
+
+    private static void hit(HotAliasTracker tracker, String alias, ResolvedUrl url, int times) {
+        long generation = tracker.generation(alias);
+        for (int i = 0; i < times; i++) {
+            tracker.recordHit(alias, url, generation);
+        }
+    }
+
+    private static ResolvedUrl url(long id) {
+        return new ResolvedUrl(id, "https://example.com/" + id, null);
+    }
+}
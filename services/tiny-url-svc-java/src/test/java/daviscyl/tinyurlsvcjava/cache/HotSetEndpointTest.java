@@ -0,0 +1,51 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class HotSetEndpointTest {
+
+    @Autowired
+    private HotSetEndpoint hotSetEndpoint;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Test
+    void ranksActiveUrlsByRedirectsThenRecencyWithoutL1() {
+        OffsetDateTime now = OffsetDateTime.now();
+        save("hotTop", 9_000_000L, now.minusDays(1), true, null);
+        save("hotRecent", 8_000_000L, now, true, null);
+        save("hotOlder", 8_000_000L, now.minusDays(2), true, null);
+        save("hotInactive", 9_500_000L, now, false, null);
+        save("hotExpired", 9_500_000L, now, true, now.minusMinutes(1));
+
+        HotSetEndpoint.HotSet hotSet = hotSetEndpoint.hotSet(3);
+
+        assertThat(hotSet.source()).isEqualTo(HotSetEndpoint.Source.DATABASE);
+        assertThat(hotSet.aliases()).containsExactly("hotTop", "hotRecent", "hotOlder");
+    }
+
+    private void save(String alias, long redirects, OffsetDateTime lastRedirectAt, boolean active,
+                      OffsetDateTime expiresAt) {
+        urlRepository.save(UrlEntity.builder()
+            .alias(alias)
+            .destinationUrl("https://example.com/" + alias)
+            .userId("hot-set")
+            .isActive(active)
+            .expiresAt(expiresAt)
+            .redirectCount(redirects)
+            .lastRedirectAt(lastRedirectAt)
+            .build());
+    }
+}
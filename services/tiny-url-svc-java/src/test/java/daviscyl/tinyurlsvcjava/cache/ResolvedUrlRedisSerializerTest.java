@@ -0,0 +1,52 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResolvedUrlRedisSerializerTest {
+
+    private static final String DESTINATION = "https://example.com/campaigns/spring/landing-page?utm_source=newsletter";
+
+    private final ResolvedUrlRedisSerializer serializer = new ResolvedUrlRedisSerializer();
+
+    @Test
+    void roundTripsUrlsWithAndWithoutExpiry() {
+        ResolvedUrl expiring = new ResolvedUrl(123_456_789L, "https://example.com/a?b=c",
+            Instant.parse("2030-01-01T00:00:00.123Z"));
+        ResolvedUrl permanent = new ResolvedUrl(1L, "https://example.com/", null);
+
+        assertThat(serializer.deserialize(serializer.serialize(expiring))).isEqualTo(expiring);
+        assertThat(serializer.deserialize(serializer.serialize(permanent))).isEqualTo(permanent);
+    }
+
+    @Test
+    void storesLittleMoreThanTheDestination() {
+        byte[] bytes = serializer.serialize(new ResolvedUrl(42L, DESTINATION, Instant.parse("2030-01-01T00:00:00Z")));
+
+        assertThat(bytes.length).isLessThanOrEqualTo(DESTINATION.length() + 8);
+    }
+
+    @Test
+    void isLessThanHalfTheSizeOfTheJsonFormat() {
+        ResolvedUrl value = new ResolvedUrl(42L, DESTINATION, Instant.parse("2030-01-01T00:00:00Z"));
+        // The previous url-cache format, as set up in CachedValueSerializationBenchmark
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer()
+            .configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+
+        assertThat(serializer.serialize(value).length).isLessThan(json.serialize(value).length / 2);
+    }
+
+    @Test
+    void readsJsonEntriesAsMisses() {
+        byte[] json = "{\"@class\":\"daviscyl.tinyurlsvcjava.service.ResolvedUrl\",\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(serializer.deserialize(json)).isNull();
+    }
+}
@@ -0,0 +1,250 @@
+package daviscyl.tinyurlsvcjava.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TwoTierCacheTest {
+
+    private ConcurrentMapCache redis;
+    private TwoTierCache nodeA;
+    private TwoTierCache nodeB;
+
+    @BeforeEach
+    void setUp() {
+        redis = new ConcurrentMapCache("url-cache");
+        FakeBroker broker = new FakeBroker();
+        nodeA = node(broker);
+        nodeB = node(broker);
+    }
+
+    @Test
+    void readsPopulateLocalTierFromShared() {
+        nodeA.put("abc1234", "https://example.com");
+
+        assertThat(nodeB.get("abc1234", String.class)).isEqualTo("https://example.com");
+        assertThat(nodeB.get("abc1234", String.class)).isEqualTo("https://example.com");
+
+        assertThat(nodeB.sharedStats().hits()).isEqualTo(1);
+        assertThat(nodeB.localStats().hits()).isEqualTo(1);
+        assertThat(nodeB.localStats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void evictRemovesEntryFromBothTiersOnAllNodes() {
+        nodeA.put("abc1234", "https://example.com");
+        nodeB.get("abc1234");
+
+        nodeA.evict("abc1234");
+
+        assertThat(redis.get("abc1234")).isNull();
+        assertThat(nodeA.get("abc1234")).isNull();
+        assertThat(nodeB.get("abc1234")).isNull();
+    }
+
+    @Test
+    void clearDropsLocalEntriesOnOtherNodes() {
+        nodeA.put("abc1234", "https://example.com");
+        nodeB.get("abc1234");
+
+        nodeA.clear();
+
+        assertThat(nodeB.get("abc1234")).isNull();
+    }
+
+    @Test
+    void valueLoaderIsOnlyCalledOnMiss() {
+        List<String> loads = new ArrayList<>();
+
+        nodeA.get("abc1234", () -> {
+            loads.add("abc1234");
+            return "https://example.com";
+        });
+        String value = nodeB.get("abc1234", () -> {
+            loads.add("abc1234");
+            return "https://other.example.com";
+        });
+
+        assertThat(value).isEqualTo("https://example.com");
+        assertThat(loads).hasSize(1);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        int callers = 32;
+        AtomicInteger queries = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(callers);
+
+        List<String> values = burst(callers, () -> {
+            start.await();
+            return nodeA.get("abc1234", () -> {
+                queries.incrementAndGet();
+                // Long enough for the rest of the burst to pile up behind this load
+                Thread.sleep(200);
+                return "https://example.com";
+            });
+        });
+
+        assertThat(values).hasSize(callers).containsOnly("https://example.com");
+        assertThat(queries).hasValue(1);
+        assertThat(nodeA.loadsInFlight()).isZero();
+    }
+
+    @Test
+    void failedLoadFailsEveryWaiterAndIsNotCached() throws Exception {
+        int callers = 8;
+        AtomicInteger queries = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(callers);
+
+        List<String> failures = burst(callers, () -> {
+            start.await();
+            try {
+                nodeA.get("abc1234", () -> {
+                    queries.incrementAndGet();
+                    Thread.sleep(200);
+                    throw new IllegalStateException("database unavailable");
+                });
+                return "loaded";
+            } catch (Cache.ValueRetrievalException e) {
+                return e.getCause().getMessage();
+            }
+        });
+
+        assertThat(failures).hasSize(callers).containsOnly("database unavailable");
+        assertThat(queries.get()).isLessThan(callers);
+        assertThat(nodeA.get("abc1234", () -> "https://example.com")).isEqualTo("https://example.com");
+    }
+
+    @Test
+    void waitersGiveUpAfterTheLoadTimeout() throws Exception {
+        TwoTierCache cache = node(new FakeBroker(), Caffeine.newBuilder().maximumSize(100).build(),
+            Duration.ofMillis(50), Duration.ZERO);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = executor.submit(() -> cache.get("abc1234", () -> {
+                loading.countDown();
+                release.await();
+                return "https://example.com";
+            }));
+            loading.await();
+
+            assertThatThrownBy(() -> cache.get("abc1234", () -> "https://other.example.com"))
+                .isInstanceOf(Cache.ValueRetrievalException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+
+            release.countDown();
+            assertThat(leader.get()).isEqualTo("https://example.com");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void hitsCloseToExpiryRefreshInTheBackground() throws Exception {
+        AtomicLong nanos = new AtomicLong();
+        TwoTierCache cache = node(new FakeBroker(),
+            Caffeine.newBuilder().maximumSize(100).expireAfterWrite(Duration.ofSeconds(60)).ticker(nanos::get).build(),
+            Duration.ofSeconds(1), Duration.ofSeconds(10));
+        cache.put("abc1234", "https://example.com");
+
+        nanos.addAndGet(Duration.ofSeconds(45).toNanos());
+        assertThat(cache.get("abc1234", () -> "https://new.example.com")).isEqualTo("https://example.com");
+        assertThat(cache.loadsInFlight()).isZero();
+
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        // The entry due for refresh is still served while the reload runs
+        assertThat(cache.get("abc1234", () -> "https://new.example.com")).isEqualTo("https://example.com");
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (cache.loadsInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertThat(redis.get("abc1234", String.class)).isEqualTo("https://new.example.com");
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThat(cache.get("abc1234", String.class)).isEqualTo("https://new.example.com");
+    }
+
+    private static List<String> burst(int callers, Callable<String> caller) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(caller));
+            }
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TwoTierCache node(FakeBroker broker) {
+        return node(broker, Caffeine.newBuilder().maximumSize(100).build(), Duration.ofSeconds(5), Duration.ZERO);
+    }
+
+    private TwoTierCache node(FakeBroker broker,
+                              com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                              Duration loadTimeout,
+                              Duration refreshAhead) {
+        TwoTierCache cache = new TwoTierCache(
+            "url-cache",
+            local,
+            redis,
+            broker,
+            true,
+            loadTimeout,
+            refreshAhead
+        );
+        broker.subscribe(invalidation -> {
+            if (invalidation.isClear()) {
+                cache.clearLocal();
+            } else {
+                cache.evictLocal(invalidation.key());
+            }
+        });
+        return cache;
+    }
+
+    /**
+     * Delivers every invalidation synchronously to all subscribers, standing in for Redis pub/sub.
+     */
+    private static class FakeBroker implements CacheInvalidationBus {
+
+        private final List<Consumer<CacheInvalidation>> listeners = new ArrayList<>();
+
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+            listeners.forEach(listener -> listener.accept(invalidation));
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+            listeners.add(listener);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package daviscyl.tinyurlsvcjava.clicklog;
+
+import daviscyl.tinyurlsvcjava.config.ClickLogProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentAppendsRollOverSegmentsWithoutLosingClicks() throws Exception {
+        ClickLog clickLog = open(16);
+        int threads = 8;
+        int clicksPerThread = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long urlId = t;
+            executor.execute(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < clicksPerThread; i++) {
+                    assertThat(clickLog.append(click(urlId, i))).isTrue();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        List<ClickRecord> clicks = readAll(clickLog);
+        Set<String> distinct = new HashSet<>();
+        clicks.forEach(click -> distinct.add(click.urlId() + "/" + click.timestampMillis()));
+        assertThat(clicks).hasSize(threads * clicksPerThread);
+        assertThat(distinct).hasSize(threads * clicksPerThread);
+        assertThat(clickLog.segments()).hasSizeGreaterThanOrEqualTo(threads * clicksPerThread / 16);
+    }
+
+    @Test
+    void readsOfTheActiveSegmentStopAtItsPublishedTail() {
+        ClickLog clickLog = open(16);
+        clickLog.append(click(1, 1));
+        clickLog.append(click(1, 2));
+        ClickLogSegment active = clickLog.segments().get(0);
+
+        List<ClickRecord> read = new ArrayList<>();
+        int position = active.read(0, 100, read::add);
+        assertThat(position).isEqualTo(2);
+        assertThat(active.isComplete()).isFalse();
+
+        clickLog.append(click(1, 3));
+        assertThat(active.read(position, 100, read::add)).isEqualTo(3);
+        assertThat(read).extracting(ClickRecord::timestampMillis).containsExactly(1L, 2L, 3L);
+        assertThat(read.get(0).referrerHost()).isEqualTo("news.example.com");
+        assertThat(read.get(0).agent()).isEqualTo(UserAgentClass.MOBILE);
+    }
+
+    @Test
+    void segmentsOfAnEarlierRunAreRecoveredAndNeverWrittenAgain() {
+        ClickLog first = open(16);
+        for (int i = 0; i < 5; i++) {
+            first.append(click(7, i));
+        }
+        first.close();
+
+        ClickLog second = open(16);
+        second.append(click(7, 100));
+
+        List<ClickLogSegment> segments = second.segments();
+        assertThat(segments).hasSize(2);
+        assertThat(segments.get(0).isComplete()).isTrue();
+        assertThat(segments.get(1).sequence()).isGreaterThan(segments.get(0).sequence());
+        assertThat(readAll(second)).extracting(ClickRecord::timestampMillis).containsExactly(0L, 1L, 2L, 3L, 4L, 100L);
+    }
+
+    private ClickLog open(int recordsPerSegment) {
+        ClickLog clickLog = new ClickLog(new ClickLogProperties(true, directory, "test",
+            DataSize.ofBytes((long) recordsPerSegment * ClickLogSegment.RECORD_SIZE), ClickLogProperties.Fsync.NONE,
+            Duration.ofSeconds(1), Duration.ofSeconds(5), 1000, Duration.ofHours(1)));
+        try {
+            clickLog.open();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return clickLog;
+    }
+
+    private static List<ClickRecord> readAll(ClickLog clickLog) {
+        List<ClickRecord> clicks = new ArrayList<>();
+        for (ClickLogSegment segment : clickLog.segments()) {
+            segment.read(0, Integer.MAX_VALUE, clicks::add);
+        }
+        return clicks;
+    }
+
+    private static ClickRecord click(long urlId, long timestampMillis) {
+        return new ClickRecord(timestampMillis, urlId, 31 * urlId + timestampMillis,
+            UserAgentClass.of("Mozilla/5.0 (Linux; Android 14) Mobile"),
+            ClickRecord.referrerHost("https://www.news.example.com/item?id=1"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadDataSourceTest {
+
+    private final BulkheadDataSource dataSource = new BulkheadDataSource(
+        new DriverManagerDataSource("jdbc:h2:mem:bulkhead", "sa", ""), 2, Duration.ofMillis(50), Duration.ofSeconds(3));
+
+    @Test
+    void rejectsConnectionsBeyondTheLimit() throws Exception {
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            assertThat(dataSource.availablePermits()).isZero();
+
+            assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(BulkheadFullException.class)
+                .extracting(e -> ((BulkheadFullException) e).getRetryAfter())
+                .isEqualTo(Duration.ofSeconds(3));
+        }
+
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void releasesThePermitOnlyOnce() throws Exception {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+        assertThat(connection.isWrapperFor(Connection.class)).isTrue();
+    }
+}
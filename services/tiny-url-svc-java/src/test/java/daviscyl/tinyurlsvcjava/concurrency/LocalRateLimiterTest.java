@@ -0,0 +1,74 @@
+package daviscyl.tinyurlsvcjava.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final LocalRateLimiter limiter = new LocalRateLimiter(3, 2, 100, nanos::get);
+
+    @Test
+    void allowsABurstThenRefillsAtTheRate() {
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(2);
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(1);
+        assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(-TimeUnit.MILLISECONDS.toNanos(500));
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(-TimeUnit.MILLISECONDS.toNanos(300));
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(300));
+        assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.2")).isEqualTo(2);
+    }
+
+    @Test
+    void dropsBucketsOnceTheyAreFullAgain() {
+        limiter.tryAcquire("10.0.0.1");
+        limiter.tryAcquire("10.0.0.1");
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1500));
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(2);
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1501));
+        limiter.tryAcquire("10.0.0.2");
+        assertThat(limiter.estimatedClients()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCallersNeverShareAToken() throws Exception {
+        TokenBucket bucket = new TokenBucket(1000, TimeUnit.HOURS.toNanos(1), 0);
+        LongAdder granted = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 500; j++) {
+                    if (bucket.tryAcquire(0) >= 0) {
+                        granted.increment();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(granted.sum()).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,32 @@
+package daviscyl.tinyurlsvcjava.config;
+
+import daviscyl.tinyurlsvcjava.datasource.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReadReplicaConfigTest {
+
+    @Test
+    void acceptsWindowCoveringLagAndProbeInterval() {
+        assertThatCode(() -> ReadReplicaConfig.checkReadYourWritesWindow(properties(5, 5, 10)))
+            .doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsWindowShorterThanLagAndProbeInterval() {
+        assertThatThrownBy(() -> ReadReplicaConfig.checkReadYourWritesWindow(properties(5, 5, 5)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("read-your-writes-window");
+    }
+
+    private static ReadReplicaProperties properties(int maxLagSeconds, int healthCheckSeconds, int windowSeconds) {
+        return new ReadReplicaProperties(true, List.of(), ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+            Duration.ofSeconds(maxLagSeconds), "", Duration.ofSeconds(healthCheckSeconds),
+            Duration.ofSeconds(windowSeconds));
+    }
+}
@@ -0,0 +1,50 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClientAddressResolverTest {
+
+    private final ClientAddressResolver resolver = new ClientAddressResolver(List.of("10.0.0.0/8", "2001:db8::/32"));
+
+    @Test
+    void usesTheConnectionWithoutATrustedProxy() {
+        assertThat(new ClientAddressResolver(List.of()).clientAddress(request("10.0.0.1", "198.51.100.1")))
+            .isEqualTo("10.0.0.1");
+        assertThat(resolver.clientAddress(request("198.51.100.7", "203.0.113.1"))).isEqualTo("198.51.100.7");
+        assertThat(resolver.clientAddress(request("10.0.0.1", null))).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void walksTheForwardedChainFromTheRight() {
+        assertThat(resolver.clientAddress(request("10.0.0.1", "203.0.113.1, 198.51.100.1, 10.2.3.4")))
+            .isEqualTo("198.51.100.1");
+        assertThat(resolver.clientAddress(request("2001:db8::1", "[2001:db9::5]:443"))).isEqualTo("2001:db9:0:0:0:0:0:5");
+        // Only trusted hops: the leftmost is as close to the client as it gets
+        assertThat(resolver.clientAddress(request("10.0.0.1", "10.9.9.9, 10.2.3.4"))).isEqualTo("10.9.9.9");
+        // Never looked up, and no hop past it is trusted
+        assertThat(resolver.clientAddress(request("10.0.0.1", "198.51.100.1, unknown, 10.2.3.4"))).isEqualTo("10.2.3.4");
+    }
+
+    @Test
+    void rejectsTrustedProxiesThatAreNotAddresses() {
+        assertThatThrownBy(() -> new ClientAddressResolver(List.of("proxy.internal")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ClientAddressResolver(List.of("10.0.0.0/33")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abcd");
+        request.setRemoteAddr(remoteAddress);
+        if (forwardedFor != null) {
+            request.addHeader(ClientAddressResolver.FORWARDED_FOR_HEADER, forwardedFor);
+        }
+        return request;
+    }
+}
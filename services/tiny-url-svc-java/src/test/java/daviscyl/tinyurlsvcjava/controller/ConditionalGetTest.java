@@ -0,0 +1,79 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import daviscyl.tinyurlsvcjava.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConditionalGetTest {
+
+    private static final String OWNER = "user-123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Test
+    void urlIsNotModifiedWhileItsETagMatches() throws Exception {
+        urlService.createUrl("https://example.com/etag", "etagUrl", null, OWNER);
+
+        String eTag = mockMvc.perform(get("/urls/etagUrl"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(eTag).startsWith("\"url-");
+
+        mockMvc.perform(get("/urls/etagUrl").header("If-None-Match", eTag))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get("/urls/etagUrl").header("If-None-Match", "\"url-0-0\""))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void resourceIdIsStableAcrossReads() throws Exception {
+        urlService.createUrl("https://example.com/stable", "stableId", null, OWNER);
+
+        String first = mockMvc.perform(get("/urls/stableId"))
+            .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/urls/stableId"))
+            .andExpect(jsonPath("$.id").value(JsonPath.<String>read(first, "$.id")));
+    }
+
+    @Test
+    void statsETagsDependOnTheRange() throws Exception {
+        urlService.createUrl("https://example.com/stats", "etagStats", null, OWNER);
+
+        String wholeRange = mockMvc.perform(get("/urls/etagStats/stats"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        String oneDay = mockMvc.perform(get("/urls/etagStats/stats")
+                .param("rangeStart", "2026-01-01T00:00:00Z")
+                .param("rangeEnd", "2026-01-02T00:00:00Z"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(wholeRange).isNotEqualTo(oneDay);
+
+        // The same range written in another offset is the same representation
+        mockMvc.perform(get("/urls/etagStats/stats")
+                .param("rangeStart", "2026-01-01T01:00:00+01:00")
+                .param("rangeEnd", "2026-01-02T01:00:00+01:00")
+                .header("If-None-Match", oneDay))
+            .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/urls/etagStats/stats").header("If-None-Match", wholeRange))
+            .andExpect(status().isNotModified());
+    }
+}
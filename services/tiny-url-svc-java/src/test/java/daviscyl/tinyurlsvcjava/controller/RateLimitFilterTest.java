@@ -0,0 +1,127 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import daviscyl.tinyurlsvcjava.concurrency.LocalRateLimiter;
+import daviscyl.tinyurlsvcjava.controller.RateLimitFilter.Category;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimitFilter filter = new RateLimitFilter(Map.of(
+        Category.REDIRECT, new LocalRateLimiter(2, 0.5, 100, nanos::get),
+        Category.WRITE, new LocalRateLimiter(1, 1, 100, nanos::get)),
+        new ClientAddressResolver(List.of("10.1.0.0/16", "192.0.2.7")), meterRegistry);
+
+    @Test
+    void rejectsRedirectsOverTheClientsBudget() throws Exception {
+        MockHttpServletResponse first = send(request("GET", "/abcd", "10.0.0.1"));
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getHeader("RateLimit-Limit")).isEqualTo("2");
+        assertThat(first.getHeader("RateLimit-Remaining")).isEqualTo("1");
+        send(request("GET", "/abcd", "10.0.0.1"));
+
+        MockHttpServletResponse rejected = send(request("GET", "/other", "10.0.0.1"));
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(rejected.getHeader("RateLimit-Reset")).isEqualTo("2");
+        assertThat(rejected.getHeader("RateLimit-Remaining")).isEqualTo("0");
+        assertThat(rejected.getContentType()).isEqualTo("application/json");
+        assertThat(rejected.getContentAsString())
+            .isEqualTo("{\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"Rate limit exceeded. Try again later.\"}");
+        assertThat(meterRegistry.get("tinyurl.rate-limit.rejected").tag("category", "redirect").counter().count())
+            .isEqualTo(1);
+
+        assertThat(send(request("GET", "/abcd", "10.0.0.2")).getStatus()).isEqualTo(200);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertThat(send(request("GET", "/abcd", "10.0.0.1")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void keysRedirectsBehindTrustedProxiesByTheForwardedClient() throws Exception {
+        MockHttpServletRequest first = request("GET", "/abcd", "10.1.0.5");
+        first.addHeader("X-Forwarded-For", "198.51.100.1");
+        send(first);
+        // The client's own entry on the left is ignored, as is the next trusted proxy
+        MockHttpServletRequest second = request("GET", "/abcd", "192.0.2.7");
+        second.addHeader("X-Forwarded-For", "203.0.113.9, 198.51.100.1:4711");
+        second.addHeader("X-Forwarded-For", "10.1.2.3");
+        send(second);
+
+        MockHttpServletRequest third = request("GET", "/abcd", "10.1.0.6");
+        third.addHeader("X-Forwarded-For", "198.51.100.1");
+        assertThat(send(third).getStatus()).isEqualTo(429);
+
+        // Other clients behind the same balancer keep their own budget
+        MockHttpServletRequest other = request("GET", "/abcd", "10.1.0.5");
+        other.addHeader("X-Forwarded-For", "198.51.100.2");
+        assertThat(send(other).getStatus()).isEqualTo(200);
+
+        // An untrusted peer cannot pick its key through the header
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest spoofed = request("GET", "/abcd", "203.0.113.50");
+            spoofed.addHeader("X-Forwarded-For", "198.51.100." + (10 + i));
+            assertThat(send(spoofed).getStatus()).isEqualTo(200);
+        }
+        MockHttpServletRequest spoofed = request("GET", "/abcd", "203.0.113.50");
+        spoofed.addHeader("X-Forwarded-For", "198.51.100.12");
+        assertThat(send(spoofed).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void keysWritesByUserAndLeavesOtherRequestsAlone() throws Exception {
+        MockHttpServletRequest alice = request("POST", "/urls", "10.0.0.1");
+        alice.setUserPrincipal(() -> "alice");
+        assertThat(send(alice).getStatus()).isEqualTo(200);
+
+        MockHttpServletRequest aliceAgain = request("DELETE", "/urls/abcd", "10.0.0.9");
+        aliceAgain.setUserPrincipal(() -> "alice");
+        assertThat(send(aliceAgain).getStatus()).isEqualTo(429);
+        assertThat(send(request("PATCH", "/urls/abcd", "10.0.0.1")).getStatus()).isEqualTo(200);
+
+        // Stats have no limiter in this filter, listings are never limited
+        MockHttpServletResponse stats = send(request("GET", "/urls/abcd/stats", "10.0.0.1"));
+        assertThat(stats.getStatus()).isEqualTo(200);
+        assertThat(stats.getHeader("RateLimit-Limit")).isNull();
+    }
+
+    @Test
+    void classifiesRequests() {
+        assertThat(RateLimitFilter.categoryOf(request("GET", "/abcd", null))).isEqualTo(Category.REDIRECT);
+        assertThat(RateLimitFilter.categoryOf(request("POST", "/urls", null))).isEqualTo(Category.WRITE);
+        assertThat(RateLimitFilter.categoryOf(request("POST", "/urls/batch", null))).isEqualTo(Category.WRITE);
+        assertThat(RateLimitFilter.categoryOf(request("PATCH", "/urls/abcd", null))).isEqualTo(Category.WRITE);
+        assertThat(RateLimitFilter.categoryOf(request("GET", "/urls/abcd/stats", null))).isEqualTo(Category.STATS);
+
+        assertThat(RateLimitFilter.categoryOf(request("GET", "/urls", null))).isNull();
+        assertThat(RateLimitFilter.categoryOf(request("GET", "/urls/abcd", null))).isNull();
+        assertThat(RateLimitFilter.categoryOf(request("POST", "/urlsx", null))).isNull();
+        assertThat(RateLimitFilter.categoryOf(request("GET", "/exports/urls", null))).isNull();
+        assertThat(RateLimitFilter.categoryOf(request("GET", "/actuator", null))).isNull();
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (remoteAddr != null) {
+            request.setRemoteAddr(remoteAddr);
+        }
+        return request;
+    }
+}
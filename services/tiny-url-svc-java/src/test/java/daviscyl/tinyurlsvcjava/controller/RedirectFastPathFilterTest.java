@@ -0,0 +1,122 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import daviscyl.tinyurlsvcjava.concurrency.BulkheadFullException;
+import daviscyl.tinyurlsvcjava.service.RedirectMetrics;
+import daviscyl.tinyurlsvcjava.service.RedirectService;
+import daviscyl.tinyurlsvcjava.service.ResolvedUrl;
+import daviscyl.tinyurlsvcjava.service.UrlService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RedirectFastPathFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void redirectsKnownAliasesWithEncodedLocation() throws Exception {
+        urlService.createUrl("https://example.com/café?q=1", "fastKnown", null, "fast-path");
+
+        mockMvc.perform(get("/fastKnown"))
+            .andExpect(status().isFound())
+            .andExpect(header().string("Location", "https://example.com/caf%C3%A9?q=1"))
+            .andExpect(header().string("Cache-Control", "no-store"));
+    }
+
+    @Test
+    void answersUnknownAliasesWithNotFound() throws Exception {
+        mockMvc.perform(get("/fastUnknown")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void answersAFullBulkheadWithTooManyRequests() throws Exception {
+        BulkheadFullException bulkheadFull = new BulkheadFullException("Database bulkhead full", Duration.ofSeconds(3));
+        RedirectService saturated = new RedirectService(null, null, null, null, null, null, null, null, null) {
+            @Override
+            public ResolvedUrl resolve(String alias) {
+                // As it surfaces from a cache miss whose transaction could not get a connection
+                throw new Cache.ValueRetrievalException(alias, () -> null,
+                    new CannotCreateTransactionException("Could not open JPA EntityManager", bulkheadFull));
+            }
+        };
+        RedirectFastPathFilter filter = new RedirectFastPathFilter(saturated, null,
+            new RedirectMetrics(new SimpleMeterRegistry()), objectMapper);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "", "/fastBusy"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("3");
+        assertThat(response.getContentType()).isEqualTo("application/json");
+        assertThat(response.getContentAsString())
+            .contains("\"code\":\"TOO_MANY_REQUESTS\"")
+            .contains("\"message\":\"Service is at capacity. Try again later.\"");
+    }
+
+    @Test
+    void onlyClaimsSingleAliasShapedSegments() {
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "", "/abc_-9"))).isEqualTo("abc_-9");
+        assertThat(RedirectFastPathFilter.aliasOf(request("HEAD", "", "/abcd"))).isEqualTo("abcd");
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "/app", "/app/abcd"))).isEqualTo("abcd");
+
+        assertThat(RedirectFastPathFilter.aliasOf(request("POST", "", "/abcd"))).isNull();
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "", "/abc"))).isNull();
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "", "/" + "a".repeat(65)))).isNull();
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "", "/abcd/stats"))).isNull();
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "", "/index.html"))).isNull();
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "", "/ab%20cd"))).isNull();
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "", "/urls"))).isNull();
+        assertThat(RedirectFastPathFilter.aliasOf(request("GET", "", "/actuator"))).isNull();
+    }
+
+    @Test
+    void rejectsHandlerMappingsThatWouldBeServedAsAliases() {
+        assertThatCode(() -> RedirectFastPathFilter.checkMappings(List.of(
+            "/urls", "/urls/{alias}/stats", "/{alias}", "/actuator/health", "/swagger-ui/**", "/v3/api-docs",
+            "/favicon.ico", "/docs/{id}", "/**")))
+            .doesNotThrowAnyException();
+
+        assertThatThrownBy(() -> RedirectFastPathFilter.checkMappings(List.of("/urls", "/docs")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("[/docs]");
+        assertThatThrownBy(() -> RedirectFastPathFilter.checkMappings(List.of("/assets/**")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("/assets/**");
+    }
+
+    private static MockHttpServletRequest request(String method, String contextPath, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setContextPath(contextPath);
+        return request;
+    }
+}
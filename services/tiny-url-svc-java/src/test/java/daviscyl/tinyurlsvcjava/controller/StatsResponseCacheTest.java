@@ -0,0 +1,41 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import daviscyl.tinyurlsvcjava.config.StatsCacheProperties;
+import daviscyl.tinyurlsvcjava.model.UrlStats;
+import daviscyl.tinyurlsvcjava.service.StatsService.StatsVersion;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsResponseCacheTest {
+
+    private final StatsResponseCache cache = new StatsResponseCache(new StatsCacheProperties(100, Duration.ofMinutes(1)));
+
+    @Test
+    void sameRangeInAnotherOffsetSharesTheEntry() {
+        StatsVersion version = new StatsVersion(1, 7, 0);
+        OffsetDateTime start = OffsetDateTime.of(2026, 10, 1, 2, 0, 0, 0, ZoneOffset.ofHours(2));
+        OffsetDateTime end = OffsetDateTime.of(2026, 10, 8, 0, 0, 0, 0, ZoneOffset.UTC);
+        AtomicInteger loads = new AtomicInteger();
+
+        UrlStats first = cache.get(version, start, end, () -> load(loads));
+        UrlStats second = cache.get(version, start.withOffsetSameInstant(ZoneOffset.UTC),
+            end.withOffsetSameInstant(ZoneOffset.ofHours(-5)), () -> load(loads));
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        cache.get(version, start, null, () -> load(loads));
+        assertThat(loads).hasValue(2);
+    }
+
+    private static UrlStats load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new UrlStats().alias("cached");
+    }
+}
@@ -0,0 +1,119 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.repository.UrlRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Batch inserts use ON CONFLICT and RETURNING, so they run against PostgreSQL
+@AutoConfigureMockMvc
+class UrlBatchApiTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Test
+    void createdUrlsGetDistinctIdsThatMatchTheirResource() throws Exception {
+        String body = mockMvc.perform(post("/urls/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"items": [
+                      {"longUrl": "https://example.com/one"},
+                      {"longUrl": "https://example.com/two", "customAlias": "batchIdTwo"},
+                      {"longUrl": "https://example.com/three"}
+                    ]}
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(3))
+            .andReturn().getResponse().getContentAsString();
+
+        List<String> ids = JsonPath.read(body, "$.results[*].url.id");
+        List<String> aliases = JsonPath.read(body, "$.results[*].url.alias");
+        assertThat(new HashSet<>(ids)).hasSize(3);
+
+        for (int i = 0; i < aliases.size(); i++) {
+            mockMvc.perform(get("/urls/" + aliases.get(i)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(ids.get(i)));
+        }
+    }
+
+    @Test
+    void reportsTakenAndRepeatedCustomAliasesAsConflictsAndCreatesTheRest() throws Exception {
+        mockMvc.perform(post("/urls/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"items": [{"longUrl": "https://example.com/existing", "customAlias": "batchTaken"}]}
+                    """))
+            .andExpect(jsonPath("$.created").value(1));
+
+        mockMvc.perform(post("/urls/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"items": [
+                      {"longUrl": "https://example.com/a", "customAlias": "batchTaken"},
+                      {"longUrl": "https://example.com/b", "customAlias": "batchTwice"},
+                      {"longUrl": "https://example.com/c"},
+                      {"longUrl": "https://example.com/d", "customAlias": "batchTwice"}
+                    ]}
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(2))
+            .andExpect(jsonPath("$.conflicts").value(2))
+            .andExpect(jsonPath("$.results[*].status").value(contains("CONFLICT", "CREATED", "CREATED", "CONFLICT")))
+            .andExpect(jsonPath("$.results[0].error.code").value("ALIAS_CONFLICT"))
+            .andExpect(jsonPath("$.results[1].url.alias").value("batchTwice"))
+            .andExpect(jsonPath("$.results[3].error.code").value("ALIAS_CONFLICT"));
+
+        mockMvc.perform(get("/urls/batchTaken"))
+            .andExpect(jsonPath("$.longUrl").value("https://example.com/existing"));
+    }
+
+    @Test
+    void requestWithAnInvalidItemIsRejectedAsAWhole() throws Exception {
+        mockMvc.perform(post("/urls/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"items": [
+                      {"longUrl": "https://example.com/valid", "customAlias": "batchValid"},
+                      {"longUrl": "https://example.com/invalid", "customAlias": "no spaces allowed"}
+                    ]}
+                    """))
+            .andExpect(status().isBadRequest());
+
+        assertThat(urlRepository.existsByAlias("batchValid")).isFalse();
+    }
+
+    @Test
+    void rejectsRequestsAboveTheItemLimit() throws Exception {
+        String item = "{\"longUrl\": \"https://example.com/many\"}";
+        mockMvc.perform(post("/urls/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"items\": [" + String.join(",", Collections.nCopies(1001, item)) + "]}"))
+            .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/urls/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"items\": [" + String.join(",", Collections.nCopies(1000, item)) + "]}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(1000));
+    }
+}
@@ -0,0 +1,87 @@
+package daviscyl.tinyurlsvcjava.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import daviscyl.tinyurlsvcjava.entity.UrlStatsEntity;
+import daviscyl.tinyurlsvcjava.repository.UrlStatsRepository;
+import daviscyl.tinyurlsvcjava.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UrlExportTest {
+
+    private static final String OWNER = "user-123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private UrlStatsRepository urlStatsRepository;
+
+    @Test
+    void ndjsonExportListsTheOwnersUrlsNewestFirst() throws Exception {
+        urlService.createUrl("https://example.com/a", "exportOldest", null, OWNER);
+        urlService.createUrl("https://example.com/b", "exportMiddle", null, OWNER);
+        urlService.createUrl("https://example.com/c", "exportNewest", null, OWNER);
+        urlService.createUrl("https://example.com/d", "exportOther", null, "someone-else");
+
+        String body = mockMvc.perform(get("/exports/urls"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"urls.ndjson\""))
+            .andReturn().getResponse().getContentAsString();
+
+        List<String> aliases = body.lines()
+            .map(line -> JsonPath.<String>read(line, "$.alias"))
+            .filter(alias -> alias.startsWith("export"))
+            .toList();
+        assertThat(aliases).containsExactly("exportNewest", "exportMiddle", "exportOldest");
+        assertThat(body).endsWith("\n").doesNotContain("activeDays");
+    }
+
+    @Test
+    void csvExportCarriesStatsTotals() throws Exception {
+        UrlEntity url = urlService.createUrl("https://example.com/search?q=a,b", "exportCsv", null, OWNER);
+        urlStatsRepository.save(UrlStatsEntity.builder()
+            .urlId(url.getId()).statDate(LocalDate.of(2026, 3, 1)).redirectCount(4L).uniqueVisitors(2L).build());
+        urlStatsRepository.save(UrlStatsEntity.builder()
+            .urlId(url.getId()).statDate(LocalDate.of(2026, 3, 2)).redirectCount(9L).uniqueVisitors(5L).build());
+
+        String body = mockMvc.perform(get("/exports/urls").param("format", "csv").param("includeStats", "true"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"urls.csv\""))
+            .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertThat(lines.get(0)).isEqualTo("id,alias,longUrl,shortUrl,active,createdAt,updatedAt,expiresAt,"
+            + "redirectCount,lastRedirectAt,activeDays,peakDailyRedirects,firstRedirectDate");
+        String row = lines.stream().filter(line -> line.contains(",exportCsv,")).findFirst().orElseThrow();
+        assertThat(row).contains(",\"https://example.com/search?q=a,b\",https://tiny.url/exportCsv,true,");
+        assertThat(Arrays.asList(row.split(","))).endsWith("2", "9", "2026-03-01");
+    }
+
+    @Test
+    void unknownFormatIsRejected() throws Exception {
+        mockMvc.perform(get("/exports/urls").param("format", "xml"))
+            .andExpect(status().isBadRequest());
+    }
+}
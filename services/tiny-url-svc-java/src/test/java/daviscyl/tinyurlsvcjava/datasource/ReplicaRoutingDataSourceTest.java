@@ -0,0 +1,193 @@
+package daviscyl.tinyurlsvcjava.datasource;
+
+import daviscyl.tinyurlsvcjava.cache.CacheInvalidationBus;
+import daviscyl.tinyurlsvcjava.config.ReadReplicaProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = node("primary");
+    private final DataSource replica1 = node("replica-1");
+    private final DataSource replica2 = node("replica-2");
+
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(
+        new ReadReplicaProperties(true, List.of(), ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+            Duration.ofSeconds(5), "", Duration.ofSeconds(5), Duration.ofSeconds(15)),
+        new StaticListableBeanFactory().getBeanProvider(CacheInvalidationBus.class));
+
+    @BeforeEach
+    void resetLag() {
+        setLag(replica1, 0);
+        setLag(replica2, 0);
+    }
+
+    @AfterEach
+    void clearReadOnlyFlag() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readWriteTransactionsGoToThePrimary() {
+        Routing routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, replica1, replica2);
+
+        assertThat(routing.read(false)).isEqualTo("primary");
+        assertThat(routing.read(false)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransactionsAlternateBetweenReplicas() {
+        Routing routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, replica1, replica2);
+
+        assertThat(List.of(routing.read(true), routing.read(true), routing.read(true), routing.read(true)))
+            .containsExactly("replica-1", "replica-2", "replica-1", "replica-2");
+    }
+
+    @Test
+    void readsStayOnThePrimaryUntilReplicasWereProbed() {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas(replica1, replica2),
+            ReplicaRoutingDataSource.Selection.ROUND_ROBIN, Duration.ofSeconds(5), lagQuery(), () -> false);
+
+        assertThat(new Routing(dataSource).read(true)).isEqualTo("primary");
+    }
+
+    @Test
+    void laggingReplicasAreSkippedUntilTheyCatchUp() {
+        Routing routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, replica1, replica2);
+
+        setLag(replica1, 30);
+        routing.dataSource.checkReplicas();
+        assertThat(List.of(routing.read(true), routing.read(true))).containsOnly("replica-2");
+
+        setLag(replica2, 30);
+        routing.dataSource.checkReplicas();
+        assertThat(routing.read(true)).isEqualTo("primary");
+
+        setLag(replica1, 0);
+        routing.dataSource.checkReplicas();
+        assertThat(List.of(routing.read(true), routing.read(true))).containsOnly("replica-1");
+    }
+
+    @Test
+    void unreachableReplicasFallBackToThePrimary() {
+        DataSource missing = new DriverManagerDataSource("jdbc:h2:mem:routing-missing;IFEXISTS=TRUE", "sa", "");
+        Routing routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, missing);
+
+        assertThat(routing.read(true)).isEqualTo("primary");
+    }
+
+    @Test
+    void leastConnectionsPicksTheIdleReplica() throws Exception {
+        Routing routing = routing(ReplicaRoutingDataSource.Selection.LEAST_CONNECTIONS, replica1, replica2);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try (Connection held = routing.dataSource.getConnection()) {
+            String busy = nodeName(held);
+            for (int i = 0; i < 4; i++) {
+                try (Connection connection = routing.dataSource.getConnection()) {
+                    assertThat(nodeName(connection)).isNotEqualTo(busy);
+                }
+            }
+        }
+    }
+
+    @Test
+    void readsFollowingOwnWritesGoToThePrimary() {
+        Routing routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, replica1, replica2);
+        readYourWrites.userWrote("writer");
+
+        try (ReadYourWrites.Scope scope = readYourWrites.forUser("writer")) {
+            assertThat(routing.read(true)).isEqualTo("primary");
+        }
+        try (ReadYourWrites.Scope scope = readYourWrites.forUser("reader")) {
+            assertThat(routing.read(true)).startsWith("replica-");
+        }
+        assertThat(ReadYourWrites.isPrimaryRequired()).isFalse();
+    }
+
+    private Routing routing(ReplicaRoutingDataSource.Selection selection, DataSource... replicas) {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas(replicas), selection,
+            Duration.ofSeconds(5), lagQuery(), ReadYourWrites::isPrimaryRequired);
+        dataSource.checkReplicas();
+        return new Routing(dataSource);
+    }
+
+    private static Map<String, DataSource> replicas(DataSource... replicas) {
+        Map<String, DataSource> named = new LinkedHashMap<>();
+        for (DataSource replica : replicas) {
+            named.put("replica-" + (named.size() + 1), replica);
+        }
+        return named;
+    }
+
+    private static String lagQuery() {
+        return "SELECT seconds FROM lag";
+    }
+
+    private static DataSource node(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS lag (seconds DOUBLE PRECISION)");
+        jdbcTemplate.update("DELETE FROM node");
+        jdbcTemplate.update("DELETE FROM lag");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        jdbcTemplate.update("INSERT INTO lag VALUES (0)");
+        return dataSource;
+    }
+
+    private static void setLag(DataSource replica, double seconds) {
+        new JdbcTemplate(replica).update("UPDATE lag SET seconds = ?", seconds);
+    }
+
+    private static String nodeName(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM node")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    /**
+     * The routing datasource wired like in the application, behind a lazy proxy and a transaction manager.
+     */
+    private static final class Routing {
+
+        private final ReplicaRoutingDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final DataSourceTransactionManager transactionManager;
+
+        private Routing(ReplicaRoutingDataSource dataSource) {
+            this.dataSource = dataSource;
+            DataSource lazy = new LazyConnectionDataSourceProxy(dataSource);
+            this.jdbcTemplate = new JdbcTemplate(lazy);
+            this.transactionManager = new DataSourceTransactionManager(lazy);
+        }
+
+        private String read(boolean readOnly) {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(readOnly);
+            return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import daviscyl.tinyurlsvcjava.service.HyperLogLog;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import daviscyl.tinyurlsvcjava.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedirectCounterRepositoryTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private RedirectCounterRepository counterRepository;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void repeatedFlushesAddCountsAndMergeSketchesIdempotently() {
+        long urlId = urlService.createUrl("https://example.com/counted", null, null, "counter-test").getId();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        long now = System.currentTimeMillis();
+
+        counterRepository.applyRedirectCounts(List.of(new PendingRedirects(urlId, today, 2, now, visitors(1, 2))), 500);
+        // The second flush re-sends a visitor that is already counted
+        counterRepository.applyRedirectCounts(List.of(new PendingRedirects(urlId, today, 3, now, visitors(2, 3))), 500);
+
+        Map<String, Object> url = jdbcTemplate.queryForMap(
+            "SELECT redirect_count, last_redirect_at, stats_version FROM urls WHERE id = ?", urlId);
+        assertThat(url.get("redirect_count")).isEqualTo(5L);
+        assertThat(url.get("last_redirect_at")).isNotNull();
+        assertThat(url.get("stats_version")).isEqualTo(2L);
+
+        assertThat(jdbcTemplate.queryForMap(
+            "SELECT redirect_count, unique_visitors FROM url_stats WHERE url_id = ? AND stat_date = ?", urlId, today))
+            .containsEntry("redirect_count", 5L)
+            .containsEntry("unique_visitors", 3L);
+    }
+
+    @Test
+    void savingALoadedUrlKeepsCountsFlushedSinceItWasLoaded() {
+        long urlId = urlService.createUrl("https://example.com/raced", null, null, "counter-test").getId();
+        UrlEntity loaded = urlRepository.findById(urlId).orElseThrow();
+
+        counterRepository.applyRedirectCounts(List.of(new PendingRedirects(
+            urlId, LocalDate.now(ZoneOffset.UTC), 4, System.currentTimeMillis(), null)), 500);
+        loaded.setDestinationUrl("https://example.com/raced-updated");
+        urlRepository.save(loaded);
+
+        Map<String, Object> url = jdbcTemplate.queryForMap(
+            "SELECT destination_url, redirect_count, last_redirect_at FROM urls WHERE id = ?", urlId);
+        assertThat(url.get("destination_url")).isEqualTo("https://example.com/raced-updated");
+        assertThat(url.get("redirect_count")).isEqualTo(4L);
+        assertThat(url.get("last_redirect_at")).isNotNull();
+    }
+
+    @Test
+    void queuesWrittenDaysInsteadOfWritingWeeksAndMonths() {
+        long urlId = urlService.createUrl("https://example.com/queued", null, null, "counter-test").getId();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        long now = System.currentTimeMillis();
+
+        counterRepository.applyRedirectCounts(List.of(
+            new PendingRedirects(urlId, today.minusDays(1), 1, now, visitors(1)),
+            new PendingRedirects(urlId, today, 2, now, visitors(2))), 500);
+        counterRepository.applyRedirectCounts(List.of(new PendingRedirects(urlId, today, 1, now, null)), 500);
+
+        assertThat(jdbcTemplate.queryForList(
+            "SELECT stat_date FROM url_stats_rollup_queue WHERE url_id = ? ORDER BY stat_date", LocalDate.class, urlId))
+            .containsExactly(today.minusDays(1), today);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM url_stats_weekly WHERE url_id = ?", Long.class, urlId)).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM url_stats_monthly WHERE url_id = ?", Long.class, urlId)).isZero();
+    }
+
+    @Test
+    void resentSketchWithoutRedirectsKeepsTheLastRedirectTime() {
+        long urlId = urlService.createUrl("https://example.com/resent", null, null, "counter-test").getId();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+        counterRepository.applyRedirectCounts(
+            List.of(new PendingRedirects(urlId, today, 1, System.currentTimeMillis(), visitors(1))), 500);
+        Object lastRedirectAt = jdbcTemplate.queryForObject("SELECT last_redirect_at FROM urls WHERE id = ?", Object.class, urlId);
+
+        counterRepository.applyRedirectCounts(
+            List.of(new PendingRedirects(urlId, today, 0, Long.MIN_VALUE, visitors(1, 2))), 500);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT last_redirect_at FROM urls WHERE id = ?", Object.class, urlId))
+            .isEqualTo(lastRedirectAt);
+        assertThat(jdbcTemplate.queryForMap(
+            "SELECT redirect_count, unique_visitors FROM url_stats WHERE url_id = ? AND stat_date = ?", urlId, today))
+            .containsEntry("redirect_count", 1L)
+            .containsEntry("unique_visitors", 2L);
+    }
+
+    @Test
+    void skipsUrlsThatNoLongerExist() {
+        long urlId = urlService.createUrl("https://example.com/kept", null, null, "counter-test").getId();
+        long removedId = urlId + 1_000_000;
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        long now = System.currentTimeMillis();
+
+        counterRepository.applyRedirectCounts(List.of(
+            new PendingRedirects(urlId, today, 1, now, visitors(1)),
+            new PendingRedirects(removedId, today, 4, now, visitors(2))), 500);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM url_stats WHERE url_id = ?", Long.class, urlId))
+            .isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM url_stats WHERE url_id = ?", Long.class, removedId))
+            .isZero();
+    }
+
+    private static HyperLogLog visitors(int... ids) {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int id : ids) {
+            sketch.add(id * 0x9E3779B97F4A7C15L);
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,26 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsPartitionRepositoryTest {
+
+    @Test
+    void partitionNamesRoundTrip() {
+        YearMonth month = YearMonth.of(2027, 3);
+
+        assertThat(StatsPartitionRepository.partitionName(month)).isEqualTo("url_stats_p202703");
+        assertThat(StatsPartitionRepository.monthOf("url_stats_p202703")).isEqualTo(month);
+    }
+
+    @Test
+    void ignoresTablesThatAreNotMonthlyPartitions() {
+        assertThat(StatsPartitionRepository.monthOf("url_stats_default")).isNull();
+        assertThat(StatsPartitionRepository.monthOf("url_stats_p202713")).isNull();
+        assertThat(StatsPartitionRepository.monthOf("url_stats_p2027031")).isNull();
+        assertThat(StatsPartitionRepository.monthOf("url_stats_hourly")).isNull();
+    }
+}
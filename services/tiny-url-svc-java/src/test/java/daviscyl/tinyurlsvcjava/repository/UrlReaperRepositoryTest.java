@@ -0,0 +1,141 @@
+package daviscyl.tinyurlsvcjava.repository;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.repository.UrlReaperRepository.Reason;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import daviscyl.tinyurlsvcjava.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlReaperRepositoryTest extends PostgresIntegrationTest {
+
+    private static final String OWNER = "reaper-test";
+
+    @Autowired
+    private UrlReaperRepository urlReaperRepository;
+
+    @Autowired
+    private RedirectCounterRepository counterRepository;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void archivesExpiredUrlsWithTheirTotalsAndDropsTheirStats() {
+        long urlId = urlService.createUrl("https://example.com/expired", "reapExpired", null, OWNER).getId();
+        counterRepository.applyRedirectCounts(
+            List.of(new PendingRedirects(urlId, LocalDate.now(ZoneOffset.UTC), 3, System.currentTimeMillis(), null)), 500);
+        jdbcTemplate.update("UPDATE urls SET expires_at = ? WHERE id = ?", ago(Duration.ofDays(40)), urlId);
+
+        List<String> archived = inTransaction(() -> urlReaperRepository.archive(Reason.EXPIRED, cutoff(), 100));
+
+        assertThat(archived).contains("reapExpired");
+        assertThat(count("SELECT COUNT(*) FROM urls WHERE id = ?", urlId)).isZero();
+        assertThat(count("SELECT COUNT(*) FROM url_stats WHERE url_id = ?", urlId)).isZero();
+        assertThat(jdbcTemplate.queryForMap(
+            "SELECT alias, redirect_count, deactivated_at FROM urls_archive WHERE id = ?", urlId))
+            .containsEntry("alias", "reapExpired")
+            .containsEntry("redirect_count", 3L)
+            .containsEntry("deactivated_at", null);
+    }
+
+    @Test
+    void counterFlushesDoNotPostponeTheReapOfInactiveUrls() {
+        long urlId = urlService.createUrl("https://example.com/inactive", "reapInactive", null, OWNER).getId();
+        urlService.deleteUrl("reapInactive", OWNER);
+        Timestamp deactivatedAt = ago(Duration.ofDays(40));
+        jdbcTemplate.update("UPDATE urls SET updated_at = ? WHERE id = ?", deactivatedAt, urlId);
+
+        // Redirects buffered before the deactivation reach the database afterwards
+        counterRepository.applyRedirectCounts(
+            List.of(new PendingRedirects(urlId, LocalDate.now(ZoneOffset.UTC), 2, System.currentTimeMillis(), null)), 500);
+        assertThat(jdbcTemplate.queryForObject("SELECT updated_at FROM urls WHERE id = ?", Timestamp.class, urlId))
+            .isEqualTo(deactivatedAt);
+
+        List<String> archived = inTransaction(() -> urlReaperRepository.archive(Reason.INACTIVE, cutoff(), 100));
+
+        assertThat(archived).contains("reapInactive");
+        assertThat(jdbcTemplate.queryForMap(
+            "SELECT redirect_count, deactivated_at FROM urls_archive WHERE id = ?", urlId))
+            .containsEntry("redirect_count", 2L)
+            .containsEntry("deactivated_at", deactivatedAt);
+    }
+
+    @Test
+    void keepsUrlsWithinTheirGracePeriod() {
+        long urlId = urlService.createUrl("https://example.com/recent", "reapRecent", null, OWNER).getId();
+        urlService.deleteUrl("reapRecent", OWNER);
+
+        List<String> deleted = inTransaction(() -> urlReaperRepository.delete(Reason.INACTIVE, cutoff(), 100));
+
+        assertThat(deleted).doesNotContain("reapRecent");
+        assertThat(count("SELECT COUNT(*) FROM urls WHERE id = ?", urlId)).isEqualTo(1L);
+    }
+
+    @Test
+    void deleteModeArchivesNothing() {
+        long urlId = urlService.createUrl("https://example.com/deleted", "reapDeleted", null, OWNER).getId();
+        jdbcTemplate.update("UPDATE urls SET expires_at = ? WHERE id = ?", ago(Duration.ofDays(40)), urlId);
+
+        List<String> deleted = inTransaction(() -> urlReaperRepository.delete(Reason.EXPIRED, cutoff(), 100));
+
+        assertThat(deleted).contains("reapDeleted");
+        assertThat(count("SELECT COUNT(*) FROM urls WHERE id = ?", urlId)).isZero();
+        assertThat(count("SELECT COUNT(*) FROM urls_archive WHERE id = ?", urlId)).isZero();
+    }
+
+    @Test
+    void skipsRowsLockedByAnotherTransaction() {
+        long urlId = urlService.createUrl("https://example.com/locked", "reapLocked", null, OWNER).getId();
+        jdbcTemplate.update("UPDATE urls SET expires_at = ? WHERE id = ?", ago(Duration.ofDays(40)), urlId);
+
+        List<String> whileLocked = inTransaction(() -> {
+            // A counter flush holding the row
+            jdbcTemplate.queryForList("SELECT id FROM urls WHERE id = ? FOR UPDATE", urlId);
+            return CompletableFuture.supplyAsync(
+                () -> inTransaction(() -> urlReaperRepository.archive(Reason.EXPIRED, cutoff(), 100))).join();
+        });
+
+        assertThat(whileLocked).doesNotContain("reapLocked");
+        assertThat(count("SELECT COUNT(*) FROM urls WHERE id = ?", urlId)).isEqualTo(1L);
+        assertThat(inTransaction(() -> urlReaperRepository.archive(Reason.EXPIRED, cutoff(), 100)))
+            .contains("reapLocked");
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    private long count(String sql, long urlId) {
+        return jdbcTemplate.queryForObject(sql, Long.class, urlId);
+    }
+
+    private static Instant cutoff() {
+        return Instant.now().minus(Duration.ofDays(30));
+    }
+
+    private static Timestamp ago(Duration age) {
+        return Timestamp.from(Instant.now().minus(age).truncatedTo(ChronoUnit.MICROS));
+    }
+}
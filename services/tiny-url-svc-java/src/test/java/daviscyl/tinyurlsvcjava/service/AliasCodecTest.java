@@ -0,0 +1,51 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.AliasGeneratorProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AliasCodecTest {
+
+    @Test
+    void scrambledAliasesAreUniqueAndFixedLength() {
+        AliasCodec codec = new AliasCodec(true, 42L);
+        Set<String> aliases = new HashSet<>();
+
+        for (long id = 0; id < 200_000; id++) {
+            String alias = codec.encode(id);
+            assertThat(alias).matches("[a-zA-Z0-9]{7}");
+            assertThat(aliases.add(alias)).isTrue();
+        }
+    }
+
+    @Test
+    void scramblingRequiresAConfiguredKey() {
+        assertThatThrownBy(() -> new AliasGeneratorProperties(1000, true, null))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("scramble-key");
+        assertThat(new AliasGeneratorProperties(1000, false, null).scrambleKey()).isNull();
+    }
+
+    @Test
+    void plainEncodingIsBase62() {
+        AliasCodec codec = new AliasCodec(false, 0L);
+
+        assertThat(codec.encode(0)).isEqualTo("aaaaaaa");
+        assertThat(codec.encode(61)).isEqualTo("aaaaaa9");
+        assertThat(codec.encode(62)).isEqualTo("aaaaaba");
+    }
+
+    @Test
+    void rejectsIdsOutsideTheAliasSpace() {
+        AliasCodec codec = new AliasCodec(true, 42L);
+
+        assertThat(codec.encode(AliasCodec.capacity() - 1)).hasSize(7);
+        assertThatThrownBy(() -> codec.encode(AliasCodec.capacity()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
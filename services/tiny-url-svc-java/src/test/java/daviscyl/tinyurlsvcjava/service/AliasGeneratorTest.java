@@ -0,0 +1,48 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.config.AliasGeneratorProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AliasGeneratorTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private AliasGenerator aliasGenerator;
+
+    @Autowired
+    private AliasGeneratorProperties properties;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void skipsIdsWhoseAliasesWereTakenBeforeTheirBlockWasReserved() {
+        long nextBlock = jdbcTemplate.queryForObject(
+            "SELECT CASE WHEN is_called THEN last_value + 1 ELSE last_value END FROM " + AliasGenerator.BLOCK_SEQUENCE,
+            Long.class);
+        long blockStart = nextBlock * properties.blockSize();
+        AliasCodec codec = new AliasCodec(properties.scramble(), properties.scrambleKey());
+        // Legacy aliases that happen to have the generator's shape, e.g. from an import
+        String first = codec.encode(blockStart);
+        String later = codec.encode(blockStart + 5);
+        urlService.createUrl("https://example.com/legacy", first, null, "generator-test");
+        urlService.createUrl("https://example.com/legacy", later, null, "generator-test");
+
+        // Uses up the current block and continues into the next one
+        List<String> generated = aliasGenerator.nextAliases(2 * properties.blockSize());
+
+        assertThat(generated)
+            .hasSize(2 * properties.blockSize())
+            .doesNotHaveDuplicates()
+            .doesNotContain(first, later);
+    }
+}
@@ -0,0 +1,265 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.clicklog.ClickLog;
+import daviscyl.tinyurlsvcjava.clicklog.ClickLogSegment;
+import daviscyl.tinyurlsvcjava.clicklog.ClickRecord;
+import daviscyl.tinyurlsvcjava.clicklog.UserAgentClass;
+import daviscyl.tinyurlsvcjava.config.ClickLogProperties;
+import daviscyl.tinyurlsvcjava.config.RedirectTrackingProperties;
+import daviscyl.tinyurlsvcjava.config.StatsRollupProperties;
+import daviscyl.tinyurlsvcjava.config.UniqueVisitorProperties;
+import daviscyl.tinyurlsvcjava.repository.ClickLogRepository;
+import daviscyl.tinyurlsvcjava.repository.ClickLogRepository.Checkpoint;
+import daviscyl.tinyurlsvcjava.repository.RedirectCounterRepository;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClickLogCompactorTest extends PostgresIntegrationTest {
+
+    private static final String OWNER = "click-log-compactor-test";
+    private static final int SLOTS = 16;
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private ClickLogRepository clickLogRepository;
+
+    @Autowired
+    private RedirectCounterRepository counterRepository;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private StatsRollupProperties rollupProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void commitsACheckpointWithEveryBatchAndKeepsItAcrossRestarts() {
+        String nodeId = "compact-checkpoint";
+        long urlId = url("compactCheckpoint");
+        ClickLog clickLog = open(nodeId);
+        appendClicks(clickLog, urlId, 10);
+        long sequence = clickLog.segments().get(0).sequence();
+        RecordingClickLogRepository recording = new RecordingClickLogRepository(jdbcTemplate);
+
+        compactor(clickLog, nodeId, recording, counterRepository, Clock.systemUTC()).compact();
+
+        assertThat(recording.saved).containsExactly(
+            new Checkpoint(sequence, 4), new Checkpoint(sequence, 8), new Checkpoint(sequence, 10));
+        assertThat(clickLogRepository.findCheckpoint(nodeId)).isEqualTo(new Checkpoint(sequence, 10));
+        assertThat(redirects(urlId)).isEqualTo(10L);
+
+        // A restart recovers the segment as complete and only moves the checkpoint past its empty slots
+        ClickLog restarted = open(nodeId);
+        compactor(restarted, nodeId, clickLogRepository, counterRepository, Clock.systemUTC()).compact();
+
+        assertThat(clickLogRepository.findCheckpoint(nodeId)).isEqualTo(new Checkpoint(sequence, SLOTS));
+        assertThat(redirects(urlId)).isEqualTo(10L);
+    }
+
+    @Test
+    void resumesAtTheCheckpointAfterACrashMidSegment() {
+        String nodeId = "compact-crash";
+        long urlId = url("compactCrash");
+        ClickLog clickLog = open(nodeId);
+        appendClicks(clickLog, urlId, 10);
+        long sequence = clickLog.segments().get(0).sequence();
+
+        // The second batch fails as if the process died while applying it
+        ClickLogCompactor crashing = compactor(clickLog, nodeId, clickLogRepository,
+            new FailingCounterRepository(jdbcTemplate, namedParameterJdbcTemplate, rollupProperties, 2),
+            Clock.systemUTC());
+        assertThatThrownBy(crashing::compact).isInstanceOf(IllegalStateException.class);
+
+        assertThat(clickLogRepository.findCheckpoint(nodeId)).isEqualTo(new Checkpoint(sequence, 4));
+        assertThat(redirects(urlId)).isEqualTo(4L);
+
+        // Reopened without a close, like after a crash
+        ClickLog restarted = open(nodeId);
+        compactor(restarted, nodeId, clickLogRepository, counterRepository, Clock.systemUTC()).compact();
+
+        assertThat(redirects(urlId)).isEqualTo(10L);
+        assertThat(dimensionCount(urlId, "agent")).isEqualTo(10L);
+        assertThat(clickLogRepository.findCheckpoint(nodeId)).isEqualTo(new Checkpoint(sequence, SLOTS));
+    }
+
+    @Test
+    void rollsBackTheAppliedCountsWhenTheCheckpointCannotBeSaved() {
+        String nodeId = "compact-rollback";
+        long urlId = url("compactRollback");
+        ClickLog clickLog = open(nodeId);
+        appendClicks(clickLog, urlId, 3);
+
+        ClickLogRepository failingCheckpoints = new ClickLogRepository(jdbcTemplate) {
+            @Override
+            public void saveCheckpoint(String nodeId, Checkpoint checkpoint) {
+                throw new IllegalStateException("Checkpoint not saved");
+            }
+        };
+        assertThatThrownBy(compactor(clickLog, nodeId, failingCheckpoints, counterRepository, Clock.systemUTC())::compact)
+            .isInstanceOf(IllegalStateException.class);
+
+        assertThat(clickLogRepository.findCheckpoint(nodeId)).isEqualTo(Checkpoint.START);
+        assertThat(redirects(urlId)).isZero();
+        assertThat(dimensionCount(urlId, "agent")).isZero();
+
+        compactor(clickLog, nodeId, clickLogRepository, counterRepository, Clock.systemUTC()).compact();
+
+        assertThat(redirects(urlId)).isEqualTo(3L);
+        assertThat(dimensionCount(urlId, "agent")).isEqualTo(3L);
+        assertThat(dimensionCount(urlId, "referrer")).isEqualTo(3L);
+    }
+
+    @Test
+    void deletesASegmentOnlyOnceItsClicksAreCommittedAndItsRetentionHasPassed() {
+        String nodeId = "compact-delete";
+        long urlId = url("compactDelete");
+        ClickLog clickLog = open(nodeId);
+        appendClicks(clickLog, urlId, SLOTS + 4);
+        ClickLogSegment full = clickLog.segments().get(0);
+        assertThat(full.isComplete()).isTrue();
+        Clock afterRetention = Clock.offset(Clock.systemUTC(), Duration.ofDays(1));
+
+        // The full segment's batches commit, the active segment's first batch fails
+        ClickLogCompactor failing = compactor(clickLog, nodeId, clickLogRepository,
+            new FailingCounterRepository(jdbcTemplate, namedParameterJdbcTemplate, rollupProperties, 5),
+            afterRetention);
+        assertThatThrownBy(failing::compact).isInstanceOf(IllegalStateException.class);
+
+        assertThat(redirects(urlId)).isEqualTo((long) SLOTS);
+        assertThat(Files.exists(full.path())).isTrue();
+
+        // Compacted, but still within its retention
+        compactor(clickLog, nodeId, clickLogRepository, counterRepository, Clock.systemUTC()).compact();
+
+        assertThat(redirects(urlId)).isEqualTo(SLOTS + 4L);
+        assertThat(Files.exists(full.path())).isTrue();
+
+        compactor(clickLog, nodeId, clickLogRepository, counterRepository, afterRetention).compact();
+
+        assertThat(Files.exists(full.path())).isFalse();
+        assertThat(clickLog.segments()).hasSize(1).doesNotContain(full);
+        assertThat(redirects(urlId)).isEqualTo(SLOTS + 4L);
+    }
+
+    private ClickLog open(String nodeId) {
+        ClickLog clickLog = new ClickLog(properties(nodeId));
+        try {
+            clickLog.open();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return clickLog;
+    }
+
+    private ClickLogCompactor compactor(ClickLog clickLog,
+                                        String nodeId,
+                                        ClickLogRepository clickLogRepository,
+                                        RedirectCounterRepository counterRepository,
+                                        Clock clock) {
+        return new ClickLogCompactor(clickLog, clickLogRepository, counterRepository, properties(nodeId),
+            new RedirectTrackingProperties(Duration.ofSeconds(1), 10_000, 500),
+            new UniqueVisitorProperties(12, null, Duration.ofSeconds(60)),
+            transactionManager, new SimpleMeterRegistry(), clock);
+    }
+
+    // Four records per batch, an hour of retention
+    private ClickLogProperties properties(String nodeId) {
+        return new ClickLogProperties(true, directory, nodeId,
+            DataSize.ofBytes((long) SLOTS * ClickLogSegment.RECORD_SIZE), ClickLogProperties.Fsync.NONE,
+            Duration.ofSeconds(1), Duration.ofSeconds(5), 4, Duration.ofHours(1));
+    }
+
+    private long url(String alias) {
+        return urlService.createUrl("https://example.com/" + alias, alias, null, OWNER).getId();
+    }
+
+    private static void appendClicks(ClickLog clickLog, long urlId, int clicks) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < clicks; i++) {
+            assertThat(clickLog.append(new ClickRecord(now, urlId, 31L * i + 1,
+                UserAgentClass.of("Mozilla/5.0 (Linux; Android 14) Mobile"),
+                ClickRecord.referrerHost("https://www.news.example.com/item?id=" + i)))).isTrue();
+        }
+    }
+
+    private long redirects(long urlId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(redirect_count), 0) FROM url_stats WHERE url_id = ?", Long.class, urlId);
+    }
+
+    private long dimensionCount(long urlId, String dimension) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(redirect_count), 0) FROM url_stats_dimensions WHERE url_id = ? AND dimension = ?",
+            Long.class, urlId, dimension);
+    }
+
+    private static final class RecordingClickLogRepository extends ClickLogRepository {
+
+        private final List<Checkpoint> saved = new ArrayList<>();
+
+        private RecordingClickLogRepository(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate);
+        }
+
+        @Override
+        public void saveCheckpoint(String nodeId, Checkpoint checkpoint) {
+            super.saveCheckpoint(nodeId, checkpoint);
+            saved.add(checkpoint);
+        }
+    }
+
+    /**
+     * Fails the n-th batch of counts, before anything of it is written.
+     */
+    private static final class FailingCounterRepository extends RedirectCounterRepository {
+
+        private final int failingCall;
+        private int calls;
+
+        private FailingCounterRepository(JdbcTemplate jdbcTemplate,
+                                         NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                         StatsRollupProperties rollupProperties,
+                                         int failingCall) {
+            super(jdbcTemplate, namedParameterJdbcTemplate, rollupProperties);
+            this.failingCall = failingCall;
+        }
+
+        @Override
+        public void applyRedirectCounts(List<PendingRedirects> batch, int batchSize) {
+            if (++calls == failingCall) {
+                throw new IllegalStateException("Batch " + calls + " failed");
+            }
+            super.applyRedirectCounts(batch, batchSize);
+        }
+    }
+}
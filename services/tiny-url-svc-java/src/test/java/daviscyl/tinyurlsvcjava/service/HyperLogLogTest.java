@@ -0,0 +1,65 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.util.Hashing;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesWithinThreeStandardErrors() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add(Hashing.hash64("visitor" + i));
+        }
+
+        double error = Math.abs(sketch.estimate() - 100_000) / 100_000.0;
+        assertThat(error).isLessThan(3 * HyperLogLog.relativeError(12));
+    }
+
+    @Test
+    void unionCountsSharedVisitorsOnce() {
+        HyperLogLog monday = new HyperLogLog(12);
+        HyperLogLog tuesday = new HyperLogLog(14);
+        for (int i = 0; i < 20_000; i++) {
+            monday.add(Hashing.hash64("visitor" + i));
+            tuesday.add(Hashing.hash64("visitor" + (i + 10_000)));
+        }
+
+        HyperLogLog union = HyperLogLog.union(List.of(monday, tuesday));
+
+        assertThat(union.precision()).isEqualTo(12);
+        assertThat(union.estimate()).isBetween(28_500L, 31_500L);
+    }
+
+    @Test
+    void serializedSketchesRoundTrip() {
+        HyperLogLog sparse = new HyperLogLog(12);
+        HyperLogLog dense = new HyperLogLog(12);
+        for (int i = 0; i < 50_000; i++) {
+            if (i < 100) {
+                sparse.add(Hashing.hash64("visitor" + i));
+            }
+            dense.add(Hashing.hash64("visitor" + i));
+        }
+
+        byte[] sparseBytes = sparse.toBytes();
+        assertThat(sparseBytes.length).isLessThan(4096 * 6 / 8);
+        assertThat(HyperLogLog.fromBytes(sparseBytes).estimate()).isEqualTo(sparse.estimate());
+        assertThat(HyperLogLog.fromBytes(dense.toBytes()).estimate()).isEqualTo(dense.estimate());
+    }
+
+    @Test
+    void reportsChangesOnlyOnce() {
+        HyperLogLog sketch = new HyperLogLog(10);
+        sketch.add(Hashing.hash64("visitor"));
+
+        assertThat(sketch.checkAndClearDirty()).isTrue();
+        assertThat(sketch.checkAndClearDirty()).isFalse();
+        assertThat(sketch.add(Hashing.hash64("visitor"))).isFalse();
+        assertThat(sketch.checkAndClearDirty()).isFalse();
+    }
+}
@@ -0,0 +1,121 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.RedirectTrackingProperties;
+import daviscyl.tinyurlsvcjava.config.UniqueVisitorProperties;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class RedirectCounterBufferTest {
+
+    private final RedirectCounterBuffer buffer = new RedirectCounterBuffer(
+        new RedirectTrackingProperties(Duration.ofSeconds(1), 5, 500), new UniqueVisitorProperties(10, null, Duration.ofMinutes(1)));
+
+    @Test
+    void asksForAnEarlyFlushOnceThePendingLimitIsReached() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.record(1, visitor(i))).isFalse();
+        }
+        assertThat(buffer.record(2, visitor(4))).isTrue();
+        assertThat(buffer.pendingCount()).isEqualTo(5);
+    }
+
+    @Test
+    void drainMovesCountsOutOfTheBuffer() {
+        buffer.record(1, visitor(10));
+        buffer.record(1, visitor(11));
+        buffer.record(2, visitor(10));
+
+        List<PendingRedirects> batch = buffer.drain(true);
+
+        assertThat(batch).extracting(PendingRedirects::urlId, PendingRedirects::count)
+            .containsExactlyInAnyOrder(tuple(1L, 2L), tuple(2L, 1L));
+        assertThat(batch).allSatisfy(redirects -> {
+            assertThat(redirects.visitors()).isNotNull();
+            assertThat(redirects.lastRedirectAtMillis()).isPositive();
+        });
+        assertThat(buffer.pendingCount()).isZero();
+        assertThat(buffer.drain(true)).isEmpty();
+    }
+
+    @Test
+    void restoredBatchIsDrainedAgainTogetherWithNewRedirects() {
+        buffer.record(1, visitor(10));
+        buffer.record(1, visitor(11));
+        List<PendingRedirects> failed = buffer.drain(true);
+
+        buffer.record(1, visitor(12));
+        buffer.restore(failed);
+        assertThat(buffer.pendingCount()).isEqualTo(3);
+
+        List<PendingRedirects> retried = buffer.drain(true);
+        assertThat(retried).singleElement().satisfies(redirects -> {
+            assertThat(redirects.urlId()).isEqualTo(1);
+            assertThat(redirects.count()).isEqualTo(3);
+            assertThat(redirects.visitors().estimate()).isEqualTo(3);
+        });
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void restoresNoMoreThanThePendingLimit() {
+        for (int i = 0; i < 4; i++) {
+            buffer.record(1, visitor(i));
+        }
+        buffer.record(2, visitor(4));
+        List<PendingRedirects> failed = buffer.drain(false);
+
+        // Redirects recorded while the flush was failing take their share of the limit first
+        for (int i = 0; i < 3; i++) {
+            buffer.record(3, visitor(i));
+        }
+        assertThat(buffer.restore(failed)).isEqualTo(3);
+        assertThat(buffer.pendingCount()).isEqualTo(5);
+        assertThat(buffer.drain(false).stream().mapToLong(PendingRedirects::count).sum()).isEqualTo(5);
+    }
+
+    @Test
+    void resendsRetiredSketchesOnlyWhenTheyChanged() {
+        buffer.record(1, visitor(10));
+        buffer.record(2, visitor(10));
+        List<PendingRedirects> first = buffer.drain(true);
+        HyperLogLog changed = first.stream().filter(r -> r.urlId() == 1).findFirst().orElseThrow().visitors();
+
+        // A recorder that picked the sketch up before the drain swapped it out
+        changed.add(visitor(99));
+        assertThat(buffer.drain(true)).singleElement().satisfies(redirects -> {
+            assertThat(redirects.urlId()).isEqualTo(1);
+            assertThat(redirects.count()).isZero();
+            assertThat(redirects.visitors()).isSameAs(changed);
+        });
+        assertThat(buffer.drain(true)).isEmpty();
+    }
+
+    @Test
+    void countDrainsLeaveSketchesInTheBuffer() {
+        buffer.record(1, visitor(10));
+        buffer.record(1, visitor(11));
+
+        assertThat(buffer.drain(false)).singleElement().satisfies(redirects -> {
+            assertThat(redirects.count()).isEqualTo(2);
+            assertThat(redirects.visitors()).isNull();
+        });
+
+        buffer.record(1, visitor(12));
+        assertThat(buffer.drain(true)).singleElement().satisfies(redirects -> {
+            assertThat(redirects.count()).isEqualTo(1);
+            assertThat(redirects.visitors().estimate()).isEqualTo(3);
+        });
+        assertThat(buffer.drain(true)).isEmpty();
+    }
+
+    private static long visitor(int n) {
+        // Spread over all registers, as the real visitor hashes are
+        return n * 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,108 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.RedirectTrackingProperties;
+import daviscyl.tinyurlsvcjava.config.UniqueVisitorProperties;
+import daviscyl.tinyurlsvcjava.repository.RedirectCounterRepository;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedirectCounterFlusherTest {
+
+    private final RedirectTrackingProperties properties = new RedirectTrackingProperties(Duration.ofSeconds(1), 100, 500);
+    private final UniqueVisitorProperties visitorProperties = new UniqueVisitorProperties(10, null, Duration.ofHours(1));
+    private final RedirectCounterBuffer buffer = new RedirectCounterBuffer(properties, visitorProperties);
+    private final RecordingRepository repository = new RecordingRepository();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RedirectCounterFlusher flusher =
+        new RedirectCounterFlusher(buffer, repository, properties, visitorProperties, meterRegistry);
+
+    @Test
+    void flushWritesEverythingBuffered() {
+        buffer.record(1, 1L);
+        buffer.record(1, 2L);
+        buffer.record(2, 1L);
+
+        assertThat(flusher.flush(false)).isEqualTo(3);
+
+        assertThat(repository.applied).hasSize(1);
+        assertThat(repository.applied.getFirst()).extracting(PendingRedirects::urlId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(buffer.pendingCount()).isZero();
+        assertThat(flusher.flush(false)).isZero();
+        assertThat(repository.applied).hasSize(1);
+    }
+
+    @Test
+    void failedFlushKeepsTheCountsForTheNextOne() {
+        buffer.record(1, 1L);
+        buffer.record(1, 2L);
+        repository.failuresLeft = 1;
+
+        assertThatThrownBy(() -> flusher.flush(false)).isInstanceOf(QueryTimeoutException.class);
+        assertThat(buffer.pendingCount()).isEqualTo(2);
+
+        buffer.record(1, 3L);
+        assertThat(flusher.flush(false)).isEqualTo(3);
+        assertThat(repository.applied).singleElement().satisfies(batch ->
+            assertThat(batch).singleElement().extracting(PendingRedirects::count).isEqualTo(3L));
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void repeatedFailuresDropWhatNoLongerFitsTheBuffer() {
+        for (int i = 0; i < 100; i++) {
+            buffer.record(1, i);
+        }
+        repository.failuresLeft = 2;
+        assertThatThrownBy(() -> flusher.flush(false)).isInstanceOf(QueryTimeoutException.class);
+        assertThat(buffer.pendingCount()).isEqualTo(100);
+
+        for (int i = 0; i < 20; i++) {
+            buffer.record(2, i);
+        }
+        assertThatThrownBy(() -> flusher.flush(false)).isInstanceOf(QueryTimeoutException.class);
+
+        assertThat(buffer.pendingCount()).isEqualTo(100);
+        assertThat(meterRegistry.get("tinyurl.redirect.dropped").counter().count()).isEqualTo(20);
+    }
+
+    @Test
+    void sketchesWaitForTheSketchFlushUnlessForced() {
+        buffer.record(1, 1L);
+        flusher.flush(false);
+        assertThat(repository.applied.getLast()).singleElement()
+            .satisfies(redirects -> assertThat(redirects.visitors()).isNull());
+
+        buffer.record(1, 2L);
+        flusher.flush(true);
+        assertThat(repository.applied.getLast()).singleElement()
+            .satisfies(redirects -> assertThat(redirects.visitors()).isNotNull());
+    }
+
+    private static final class RecordingRepository extends RedirectCounterRepository {
+
+        private final List<List<PendingRedirects>> applied = new ArrayList<>();
+        private int failuresLeft;
+
+        private RecordingRepository() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void applyRedirectCounts(List<PendingRedirects> batch, int batchSize) {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new QueryTimeoutException("Simulated flush failure");
+            }
+            applied.add(List.copyOf(batch));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.config.StatsPartitionProperties;
+import daviscyl.tinyurlsvcjava.config.StatsPartitionProperties.RetentionAction;
+import daviscyl.tinyurlsvcjava.repository.StatsPartitionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the maintenance job against a recording repository at fixed points in time. Only the advisory lock
+ * is taken in PostgreSQL, so the shared database keeps its partitions.
+ */
+class StatsPartitionMaintenanceRunTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void createsAheadAndDetachesExpiredMonthsAsTheCalendarMoves() {
+        RecordingRepository repository = new RecordingRepository(jdbcTemplate, YearMonth.of(2031, 1));
+
+        run(repository, RetentionAction.DETACH, "2031-01-15T12:00:00Z");
+        assertThat(repository.operations).containsExactly("create 2031-02", "create 2031-03");
+
+        repository.operations.clear();
+        run(repository, RetentionAction.DETACH, "2031-03-31T23:59:59Z");
+        assertThat(repository.operations).containsExactly("create 2031-04", "create 2031-05");
+
+        repository.operations.clear();
+        run(repository, RetentionAction.DETACH, "2031-04-01T00:00:00Z");
+        assertThat(repository.operations).containsExactly("create 2031-06", "detach 2031-01");
+
+        repository.operations.clear();
+        run(repository, RetentionAction.DETACH, "2031-04-20T00:00:00Z");
+        assertThat(repository.operations).isEmpty();
+    }
+
+    @Test
+    void dropsExpiredMonthsWhenConfigured() {
+        RecordingRepository repository = new RecordingRepository(jdbcTemplate,
+            YearMonth.of(2031, 1), YearMonth.of(2031, 2), YearMonth.of(2031, 3), YearMonth.of(2031, 4));
+
+        run(repository, RetentionAction.DROP, "2031-04-01T00:00:00Z");
+
+        assertThat(repository.operations).containsExactly("create 2031-05", "create 2031-06", "drop 2031-01");
+        assertThat(repository.months).containsExactly(
+            YearMonth.of(2031, 2), YearMonth.of(2031, 3), YearMonth.of(2031, 4), YearMonth.of(2031, 5),
+            YearMonth.of(2031, 6));
+    }
+
+    @Test
+    void skipsTheRunWhileAnotherNodeHoldsTheLock() {
+        RecordingRepository repository = new RecordingRepository(jdbcTemplate, YearMonth.of(2031, 1));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(repository.tryLockMaintenance()).isTrue();
+            // Advisory locks are reentrant within a session, so the other node runs on another connection
+            CompletableFuture.runAsync(() -> run(repository, RetentionAction.DETACH, "2031-01-15T12:00:00Z")).join();
+        });
+        assertThat(repository.operations).isEmpty();
+
+        run(repository, RetentionAction.DETACH, "2031-01-15T12:00:00Z");
+        assertThat(repository.operations).containsExactly("create 2031-02", "create 2031-03");
+    }
+
+    private void run(RecordingRepository repository, RetentionAction action, String now) {
+        StatsPartitionProperties properties = new StatsPartitionProperties(true, 2, 2, action, Duration.ofHours(12));
+        new StatsPartitionMaintenance(repository, properties, transactionManager,
+            Clock.fixed(Instant.parse(now), ZoneOffset.UTC)).maintainPartitions();
+    }
+
+    private static final class RecordingRepository extends StatsPartitionRepository {
+
+        private final Set<YearMonth> months = new TreeSet<>();
+        private final List<String> operations = new ArrayList<>();
+
+        private RecordingRepository(JdbcTemplate jdbcTemplate, YearMonth... existing) {
+            super(jdbcTemplate);
+            months.addAll(List.of(existing));
+        }
+
+        @Override
+        public List<YearMonth> findPartitionMonths() {
+            return List.copyOf(months);
+        }
+
+        @Override
+        public void createPartition(YearMonth month) {
+            months.add(month);
+            operations.add("create " + month);
+        }
+
+        @Override
+        public void detachPartition(YearMonth month) {
+            months.remove(month);
+            operations.add("detach " + month);
+        }
+
+        @Override
+        public void dropPartition(YearMonth month) {
+            months.remove(month);
+            operations.add("drop " + month);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsPartitionMaintenanceTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2026, 11);
+
+    @Test
+    void createsMissingMonthsUpToTheHorizon() {
+        StatsPartitionMaintenance.Plan plan = StatsPartitionMaintenance.plan(
+            List.of(YearMonth.of(2026, 10), CURRENT, YearMonth.of(2026, 12)), CURRENT, 3, 0);
+
+        assertThat(plan.create()).containsExactly(YearMonth.of(2027, 1), YearMonth.of(2027, 2));
+        assertThat(plan.retire()).isEmpty();
+    }
+
+    @Test
+    void retiresMonthsBeforeTheRetentionWindowOldestFirst() {
+        StatsPartitionMaintenance.Plan plan = StatsPartitionMaintenance.plan(
+            List.of(YearMonth.of(2026, 8), YearMonth.of(2026, 5), YearMonth.of(2026, 7), YearMonth.of(2026, 6)),
+            CURRENT, 0, 4);
+
+        assertThat(plan.retire()).containsExactly(YearMonth.of(2026, 5), YearMonth.of(2026, 6));
+        assertThat(plan.create()).containsExactly(CURRENT);
+    }
+}
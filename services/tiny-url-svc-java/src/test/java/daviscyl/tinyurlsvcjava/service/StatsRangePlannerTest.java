@@ -0,0 +1,99 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsRangePlannerTest {
+
+    @Test
+    void coversWholeMonthsWithMonthlyBuckets() {
+        List<StatsRangePlanner.Bucket> plan = StatsRangePlanner.plan(
+            Instant.parse("2025-01-01T00:00:00Z"), Instant.parse("2026-01-01T00:00:00Z"), null, null);
+
+        assertThat(plan).hasSize(12).allMatch(bucket -> bucket.granularity() == StatsGranularity.MONTH);
+    }
+
+    @Test
+    void fillsPartialMonthsWithWeeksThenDays() {
+        // Friday 3 January to Wednesday 19 March
+        List<StatsRangePlanner.Bucket> plan = StatsRangePlanner.plan(
+            Instant.parse("2025-01-03T00:00:00Z"), Instant.parse("2025-03-20T00:00:00Z"), null, null);
+
+        assertThat(plan).containsExactly(
+            day("2025-01-03"), day("2025-01-04"), day("2025-01-05"),
+            week("2025-01-06"), week("2025-01-13"), week("2025-01-20"),
+            day("2025-01-27"), day("2025-01-28"), day("2025-01-29"), day("2025-01-30"), day("2025-01-31"),
+            new StatsRangePlanner.Bucket(StatsGranularity.MONTH, Instant.parse("2025-02-01T00:00:00Z")),
+            day("2025-03-01"), day("2025-03-02"),
+            week("2025-03-03"), week("2025-03-10"),
+            day("2025-03-17"), day("2025-03-18"), day("2025-03-19"));
+    }
+
+    @Test
+    void widensPartialDaysWithoutHourlyTier() {
+        List<StatsRangePlanner.Bucket> plan = StatsRangePlanner.plan(
+            Instant.parse("2025-01-03T10:30:00Z"), Instant.parse("2025-01-04T05:00:00Z"), null, null);
+
+        assertThat(plan).containsExactly(day("2025-01-03"), day("2025-01-04"));
+    }
+
+    @Test
+    void readsRecentPartialDaysFromHourlyTier() {
+        Instant hourlyFrom = Instant.parse("2025-01-01T00:00:00Z");
+        List<StatsRangePlanner.Bucket> plan = StatsRangePlanner.plan(
+            Instant.parse("2025-01-03T21:30:00Z"), Instant.parse("2025-01-05T02:00:00Z"), hourlyFrom, null);
+
+        assertThat(plan).containsExactly(
+            hour("2025-01-03T21:00:00Z"), hour("2025-01-03T22:00:00Z"), hour("2025-01-03T23:00:00Z"),
+            day("2025-01-04"),
+            hour("2025-01-05T00:00:00Z"), hour("2025-01-05T01:00:00Z"));
+    }
+
+    @Test
+    void keepsWithinOneDayToTheHour() {
+        List<StatsRangePlanner.Bucket> plan = StatsRangePlanner.plan(
+            Instant.parse("2025-01-03T10:00:00Z"), Instant.parse("2025-01-03T12:00:00Z"),
+            Instant.parse("2025-01-01T00:00:00Z"), null);
+
+        assertThat(plan).containsExactly(hour("2025-01-03T10:00:00Z"), hour("2025-01-03T11:00:00Z"));
+    }
+
+    @Test
+    void readsBucketsThatMayNotBeRolledUpYetAsDays() {
+        // Weeks from Monday 6 January; rollups are complete up to Wednesday 15 January
+        List<StatsRangePlanner.Bucket> plan = StatsRangePlanner.plan(
+            Instant.parse("2025-01-06T00:00:00Z"), Instant.parse("2025-01-17T00:00:00Z"), null,
+            Instant.parse("2025-01-15T00:00:00Z"));
+
+        assertThat(plan).containsExactly(
+            week("2025-01-06"),
+            day("2025-01-13"), day("2025-01-14"), day("2025-01-15"), day("2025-01-16"));
+    }
+
+    @Test
+    void excludesTheDayAtAnExclusiveEndOnEveryTier() {
+        Instant from = Instant.parse("2025-01-03T00:00:00Z");
+        Instant to = Instant.parse("2025-01-05T00:00:00Z");
+
+        assertThat(StatsRangePlanner.plan(from, to, null, null))
+            .containsExactly(day("2025-01-03"), day("2025-01-04"));
+        assertThat(StatsRangePlanner.plan(from, to, Instant.parse("2025-01-01T00:00:00Z"), null))
+            .containsExactly(day("2025-01-03"), day("2025-01-04"));
+    }
+
+    private static StatsRangePlanner.Bucket hour(String start) {
+        return new StatsRangePlanner.Bucket(StatsGranularity.HOUR, Instant.parse(start));
+    }
+
+    private static StatsRangePlanner.Bucket day(String date) {
+        return new StatsRangePlanner.Bucket(StatsGranularity.DAY, Instant.parse(date + "T00:00:00Z"));
+    }
+
+    private static StatsRangePlanner.Bucket week(String date) {
+        return new StatsRangePlanner.Bucket(StatsGranularity.WEEK, Instant.parse(date + "T00:00:00Z"));
+    }
+}
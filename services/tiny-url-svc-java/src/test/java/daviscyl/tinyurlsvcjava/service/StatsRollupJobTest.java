@@ -0,0 +1,129 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.repository.RedirectCounterRepository;
+import daviscyl.tinyurlsvcjava.repository.StatsRollupRepository;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsRollupJobTest extends PostgresIntegrationTest {
+
+    // Monday; the week ends in the next month
+    private static final LocalDate MONDAY = LocalDate.parse("2025-06-30");
+
+    @Autowired
+    private StatsRollupJob statsRollupJob;
+
+    @Autowired
+    private StatsRollupRepository statsRollupRepository;
+
+    @Autowired
+    private RedirectCounterRepository counterRepository;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void rebuildsTheWeeksAndMonthsOfQueuedDays() {
+        long urlId = urlService.createUrl("https://example.com/rolled-up", null, null, "rollup-test").getId();
+        long now = System.currentTimeMillis();
+        counterRepository.applyRedirectCounts(List.of(
+            new PendingRedirects(urlId, MONDAY, 2, now, visitors(1, 2)),
+            new PendingRedirects(urlId, MONDAY.plusDays(1), 3, now, visitors(2, 3)),
+            new PendingRedirects(urlId, MONDAY.plusDays(2), 4, now, visitors(4))), 500);
+
+        statsRollupJob.rollUp();
+
+        assertThat(weekly(urlId, MONDAY))
+            .containsEntry("redirect_count", 9L)
+            .containsEntry("unique_visitors", 4L);
+        assertThat(monthly(urlId, LocalDate.parse("2025-06-01")))
+            .containsEntry("redirect_count", 2L)
+            .containsEntry("unique_visitors", 2L);
+        assertThat(monthly(urlId, LocalDate.parse("2025-07-01")))
+            .containsEntry("redirect_count", 7L)
+            .containsEntry("unique_visitors", 3L);
+        assertThat(queuedDays(urlId)).isZero();
+    }
+
+    @Test
+    void rebuildsAreAbsoluteSoLaterFlushesAreNotCountedTwice() {
+        long urlId = urlService.createUrl("https://example.com/rebuilt", null, null, "rollup-test").getId();
+        long now = System.currentTimeMillis();
+        counterRepository.applyRedirectCounts(List.of(new PendingRedirects(urlId, MONDAY, 2, now, visitors(1))), 500);
+        statsRollupJob.rollUp();
+        statsRollupJob.rollUp();
+
+        counterRepository.applyRedirectCounts(List.of(new PendingRedirects(urlId, MONDAY, 3, now, visitors(1, 2))), 500);
+        assertThat(queuedDays(urlId)).isEqualTo(1L);
+        statsRollupJob.rollUp();
+
+        assertThat(weekly(urlId, MONDAY))
+            .containsEntry("redirect_count", 5L)
+            .containsEntry("unique_visitors", 2L);
+        assertThat(queuedDays(urlId)).isZero();
+    }
+
+    @Test
+    void leavesQueuedDaysWhileAnotherNodeRebuilds() {
+        long urlId = urlService.createUrl("https://example.com/locked", null, null, "rollup-test").getId();
+        counterRepository.applyRedirectCounts(
+            List.of(new PendingRedirects(urlId, MONDAY, 1, System.currentTimeMillis(), visitors(1))), 500);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(statsRollupRepository.tryLockRollups()).isTrue();
+            // Advisory locks are reentrant within a session, so the other node runs on another connection
+            CompletableFuture.runAsync(statsRollupJob::rollUp).join();
+        });
+
+        assertThat(queuedDays(urlId)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM url_stats_weekly WHERE url_id = ?", Long.class, urlId)).isZero();
+
+        statsRollupJob.rollUp();
+
+        assertThat(weekly(urlId, MONDAY)).containsEntry("redirect_count", 1L);
+    }
+
+    private Map<String, Object> weekly(long urlId, LocalDate weekStart) {
+        return jdbcTemplate.queryForMap(
+            "SELECT redirect_count, unique_visitors FROM url_stats_weekly WHERE url_id = ? AND week_start = ?",
+            urlId, weekStart);
+    }
+
+    private Map<String, Object> monthly(long urlId, LocalDate monthStart) {
+        return jdbcTemplate.queryForMap(
+            "SELECT redirect_count, unique_visitors FROM url_stats_monthly WHERE url_id = ? AND month_start = ?",
+            urlId, monthStart);
+    }
+
+    private long queuedDays(long urlId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM url_stats_rollup_queue WHERE url_id = ?", Long.class, urlId);
+    }
+
+    private static HyperLogLog visitors(int... ids) {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int id : ids) {
+            sketch.add(id * 0x9E3779B97F4A7C15L);
+        }
+        return sketch;
+    }
+}
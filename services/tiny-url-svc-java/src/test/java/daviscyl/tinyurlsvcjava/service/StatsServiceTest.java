@@ -0,0 +1,121 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.entity.UrlStatsEntity;
+import daviscyl.tinyurlsvcjava.repository.UrlStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StatsServiceTest {
+
+    private static final String OWNER = "stats-test";
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private UrlStatsRepository urlStatsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rangeEndIsExclusive() {
+        String alias = urlWithDays("exclusiveEnd", "2025-01-03", 2, "2025-01-04", 3, "2025-01-05", 7);
+
+        StatsService.StatsResult stats = statsService.getUrlStats(alias, OWNER,
+            at("2025-01-03T00:00:00Z"), at("2025-01-05T00:00:00Z"));
+
+        assertThat(stats.periodRedirectCount()).isEqualTo(5L);
+        assertThat(stats.timeSeries()).extracting(StatsService.StatsBucket::start).containsExactly(
+            at("2025-01-03T00:00:00Z").toInstant(), at("2025-01-04T00:00:00Z").toInstant());
+    }
+
+    @Test
+    void widensBoundsWithinADayToTheWholeDay() {
+        String alias = urlWithDays("widenedDays", "2025-01-03", 2, "2025-01-04", 3, "2025-01-05", 7);
+
+        StatsService.StatsResult stats = statsService.getUrlStats(alias, OWNER,
+            at("2025-01-03T10:30:00Z"), at("2025-01-04T05:00:00Z"));
+
+        assertThat(stats.periodRedirectCount()).isEqualTo(5L);
+    }
+
+    @Test
+    void boundsInAnotherOffsetSelectTheSameUtcRange() {
+        String alias = urlWithDays("offsetBounds", "2025-01-03", 2, "2025-01-04", 3, "2025-01-05", 7);
+
+        StatsService.StatsResult stats = statsService.getUrlStats(alias, OWNER,
+            OffsetDateTime.parse("2025-01-04T01:00:00+01:00"), OffsetDateTime.parse("2025-01-05T01:00:00+01:00"));
+
+        assertThat(stats.periodRedirectCount()).isEqualTo(3L);
+    }
+
+    @Test
+    void readsWholeMonthsFromTheMonthlyRollup() {
+        String alias = urlWithDays("monthlyRollup", "2024-12-31", 1, "2025-01-02", 2);
+        long urlId = urlService.findByAlias(alias).orElseThrow().getId();
+        jdbcTemplate.update(
+            "INSERT INTO url_stats_monthly (url_id, month_start, redirect_count, unique_visitors) VALUES (?, ?, ?, 0)",
+            urlId, LocalDate.parse("2024-12-01"), 40L);
+
+        StatsService.StatsResult stats = statsService.getUrlStats(alias, OWNER,
+            at("2024-12-01T00:00:00Z"), at("2025-01-03T00:00:00Z"));
+
+        assertThat(stats.periodRedirectCount()).isEqualTo(42L);
+        assertThat(stats.timeSeries()).extracting(StatsService.StatsBucket::granularity)
+            .containsExactly(StatsGranularity.MONTH, StatsGranularity.DAY);
+    }
+
+    @Test
+    void defaultRangeEndsWithToday() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        String alias = urlWithDays("defaultRange", today.minusDays(31).toString(), 100, today.toString(), 4);
+
+        StatsService.StatsResult stats = statsService.getUrlStats(alias, OWNER, null, null);
+
+        assertThat(stats.periodRedirectCount()).isEqualTo(4L);
+    }
+
+    @Test
+    void otherUsersCannotReadStats() {
+        String alias = urlWithDays("ownedStats", "2025-01-03", 1);
+
+        assertThatThrownBy(() -> statsService.getUrlStats(alias, "someone-else", null, null))
+            .isInstanceOf(SecurityException.class);
+    }
+
+    /**
+     * Creates a url with the given daily redirect counts, as alternating days and counts.
+     */
+    private String urlWithDays(String alias, Object... daysAndCounts) {
+        long urlId = urlService.createUrl("https://example.com/" + alias, alias, null, OWNER).getId();
+        for (int i = 0; i < daysAndCounts.length; i += 2) {
+            urlStatsRepository.save(UrlStatsEntity.builder()
+                .urlId(urlId)
+                .statDate(LocalDate.parse((String) daysAndCounts[i]))
+                .redirectCount(((Integer) daysAndCounts[i + 1]).longValue())
+                .uniqueVisitors(0L)
+                .build());
+        }
+        return alias;
+    }
+
+    private static OffsetDateTime at(String instant) {
+        return OffsetDateTime.parse(instant);
+    }
+}
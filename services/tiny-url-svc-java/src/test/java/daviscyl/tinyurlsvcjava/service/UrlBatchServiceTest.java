@@ -0,0 +1,61 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.config.AliasGeneratorProperties;
+import daviscyl.tinyurlsvcjava.service.UrlBatchService.BatchCreateResult;
+import daviscyl.tinyurlsvcjava.service.UrlBatchService.NewUrl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UrlBatchServiceTest extends PostgresIntegrationTest {
+
+    private static final String OWNER = "batch-service";
+
+    @Autowired
+    private UrlBatchService urlBatchService;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private AliasGenerator aliasGenerator;
+
+    @Autowired
+    private AliasGeneratorProperties generatorProperties;
+
+    @Test
+    void generatedAliasesTakenByCustomAliasesAreReplaced() {
+        AliasCodec codec = new AliasCodec(generatorProperties.scramble(), generatorProperties.scrambleKey());
+        long next = aliasGenerator.nextId() + 1;
+        List<String> upcoming = List.of(codec.encode(next), codec.encode(next + 1));
+        for (String alias : upcoming) {
+            urlService.createUrl("https://example.com/custom", alias, null, OWNER);
+        }
+
+        List<BatchCreateResult> results = urlBatchService.createUrls(List.of(
+            new NewUrl("https://example.com/g1", null, null),
+            new NewUrl("https://example.com/g2", null, null),
+            new NewUrl("https://example.com/g3", null, null)), OWNER);
+
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.created()).isTrue();
+            assertThat(result.url().getId()).isNotNull();
+            assertThat(upcoming).doesNotContain(result.url().getAlias());
+        });
+        assertThat(results).extracting(result -> result.url().getAlias()).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void rejectsMoreItemsThanConfigured() {
+        List<NewUrl> tooMany = Collections.nCopies(1001, new NewUrl("https://example.com/x", null, null));
+
+        assertThatThrownBy(() -> urlBatchService.createUrls(tooMany, OWNER))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
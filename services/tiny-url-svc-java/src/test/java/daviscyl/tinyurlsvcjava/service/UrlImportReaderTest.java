@@ -0,0 +1,106 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.service.UrlImportReader.ImportLine;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UrlImportReaderTest {
+
+    @Test
+    void readsNdjsonRecordsAndRejectsInvalidLines() throws IOException {
+        List<ImportLine> lines = readAll(UrlImportReader.Format.NDJSON, """
+            {"longUrl":"https://example.com/a","customAlias":"legacy01","userId":"alice","createdAt":"2019-05-01T10:00:00Z"}
+            {"longUrl":"https://example.com/b"}
+
+            {"longUrl":"not a uri"}
+            {"longUrl":"https://example.com/c","customAlias":"x"}
+            {"longUrl":"https://example.com/d","shortUrl":"https://tiny.url/abcd"}
+            {"longUrl":"https://example.com/e","expiresAt":"2001-01-01T00:00:00Z"}
+            {"longUrl":
+            """);
+
+        assertThat(lines).extracting(ImportLine::lineNumber).containsExactly(1L, 2L, 4L, 5L, 6L, 7L, 8L);
+        ImportLine first = lines.get(0);
+        assertThat(first.rejected()).isFalse();
+        assertThat(first.record().customAlias()).isEqualTo("legacy01");
+        assertThat(first.record().userId()).isEqualTo("alice");
+        assertThat(first.record().createdAt()).isEqualTo(OffsetDateTime.parse("2019-05-01T10:00:00Z"));
+        assertThat(lines.get(1).record().userId()).isEqualTo("legacy");
+        assertThat(lines.get(1).record().customAlias()).isNull();
+
+        assertThat(lines.subList(2, lines.size())).extracting(ImportLine::rejectReason).containsExactly(
+            "longUrl is not a valid URI",
+            "customAlias must match ^[a-zA-Z0-9_-]{4,64}$",
+            "Unknown field: shortUrl",
+            "expiresAt is in the past",
+            "Not valid JSON");
+    }
+
+    @Test
+    void readsCsvWithQuotedFields() throws IOException {
+        List<ImportLine> lines = readAll(UrlImportReader.Format.CSV, """
+            customAlias,longUrl,userId,expiresAt
+            legacy02,"https://example.com/search?q=a,b",,
+            legacy03,https://example.com/c
+            legacy04,https://example.com/d,"o""brien",2099-01-01T00:00:00+02:00
+            """);
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0).record().longUrl()).isEqualTo("https://example.com/search?q=a,b");
+        assertThat(lines.get(0).record().userId()).isEqualTo("legacy");
+        assertThat(lines.get(0).record().expiresAt()).isNull();
+        assertThat(lines.get(1).rejectReason()).isEqualTo("Expected 4 fields, found 2");
+        assertThat(lines.get(2).lineNumber()).isEqualTo(4);
+        assertThat(lines.get(2).record().userId()).isEqualTo("o\"brien");
+        assertThat(lines.get(2).record().expiresAt()).isEqualTo(OffsetDateTime.parse("2099-01-01T00:00:00+02:00"));
+    }
+
+    @Test
+    void csvHeaderMustNameKnownColumns() {
+        assertThatThrownBy(() -> reader(UrlImportReader.Format.CSV, "alias,longUrl\n"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown CSV column: alias");
+    }
+
+    @Test
+    void resumesAfterTheCommittedLine() throws IOException {
+        UrlImportReader reader = reader(UrlImportReader.Format.CSV, """
+            longUrl
+            https://example.com/1
+            https://example.com/2
+            https://example.com/3
+            """);
+
+        reader.skipThrough(3);
+
+        ImportLine next = reader.next();
+        assertThat(next.lineNumber()).isEqualTo(4);
+        assertThat(next.record().longUrl()).isEqualTo("https://example.com/3");
+        assertThat(reader.next()).isNull();
+        assertThatThrownBy(() -> reader.skipThrough(10)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static List<ImportLine> readAll(UrlImportReader.Format format, String input) throws IOException {
+        List<ImportLine> lines = new ArrayList<>();
+        try (UrlImportReader reader = reader(format, input)) {
+            ImportLine line;
+            while ((line = reader.next()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static UrlImportReader reader(UrlImportReader.Format format, String input) throws IOException {
+        return new UrlImportReader(new BufferedReader(new StringReader(input)), format, "legacy");
+    }
+}
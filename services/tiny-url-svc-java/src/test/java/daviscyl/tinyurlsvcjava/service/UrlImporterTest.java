@@ -0,0 +1,160 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.cache.AliasShield;
+import daviscyl.tinyurlsvcjava.config.AliasGeneratorProperties;
+import daviscyl.tinyurlsvcjava.config.UrlImportProperties;
+import daviscyl.tinyurlsvcjava.repository.ImportJobRepository;
+import daviscyl.tinyurlsvcjava.repository.ImportJobRepository.ImportJob;
+import daviscyl.tinyurlsvcjava.repository.UrlBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Batches are inserted with ON CONFLICT and RETURNING, so imports run against PostgreSQL
+class UrlImporterTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UrlBatchRepository urlBatchRepository;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private AliasGenerator aliasGenerator;
+
+    @Autowired
+    private AliasGeneratorProperties generatorProperties;
+
+    @Autowired
+    private AliasShield aliasShield;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UrlImporter importer;
+
+    @BeforeEach
+    void smallBatchesThroughAShortQueue() {
+        UrlImportProperties properties = new UrlImportProperties(
+            null, null, null, null, 2, 1, Duration.ofSeconds(10), false);
+        importer = new UrlImporter(urlBatchRepository, importJobRepository, aliasGenerator, aliasShield,
+            properties, transactionManager, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void pipelinedWriterImportsEveryBatchAndCompletes() throws Exception {
+        ImportJob job = importer.run("pipelined", "test", reader(lines("pipelined", 25), "import-pipelined"));
+
+        assertThat(job.status()).isEqualTo(ImportJob.Status.COMPLETED);
+        assertThat(job.linesDone()).isEqualTo(25);
+        assertThat(job.imported()).isEqualTo(25);
+        assertThat(urlCount("import-pipelined")).isEqualTo(25);
+
+        // A completed job is not run again
+        ImportJob again = importer.run("pipelined", "test", reader(lines("pipelined", 25), "import-pipelined"));
+        assertThat(again.imported()).isEqualTo(25);
+        assertThat(urlCount("import-pipelined")).isEqualTo(25);
+    }
+
+    @Test
+    void failedImportResumesAfterItsLastCommittedBatch() throws Exception {
+        String input = lines("resumed", 10);
+
+        assertThatThrownBy(() -> importer.run("resumed", "test", new UrlImportReader(
+                new FailingReader(input, 7), UrlImportReader.Format.NDJSON, "import-resumed")))
+            .isInstanceOf(IOException.class);
+
+        ImportJob failed = importJobRepository.find("resumed");
+        assertThat(failed.status()).isEqualTo(ImportJob.Status.FAILED);
+        assertThat(failed.linesDone()).isEqualTo(6);
+        assertThat(failed.imported()).isEqualTo(6);
+        assertThat(urlCount("import-resumed")).isEqualTo(6);
+
+        ImportJob resumed = importer.run("resumed", "test", reader(input, "import-resumed"));
+
+        assertThat(resumed.status()).isEqualTo(ImportJob.Status.COMPLETED);
+        assertThat(resumed.linesDone()).isEqualTo(10);
+        assertThat(resumed.imported()).isEqualTo(10);
+        assertThat(urlCount("import-resumed")).isEqualTo(10);
+    }
+
+    @Test
+    void takenCustomAliasesAreRejectedAndTakenGeneratedAliasesReplaced() throws Exception {
+        urlService.createUrl("https://example.com/existing", "legacyTaken", null, "import-owner");
+        AliasCodec codec = new AliasCodec(generatorProperties.scramble(), generatorProperties.scrambleKey());
+        String upcoming = codec.encode(aliasGenerator.nextId() + 1);
+        urlService.createUrl("https://example.com/existing", upcoming, null, "import-owner");
+
+        ImportJob job = importer.run("conflicts", "test", reader("""
+            {"longUrl":"https://example.com/a","customAlias":"legacyTaken"}
+            {"longUrl":"https://example.com/b"}
+            {"longUrl":"https://example.com/c"}
+            """, "import-conflicts"));
+
+        assertThat(job.status()).isEqualTo(ImportJob.Status.COMPLETED);
+        assertThat(job.imported()).isEqualTo(2);
+        assertThat(job.conflicts()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList(
+            "SELECT reason FROM import_rejects WHERE job_id = ? AND line_number = 1", String.class, "conflicts"))
+            .containsExactly("customAlias is already taken");
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT destination_url FROM urls WHERE alias = ?", String.class, upcoming))
+            .isEqualTo("https://example.com/existing");
+    }
+
+    private long urlCount(String userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM urls WHERE user_id = ?", Long.class, userId);
+    }
+
+    private static String lines(String prefix, int count) {
+        return IntStream.rangeClosed(1, count)
+            .mapToObj(i -> "{\"longUrl\":\"https://example.com/" + prefix + "/" + i + "\"}")
+            .collect(Collectors.joining("\n", "", "\n"));
+    }
+
+    private static UrlImportReader reader(String input, String userId) throws IOException {
+        return new UrlImportReader(new BufferedReader(new StringReader(input)), UrlImportReader.Format.NDJSON, userId);
+    }
+
+    /**
+     * Fails when line {@code failAt} is read, like an input stream that broke off.
+     */
+    private static final class FailingReader extends BufferedReader {
+
+        private final int failAt;
+        private int read;
+
+        private FailingReader(String input, int failAt) {
+            super(new StringReader(input));
+            this.failAt = failAt;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            if (++read == failAt) {
+                throw new IOException("Input broke off at line " + failAt);
+            }
+            return super.readLine();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.PostgresIntegrationTest;
+import daviscyl.tinyurlsvcjava.cache.HotAliasTracker;
+import daviscyl.tinyurlsvcjava.config.UrlReaperProperties;
+import daviscyl.tinyurlsvcjava.repository.RedirectCounterRepository;
+import daviscyl.tinyurlsvcjava.repository.UrlReaperRepository;
+import daviscyl.tinyurlsvcjava.service.RedirectCounterBuffer.PendingRedirects;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlReaperTest extends PostgresIntegrationTest {
+
+    private static final String OWNER = "reaper-run-test";
+
+    @Autowired
+    private UrlReaperRepository urlReaperRepository;
+
+    @Autowired
+    private RedirectCounterRepository counterRepository;
+
+    @Autowired
+    private HotAliasTracker hotAliasTracker;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void reapsInBatchesWithinTheRunBudgetAndEvictsTheAliases() {
+        CacheManager cacheManager = new ConcurrentMapCacheManager(RedirectService.URL_CACHE);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UrlReaper reaper = reaper(cacheManager, meterRegistry, Duration.ofSeconds(5));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String alias = "reapRun" + i;
+            ids.add(expiredUrl(alias, Duration.ofDays(1_000 + i)));
+            cacheManager.getCache(RedirectService.URL_CACHE).put(alias, new ResolvedUrl(ids.get(i), "https://example.com/", null));
+        }
+
+        // Two batches of two per run, longest expired first
+        reaper.reap();
+
+        assertThat(remaining(ids)).isEqualTo(1L);
+        assertThat(meterRegistry.get("tinyurl.reaper.urls").tag("reason", "expired").counter().count()).isEqualTo(4.0);
+        assertThat(cacheManager.getCache(RedirectService.URL_CACHE).get("reapRun4")).isNull();
+        assertThat(cacheManager.getCache(RedirectService.URL_CACHE).get("reapRun0")).isNotNull();
+
+        reaper.reap();
+
+        assertThat(remaining(ids)).isZero();
+        assertThat(cacheManager.getCache(RedirectService.URL_CACHE).get("reapRun0")).isNull();
+        for (long id : ids) {
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM urls_archive WHERE id = ?", Long.class, id))
+                .isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void stopsTheRunOnALockTimeout() {
+        UrlReaper reaper = reaper(new ConcurrentMapCacheManager(), new SimpleMeterRegistry(), Duration.ofMillis(50));
+        long urlId = expiredUrl("reapBlocked", Duration.ofDays(40));
+        counterRepository.applyRedirectCounts(
+            List.of(new PendingRedirects(urlId, LocalDate.now(ZoneOffset.UTC), 1, System.currentTimeMillis(), null)), 500);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // The cascading delete of the stats row has to wait for this lock
+            jdbcTemplate.queryForList("SELECT url_id FROM url_stats WHERE url_id = ? FOR UPDATE", urlId);
+            CompletableFuture.runAsync(reaper::reap).join();
+        });
+
+        assertThat(remaining(List.of(urlId))).isEqualTo(1L);
+    }
+
+    private UrlReaper reaper(CacheManager cacheManager, SimpleMeterRegistry meterRegistry, Duration lockTimeout) {
+        UrlReaperProperties properties = new UrlReaperProperties(true, UrlReaperProperties.Mode.ARCHIVE,
+            Duration.ofDays(30), Duration.ofDays(30), Duration.ofHours(1), 2, 2, Duration.ZERO, lockTimeout);
+        return new UrlReaper(urlReaperRepository, properties, cacheManager, hotAliasTracker, transactionManager,
+            meterRegistry);
+    }
+
+    private long expiredUrl(String alias, Duration expiredFor) {
+        long urlId = urlService.createUrl("https://example.com/" + alias, alias, null, OWNER).getId();
+        jdbcTemplate.update("UPDATE urls SET expires_at = ? WHERE id = ?",
+            Timestamp.from(Instant.now().minus(expiredFor)), urlId);
+        return urlId;
+    }
+
+    private long remaining(List<Long> ids) {
+        return ids.stream()
+            .filter(id -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM urls WHERE id = ?", Long.class, id) > 0)
+            .count();
+    }
+}
@@ -0,0 +1,57 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.config.AliasGeneratorProperties;
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UrlServiceCreateTest {
+
+    private static final String OWNER = "create-test";
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private AliasGenerator aliasGenerator;
+
+    @Autowired
+    private AliasGeneratorProperties generatorProperties;
+
+    @Test
+    void takenCustomAliasIsAConflict() {
+        urlService.createUrl("https://example.com/first", "takenOnce", null, OWNER);
+
+        assertThatThrownBy(() -> urlService.createUrl("https://example.com/second", "takenOnce", null, OWNER))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Alias already exists");
+    }
+
+    @Test
+    void generatedAliasTakenByACustomAliasIsReplaced() {
+        AliasCodec codec = new AliasCodec(generatorProperties.scramble(), generatorProperties.scrambleKey());
+        String upcoming = codec.encode(aliasGenerator.nextId() + 1);
+        urlService.createUrl("https://example.com/custom", upcoming, null, OWNER);
+
+        UrlEntity generated = urlService.createUrl("https://example.com/generated", null, null, OWNER);
+
+        assertThat(generated.getId()).isNotNull();
+        assertThat(generated.getAlias()).isNotEqualTo(upcoming);
+        assertThat(urlService.findByAlias(upcoming)).get()
+            .extracting(UrlEntity::getDestinationUrl).isEqualTo("https://example.com/custom");
+    }
+
+    @Test
+    void otherIntegrityViolationsAreNotReportedAsConflicts() {
+        assertThatThrownBy(() -> urlService.createUrl(null, "noDestination", null, OWNER))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    }
+}
@@ -0,0 +1,93 @@
+package daviscyl.tinyurlsvcjava.service;
+
+import daviscyl.tinyurlsvcjava.entity.UrlEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UrlServiceListingTest {
+
+    @Autowired
+    private UrlService urlService;
+
+    @Test
+    void cursorPagesWalkTheSameOrderAsOffsetPages() {
+        String userId = "listing-cursor";
+        createUrls(userId, "walk", 25);
+
+        UrlService.UrlPage all = urlService.listUrls(userId, null, 0, 100, null, true);
+        assertThat(all.totalItems()).isEqualTo(25L);
+
+        List<String> walked = new ArrayList<>();
+        UrlService.UrlPage page = urlService.listUrls(userId, null, 0, 10, null, false);
+        walked.addAll(aliases(page));
+        assertThat(page.totalItems()).isNull();
+        while (page.nextCursor() != null) {
+            page = urlService.listUrls(userId, null, 0, 10, page.nextCursor(), false);
+            walked.addAll(aliases(page));
+        }
+
+        assertThat(walked).containsExactlyElementsOf(aliases(all));
+    }
+
+    @Test
+    void offsetPagesCountOnlyWhenAsked() {
+        String userId = "listing-offset";
+        createUrls(userId, "offs", 5);
+
+        UrlService.UrlPage counted = urlService.listUrls(userId, null, 1, 2, null, true);
+        UrlService.UrlPage uncounted = urlService.listUrls(userId, null, 1, 2, null, false);
+
+        assertThat(counted.totalItems()).isEqualTo(5L);
+        assertThat(counted.nextPage()).isEqualTo(2);
+        assertThat(uncounted.totalItems()).isNull();
+        assertThat(aliases(uncounted)).containsExactlyElementsOf(aliases(counted));
+    }
+
+    @Test
+    void searchMatchesSubstringsCaseInsensitively() {
+        String userId = "listing-search";
+        urlService.createUrl("https://example.com/Spring-Sale", "promoA1", null, userId);
+        urlService.createUrl("https://example.com/other", "SALEb22", null, userId);
+        urlService.createUrl("https://example.com/other", "plain33", null, userId);
+        urlService.createUrl("https://example.com/100%25", "pct_off", null, userId);
+
+        UrlService.UrlPage sale = urlService.listUrls(userId, "sale", 0, 10, null, true);
+        assertThat(aliases(sale)).containsExactlyInAnyOrder("promoA1", "SALEb22");
+        assertThat(sale.totalItems()).isEqualTo(2L);
+
+        UrlService.UrlPage firstSale = urlService.listUrls(userId, "sale", 0, 1, null, false);
+        UrlService.UrlPage secondSale = urlService.listUrls(userId, "sale", 0, 1, firstSale.nextCursor(), false);
+        assertThat(aliases(secondSale)).hasSize(1).doesNotContainAnyElementsOf(aliases(firstSale));
+        assertThat(secondSale.nextCursor()).isNull();
+
+        // Wildcards in the search term are matched literally
+        assertThat(aliases(urlService.listUrls(userId, "t_o", 0, 10, null, false))).containsExactly("pct_off");
+        assertThat(aliases(urlService.listUrls(userId, "%", 0, 10, null, false))).containsExactly("pct_off");
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThatThrownBy(() -> urlService.listUrls("listing-invalid", null, 0, 10, "not a cursor", false))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void createUrls(String userId, String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            urlService.createUrl("https://example.com/" + i, prefix + "-" + i, null, userId);
+        }
+    }
+
+    private static List<String> aliases(UrlService.UrlPage page) {
+        return page.content().stream().map(UrlEntity::getAlias).toList();
+    }
+}
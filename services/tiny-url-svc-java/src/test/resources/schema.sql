@@ -0,0 +1,73 @@
+-- Objects that are created by Flyway in production but are not part of the Hibernate mapping
+CREATE SEQUENCE IF NOT EXISTS url_alias_block_seq START WITH 1 INCREMENT BY 1;
+
+-- Stats rollups are written with JDBC and have no entity
+CREATE TABLE IF NOT EXISTS url_stats_hourly (
+    url_id BIGINT NOT NULL,
+    stat_hour TIMESTAMP NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    unique_visitors BIGINT NOT NULL DEFAULT 0,
+    visitor_sketch VARBINARY,
+    PRIMARY KEY (url_id, stat_hour)
+);
+
+CREATE TABLE IF NOT EXISTS url_stats_weekly (
+    url_id BIGINT NOT NULL,
+    week_start DATE NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    unique_visitors BIGINT NOT NULL DEFAULT 0,
+    visitor_sketch VARBINARY,
+    PRIMARY KEY (url_id, week_start)
+);
+
+CREATE TABLE IF NOT EXISTS url_stats_monthly (
+    url_id BIGINT NOT NULL,
+    month_start DATE NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    unique_visitors BIGINT NOT NULL DEFAULT 0,
+    visitor_sketch VARBINARY,
+    PRIMARY KEY (url_id, month_start)
+);
+
+CREATE TABLE IF NOT EXISTS url_stats_rollup_queue (
+    url_id BIGINT NOT NULL,
+    stat_date DATE NOT NULL,
+    PRIMARY KEY (url_id, stat_date)
+);
+
+-- Click log compaction, written with JDBC
+CREATE TABLE IF NOT EXISTS url_stats_dimensions (
+    url_id BIGINT NOT NULL,
+    stat_date DATE NOT NULL,
+    dimension VARCHAR(16) NOT NULL,
+    dimension_value VARCHAR(64) NOT NULL,
+    redirect_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (url_id, stat_date, dimension, dimension_value)
+);
+
+CREATE TABLE IF NOT EXISTS click_log_checkpoints (
+    node_id VARCHAR(255) PRIMARY KEY,
+    segment BIGINT NOT NULL,
+    position INTEGER NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Bulk imports, written with JDBC
+CREATE TABLE IF NOT EXISTS import_jobs (
+    job_id VARCHAR(255) PRIMARY KEY,
+    source VARCHAR(4096) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    lines_done BIGINT NOT NULL DEFAULT 0,
+    imported BIGINT NOT NULL DEFAULT 0,
+    conflicts BIGINT NOT NULL DEFAULT 0,
+    rejected BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS import_rejects (
+    job_id VARCHAR(255) NOT NULL,
+    line_number BIGINT NOT NULL,
+    reason VARCHAR(1024) NOT NULL,
+    PRIMARY KEY (job_id, line_number)
+);